@@ -0,0 +1,175 @@
+package ki.robotics.client.MCL;
+
+import ki.robotics.client.ClientFactory;
+import ki.robotics.client.GUI.GuiConfiguration;
+import ki.robotics.client.GUI.impl.GuiConfigurationImplHeadless;
+import ki.robotics.client.MCL.impl.LocalizationProviderImplMCL;
+import ki.robotics.utility.map.Map;
+import ki.robotics.utility.pixyCam.DTOGeneralQuery;
+import ki.robotics.utility.pixyCam.DTOSignatureQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the single steps of the monte-carlo-localization on the bundled maps.
+ * No observer is attached to the localization-provider, so it runs headless and skips the particle-coloring.
+ * A fresh provider is used for each iteration, as every step is recorded in the localization-history.
+ *
+ * Run with: java -cp &lt;classpath&gt; org.openjdk.jmh.Main LocalizationBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+public class LocalizationBenchmark {
+    private static final int NUMBER_OF_SIGNATURES = 7;
+    private static final int MAX_ATTEMPTS_FOR_BOT_POSE = 10000;
+    private static final double TRANSLATION_DISTANCE = 10;
+    private static final double TURNING_ANGLE = 90;
+    private static final int ACCEPTABLE_SPREADING = 10;
+
+
+
+
+
+    /**
+     * A localization-provider with its particles spread over the map and the sensor-feedback of a robot
+     * placed at a fixed position in the map.
+     */
+    @State(Scope.Thread)
+    public static class Localization {
+        @Param({"Room", "MarkedRoom", "Houses"})
+        public String mapKey;
+
+        @Param({"1000", "10000", "100000"})
+        public int numberOfParticles;
+
+        @Param({"false", "true"})
+        public boolean withCamera;
+
+        Map map;
+        GuiConfiguration userSettings;
+        SensorModel bot;
+        LocalizationProvider localizationProvider;
+
+
+        @Setup(Level.Trial)
+        public void createMapAndBot() {
+            System.setProperty("java.awt.headless", "true");
+            map = ClientFactory.getMapProvider().getMap(mapKey);
+            userSettings = new GuiConfigurationImplHeadless(map, mapKey, numberOfParticles, ACCEPTABLE_SPREADING, withCamera);
+            bot = createBot(map, withCamera);
+        }
+
+
+        @Setup(Level.Iteration)
+        public void createLocalizationProvider() {
+            localizationProvider = new LocalizationProviderImplMCL(map, numberOfParticles, new int[]{-1, -1, -1}, userSettings);
+        }
+    }
+
+
+
+
+
+    /**
+     * Recalculates the particle-weights before each invocation, so resampling operates on a weighted
+     * particle-set as during regular localization.
+     */
+    @State(Scope.Thread)
+    public static class WeightedParticles {
+        @Setup(Level.Invocation)
+        public void recalculateParticleWeight(Localization localization) {
+            localization.localizationProvider.recalculateParticleWeight(localization.bot);
+        }
+    }
+
+
+
+
+
+    @Benchmark
+    public void recalculateParticleWeight(Localization localization) {
+        localization.localizationProvider.recalculateParticleWeight(localization.bot);
+    }
+
+
+    @Benchmark
+    public void translateParticles(Localization localization, WeightedParticles weightedParticles) {
+        localization.localizationProvider.translateParticles(TRANSLATION_DISTANCE);
+    }
+
+
+    @Benchmark
+    public void turnParticles(Localization localization) {
+        localization.localizationProvider.turnParticles(TURNING_ANGLE);
+    }
+
+
+    @Benchmark
+    public void resample(Localization localization, WeightedParticles weightedParticles) {
+        localization.localizationProvider.badParticlesFinalKill();
+    }
+
+
+
+    /**
+     * Creates the sensor-feedback of a simulated robot at a random (but reproducible) position within the
+     * operating-range of the map. With camera, a position is preferred from which a landmark is visible.
+     *
+     * @param map           The map the robot is placed in
+     * @param withCamera    Whether camera-feedback is included
+     * @return  The sensor-model holding the feedback of the robot
+     */
+    private static SensorModel createBot(Map map, boolean withCamera) {
+        Polygon boundaries = map.getOperatingRange();
+        Rectangle limits = boundaries.getBounds();
+        Random random = new Random(42);
+        double x = limits.getCenterX(), y = limits.getCenterY(), heading = 0;
+        for (int attempt = 0  ;  attempt < MAX_ATTEMPTS_FOR_BOT_POSE  ;  attempt++) {
+            double candidateX = limits.getX() + random.nextDouble() * limits.getWidth();
+            double candidateY = limits.getY() + random.nextDouble() * limits.getHeight();
+            double candidateHeading = random.nextInt(4) * 90;
+            if (! boundaries.contains(candidateX, candidateY)) {
+                continue;
+            }
+            x = candidateX;
+            y = candidateY;
+            heading = candidateHeading;
+            if (! withCamera  ||  map.getGeneralCameraQuery(x, y, 360 - heading)[0] != 0) {
+                break;
+            }
+        }
+
+        SensorModel bot = ClientFactory.createNewSensorModel();
+        bot.setDistanceToLeft(map.castRay(x, y, 360 - heading - 90));
+        bot.setDistanceToCenter(map.castRay(x, y, 360 - heading));
+        bot.setDistanceToRight(map.castRay(x, y, 360 - heading + 90));
+        if (withCamera) {
+            bot.setGeneralQuery(new DTOGeneralQuery(map.getGeneralCameraQuery(x, y, 360 - heading)));
+            for (int signature = 1  ;  signature <= NUMBER_OF_SIGNATURES  ;  signature++) {
+                int[] query = map.getCameraSignatureQuery(x, y, 360 - heading, signature);
+                int[] transmission = new int[query.length + 1];
+                transmission[0] = signature;
+                System.arraycopy(query, 0, transmission, 1, query.length);
+                bot.setSignatureQuery(new DTOSignatureQuery(transmission));
+            }
+        }
+        return bot;
+    }
+}
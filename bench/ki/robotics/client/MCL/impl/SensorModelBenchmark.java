@@ -0,0 +1,84 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.client.ClientFactory;
+import ki.robotics.client.GUI.impl.GuiConfigurationImplHeadless;
+import ki.robotics.client.MCL.SensorModel;
+import ki.robotics.utility.map.Map;
+import ki.robotics.utility.map.MapProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the sensor-models (beam-model with ray-casting, likelihood-field with a precomputed
+ * distance-field) on the room-map, as weightings and as steps (weighting followed by a translation, which
+ * resamples) per second. The convergence of the sensor-models is compared by re-running recorded localizations
+ * with the RelocalizationRunner (option -sensor beam,likelihoodField).
+ *
+ * Run with: java -cp &lt;classpath&gt; org.openjdk.jmh.Main SensorModelBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+@State(Scope.Thread)
+public class SensorModelBenchmark {
+    private static final double BOT_X = 40;
+    private static final double BOT_Y = 60;
+    private static final double BOT_HEADING = 30;
+    private static final double TRANSLATION_DISTANCE = 10;
+
+    @Param({"beam", "likelihoodField"})
+    public String sensorModel;
+
+    @Param({"1000", "10000", "100000"})
+    public int numberOfParticles;
+
+    private Map map;
+    private SensorModel bot;
+    private LocalizationProviderImplMCL localizationProvider;
+
+
+    @Setup(Level.Trial)
+    public void createMapAndBot() {
+        map = ClientFactory.getMapProvider().getMap(MapProvider.MAP_KEY_ROOM);
+        bot = ClientFactory.createNewSensorModel();
+        bot.setDistanceToLeft(map.castRay(BOT_X, BOT_Y, 360 - BOT_HEADING - 90));
+        bot.setDistanceToCenter(map.castRay(BOT_X, BOT_Y, 360 - BOT_HEADING));
+        bot.setDistanceToRight(map.castRay(BOT_X, BOT_Y, 360 - BOT_HEADING + 90));
+    }
+
+
+    @Setup(Level.Iteration)
+    public void createLocalizationProvider() {
+        localizationProvider = new LocalizationProviderImplMCL(map, numberOfParticles, new int[]{-1, -1, -1},
+                new GuiConfigurationImplHeadless(map, MapProvider.MAP_KEY_ROOM, numberOfParticles, 10, false), 1,
+                new ResamplerImplWheel(), LocalizationProviderImplMCL.createMeasurementModel(sensorModel, map, MclModel.RESAMPLING_WEIGHTS),
+                MclModel.RESAMPLING_WEIGHTS);
+    }
+
+
+    @Benchmark
+    public void recalculateParticleWeight() {
+        localizationProvider.recalculateParticleWeight(bot);
+    }
+
+
+    @Benchmark
+    public void step() {
+        localizationProvider.recalculateParticleWeight(bot);
+        localizationProvider.translateParticles(TRANSLATION_DISTANCE);
+    }
+}
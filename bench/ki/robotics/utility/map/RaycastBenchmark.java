@@ -0,0 +1,79 @@
+package ki.robotics.utility.map;
+
+import ki.robotics.client.ClientFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of single distance-measurements (ray-casts) from random positions within the operating-range of
+ * the bundled maps.
+ *
+ * Run with: java -cp &lt;classpath&gt; org.openjdk.jmh.Main RaycastBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RaycastBenchmark {
+    private static final int NUMBER_OF_RAYS = 4096;
+
+    @Param({"Room", "MarkedRoom", "Houses"})
+    public String mapKey;
+
+    private Map map;
+    private Point2D[] origins;
+    private double[] directions;
+    private int next;
+
+
+    @Setup(Level.Trial)
+    public void createRays() {
+        map = ClientFactory.getMapProvider().getMap(mapKey);
+        Polygon boundaries = map.getOperatingRange();
+        Rectangle limits = boundaries.getBounds();
+        Random random = new Random(42);
+        origins = new Point2D[NUMBER_OF_RAYS];
+        directions = new double[NUMBER_OF_RAYS];
+        int i = 0;
+        while (i < NUMBER_OF_RAYS) {
+            double x = limits.getX() + random.nextDouble() * limits.getWidth();
+            double y = limits.getY() + random.nextDouble() * limits.getHeight();
+            if (boundaries.contains(x, y)) {
+                origins[i] = new Point2D.Double(x, y);
+                directions[i] = random.nextDouble() * 360;
+                i++;
+            }
+        }
+    }
+
+
+    @Benchmark
+    public double getDistanceToNearestObstacle() {
+        int i = next++ & (NUMBER_OF_RAYS - 1);
+        return map.getDistanceToNearestObstacle(origins[i], directions[i]);
+    }
+
+
+    @Benchmark
+    public double castRay() {
+        int i = next++ & (NUMBER_OF_RAYS - 1);
+        return map.castRay(origins[i].getX(), origins[i].getY(), directions[i]);
+    }
+}
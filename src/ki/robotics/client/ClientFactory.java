@@ -5,7 +5,10 @@ import ki.robotics.client.GUI.impl.GuiControllerImplClientController;
 import ki.robotics.client.GUI.GuiController;
 import ki.robotics.client.MCL.LocalizationProvider;
 import ki.robotics.client.MCL.SensorModel;
+import ki.robotics.client.MCL.WorldState;
+import ki.robotics.client.MCL.impl.LocalizationLogReader;
 import ki.robotics.client.MCL.impl.LocalizationProviderImplMCL;
+import ki.robotics.client.MCL.impl.ResamplingWheelView;
 import ki.robotics.client.MCL.impl.SensorModelImplRoverModel;
 import ki.robotics.client.communication.ClientComController;
 import ki.robotics.client.communication.ClientComControllerImplGUI;
@@ -13,9 +16,13 @@ import ki.robotics.client.communication.ClientComControllerImplTerminal;
 import ki.robotics.utility.UtilityFactory;
 import ki.robotics.utility.map.Map;
 
+import java.awt.*;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 
@@ -59,7 +66,18 @@ public class ClientFactory extends UtilityFactory {
      *
      */
     static void createNewGraphicalClient(String host, int port) {
-        ClientComControllerImplGUI controller = new ClientComControllerImplGUI(host, port);
+        createNewGraphicalClient(host, port, 1);
+    }
+
+
+    /**
+     * Returns a new instance of a graphical client-side communication-controller satisfying the requirements
+     * from interface ClientComController, sending up to pipelineDepth instruction-sequences ahead of their
+     * responses.
+     *
+     */
+    static void createNewGraphicalClient(String host, int port, int pipelineDepth) {
+        ClientComControllerImplGUI controller = new ClientComControllerImplGUI(host, port, pipelineDepth);
         controller.setSensorModel(createNewSensorModel());
         controller.setGuiController(createNewGuiController(controller));
     }
@@ -78,6 +96,7 @@ public class ClientFactory extends UtilityFactory {
 
     /**
      * Returns a new instance of the a MCL-provider satisfying the requirements from interface LocalizationProvider.
+     * Unless running headless, the visualization of the resampling-wheel is attached to the provider.
      *
      * @param map       The map to be used
      * @param numberOfParticles The number of particles to be generated
@@ -87,7 +106,51 @@ public class ClientFactory extends UtilityFactory {
      * @return A new instance of LocalizationProviderImplMCL as interface-type LocalizationProvider
      */
     public static LocalizationProvider createNewLocalizationProvider(Map map, int numberOfParticles, int[] limitations, GuiConfiguration userSettings) {
-        return new LocalizationProviderImplMCL(map, numberOfParticles, limitations, userSettings);
+        LocalizationProvider localizationProvider = new LocalizationProviderImplMCL(getMapForLocalization(map), numberOfParticles, limitations, userSettings);
+        if (! GraphicsEnvironment.isHeadless()) {
+            localizationProvider.addLocalizationObserver(new ResamplingWheelView());
+        }
+        return localizationProvider;
+    }
+
+
+    /**
+     * Returns the map to be used for localization. If the property 'raycastTableSpatialResolution' is set to a
+     * positive value, distance-measurements are answered from a precomputed raycast-table with the resolutions
+     * and the memory-budget (in megabytes) given in the project-properties.
+     *
+     * @param map   The map selected for localization
+     * @return  The map to be used for localization
+     */
+    private static Map getMapForLocalization(Map map) {
+        double spatialResolution = getNumericProperty("raycastTableSpatialResolution", 0);
+        if (spatialResolution <= 0) {
+            return map;
+        }
+        double angularResolution = getNumericProperty("raycastTableAngularResolution", 90);
+        long memoryBudget = (long) (getNumericProperty("raycastTableMemoryBudgetMB", 64) * 1024 * 1024);
+        return getMapProvider().getTabulatedMap(map.getMapKey(), spatialResolution, angularResolution, memoryBudget);
+    }
+
+
+    /**
+     * Returns the numeric value of the specified project-property or the specified default-value if the
+     * property is missing or malformed.
+     *
+     * @param key           The key of the property
+     * @param defaultValue  The value to return if the property is missing or malformed
+     * @return  The numeric value of the property
+     */
+    private static double getNumericProperty(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value != null) {
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+        return defaultValue;
     }
 
 
@@ -101,6 +164,37 @@ public class ClientFactory extends UtilityFactory {
     }
 
 
+    /**
+     * Reads a saved localization-sequence from the given file (binary localization-log or former
+     * java-serialization).
+     *
+     * The world-states are returned untyped, as used by the GUI.
+     *
+     * @param file  The file holding the localization-sequence
+     * @return  The localization-sequence as list
+     * @throws IOException  If the file could not be read
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static ArrayList<WorldState> loadLocalizationSequence(File file) throws IOException {
+        return (ArrayList) LocalizationLogReader.readLocalizationSequence(file);
+    }
+
+
+    /**
+     * Opens a saved localization-sequence from the given file for replay, decoding the world-states on demand
+     * if possible. The returned list must be closed after replay, if it implements java.io.Closeable.
+     * The world-states are returned untyped, as used by the GUI.
+     *
+     * @param file  The file holding the localization-sequence
+     * @return  The localization-sequence as (read-only) list
+     * @throws IOException  If the file could not be opened
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static List<WorldState> openLocalizationReplay(File file) throws IOException {
+        return (List) LocalizationLogReader.openLocalizationReplay(file);
+    }
+
+
     /**
      * Returns a new instance of a GUI-controller satisfying the requirements from interface GuiController.
      *
@@ -12,6 +12,10 @@ public interface GuiConfiguration {
 
     int getNumberOfParticles();
 
+    int getMinNumberOfParticles();
+
+    int getMaxNumberOfParticles();
+
     boolean isPaused();
 
     boolean isOneDimensional();
@@ -52,6 +56,8 @@ public interface GuiConfiguration {
 
     boolean isUseRightSensor();
 
+    boolean isUseSensorSweep();
+
 
 
     boolean isUseGeneralQuery();
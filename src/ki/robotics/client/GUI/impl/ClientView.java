@@ -132,6 +132,7 @@ class ClientView extends JFrame {
 
         JTextField distancePerTravelInstruction = new JTextField( 5);
         JTextField numberOfParticles = new JTextField(5);
+        JTextField minNumberOfParticles = new JTextField(5);
         JLabel labelForAcceptableLocalizationSpreadingSlider = new JLabel();
         JSlider acceptableLocalizationSpreadingSlider = new JSlider(1,25);
         private JCheckBox stopWhenLocalizationIsFinished = new JCheckBox("Stop when done");
@@ -252,7 +253,7 @@ class ClientView extends JFrame {
          */
         private JPanel createLocalizationInputElements() {
             JPanel inputElements = new JPanel();
-            inputElements.setLayout(new GridLayout(2,3,5,5));
+            inputElements.setLayout(new GridLayout(3,3,5,5));
 
             JLabel stepLabel = new JLabel("Step size: ");
             stepLabel.setLabelFor(distancePerTravelInstruction);
@@ -269,9 +270,17 @@ class ClientView extends JFrame {
             inputElements.add(stepLabel);
             inputElements.add(distancePerTravelInstruction);
             inputElements.add(startButton);
+            JLabel minParticleCnt = new JLabel("Min. particles: ");
+            minParticleCnt.setLabelFor(minNumberOfParticles);
+            minNumberOfParticles.setHorizontalAlignment(JTextField.RIGHT);
+            minNumberOfParticles.setText(String.valueOf(guiModel.getMinNumberOfParticles()));
+
             inputElements.add(particleCnt);
             inputElements.add(numberOfParticles);
             inputElements.add(new JLabel());
+            inputElements.add(minParticleCnt);
+            inputElements.add(minNumberOfParticles);
+            inputElements.add(new JLabel());
 
             return inputElements;
         }
@@ -318,6 +327,7 @@ class ClientView extends JFrame {
             private JCheckBox measureDistanceToLeft = new JCheckBox("Left sensor");
             private JCheckBox measureDistanceAhead = new JCheckBox("Front sensor");
             private JCheckBox measureDistanceToRight = new JCheckBox("Right sensor");
+            private JCheckBox measureDistancesBySweep = new JCheckBox("Sensor sweep");
 
             private JLabel particleLabelInfo = new JLabel("Particle");
             private JLabel particleLabelPoseX = new JLabel("X: ");
@@ -380,16 +390,19 @@ class ClientView extends JFrame {
              */
             private JPanel createSensorSelectionControls() {
                 JPanel sensorContainer = new JPanel();
-                sensorContainer.setLayout(new GridLayout(3,1));
+                sensorContainer.setLayout(new GridLayout(4,1));
                 measureDistanceToLeft.setSelected(guiModel.isUseLeftSensor());
                 measureDistanceAhead.setSelected(guiModel.isUseFrontSensor());
                 measureDistanceToRight.setSelected(guiModel.isUseRightSensor());
+                measureDistancesBySweep.setSelected(guiModel.isUseSensorSweep());
                 measureDistanceToLeft.addActionListener(guiController.new measureDistanceToLeftActionListener());
                 measureDistanceAhead.addActionListener(guiController.new measureDistanceAheadActionListener());
                 measureDistanceToRight.addActionListener(guiController.new measureDistanceToRightActionListener());
+                measureDistancesBySweep.addActionListener(guiController.new measureDistancesBySweepActionListener());
                 sensorContainer.add(measureDistanceToLeft);
                 sensorContainer.add(measureDistanceAhead);
                 sensorContainer.add(measureDistanceToRight);
+                sensorContainer.add(measureDistancesBySweep);
                 return sensorContainer;
             }
 
@@ -557,9 +570,11 @@ class ClientView extends JFrame {
                     ArrayList<String> files = new ArrayList<>();
                     for (File f : savedLocalizations) {
                         String fileName = f.getName();
-                        if (fileName.endsWith(".log")) {
-                            fileName = fileName.replace(".log", "");
-                            files.add(fileName);
+                        if (fileName.endsWith(".mcl")  ||  fileName.endsWith(".log")) {
+                            fileName = fileName.substring(0, fileName.length() - 4);
+                            if (!files.contains(fileName)) {
+                                files.add(fileName);
+                            }
                         }
                     }
                     String fileNames[] = new String[files.size()];
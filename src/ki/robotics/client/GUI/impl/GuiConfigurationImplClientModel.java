@@ -8,7 +8,9 @@ import ki.robotics.client.MCL.WorldState;
 import ki.robotics.utility.map.Map;
 import ki.robotics.utility.map.MapProvider;
 
-import java.util.ArrayList;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * The GUI-(data-)model, as implementation of interface GuiConfiguration, using sub-models for
@@ -104,6 +106,12 @@ public class GuiConfigurationImplClientModel implements GuiConfiguration {
     @Override
     public int getNumberOfParticles() { return localizationModel.getNumberOfParticles(); }
 
+    @Override
+    public int getMinNumberOfParticles() { return localizationModel.getMinNumberOfParticles(); }
+
+    @Override
+    public int getMaxNumberOfParticles() { return localizationModel.getNumberOfParticles(); }
+
     @Override
     public boolean isPaused() { return localizationModel.isPaused(); }
 
@@ -170,6 +178,9 @@ public class GuiConfigurationImplClientModel implements GuiConfiguration {
     @Override
     public boolean isUseRightSensor() { return sensorModel.isUseRightSensor(); }
 
+    @Override
+    public boolean isUseSensorSweep() { return sensorModel.isUseSensorSweep(); }
+
 
 
 
@@ -216,6 +227,7 @@ public class GuiConfigurationImplClientModel implements GuiConfiguration {
         private boolean useLeftSensor = true;
         private boolean useFrontSensor = true;
         private boolean useRightSensor = true;
+        private boolean useSensorSweep = false;
 
 
         /**
@@ -285,6 +297,24 @@ public class GuiConfigurationImplClientModel implements GuiConfiguration {
          * @param useRightSensor     true (enabling), false (disabling) distance-measurement to the right.
          */
         void setUseRightSensor(boolean useRightSensor) { this.useRightSensor = useRightSensor; }
+
+
+        /**
+         * Returns a boolean value indication whether the distances are measured by a sweep of the sensor-head
+         * (true) instead of the selected sensors (false). Used for two-dimensional maps.
+         *
+         * @return  Boolean value indicating distance-measurement by a sweep
+         */
+        boolean isUseSensorSweep() { return useSensorSweep; }
+
+
+        /**
+         * Enabling (true) or disabling (false) of distance-measurement by a sweep of the sensor-head. Used for
+         * two-dimensional maps.
+         *
+         * @param useSensorSweep     true (enabling), false (disabling) distance-measurement by a sweep.
+         */
+        void setUseSensorSweep(boolean useSensorSweep) { this.useSensorSweep = useSensorSweep; }
     }
 
 
@@ -615,6 +645,7 @@ public class GuiConfigurationImplClientModel implements GuiConfiguration {
 
         private int stepSize = 10;
         private int numberOfParticles = 1000;
+        private int minNumberOfParticles = 100;
         private boolean stopWhenDone = true;
         private int acceptableTolerance = 10;
 
@@ -701,6 +732,24 @@ public class GuiConfigurationImplClientModel implements GuiConfiguration {
         void setNumberOfParticles(int numberOfParticles) { this.numberOfParticles = numberOfParticles; }
 
 
+        /**
+         * Returns the lower bound for the number of particles when adapting it by KLD-sampling. The number of
+         * particles for the localization serves as upper bound.
+         *
+         * @return The lower bound for the number of particles.
+         */
+        int getMinNumberOfParticles() { return minNumberOfParticles; }
+
+
+        /**
+         * Sets the lower bound for the number of particles when adapting it by KLD-sampling. A value equal to
+         * the number of particles for the localization disables the adaption.
+         *
+         * @param minNumberOfParticles The lower bound for the number of particles.
+         */
+        void setMinNumberOfParticles(int minNumberOfParticles) { this.minNumberOfParticles = minNumberOfParticles; }
+
+
         /**
          * Returns a boolean value indicating whether the localization is currently paused.
          *
@@ -888,7 +937,7 @@ public class GuiConfigurationImplClientModel implements GuiConfiguration {
 
 
     class ReplayModel {
-        private ArrayList<WorldState> worldStatesForReplay;
+        private List<WorldState> worldStatesForReplay;
         private int replayPointer = 0;
 
 
@@ -917,15 +966,25 @@ public class GuiConfigurationImplClientModel implements GuiConfiguration {
          *
          * @return  The world-state-sequence
          */
-        ArrayList<WorldState> getWorldStatesForReplay() { return this.worldStatesForReplay; }
+        List<WorldState> getWorldStatesForReplay() { return this.worldStatesForReplay; }
 
 
         /**
-         * Sets a new world-state-sequence (list of localization steps) for replay.
+         * Sets a new world-state-sequence (list of localization steps) for replay. The previous
+         * world-state-sequence is closed, if it is backed by a (memory-mapped) localization-log.
          *
-         * @param worldStates A list (ArrayList<WorldState>) of localization steps.
+         * @param worldStates A list (List<WorldState>) of localization steps.
          */
-        void setWorldStatesForReplay(ArrayList<WorldState> worldStates) { this.worldStatesForReplay = worldStates; }
+        void setWorldStatesForReplay(List<WorldState> worldStates) {
+            if (this.worldStatesForReplay instanceof Closeable) {
+                try {
+                    ((Closeable) this.worldStatesForReplay).close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            this.worldStatesForReplay = worldStates;
+        }
 
 
     }
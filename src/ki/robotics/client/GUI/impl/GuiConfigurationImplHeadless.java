@@ -0,0 +1,150 @@
+package ki.robotics.client.GUI.impl;
+
+import ki.robotics.client.GUI.GuiConfiguration;
+import ki.robotics.client.MCL.LocalizationProvider;
+import ki.robotics.utility.map.Map;
+import ki.robotics.utility.map.MapProvider;
+
+/**
+ * Fixed user-settings for running the localization without GUI (e.g. re-running recorded localizations or
+ * benchmarking). The number of particles is constant (no KLD-sampling), all distance-sensors are used and the
+ * dimensionality follows the map as in the client-GUI. If the camera is used, the general query and all
+ * signatures are queried.
+ */
+public class GuiConfigurationImplHeadless implements GuiConfiguration {
+    private static final int STEP_SIZE = 10;
+
+    private final Map map;
+    private final String mapKey;
+    private final int numberOfParticles;
+    private final int acceptableSpreading;
+    private final boolean withCamera;
+
+
+    /**
+     * Constructor.
+     *
+     * @param map                   The map used for localization
+     * @param mapKey                The key of the map used for localization
+     * @param numberOfParticles     The (constant) number of particles
+     * @param acceptableSpreading   The acceptable spreading of the particles for a finished localization
+     * @param withCamera            Whether the camera is used for localization
+     */
+    public GuiConfigurationImplHeadless(Map map, String mapKey, int numberOfParticles, int acceptableSpreading,
+                                        boolean withCamera) {
+        this.map = map;
+        this.mapKey = mapKey;
+        this.numberOfParticles = numberOfParticles;
+        this.acceptableSpreading = acceptableSpreading;
+        this.withCamera = withCamera;
+    }
+
+
+    @Override
+    public LocalizationProvider<?> getLocalizationProvider() { return null; }
+
+    @Override
+    public Map getMap() { return map; }
+
+    @Override
+    public String getMapKey() { return mapKey; }
+
+    @Override
+    public int getNumberOfParticles() { return numberOfParticles; }
+
+    @Override
+    public int getMinNumberOfParticles() { return 0; }
+
+    @Override
+    public int getMaxNumberOfParticles() { return numberOfParticles; }
+
+    @Override
+    public boolean isPaused() { return false; }
+
+    @Override
+    public boolean isOneDimensional() { return MapProvider.MAP_KEY_HOUSES.equals(mapKey); }
+
+    @Override
+    public boolean isTwoDimensional() { return ! isOneDimensional(); }
+
+    @Override
+    public boolean isWithCamera() { return withCamera; }
+
+    @Override
+    public boolean isInReplayMode() { return false; }
+
+    @Override
+    public int getStepSize() { return STEP_SIZE; }
+
+    @Override
+    public boolean isStopWhenDone() { return false; }
+
+    @Override
+    public int getAcceptableSpreading() { return acceptableSpreading; }
+
+
+
+    @Override
+    public boolean isStartFromLeft() { return true; }
+
+    @Override
+    public boolean isStartFromRight() { return false; }
+
+    @Override
+    public void flipDirection() { }
+
+    @Override
+    public boolean isUseRightAngles() { return true; }
+
+    @Override
+    public boolean isUseFreeAngles() { return false; }
+
+
+
+    @Override
+    public boolean isMeasureDistanceToLeft() { return true; }
+
+    @Override
+    public boolean isMeasureDistanceToRight() { return true; }
+
+    @Override
+    public boolean isUseLeftSensor() { return true; }
+
+    @Override
+    public boolean isUseFrontSensor() { return true; }
+
+    @Override
+    public boolean isUseRightSensor() { return true; }
+
+    @Override
+    public boolean isUseSensorSweep() { return false; }
+
+
+
+    @Override
+    public boolean isUseGeneralQuery() { return withCamera; }
+
+    @Override
+    public boolean isUseAngleQuery() { return false; }
+
+    @Override
+    public boolean isUseSignatureOne() { return withCamera; }
+
+    @Override
+    public boolean isUseSignatureTwo() { return withCamera; }
+
+    @Override
+    public boolean isUseSignatureThree() { return withCamera; }
+
+    @Override
+    public boolean isUseSignatureFour() { return withCamera; }
+
+    @Override
+    public boolean isUseSignatureFive() { return withCamera; }
+
+    @Override
+    public boolean isUseSignatureSix() { return withCamera; }
+
+    @Override
+    public boolean isUseSignatureSeven() { return withCamera; }
+}
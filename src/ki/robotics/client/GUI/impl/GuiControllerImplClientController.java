@@ -16,6 +16,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Controller for the client-GUI.
@@ -121,6 +122,7 @@ public class GuiControllerImplClientController implements GuiController {
                 if (guiModel.isPaused()) {
                         guiModel.getLocalizationModel().setPaused(false);
                         guiModel.getLocalizationProvider().resetToLatestWorldState();
+                        clientComController.resume();
                         guiView.setTitle(ClientView.WINDOW_TITLE + " | running");
                 } else {
                     guiModel.getLocalizationModel().setPaused(true);
@@ -231,9 +233,11 @@ public class GuiControllerImplClientController implements GuiController {
         private void updateModel() {
             int distancePerTravelInstruction = guiModel.getStepSize();
             int numberOfParticles = guiModel.getNumberOfParticles();
+            int minNumberOfParticles = guiModel.getMinNumberOfParticles();
             try {
                 distancePerTravelInstruction = Integer.valueOf(controlPanel.distancePerTravelInstruction.getText());
                 numberOfParticles = Integer.valueOf(controlPanel.numberOfParticles.getText());
+                minNumberOfParticles = Integer.valueOf(controlPanel.minNumberOfParticles.getText());
             } catch (NumberFormatException e1) {
                 e1.printStackTrace();
             }
@@ -243,6 +247,9 @@ public class GuiControllerImplClientController implements GuiController {
             if (numberOfParticles > 0) {
                 guiModel.getLocalizationModel().setNumberOfParticles(numberOfParticles);
             }
+            if (minNumberOfParticles > 0) {
+                guiModel.getLocalizationModel().setMinNumberOfParticles(minNumberOfParticles);
+            }
         }
 
         /**
@@ -583,6 +590,18 @@ public class GuiControllerImplClientController implements GuiController {
     }
 
 
+    /**
+     * ActionListener for: User selects to measure the distances by a sweep of the sensor-head.
+     */
+    public class measureDistancesBySweepActionListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            boolean selected = ((JCheckBox)e.getSource()).isSelected();
+            guiModel.getSensorModel().setUseSensorSweep(selected);
+        }
+    }
+
+
     /**
      * ActionListener for: User selects to stop the localization automatically.
      */
@@ -618,7 +637,7 @@ public class GuiControllerImplClientController implements GuiController {
         @Override
         public void actionPerformed(ActionEvent e) {
             String selection = (String)((JComboBox)e.getSource()).getSelectedItem();
-            ArrayList<WorldState> replay = loadSelectedLocalizationFromFile(selection);
+            List<WorldState> replay = loadSelectedLocalizationFromFile(selection);
             guiModel.getReplayModel().setWorldStatesForReplay(replay);
             guiModel.getReplayModel().setReplayPointer(0);
             WorldState ws = replay.get(0);
@@ -633,18 +652,18 @@ public class GuiControllerImplClientController implements GuiController {
          * Loads a saved localization from file.
          *
          * @param filename The filename of the saves localization.
-         * @return  The saved localization as list (ArrayList<WorldState>)
+         * @return  The saved localization as list (List<WorldState>)
          */
-        private ArrayList<WorldState> loadSelectedLocalizationFromFile(String filename) {
+        private List<WorldState> loadSelectedLocalizationFromFile(String filename) {
             String path = ClientFactory.getProperties().getProperty("savedLocalizationsPath");
-            filename = path + filename + ".log";
-            File file = new File(filename);
+            File file = new File(path + filename + ".mcl");
+            if (!file.exists()) {
+                file = new File(path + filename + ".log");
+            }
 
-            ArrayList<WorldState> worldStates = new ArrayList<>();
+            List<WorldState> worldStates = new ArrayList<>();
             try {
-                FileInputStream fileIS = new FileInputStream(file);
-                ObjectInputStream objectIS = new ObjectInputStream(fileIS);
-                worldStates = (ArrayList<WorldState>) objectIS.readObject();
+                worldStates = ClientFactory.openLocalizationReplay(file);
             } catch (Exception e) {
                 e.printStackTrace();
             }
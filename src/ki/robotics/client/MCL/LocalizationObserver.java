@@ -0,0 +1,38 @@
+package ki.robotics.client.MCL;
+
+/**
+ * Observer of the monte-carlo-localization, e.g. a visualization. The localization runs without any observer
+ * (headless); particle-colors are only computed while at least one observer is attached.
+ * Observers may be added and removed from any thread; an observer removed during a notification may still
+ * receive that notification. All callbacks run synchronously on the thread driving the localization (the
+ * communication-thread of the client, or the worker-thread of a relocalization), never on the Swing
+ * event-dispatch-thread, and the localization waits for them to return. Observers therefore have to return
+ * quickly, must not call back into the localization-provider, and hand any painting over to Swing (e.g. via
+ * repaint()).
+ */
+public interface LocalizationObserver {
+
+    /**
+     * Called after the particle-weights have been recalculated from a new sensor-model and the particles have
+     * been colored by their weights, before the particles are resampled.
+     * The world-state passed in is the live, current world-state of the localization. Its particles are backed
+     * by a particle-store which is reused and overwritten by the following localization-steps, so neither the
+     * world-state nor the list returned by its getParticles() may be kept or read after this call returns;
+     * copy whatever is needed during the call. Only the recorded world-states of the localization-history are
+     * immutable (their particles are copy-on-write snapshots) and may be kept.
+     *
+     * @param worldState    The current world-state, valid only for the duration of this call
+     */
+    void particleWeightsRecalculated(WorldState<?> worldState);
+
+
+    /**
+     * Called after the particles have been resampled, before the resampling-step is recorded in the
+     * localization-history. The resampled particles are not weighted yet (all weights are zero).
+     * As for particleWeightsRecalculated(WorldState), the world-state passed in is the live, current world-state
+     * backed by a reused particle-store; it may not be kept or read after this call returns.
+     *
+     * @param worldState    The current world-state, valid only for the duration of this call
+     */
+    void particlesResampled(WorldState<?> worldState);
+}
@@ -28,4 +28,8 @@ public interface LocalizationProvider <T extends Particle>{
     void stepBackInLocalizationHistory();
 
     void stepForwardInLocalizationHistory();
+
+    void addLocalizationObserver(LocalizationObserver observer);
+
+    void removeLocalizationObserver(LocalizationObserver observer);
 }
@@ -24,6 +24,16 @@ public interface SensorModel extends Serializable {
 
     void setDistanceToRight(double distanceToRight);
 
+    void clearSweep();
+
+    void addSweepMeasurement(double sensorHeadPosition, double distance);
+
+    int getNumberOfSweepMeasurements();
+
+    double getSweepSensorHeadPosition(int index);
+
+    double getSweepDistance(int index);
+
     int getColor();
 
     void setColor(int color);
@@ -0,0 +1,156 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.utility.map.Map;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Adaptive choice of the number of particles by KLD-sampling (Fox, 2003).
+ * Resampled particles are taken one by one and sorted into bins of a histogram over x, y and heading. The
+ * number of particles is chosen such that, with probability 1 - DELTA, the Kullback-Leibler-divergence between
+ * the sample-based and the true posterior does not exceed EPSILON, given the number of occupied bins.
+ * A spread-out particle-set therefore keeps many particles, a converged one only few.
+ */
+class KldSampler {
+    private static final double EPSILON = 0.05;
+    private static final double UPPER_QUANTILE_FOR_DELTA = 2.326;     // standard normal, DELTA = 0.01
+    private static final double SPATIAL_BIN_SIZE = 10;
+    private static final double ANGULAR_BIN_SIZE = 45;
+
+    private final int minNumberOfParticles;
+    private final int maxNumberOfParticles;
+
+    private final int columns;
+    private final int rows;
+    private final int headings;
+    private final int[] binStamps;
+    private int stamp;
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param map                   The map in which the particles lie
+     * @param minNumberOfParticles  The lower bound for the number of particles
+     * @param maxNumberOfParticles  The upper bound for the number of particles
+     */
+    KldSampler(Map map, int minNumberOfParticles, int maxNumberOfParticles) {
+        this.minNumberOfParticles = Math.max(1, minNumberOfParticles);
+        this.maxNumberOfParticles = Math.max(this.minNumberOfParticles, maxNumberOfParticles);
+        this.columns = (int) Math.ceil(map.getMinWidthForMapDisplay() / SPATIAL_BIN_SIZE) + 1;
+        this.rows = (int) Math.ceil(map.getMinHeightForMapDisplay() / SPATIAL_BIN_SIZE) + 1;
+        this.headings = (int) Math.round(360 / ANGULAR_BIN_SIZE);
+        this.binStamps = new int[columns * rows * headings];
+    }
+
+
+
+    /**
+     * Returns the upper bound for the number of particles.
+     *
+     * @return  The upper bound for the number of particles
+     */
+    int getMaxNumberOfParticles() { return maxNumberOfParticles; }
+
+
+
+    /**
+     * Shuffles the given selection of (resampled) particles and returns the length of its prefix to be kept,
+     * that is the number of particles required according to KLD-sampling.
+     *
+     * @param particles     The particle-store holding the selected particles
+     * @param selection     The indices of the selected particles within the particle-store
+     * @param count         The number of selected particles
+     * @param random        The source of randomness for shuffling
+     * @return  The number of selected particles to keep
+     */
+    int getRequiredNumberOfParticles(ParticleStore particles, int[] selection, int count, Random random) {
+        for (int i = count - 1  ;  i > 0  ;  i--) {
+            int j = random.nextInt(i + 1);
+            int temp = selection[i];
+            selection[i] = selection[j];
+            selection[j] = temp;
+        }
+
+        nextStamp();
+        int occupiedBins = 0;
+        int required = minNumberOfParticles;
+        for (int i = 0  ;  i < count  ;  i++) {
+            int bin = getBin(particles, selection[i]);
+            if (binStamps[bin] != stamp) {
+                binStamps[bin] = stamp;
+                occupiedBins++;
+                required = Math.max(minNumberOfParticles, getRequiredNumberOfParticles(occupiedBins));
+            }
+            if (i + 1 >= required  ||  i + 1 >= maxNumberOfParticles) {
+                return i + 1;
+            }
+        }
+        return count;
+    }
+
+
+
+    /**
+     * Returns the number of particles required for the given number of occupied bins (Wilson-Hilferty
+     * approximation of the chi-square-quantile).
+     *
+     * @param occupiedBins  The number of occupied bins
+     * @return  The required number of particles
+     */
+    static int getRequiredNumberOfParticles(int occupiedBins) {
+        if (occupiedBins < 2) {
+            return 1;
+        }
+        double k = occupiedBins - 1;
+        double a = 2.0 / (9.0 * k);
+        double b = 1 - a + Math.sqrt(a) * UPPER_QUANTILE_FOR_DELTA;
+        return (int) Math.ceil(k / (2 * EPSILON) * b * b * b);
+    }
+
+
+
+    /**
+     * Returns the histogram-bin of the particle at the given index. Particles outside the map are assigned to
+     * the nearest bin at the border.
+     *
+     * @param particles The particle-store holding the particle
+     * @param index     The index of the particle
+     * @return  The index of the bin
+     */
+    private int getBin(ParticleStore particles, int index) {
+        int column = clamp((int) Math.floor(particles.getX(index) / SPATIAL_BIN_SIZE), columns);
+        int row = clamp((int) Math.floor(particles.getY(index) / SPATIAL_BIN_SIZE), rows);
+        int heading = clamp((int) Math.floor(particles.getHeading(index) / ANGULAR_BIN_SIZE), headings);
+        return (heading * rows + row) * columns + column;
+    }
+
+
+
+    /**
+     * Marks all bins as empty by advancing the stamp identifying occupied bins.
+     */
+    private void nextStamp() {
+        stamp++;
+        if (stamp == 0) {
+            Arrays.fill(binStamps, 0);
+            stamp = 1;
+        }
+    }
+
+
+
+    /**
+     * Clamps the given index to the range [0, count - 1].
+     *
+     * @param index The index
+     * @param count The number of elements
+     * @return  The clamped index
+     */
+    private static int clamp(int index, int count) {
+        return Math.max(0, Math.min(count - 1, index));
+    }
+}
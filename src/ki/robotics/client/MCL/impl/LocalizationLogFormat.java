@@ -0,0 +1,53 @@
+package ki.robotics.client.MCL.impl;
+
+/**
+ * Constants of the binary localization-log-format, which replaces the Java-serialization of the whole
+ * world-state-sequence. The log is written incrementally, one length-prefixed record per world-state, and closed
+ * by an index-footer holding the offsets of all records. A log without footer (e.g. after a crash) is still
+ * readable by scanning the records from the start.
+ *
+ * The file-format (version 2, little-endian):
+ * <pre>
+ *   header   int magic number ("MCLG"), int format-version, int flags, int reserved
+ *   record   int stored length, int raw length, byte[stored length] payload (deflated, if flagged as COMPRESSED)
+ *   footer   int marker (-1), int number of records, long[] record-offsets, long footer-offset,
+ *            int footer-magic ("MCLI")
+ * </pre>
+ * The marker of the footer takes the place of the stored length of a record, so scanning the records of a log
+ * stops at the footer.
+ * The payload of a record:
+ * <pre>
+ *   string   map-key, causative instruction (int length + UTF-8)
+ *   double[] estimated robot-pose (int length + values), double spreading around the estimated robot-pose
+ *   double   distance to the left, ahead, to the right, int color, double sensor-head-position
+ *   sweep    int number of sweep-measurements, double[] sensor-head-positions, double[] distances (since version 2)
+ *   int      number of particles
+ *   column   x, y, heading, weight, color: int index of the record holding the values, followed by the values
+ *            if this is the record itself (unchanged columns refer to the record holding them)
+ * </pre>
+ */
+class LocalizationLogFormat {
+    static final int MAGIC_NUMBER = 0x4D434C47;
+    static final int FOOTER_MAGIC_NUMBER = 0x4D434C49;
+    static final int FOOTER_MARKER = -1;
+    static final int FORMAT_VERSION = 2;
+    static final int FLAG_COMPRESSED = 1;
+
+    static final int HEADER_LENGTH = 16;
+    static final int RECORD_HEADER_LENGTH = 8;
+    static final int TRAILER_LENGTH = 12;
+
+    static final int COLUMN_X = 0;
+    static final int COLUMN_Y = 1;
+    static final int COLUMN_HEADING = 2;
+    static final int COLUMN_WEIGHT = 3;
+    static final int COLUMN_COLOR = 4;
+    static final int NUMBER_OF_COLUMNS = 5;
+
+    static final String FILE_EXTENSION = ".mcl";
+    static final String LEGACY_FILE_EXTENSION = ".log";
+
+
+    private LocalizationLogFormat() {
+    }
+}
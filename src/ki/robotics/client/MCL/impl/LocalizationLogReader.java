@@ -0,0 +1,476 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.client.ClientFactory;
+import ki.robotics.client.MCL.SensorModel;
+import ki.robotics.client.MCL.WorldState;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static ki.robotics.client.MCL.impl.LocalizationLogFormat.*;
+
+
+/**
+ * Reader for the binary localization-log (see LocalizationLogFormat), giving random access to the recorded
+ * world-states by index. The record-offsets are taken from the index-footer or, if the log was not closed properly,
+ * found by scanning the records (ignoring a truncated last record). The records are memory-mapped, so reading a
+ * world-state only decodes its own record (and the records holding particle-attributes it refers to), no matter
+ * how long the recording is.
+ * Particle-attributes shared between consecutive world-states are shared between the world-states read as well,
+ * as long as the world-states are read in sequential order.
+ */
+public class LocalizationLogReader implements Closeable {
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final int version;
+    private final boolean compressed;
+    private final Inflater inflater;
+    private final long[] recordOffsets;
+    private final ByteBuffer[] segments;
+    private final ByteBuffer recordHeader = allocate(RECORD_HEADER_LENGTH);
+    private final Object[] cachedColumns = new Object[NUMBER_OF_COLUMNS];
+    private final int[] cachedColumnOwners = new int[NUMBER_OF_COLUMNS];
+
+
+
+    /**
+     * Constructor. Opens the log-file and reads its index.
+     *
+     * @param file  The file holding the localization-log
+     * @throws IOException  If the file could not be opened or is no localization-log
+     */
+    public LocalizationLogReader(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(0, HEADER_LENGTH);
+            if (header.getInt() != MAGIC_NUMBER) {
+                throw new IOException(file + " is no localization-log");
+            }
+            this.version = header.getInt();
+            if (version < 1  ||  version > FORMAT_VERSION) {
+                throw new IOException("Unsupported version " + version + " of localization-log " + file);
+            }
+            this.compressed = (header.getInt() & FLAG_COMPRESSED) != 0;
+            this.inflater = compressed ? new Inflater() : null;
+            long[] offsets = readIndexFooter();
+            this.recordOffsets = (offsets != null) ? offsets : scanRecords();
+            this.segments = mapRecords();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        Arrays.fill(cachedColumnOwners, -1);
+    }
+
+
+
+    /**
+     * Reads the complete localization-sequence from the given file. Besides binary localization-logs, files
+     * written by the former java-serialization of the localization-sequence are still supported.
+     *
+     * @param file  The file holding the localization-sequence
+     * @return  The localization-sequence as list
+     * @throws IOException  If the file could not be read
+     */
+    @SuppressWarnings("unchecked")
+    public static ArrayList<WorldState<ParticleImplMCL>> readLocalizationSequence(File file) throws IOException {
+        if (isJavaSerialization(file)) {
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                return (ArrayList<WorldState<ParticleImplMCL>>) in.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+        try (LocalizationLogReader reader = new LocalizationLogReader(file)) {
+            ArrayList<WorldState<ParticleImplMCL>> worldStates = new ArrayList<>(reader.size());
+            for (int i = 0  ;  i < reader.size()  ;  i++) {
+                worldStates.add(reader.read(i));
+            }
+            return worldStates;
+        }
+    }
+
+
+
+    /**
+     * Opens the localization-sequence in the given file for replay. Binary localization-logs are decoded on
+     * demand (see LocalizationLogReplay) and must be closed after replay (as java.io.Closeable), files written
+     * by the former java-serialization are read completely.
+     *
+     * @param file  The file holding the localization-sequence
+     * @return  The localization-sequence as (read-only) list
+     * @throws IOException  If the file could not be opened
+     */
+    public static List<WorldState<ParticleImplMCL>> openLocalizationReplay(File file) throws IOException {
+        if (isJavaSerialization(file)) {
+            return readLocalizationSequence(file);
+        }
+        return new LocalizationLogReplay(new LocalizationLogReader(file));
+    }
+
+
+
+    /**
+     * Returns the number of world-states in the log.
+     *
+     * @return  The number of world-states in the log
+     */
+    public int size() { return recordOffsets.length - 1; }
+
+
+
+    /**
+     * Reads the world-state with the given index.
+     *
+     * @param index The index of the world-state in the localization-sequence
+     * @return  The world-state with the given index
+     * @throws IOException  If the world-state could not be read
+     */
+    public synchronized WorldState<ParticleImplMCL> read(int index) throws IOException {
+        ByteBuffer payload = readPayload(index);
+        String mapKey = getString(payload);
+        String causativeInstruction = getString(payload);
+        double[] estimatedBotPose = new double[payload.getInt()];
+        for (int i = 0  ;  i < estimatedBotPose.length  ;  i++) {
+            estimatedBotPose[i] = payload.getDouble();
+        }
+        double estimatedBotPoseDeviation = payload.getDouble();
+        SensorModel sensorModel = ClientFactory.createNewSensorModel();
+        sensorModel.setDistanceToLeft(payload.getDouble());
+        sensorModel.setDistanceToCenter(payload.getDouble());
+        sensorModel.setDistanceToRight(payload.getDouble());
+        sensorModel.setColor(payload.getInt());
+        sensorModel.setSensorHeadPosition(payload.getDouble());
+        if (version >= 2) {
+            int numberOfSweepMeasurements = payload.getInt();
+            int distances = payload.position() + 8 * numberOfSweepMeasurements;
+            for (int i = 0  ;  i < numberOfSweepMeasurements  ;  i++) {
+                sensorModel.addSweepMeasurement(payload.getDouble(payload.position() + 8 * i),
+                        payload.getDouble(distances + 8 * i));
+            }
+            payload.position(distances + 8 * numberOfSweepMeasurements);
+        }
+
+        int size = payload.getInt();
+        float[] x = (float[]) getColumn(payload, index, COLUMN_X, size);
+        float[] y = (float[]) getColumn(payload, index, COLUMN_Y, size);
+        float[] heading = (float[]) getColumn(payload, index, COLUMN_HEADING, size);
+        float[] weight = (float[]) getColumn(payload, index, COLUMN_WEIGHT, size);
+        int[] color = (int[]) getColumn(payload, index, COLUMN_COLOR, size);
+        ParticleSnapshot particles = new ParticleSnapshot(x, y, heading, weight, color);
+        return new WorldStateImplMCL(mapKey, particles, estimatedBotPose, estimatedBotPoseDeviation,
+                causativeInstruction, sensorModel);
+    }
+
+
+
+    /**
+     * Closes the log-file.
+     *
+     * @throws IOException  If the file could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+
+
+    /**
+     * Returns the values of a particle-attribute of the given record. Values referenced from a preceding record
+     * are taken from the column-cache or read from the record holding them.
+     *
+     * @param payload   The payload of the record, positioned at the column
+     * @param index     The index of the record
+     * @param column    The index of the particle-attribute
+     * @param size      The number of particles
+     * @return  The values of the particle-attribute (float[] or int[])
+     * @throws IOException  If the referenced record could not be read
+     */
+    private Object getColumn(ByteBuffer payload, int index, int column, int size) throws IOException {
+        int owner = payload.getInt();
+        if (owner == index) {
+            Object values;
+            if (column == COLUMN_COLOR) {
+                int[] ints = new int[size];
+                payload.asIntBuffer().get(ints);
+                values = ints;
+            } else {
+                float[] floats = new float[size];
+                payload.asFloatBuffer().get(floats);
+                values = floats;
+            }
+            payload.position(payload.position() + 4 * size);
+            cachedColumns[column] = values;
+            cachedColumnOwners[column] = owner;
+            return values;
+        }
+        if (owner < 0  ||  owner > index) {
+            throw new IOException("Corrupt record " + index + " in localization-log");
+        }
+        if (cachedColumnOwners[column] != owner) {
+            ByteBuffer ownerPayload = readPayload(owner);
+            skipWorldStateValues(ownerPayload, version);
+            int ownerSize = ownerPayload.getInt();
+            for (int c = 0  ;  c < column  ;  c++) {
+                if (ownerPayload.getInt() == owner) {
+                    ownerPayload.position(ownerPayload.position() + 4 * ownerSize);
+                }
+            }
+            getColumn(ownerPayload, owner, column, ownerSize);
+        }
+        return cachedColumns[column];
+    }
+
+
+
+    /**
+     * Skips the values of a record preceding the particles.
+     *
+     * @param payload   The payload of the record
+     * @param version   The format-version of the localization-log
+     */
+    private static void skipWorldStateValues(ByteBuffer payload, int version) {
+        getString(payload);
+        getString(payload);
+        int poseLength = payload.getInt();
+        payload.position(payload.position() + 8 * poseLength + 8 + 3 * 8 + 4 + 8);
+        if (version >= 2) {
+            int numberOfSweepMeasurements = payload.getInt();
+            payload.position(payload.position() + 2 * 8 * numberOfSweepMeasurements);
+        }
+    }
+
+
+
+    /**
+     * Reads (and inflates) the payload of the record with the given index.
+     *
+     * @param index The index of the record
+     * @return  The payload of the record
+     * @throws IOException  If the record could not be read
+     */
+    private ByteBuffer readPayload(int index) throws IOException {
+        if (index < 0  ||  index >= size()) {
+            throw new IndexOutOfBoundsException("No world-state " + index + " in localization-log");
+        }
+        long offset = recordOffsets[index];
+        ByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)];
+        int position = (int) (offset % SEGMENT_SIZE);
+        int storedLength = segment.getInt(position);
+        int rawLength = segment.getInt(position + 4);
+        ByteBuffer stored = segment.duplicate();
+        stored.position(position + RECORD_HEADER_LENGTH);
+        stored.limit(position + RECORD_HEADER_LENGTH + storedLength);
+        stored = stored.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (!compressed) {
+            return stored;
+        }
+        byte[] input = new byte[storedLength];
+        stored.get(input);
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            int length = 0;
+            while (length < rawLength  &&  !inflater.finished()) {
+                length += inflater.inflate(raw, length, rawLength - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        return ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+
+    /**
+     * Maps the records of the log into memory. Logs larger than the segment-size are mapped in several segments,
+     * each overlapping its successor by the length of the longest record, so every record lies completely within
+     * the segment it starts in.
+     *
+     * @return  The mapped segments
+     * @throws IOException  If the log could not be mapped
+     */
+    private ByteBuffer[] mapRecords() throws IOException {
+        long end = recordOffsets[recordOffsets.length - 1];
+        long maxRecordLength = 0;
+        for (int i = 0  ;  i < size()  ;  i++) {
+            maxRecordLength = Math.max(maxRecordLength, recordOffsets[i + 1] - recordOffsets[i]);
+        }
+        if (SEGMENT_SIZE + maxRecordLength > Integer.MAX_VALUE) {
+            throw new IOException("Record of " + maxRecordLength + " bytes exceeds localization-log limits");
+        }
+        ByteBuffer[] mapped = new ByteBuffer[(int) ((end - 1) / SEGMENT_SIZE) + 1];
+        for (int k = 0  ;  k < mapped.length  ;  k++) {
+            long base = k * SEGMENT_SIZE;
+            long length = Math.min(end - base, SEGMENT_SIZE + maxRecordLength);
+            mapped[k] = channel.map(FileChannel.MapMode.READ_ONLY, base, length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return mapped;
+    }
+
+
+
+    /**
+     * Reads the record-offsets from the index-footer.
+     *
+     * @return  The record-offsets, followed by the end of the last record, or null if the log has no (valid)
+     *          index-footer
+     * @throws IOException  If the file could not be read
+     */
+    private long[] readIndexFooter() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < HEADER_LENGTH + 8 + TRAILER_LENGTH) {
+            return null;
+        }
+        ByteBuffer trailer = readFully(fileSize - TRAILER_LENGTH, TRAILER_LENGTH);
+        long footerOffset = trailer.getLong();
+        if (trailer.getInt() != FOOTER_MAGIC_NUMBER  ||  footerOffset < HEADER_LENGTH
+                ||  footerOffset > fileSize - TRAILER_LENGTH - 8) {
+            return null;
+        }
+        ByteBuffer footer = readFully(footerOffset, 8);
+        int marker = footer.getInt();
+        int count = footer.getInt();
+        if (marker != FOOTER_MARKER  ||  count < 0  ||  footerOffset + 8 + 8L * count + TRAILER_LENGTH != fileSize) {
+            return null;
+        }
+        long[] offsets = new long[count + 1];
+        readFully(footerOffset + 8, 8 * count).asLongBuffer().get(offsets, 0, count);
+        offsets[count] = footerOffset;
+        return offsets;
+    }
+
+
+
+    /**
+     * Finds the record-offsets by scanning the records from the start of the log, stopping at the index-footer or
+     * an incomplete record.
+     *
+     * @return  The record-offsets, followed by the end of the last record
+     * @throws IOException  If the file could not be read
+     */
+    private long[] scanRecords() throws IOException {
+        long fileSize = channel.size();
+        long[] offsets = new long[64];
+        int count = 0;
+        long offset = HEADER_LENGTH;
+        while (offset + RECORD_HEADER_LENGTH <= fileSize) {
+            recordHeader.clear();
+            readFully(offset, recordHeader);
+            int storedLength = recordHeader.getInt();
+            if (storedLength < 0  ||  offset + RECORD_HEADER_LENGTH + storedLength > fileSize) {
+                break;
+            }
+            if (count + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            }
+            offsets[count++] = offset;
+            offset += RECORD_HEADER_LENGTH + storedLength;
+        }
+        offsets[count] = offset;
+        return Arrays.copyOf(offsets, count + 1);
+    }
+
+
+
+    /**
+     * Reads the given number of bytes starting at the given file-position.
+     *
+     * @param position  The file-position to start reading at
+     * @param length    The number of bytes to read
+     * @return  A buffer holding the bytes read
+     * @throws IOException  If the bytes could not be read
+     */
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer target = allocate(length);
+        readFully(position, target);
+        return target;
+    }
+
+
+
+    /**
+     * Fills the given buffer with the bytes starting at the given file-position and flips it.
+     *
+     * @param position  The file-position to start reading at
+     * @param target    The buffer to fill
+     * @throws IOException  If the end of the file is reached first
+     */
+    private void readFully(long position, ByteBuffer target) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of localization-log");
+            }
+            position += read;
+        }
+        target.flip();
+    }
+
+
+
+    /**
+     * Reads a string written as UTF-8, prefixed by its length in bytes (-1 for null).
+     *
+     * @param payload   The payload to read the string from
+     * @return  The string read
+     */
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+
+    /**
+     * Checks whether the given file was written by the java-serialization (the former localization-log-format).
+     *
+     * @param file  The file to check
+     * @return  True, if the file starts with the magic number of the java-serialization
+     * @throws IOException  If the file could not be read
+     */
+    private static boolean isJavaSerialization(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return ((in.read() << 8) | in.read()) == JAVA_SERIALIZATION_MAGIC;
+        }
+    }
+
+
+
+    /**
+     * Allocates a (heap-) buffer in the byte-order of the log-format.
+     *
+     * @param capacity  The capacity of the buffer
+     * @return  A new buffer
+     */
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
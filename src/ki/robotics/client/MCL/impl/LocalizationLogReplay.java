@@ -0,0 +1,205 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.client.MCL.WorldState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Read-only list of the world-states of a binary localization-log, for replay. World-states are decoded on demand
+ * from the memory-mapped log, so only a small window around the last requested world-state is held in memory.
+ * The world-states within the window (mainly the ones following the requested world-state) are decoded in the
+ * background, ahead of being requested.
+ */
+class LocalizationLogReplay extends AbstractList<WorldState<ParticleImplMCL>> implements Closeable {
+    static final int PREFETCH_AHEAD = 8;
+    static final int PREFETCH_BEHIND = 2;
+
+    private final LocalizationLogReader reader;
+    private final HashMap<Integer, WorldState<ParticleImplMCL>> window = new HashMap<>();
+    private final AtomicBoolean prefetching = new AtomicBoolean(false);
+    private final ExecutorService prefetcher;
+    private int currentIndex;
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param reader    The reader of the localization-log to replay
+     */
+    LocalizationLogReplay(LocalizationLogReader reader) {
+        this.reader = reader;
+        this.prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "localization-replay-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+
+    /**
+     * Returns the number of world-states in the replay.
+     *
+     * @return  The number of world-states in the replay
+     */
+    @Override
+    public int size() { return reader.size(); }
+
+
+
+    /**
+     * Returns the world-state with the given index, decoding it first if it is not within the prefetch-window.
+     * Moves the prefetch-window to the given index.
+     *
+     * @param index The index of the world-state
+     * @return  The world-state with the given index
+     */
+    @Override
+    public WorldState<ParticleImplMCL> get(int index) {
+        if (index < 0  ||  index >= size()) {
+            throw new IndexOutOfBoundsException("No world-state " + index + " in replay");
+        }
+        WorldState<ParticleImplMCL> worldState;
+        synchronized (window) {
+            currentIndex = index;
+            Iterator<Integer> it = window.keySet().iterator();
+            while (it.hasNext()) {
+                if (!isWithinWindow(it.next())) {
+                    it.remove();
+                }
+            }
+            worldState = window.get(index);
+        }
+        if (worldState == null) {
+            try {
+                worldState = decode(index);
+            } catch (IOException e) {
+                throw new IllegalStateException("World-state " + index + " could not be read", e);
+            }
+            synchronized (window) {
+                window.put(index, worldState);
+            }
+        }
+        schedulePrefetch();
+        return worldState;
+    }
+
+
+
+    /**
+     * Stops prefetching and closes the localization-log.
+     *
+     * @throws IOException  If the localization-log could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        prefetcher.shutdownNow();
+        reader.close();
+    }
+
+
+
+    /**
+     * Decodes the world-state with the given index, including its particles.
+     *
+     * @param index The index of the world-state
+     * @return  The decoded world-state
+     * @throws IOException  If the world-state could not be read
+     */
+    private WorldState<ParticleImplMCL> decode(int index) throws IOException {
+        WorldState<ParticleImplMCL> worldState = reader.read(index);
+        worldState.getParticles();
+        return worldState;
+    }
+
+
+
+    /**
+     * Starts decoding the missing world-states of the prefetch-window in the background, unless already running.
+     */
+    private void schedulePrefetch() {
+        if (prefetching.compareAndSet(false, true)) {
+            prefetcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        prefetch();
+                    } finally {
+                        prefetching.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+
+
+    /**
+     * Decodes the missing world-states of the prefetch-window (which may move meanwhile), nearest first.
+     */
+    private void prefetch() {
+        int index;
+        while ((index = nextMissingIndex()) >= 0  &&  !Thread.currentThread().isInterrupted()) {
+            WorldState<ParticleImplMCL> worldState;
+            try {
+                worldState = decode(index);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            synchronized (window) {
+                if (isWithinWindow(index)) {
+                    window.put(index, worldState);
+                }
+            }
+        }
+    }
+
+
+
+    /**
+     * Returns the index of the nearest world-state within the prefetch-window that is not yet decoded.
+     *
+     * @return  The index of the nearest missing world-state or -1, if the prefetch-window is complete
+     */
+    private int nextMissingIndex() {
+        synchronized (window) {
+            for (int distance = 1  ;  distance <= PREFETCH_AHEAD  ;  distance++) {
+                int ahead = currentIndex + distance;
+                if (ahead < size()  &&  !window.containsKey(ahead)) {
+                    return ahead;
+                }
+                int behind = currentIndex - distance;
+                if (distance <= PREFETCH_BEHIND  &&  behind >= 0  &&  !window.containsKey(behind)) {
+                    return behind;
+                }
+            }
+            return -1;
+        }
+    }
+
+
+
+    /**
+     * Checks whether the given index lies within the prefetch-window around the last requested world-state.
+     *
+     * @param index The index of a world-state
+     * @return  True, if the index lies within the prefetch-window
+     */
+    private boolean isWithinWindow(int index) {
+        return index >= currentIndex - PREFETCH_BEHIND  &&  index <= currentIndex + PREFETCH_AHEAD;
+    }
+}
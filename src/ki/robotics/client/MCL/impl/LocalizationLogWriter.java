@@ -0,0 +1,318 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.client.MCL.SensorModel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static ki.robotics.client.MCL.impl.LocalizationLogFormat.*;
+
+
+/**
+ * Append-only writer for the binary localization-log (see LocalizationLogFormat).
+ * Each world-state is encoded into a reusable buffer and written as one length-prefixed record, so a log is
+ * readable up to the last appended world-state even if it was never closed. Particle-attributes shared with the
+ * preceding particle-snapshot are not written again, but referenced by the index of the record holding them.
+ * The index-footer is written on closing the log.
+ */
+class LocalizationLogWriter implements Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Deflater deflater;
+    private ByteBuffer buffer;
+    private ByteBuffer compressionBuffer;
+    private long[] recordOffsets = new long[64];
+    private int numberOfRecords;
+    private long position;
+    private ParticleSnapshot lastParticleSnapshot;
+    private final int[] columnOwners = new int[NUMBER_OF_COLUMNS];
+
+
+
+    /**
+     * Constructor. Creates (or truncates) the log-file and writes the file-header.
+     *
+     * @param file          The file to write the localization-log to
+     * @param compressed    True, if the records should be deflated
+     * @throws IOException  If the file could not be created
+     */
+    LocalizationLogWriter(File file, boolean compressed) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+        this.buffer = allocate(INITIAL_BUFFER_SIZE);
+
+        buffer.putInt(MAGIC_NUMBER).putInt(FORMAT_VERSION).putInt(compressed ? FLAG_COMPRESSED : 0).putInt(0);
+        buffer.flip();
+        writeFully(buffer);
+        this.position = HEADER_LENGTH;
+    }
+
+
+
+    /**
+     * Returns the number of world-states appended to the log.
+     *
+     * @return  The number of world-states appended to the log
+     */
+    int size() { return numberOfRecords; }
+
+
+
+    /**
+     * Appends the given world-state to the log.
+     *
+     * @param worldState    The world-state to append
+     * @throws IOException  If the world-state could not be written
+     */
+    void append(WorldStateImplMCL worldState) throws IOException {
+        ParticleSnapshot particles = worldState.getParticleSnapshot();
+        if (particles == null) {
+            particles = new ParticleSnapshot(
+                    ParticleStore.fromParticles(worldState.getParticles(), worldState.getMap()), lastParticleSnapshot);
+        }
+
+        buffer.clear();
+        buffer.position(RECORD_HEADER_LENGTH);
+        putString(worldState.getMapKey());
+        putString(worldState.getCausativeInstruction());
+        double[] pose = worldState.getEstimatedBotPose();
+        ensureCapacity(4 + 8 * pose.length + 8);
+        buffer.putInt(pose.length);
+        for (double d : pose) {
+            buffer.putDouble(d);
+        }
+        buffer.putDouble(worldState.getEstimatedBotPoseSpreading());
+        putSensorModel(worldState.getSensorModel());
+
+        ensureCapacity(4);
+        buffer.putInt(particles.size());
+        boolean predecessor = lastParticleSnapshot != null;
+        putColumn(COLUMN_X, particles.getX(), predecessor ? lastParticleSnapshot.getX() : null);
+        putColumn(COLUMN_Y, particles.getY(), predecessor ? lastParticleSnapshot.getY() : null);
+        putColumn(COLUMN_HEADING, particles.getHeading(), predecessor ? lastParticleSnapshot.getHeading() : null);
+        putColumn(COLUMN_WEIGHT, particles.getWeight(), predecessor ? lastParticleSnapshot.getWeight() : null);
+        putColumn(COLUMN_COLOR, particles.getColor(), predecessor ? lastParticleSnapshot.getColor() : null);
+        buffer.flip();
+
+        ByteBuffer record = (deflater != null) ? deflate(buffer) : buffer;
+        record.putInt(0, record.remaining() - RECORD_HEADER_LENGTH);
+        record.putInt(4, buffer.limit() - RECORD_HEADER_LENGTH);
+        int recordLength = record.remaining();
+        writeFully(record);
+
+        if (numberOfRecords == recordOffsets.length) {
+            recordOffsets = Arrays.copyOf(recordOffsets, 2 * numberOfRecords);
+        }
+        recordOffsets[numberOfRecords++] = position;
+        position += recordLength;
+        lastParticleSnapshot = particles;
+    }
+
+
+
+    /**
+     * Forces all appended world-states to the storage device.
+     *
+     * @throws IOException  If the log could not be forced to the storage device
+     */
+    void flush() throws IOException {
+        channel.force(false);
+    }
+
+
+
+    /**
+     * Writes the index-footer and closes the log.
+     *
+     * @throws IOException  If the footer could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            buffer.clear();
+            ensureCapacity(8 + 8 * numberOfRecords + TRAILER_LENGTH);
+            buffer.putInt(FOOTER_MARKER);
+            buffer.putInt(numberOfRecords);
+            for (int i = 0  ;  i < numberOfRecords  ;  i++) {
+                buffer.putLong(recordOffsets[i]);
+            }
+            buffer.putLong(position);
+            buffer.putInt(FOOTER_MAGIC_NUMBER);
+            buffer.flip();
+            writeFully(buffer);
+            channel.force(false);
+        } finally {
+            channel.close();
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+
+
+    /**
+     * Writes the values of a particle-attribute, or a reference to the record holding them if they are shared
+     * with the preceding particle-snapshot.
+     *
+     * @param column    The index of the particle-attribute
+     * @param values    The values of the particle-attribute (float[] or int[])
+     * @param previous  The values of the particle-attribute in the preceding particle-snapshot, or null
+     */
+    private void putColumn(int column, Object values, Object previous) {
+        if (values == previous) {
+            ensureCapacity(4);
+            buffer.putInt(columnOwners[column]);
+            return;
+        }
+        columnOwners[column] = numberOfRecords;
+        if (values instanceof float[]) {
+            float[] floats = (float[]) values;
+            ensureCapacity(4 + 4 * floats.length);
+            buffer.putInt(numberOfRecords);
+            buffer.asFloatBuffer().put(floats);
+            buffer.position(buffer.position() + 4 * floats.length);
+        } else {
+            int[] ints = (int[]) values;
+            ensureCapacity(4 + 4 * ints.length);
+            buffer.putInt(numberOfRecords);
+            buffer.asIntBuffer().put(ints);
+            buffer.position(buffer.position() + 4 * ints.length);
+        }
+    }
+
+
+
+    /**
+     * Writes the portable values of a sensor-model (distances, color, sensor-head-position and sweep).
+     *
+     * @param sensorModel   The sensor-model to write, or null
+     */
+    private void putSensorModel(SensorModel sensorModel) {
+        ensureCapacity(4 * 8 + 4);
+        if (sensorModel == null) {
+            buffer.putDouble(0).putDouble(0).putDouble(0).putInt(0).putDouble(0);
+            ensureCapacity(4);
+            buffer.putInt(0);
+            return;
+        }
+        buffer.putDouble(sensorModel.getDistanceToLeft());
+        buffer.putDouble(sensorModel.getDistanceToCenter());
+        buffer.putDouble(sensorModel.getDistanceToRight());
+        buffer.putInt(sensorModel.getColor());
+        buffer.putDouble(sensorModel.getSensorHeadPosition());
+
+        int numberOfSweepMeasurements = sensorModel.getNumberOfSweepMeasurements();
+        ensureCapacity(4 + 2 * 8 * numberOfSweepMeasurements);
+        buffer.putInt(numberOfSweepMeasurements);
+        for (int i = 0  ;  i < numberOfSweepMeasurements  ;  i++) {
+            buffer.putDouble(sensorModel.getSweepSensorHeadPosition(i));
+        }
+        for (int i = 0  ;  i < numberOfSweepMeasurements  ;  i++) {
+            buffer.putDouble(sensorModel.getSweepDistance(i));
+        }
+    }
+
+
+
+    /**
+     * Writes a string as UTF-8, prefixed by its length in bytes (-1 for null).
+     *
+     * @param s The string to write
+     */
+    private void putString(String s) {
+        if (s == null) {
+            ensureCapacity(4);
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+
+
+    /**
+     * Deflates the payload of the given record into the compression-buffer, leaving room for the record-header.
+     *
+     * @param record    The record (header and payload) to deflate
+     * @return  The compression-buffer holding the deflated record, ready for writing
+     */
+    private ByteBuffer deflate(ByteBuffer record) {
+        int rawLength = record.limit() - RECORD_HEADER_LENGTH;
+        int capacity = RECORD_HEADER_LENGTH + rawLength + rawLength / 1000 + 64;
+        if (compressionBuffer == null  ||  compressionBuffer.capacity() < capacity) {
+            compressionBuffer = allocate(capacity);
+        }
+        deflater.reset();
+        deflater.setInput(record.array(), RECORD_HEADER_LENGTH, rawLength);
+        deflater.finish();
+        byte[] out = compressionBuffer.array();
+        int length = RECORD_HEADER_LENGTH;
+        while (!deflater.finished()) {
+            if (length == out.length) {
+                compressionBuffer = allocate(2 * out.length);
+                System.arraycopy(out, 0, compressionBuffer.array(), 0, length);
+                out = compressionBuffer.array();
+            }
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        compressionBuffer.clear();
+        compressionBuffer.limit(length);
+        return compressionBuffer;
+    }
+
+
+
+    /**
+     * Grows the encoding-buffer (keeping its content) if less than the given number of bytes remain.
+     *
+     * @param bytes The number of bytes to be written next
+     */
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = allocate(Math.max(2 * buffer.capacity(), buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+
+
+    /**
+     * Writes the remaining content of the given buffer to the log-file.
+     *
+     * @param source    The buffer to write
+     * @throws IOException  If the buffer could not be written
+     */
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+
+
+    /**
+     * Allocates a (heap-) buffer in the byte-order of the log-format.
+     *
+     * @param capacity  The capacity of the buffer
+     * @return  A new buffer
+     */
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
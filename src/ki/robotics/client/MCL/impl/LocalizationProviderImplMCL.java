@@ -2,33 +2,48 @@ package ki.robotics.client.MCL.impl;
 
 import ki.robotics.client.ClientFactory;
 import ki.robotics.client.GUI.GuiConfiguration;
+import ki.robotics.client.MCL.LocalizationObserver;
 import ki.robotics.client.MCL.LocalizationProvider;
 import ki.robotics.client.MCL.SensorModel;
+import ki.robotics.client.MCL.WorldState;
+import ki.robotics.utility.map.DistanceField;
 import ki.robotics.utility.map.Map;
 import ki.robotics.utility.pixyCam.DTOGeneralQuery;
 import ki.robotics.utility.pixyCam.DTOSignatureQuery;
-import lejos.robotics.navigation.Pose;
 
 import java.awt.*;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Utility-class for performing the monte-carlo-localization.
  *
  */
 public class LocalizationProviderImplMCL implements LocalizationProvider {
+    private static final String EVALUATION_PARALLELISM_PROPERTY = "mclEvaluationParallelism";
+    private static final String RESAMPLER_PROPERTY = "mclResampler";
+    private static final String SENSOR_MODEL_PROPERTY = "mclSensorModel";
+    private static final String LOG_STREAMING_PROPERTY = "localizationLogStreaming";
+    private static final String LOG_COMPRESSION_PROPERTY = "localizationLogCompression";
+    private static final HashMap<Integer, ForkJoinPool> EVALUATION_POOLS = new HashMap<>();
+
     private MclModel mclModel;
     private ParticleSetResampler particleSetResampler;
     private ParticleSetEvaluator particleSetEvaluator;
     private BotToParticleMotionMapper botToParticleMotionMapper;
     private BotPoseEstimator botPoseEstimator;
     private LocalizationRecorder localizationRecorder;
+    private final CopyOnWriteArrayList<LocalizationObserver> observers = new CopyOnWriteArrayList<>();
+    private final int[] resamplingWeights;
+    private final ResamplingWheel resamplingWheel;
 
 
 
@@ -43,15 +58,93 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
      * @param userSettings          User-settings for localization
      */
     public LocalizationProviderImplMCL(Map map, int numberOfParticles, int[] limitations, GuiConfiguration userSettings) {
+        this(map, numberOfParticles, limitations, userSettings, getConfiguredEvaluationParallelism());
+    }
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param map                   The map used for localization
+     * @param numberOfParticles     The number of particles to distribute in the map
+     * @param limitations           Limitations for particle-values regarding x- or y-Axis or heading
+     * @param userSettings          User-settings for localization
+     * @param evaluationParallelism The number of threads used for recalculating the particle-weights (1 for sequential)
+     */
+    public LocalizationProviderImplMCL(Map map, int numberOfParticles, int[] limitations, GuiConfiguration userSettings, int evaluationParallelism) {
+        this(map, numberOfParticles, limitations, userSettings, evaluationParallelism, getConfiguredResampler(),
+                getConfiguredMeasurementModel(map, MclModel.RESAMPLING_WEIGHTS), MclModel.RESAMPLING_WEIGHTS, new Random());
+    }
+
+
+
+    /**
+     * Constructor. The initial particle-set is drawn from a random-generator with the given seed, so that
+     * localizations with equal seeds start from equal particle-sets.
+     *
+     * @param map                   The map used for localization
+     * @param numberOfParticles     The number of particles to distribute in the map
+     * @param limitations           Limitations for particle-values regarding x- or y-Axis or heading
+     * @param userSettings          User-settings for localization
+     * @param evaluationParallelism The number of threads used for recalculating the particle-weights (1 for sequential)
+     * @param seed                  The seed for generating the initial particle-set
+     */
+    public LocalizationProviderImplMCL(Map map, int numberOfParticles, int[] limitations, GuiConfiguration userSettings, int evaluationParallelism, long seed) {
+        this(map, numberOfParticles, limitations, userSettings, evaluationParallelism, getConfiguredResampler(),
+                getConfiguredMeasurementModel(map, MclModel.RESAMPLING_WEIGHTS), MclModel.RESAMPLING_WEIGHTS, new Random(seed));
+    }
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param map                   The map used for localization
+     * @param numberOfParticles     The number of particles to distribute in the map
+     * @param limitations           Limitations for particle-values regarding x- or y-Axis or heading
+     * @param userSettings          User-settings for localization
+     * @param evaluationParallelism The number of threads used for recalculating the particle-weights (1 for sequential)
+     * @param resampler             The resampling-strategy
+     * @param measurementModel      The sensor-model weighting the particles by the measured distances
+     * @param resamplingWeights     The weights of the deviation-categories (five, from largest to smallest deviation)
+     */
+    LocalizationProviderImplMCL(Map map, int numberOfParticles, int[] limitations, GuiConfiguration userSettings,
+                                int evaluationParallelism, Resampler resampler, MeasurementModel measurementModel,
+                                int[] resamplingWeights) {
+        this(map, numberOfParticles, limitations, userSettings, evaluationParallelism, resampler, measurementModel,
+                resamplingWeights, new Random());
+    }
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param map                   The map used for localization
+     * @param numberOfParticles     The number of particles to distribute in the map
+     * @param limitations           Limitations for particle-values regarding x- or y-Axis or heading
+     * @param userSettings          User-settings for localization
+     * @param evaluationParallelism The number of threads used for recalculating the particle-weights (1 for sequential)
+     * @param resampler             The resampling-strategy
+     * @param measurementModel      The sensor-model weighting the particles by the measured distances
+     * @param resamplingWeights     The weights of the deviation-categories (five, from largest to smallest deviation)
+     * @param random                The random-generator for the initial particle-set
+     */
+    private LocalizationProviderImplMCL(Map map, int numberOfParticles, int[] limitations, GuiConfiguration userSettings,
+                                        int evaluationParallelism, Resampler resampler, MeasurementModel measurementModel,
+                                        int[] resamplingWeights, Random random) {
         this.localizationRecorder = new LocalizationRecorder();
+        this.resamplingWeights = resamplingWeights;
+        this.resamplingWheel = new ResamplingWheel(resamplingWeights);
 
-        ParticleSetGenerator particleSetGenerator = new ParticleSetGenerator(numberOfParticles, map, limitations);
-        ArrayList<ParticleImplMCL> particles = particleSetGenerator.generateInitialParticleSet();
+        ParticleSetGenerator particleSetGenerator = new ParticleSetGenerator(numberOfParticles, map, limitations, random);
+        ParticleStore particles = particleSetGenerator.generateInitialParticleSet();
         WorldStateImplMCL ws = new WorldStateImplMCL(this, map, particles);
 
         this.mclModel = new MclModel(ws, userSettings);
-        this.particleSetResampler = new ParticleSetResampler(localizationRecorder);
-        this.particleSetEvaluator = new ParticleSetEvaluator();
+        this.particleSetResampler = new ParticleSetResampler(localizationRecorder, resampler, createKldSampler(map, numberOfParticles, userSettings));
+        this.particleSetEvaluator = new ParticleSetEvaluator(evaluationParallelism, measurementModel);
         this.botToParticleMotionMapper = new BotToParticleMotionMapper(particleSetResampler, localizationRecorder);
         this.botPoseEstimator = new BotPoseEstimator();
 
@@ -167,7 +260,7 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
 
 
     /**
-     * Saves the (serialized) localization-sequence to a file using the current date and time as filename.
+     * Saves the localization-sequence to a binary localization-log using the current date and time as filename.
      */
     @Override
     public void saveLocalizationSequenceToFile() {
@@ -206,6 +299,31 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
 
 
 
+    /**
+     * Attaches an observer (e.g. a visualization) to the localization. While at least one observer is attached,
+     * the particles are colored according to their resampling-category after each recalculation of the weights.
+     *
+     * @param observer  The observer to attach
+     */
+    @Override
+    public void addLocalizationObserver(LocalizationObserver observer) {
+        observers.addIfAbsent(observer);
+    }
+
+
+
+    /**
+     * Detaches an observer from the localization.
+     *
+     * @param observer  The observer to detach
+     */
+    @Override
+    public void removeLocalizationObserver(LocalizationObserver observer) {
+        observers.remove(observer);
+    }
+
+
+
 
 
     /**
@@ -215,6 +333,7 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
         private int numberOfParticles;
         private Map map;
         private int[] limitations;
+        private Random random;
 
 
         /**
@@ -223,11 +342,13 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
          * @param numberOfParticles     The number of particles to distribute in the map
          * @param map                   The map used for localization
          * @param limitations           Limitations for particle-values regarding x- or y-Axis or heading
+         * @param random                The random-generator for the particle-values
          */
-        ParticleSetGenerator(int numberOfParticles, Map map, int[] limitations) {
+        ParticleSetGenerator(int numberOfParticles, Map map, int[] limitations, Random random) {
             this.numberOfParticles = numberOfParticles;
             this.map = map;
             this.limitations = limitations;
+            this.random = random;
         }
 
 
@@ -236,21 +357,21 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
          *
          * @return      A set of random particles.
          */
-        ArrayList<ParticleImplMCL> generateInitialParticleSet() {
-            ArrayList<ParticleImplMCL> particles = new ArrayList<>();
+        ParticleStore generateInitialParticleSet() {
+            ParticleStore particles = new ParticleStore(map, numberOfParticles);
             for (int i = 0  ;  i < numberOfParticles  ;  i++) {
-                particles.add(createRandomParticle());
+                addRandomParticle(particles);
             }
             return particles;
         }
 
 
         /**
-         * Creates one random particle within given limitations and map-bounds.
+         * Adds one random particle within given limitations and map-bounds to the given particle-store.
          *
-         * @return              A random particle.
+         * @param particles     The particle-store to add the random particle to.
          */
-        private ParticleImplMCL createRandomParticle() {
+        private void addRandomParticle(ParticleStore particles) {
             Polygon boundaries = map.getOperatingRange();
             Rectangle limits = boundaries.getBounds();
             double xOffset = limits.getX();
@@ -259,11 +380,12 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
             double heightLimit = limits.getHeight();
 
             while (true) {
-                int x = (limitations[0] >= 0) ? limitations[0] : (int)Math.round(Math.random() * widthLimit + xOffset);
-                int y = (limitations[1] >= 0) ? limitations[1] : (int)Math.round(Math.random() * heightLimit + yOffset);
-                int h = (limitations[2] >= 0  ? limitations[2] : (int) (Math.round(Math.random() * 4) *90));
+                int x = (limitations[0] >= 0) ? limitations[0] : (int)Math.round(random.nextDouble() * widthLimit + xOffset);
+                int y = (limitations[1] >= 0) ? limitations[1] : (int)Math.round(random.nextDouble() * heightLimit + yOffset);
+                int h = (limitations[2] >= 0  ? limitations[2] : (int) (Math.round(random.nextDouble() * 4) *90));
                 if (boundaries.contains(x, y)) {
-                    return new ParticleImplMCL(new Pose(x, y, h), map, 1, Color.GRAY);
+                    particles.add(x, y, h, 1, Color.GRAY.getRGB());
+                    return;
                 }
             }
         }
@@ -273,73 +395,345 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
 
 
 
+    /**
+     * Returns the number of threads for recalculating the particle-weights as given by the property
+     * 'mclEvaluationParallelism' in the configuration-file. Missing, malformed or non-positive values select
+     * the number of available processors.
+     *
+     * @return  The configured number of threads for recalculating the particle-weights
+     */
+    private static int getConfiguredEvaluationParallelism() {
+        String value = ClientFactory.getProperties().getProperty(EVALUATION_PARALLELISM_PROPERTY);
+        int parallelism = 0;
+        if (value != null) {
+            try {
+                parallelism = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+        return (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+
+
+
+
+    /**
+     * Returns the fork-join-pool for recalculating the particle-weights with the given number of threads.
+     * The pool is created on first use and shared by all providers with the same parallelism, so a new
+     * provider (e.g. for every restart of the localization) does not leave another pool behind.
+     *
+     * @param parallelism   The number of threads of the pool
+     * @return  The shared fork-join-pool with the given parallelism
+     */
+    private static synchronized ForkJoinPool getEvaluationPool(int parallelism) {
+        ForkJoinPool evaluationPool = EVALUATION_POOLS.get(parallelism);
+        if (evaluationPool == null) {
+            evaluationPool = new ForkJoinPool(parallelism);
+            EVALUATION_POOLS.put(parallelism, evaluationPool);
+        }
+        return evaluationPool;
+    }
+
+
+
+
+
+    /**
+     * Returns a KLD-sampler for adapting the number of particles within the bounds given by the user-settings,
+     * or null if the bounds do not leave room for adaption. The initial number of particles is the upper bound
+     * unless the user-settings demand more.
+     *
+     * @param map                   The map used for localization
+     * @param numberOfParticles     The initial number of particles
+     * @param userSettings          User-settings for localization
+     * @return  A KLD-sampler or null for a fixed number of particles
+     */
+    private static KldSampler createKldSampler(Map map, int numberOfParticles, GuiConfiguration userSettings) {
+        int min = userSettings.getMinNumberOfParticles();
+        int max = Math.max(numberOfParticles, userSettings.getMaxNumberOfParticles());
+        return (min > 0  &&  min < max) ? new KldSampler(map, min, max) : null;
+    }
+
+
+
+    /**
+     * Returns the resampling-strategy given by the property 'mclResampler' in the configuration-file
+     * ('wheel', 'systematic' or 'residual'). Missing or unknown values select the resampling-wheel.
+     *
+     * @return  The configured resampling-strategy
+     */
+    private static Resampler getConfiguredResampler() {
+        return createResampler(ClientFactory.getProperties().getProperty(RESAMPLER_PROPERTY, "wheel").trim());
+    }
+
+
+
+    /**
+     * Returns the resampling-strategy of the given name ('wheel', 'systematic' or 'residual'). Unknown names
+     * select the resampling-wheel.
+     *
+     * @param name  The name of the resampling-strategy
+     * @return  The resampling-strategy
+     */
+    static Resampler createResampler(String name) {
+        switch (name) {
+            case "systematic":
+                return new ResamplerImplSystematic();
+            case "residual":
+                return new ResamplerImplResidual();
+            default:
+                return new ResamplerImplWheel();
+        }
+    }
+
+
+
+    /**
+     * Returns the sensor-model given by the property 'mclSensorModel' in the configuration-file ('beam' or
+     * 'likelihoodField'). Missing or unknown values select the beam-model.
+     *
+     * @param map               The map used for localization
+     * @param resamplingWeights The weights of the deviation-categories of the beam-model
+     * @return  The configured sensor-model
+     */
+    private static MeasurementModel getConfiguredMeasurementModel(Map map, int[] resamplingWeights) {
+        String name = ClientFactory.getProperties().getProperty(SENSOR_MODEL_PROPERTY, "beam").trim();
+        return createMeasurementModel(name, map, resamplingWeights);
+    }
+
+
+
+    /**
+     * Returns the sensor-model of the given name ('beam' or 'likelihoodField'). Unknown names, as well as maps
+     * without distance-field, select the beam-model.
+     *
+     * @param name              The name of the sensor-model
+     * @param map               The map used for localization
+     * @param resamplingWeights The weights of the deviation-categories of the beam-model
+     * @return  The sensor-model
+     */
+    static MeasurementModel createMeasurementModel(String name, Map map, int[] resamplingWeights) {
+        if ("likelihoodField".equals(name)) {
+            DistanceField distanceField = ClientFactory.getMapProvider().getDistanceField(map.getMapKey(), MeasurementModelImplLikelihoodField.RESOLUTION);
+            if (distanceField != null) {
+                return new MeasurementModelImplLikelihoodField(distanceField);
+            }
+            System.err.println("no distance-field for map " + map.getMapKey() + ", using the beam-model");
+        }
+        return new MeasurementModelImplBeam(resamplingWeights);
+    }
+
+
+
+
+
+    /**
+     * Returns the boolean value of the given property in the configuration-file (false, if missing).
+     *
+     * @param key   The key of the property
+     * @return  The configured value of the property
+     */
+    private static boolean getConfiguredFlag(String key) {
+        return Boolean.parseBoolean(ClientFactory.getProperties().getProperty(key, "false").trim());
+    }
+
+
+
+
+
     /**
      * Re-Evaluator for recalculation of the particle-weights for an entire particle-set.
+     * With a parallelism greater than one the particle-set is split into ranges which are evaluated on a
+     * fork-join-pool. Each particle is evaluated independently of all others, so the resulting weights are
+     * identical to the ones of the sequential evaluation.
      */
     private class ParticleSetEvaluator {
+        private static final int PARTICLES_PER_TASK = 64;
+
+        private final ForkJoinPool evaluationPool;
+        private final MeasurementModel measurementModel;
+
+
+        /**
+         * Constructor.
+         *
+         * @param parallelism       The number of threads used for the evaluation (1 for sequential evaluation)
+         * @param measurementModel  The sensor-model weighting the particles by the measured distances
+         */
+        ParticleSetEvaluator(int parallelism, MeasurementModel measurementModel) {
+            this.evaluationPool = (parallelism > 1) ? getEvaluationPool(parallelism) : null;
+            this.measurementModel = measurementModel;
+        }
+
+
         /**
          * Recalculates the particle-weights based on the current sensor-model (sensor-feedback from the robot).
          *
          * @param bot   The sensor-model.
          */
         void recalculateParticleWeight(SensorModel bot) {
-            ArrayList<ParticleImplMCL> particles = mclModel.getParticles();
-            for (ParticleImplMCL p : particles) {
-                if (p.isOutOfMapOperatingRange()) {
-                    p.setWeight(0);
-                    p.setColor(Color.BLACK);
+            ParticleStore particles = mclModel.getParticleStore();
+            if (evaluationPool == null  ||  particles.size() <= PARTICLES_PER_TASK) {
+                recalculateParticleWeight(bot, particles, 0, particles.size());
+            } else {
+                evaluationPool.invoke(new EvaluationTask(bot, particles, 0, particles.size()));
+            }
+            mclModel.setSensorModel(bot);
+            if (! observers.isEmpty()) {
+                colorParticles(particles);
+                for (LocalizationObserver observer : observers) {
+                    observer.particleWeightsRecalculated(mclModel.getCurrentWorldState());
+                }
+            }
+        }
+
+
+
+        /**
+         * Recalculates the particle-weights for the given range of particles.
+         *
+         * @param bot       The sensor-model.
+         * @param particles The particle-store holding the particles.
+         * @param from      The index of the first particle to evaluate (inclusive).
+         * @param to        The index of the last particle to evaluate (exclusive).
+         */
+        private void recalculateParticleWeight(SensorModel bot, ParticleStore particles, int from, int to) {
+            double[] weights = new double[to - from];
+            measurementModel.weighParticles(particles, from, to, getSensorHeadPositions(bot), getDistances(bot), weights);
+            for (int i = from  ;  i < to  ;  i++) {
+                if (particles.isOutOfMapOperatingRange(i)) {
+                    particles.setWeight(i, 0);
                 } else {
-                    double deviation = calculateBotParticleDeviation(bot, p);
-                    p.setWeight((float) deviation);
-                    p.setColor(mclModel.getResamplingWheel().weightToColor(deviation));
+                    particles.setWeight(i, (float) calculateBotParticleWeight(bot, particles, i, weights[i - from]));
                 }
             }
-            mclModel.getResamplingWheel().update(particles);
-            mclModel.setSensorModel(bot);
         }
 
 
 
         /**
-         * Calculates an absolute weight for a particle as the multiplicative inverse of the arithmetic
-         * mean of the deviations of all used distance-sensor-directions.
+         * Returns the sensor-head-positions of the distances measured by the robot: those of the latest sweep, if
+         * the sensor-model holds one, otherwise those of the three-way-scan.
          *
-         * @param bot       The SensorModel to hold the robot-sensor-feedback.
-         * @param particle  The particle to compare with the sensor-model.
-         * @return          The absolute weight of the particle.
+         * @param bot   The sensor-model.
+         * @return      The sensor-head-positions of the measured distances.
          */
-        private double calculateBotParticleDeviation(SensorModel bot, ParticleImplMCL particle) {
-        // Factor the weight from uss scans get multiplied with, depending on how much the particles view deviates from the bots camera view. Between 1 and 3.
-            double seeingColorScale = 1;
-            if (mclModel.getUserSettings().isWithCamera() ){
-                double camDeviation = calculatedCameraSupportedDeviation(bot, particle);
-                seeingColorScale = ( camDeviation > 0 ) ? camDeviation*4+1 : 1;
+        private double[] getSensorHeadPositions(SensorModel bot) {
+            int numberOfSweepMeasurements = bot.getNumberOfSweepMeasurements();
+            if (numberOfSweepMeasurements == 0) {
+                return ParticleStore.THREE_WAY_SCAN;
+            }
+            double[] sensorHeadPositions = new double[numberOfSweepMeasurements];
+            for (int i = 0  ;  i < numberOfSweepMeasurements  ;  i++) {
+                sensorHeadPositions[i] = bot.getSweepSensorHeadPosition(i);
             }
+            return sensorHeadPositions;
+        }
 
-            //0 is left, 1 is center, 2 is right
-            double[] botDistances = bot.getAllDistances();
-            double[] particleDistances = particle.ultrasonicThreeWayScan();
 
-            double leftDeviation, centerDeviation, rightDeviation;
-            int leftWeight = 0, centerWeight = 0, rightWeight = 0;
 
-            if (botDistances[0] > 0  &&  particleDistances[0] > 0) {
-                leftDeviation = Math.abs(botDistances[0] - particleDistances[0]);
-                leftWeight = deviationToWeight(leftDeviation, botDistances[0]);
+        /**
+         * Returns the distances measured by the robot, in the order of getSensorHeadPositions.
+         *
+         * @param bot   The sensor-model.
+         * @return      The measured distances.
+         */
+        private double[] getDistances(SensorModel bot) {
+            int numberOfSweepMeasurements = bot.getNumberOfSweepMeasurements();
+            if (numberOfSweepMeasurements == 0) {
+                return bot.getAllDistances();
+            }
+            double[] distances = new double[numberOfSweepMeasurements];
+            for (int i = 0  ;  i < numberOfSweepMeasurements  ;  i++) {
+                distances[i] = bot.getSweepDistance(i);
             }
+            return distances;
+        }
+
 
-            if (botDistances[1] > 0  &&  particleDistances[1] > 0) {
-                centerDeviation = Math.abs(botDistances[1] - particleDistances[1]);
-                centerWeight = deviationToWeight(centerDeviation, botDistances[1]);
+
+        /**
+         * Colors the particles according to the resampling-category of their weights. Particles outside the
+         * operating-range of the map (weight 0) are colored black.
+         *
+         * @param particles The particle-store holding the particles.
+         */
+        private void colorParticles(ParticleStore particles) {
+            int black = Color.BLACK.getRGB();
+            for (int i = 0  ;  i < particles.size()  ;  i++) {
+                float weight = particles.getWeight(i);
+                particles.setColor(i, (weight == 0) ? black : resamplingWheel.weightToColor(weight));
             }
-            if (botDistances[2] > 0  &&  particleDistances[2] > 0) {
-                rightDeviation = Math.abs(botDistances[2] - particleDistances[2]);
-                rightWeight = deviationToWeight(rightDeviation, botDistances[2]);
+        }
+
+
+
+        /**
+         * Fork-join-task for recalculating the particle-weights of a range of particles. Ranges larger than
+         * PARTICLES_PER_TASK are split in halves.
+         */
+        private class EvaluationTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final SensorModel bot;
+            private final ParticleStore particles;
+            private final int from;
+            private final int to;
+
+
+            /**
+             * Constructor.
+             *
+             * @param bot       The sensor-model.
+             * @param particles The particle-store holding the particles.
+             * @param from      The index of the first particle to evaluate (inclusive).
+             * @param to        The index of the last particle to evaluate (exclusive).
+             */
+            EvaluationTask(SensorModel bot, ParticleStore particles, int from, int to) {
+                this.bot = bot;
+                this.particles = particles;
+                this.from = from;
+                this.to = to;
             }
 
-            int deviation = leftWeight + centerWeight + rightWeight;
-            if (deviation > 0) {
-                return (1.0 / (double)deviation) * seeingColorScale;
+
+            @Override
+            protected void compute() {
+                if (to - from <= PARTICLES_PER_TASK) {
+                    recalculateParticleWeight(bot, particles, from, to);
+                } else {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new EvaluationTask(bot, particles, from, middle),
+                            new EvaluationTask(bot, particles, middle, to));
+                }
+            }
+        }
+
+
+
+        /**
+         * Calculates an absolute weight for a particle from the weight given by the distance-measurements (see
+         * MeasurementModel), scaled by the camera-data if enabled. If the sensor-model holds the measurements
+         * of a sweep, all of its directions are used instead of the three-way-scan.
+         *
+         * @param bot               The SensorModel to hold the robot-sensor-feedback.
+         * @param particles         The particle-store holding the particle to compare with the sensor-model.
+         * @param index             The index of the particle within the particle-store.
+         * @param distanceWeight    The weight of the particle by the distance-measurements (0, if none was usable).
+         * @return                  The absolute weight of the particle.
+         */
+        private double calculateBotParticleWeight(SensorModel bot, ParticleStore particles, int index, double distanceWeight) {
+        // Factor the weight from uss scans get multiplied with, depending on how much the particles view deviates from the bots camera view. Between 1 and 3.
+            double seeingColorScale = 1;
+            if (mclModel.getUserSettings().isWithCamera() ){
+                double camDeviation = calculatedCameraSupportedDeviation(bot, particles, index);
+                seeingColorScale = ( camDeviation > 0 ) ? camDeviation*4+1 : 1;
+            }
+
+            if (distanceWeight > 0) {
+                return distanceWeight * seeingColorScale;
             }
             return 1;
         }
@@ -351,49 +745,50 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
          * camera- and particle-data).
          *
          * @param bot       The SensorModel to hold the robot-sensor-feedback (including camera-data).
-         * @param particle  The particle to compare with the sensor-model.
+         * @param particles The particle-store holding the particle to compare with the sensor-model.
+         * @param index     The index of the particle within the particle-store.
          * @return          The absolute weight of the particle.
          */
-        private double calculatedCameraSupportedDeviation(SensorModel bot, ParticleImplMCL particle) {
+        private double calculatedCameraSupportedDeviation(SensorModel bot, ParticleStore particles, int index) {
             DTOGeneralQuery botGeneralQuery = bot.getGeneralQuery();
-            DTOGeneralQuery particleGeneralQuery = new DTOGeneralQuery(particle.cameraGeneralQuery());
+            DTOGeneralQuery particleGeneralQuery = new DTOGeneralQuery(particles.cameraGeneralQuery(index));
 
             if (botGeneralQuery.getSignatureOfLargestBlock() == particleGeneralQuery.getSignatureOfLargestBlock()) {
                 DTOSignatureQuery botSignatureQuery, particleSignatureQuery;
                 switch (botGeneralQuery.getSignatureOfLargestBlock()) {
                     case 1:
                         botSignatureQuery = bot.getSignatureQuery1();
-                        particleSignatureQuery = new DTOSignatureQuery(particle.cameraSignatureQuery(1));
+                        particleSignatureQuery = createSignatureQuery(1, particles.cameraSignatureQuery(index, 1));
                         break;
                     case 2:
                         botSignatureQuery = bot.getSignatureQuery2();
-                        particleSignatureQuery = new DTOSignatureQuery(particle.cameraSignatureQuery(2));
+                        particleSignatureQuery = createSignatureQuery(2, particles.cameraSignatureQuery(index, 2));
                         break;
                     case 3:
                         botSignatureQuery = bot.getSignatureQuery3();
-                        particleSignatureQuery = new DTOSignatureQuery(particle.cameraSignatureQuery(3));
+                        particleSignatureQuery = createSignatureQuery(3, particles.cameraSignatureQuery(index, 3));
                         break;
                     case 4:
                         botSignatureQuery = bot.getSignatureQuery4();
-                        particleSignatureQuery = new DTOSignatureQuery(particle.cameraSignatureQuery(4));
+                        particleSignatureQuery = createSignatureQuery(4, particles.cameraSignatureQuery(index, 4));
                         break;
                     case 5 :
                         botSignatureQuery = bot.getSignatureQuery5();
-                        particleSignatureQuery = new DTOSignatureQuery(particle.cameraSignatureQuery(5));
+                        particleSignatureQuery = createSignatureQuery(5, particles.cameraSignatureQuery(index, 5));
                         break;
                     case 6 :
                         botSignatureQuery = bot.getSignatureQuery6();
-                        particleSignatureQuery = new DTOSignatureQuery(particle.cameraSignatureQuery(6));
+                        particleSignatureQuery = createSignatureQuery(6, particles.cameraSignatureQuery(index, 6));
                         break;
                     case 7:
                         botSignatureQuery = bot.getSignatureQuery7();
-                        particleSignatureQuery = new DTOSignatureQuery(particle.cameraSignatureQuery(7));
+                        particleSignatureQuery = createSignatureQuery(7, particles.cameraSignatureQuery(index, 7));
                         break;
                     default:
                         return 0;
                 }
 
-                double deviation = particle.getWeight();
+                double deviation = particles.getWeight(index);
                 if ( botSignatureQuery != null) {
                     double angleDeviation = Math.abs(botSignatureQuery.getxCenterOfLargestBlock() - particleSignatureQuery.getxCenterOfLargestBlock());
                     double sizeDeviation = Math.abs(botSignatureQuery.getWidthOfLargestBlock() - particleSignatureQuery.getWidthOfLargestBlock());
@@ -409,6 +804,23 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
 
 
 
+        /**
+         * Creates a signature-query from the simulated camera-readout of a particle, which (unlike the
+         * transmission of the robot) does not start with the signature.
+         *
+         * @param signature     The queried signature
+         * @param readout       The simulated camera-readout for the signature
+         * @return              The signature-query
+         */
+        private DTOSignatureQuery createSignatureQuery(int signature, int[] readout) {
+            int[] transmission = new int[readout.length + 1];
+            transmission[0] = signature;
+            System.arraycopy(readout, 0, transmission, 1, readout.length);
+            return new DTOSignatureQuery(transmission);
+        }
+
+
+
         /**
          * Maps the deviation from a reference-value to a weight-category for the particles.
          *
@@ -417,18 +829,7 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
          * @return                  The weight associated with the given deviation from the reference-value
          */
         private int deviationToWeight(double deviation, double referenceValue) {
-            int[] resamplingWeights = MclModel.RESAMPLING_WEIGHTS;
-            if (deviation > 0.9 * referenceValue) {
-                return resamplingWeights[0];
-            } else if (deviation > 0.75 * referenceValue) {
-                return resamplingWeights[1];
-            } else if (deviation > 0.5 * referenceValue) {
-                return resamplingWeights[2];
-            } else if (deviation > 0.25 * referenceValue) {
-                return resamplingWeights[3];
-            } else {
-                return resamplingWeights[4];
-            }
+            return MeasurementModelImplBeam.deviationToWeight(deviation, referenceValue, resamplingWeights);
         }
     }
 
@@ -436,54 +837,67 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
 
 
 
+    /**
+     * Resampler for the particle-set, delegating the selection of particles to a resampling-strategy.
+     * The resampled particles are copied into a second particle-store, which alternates with the current one
+     * (double-buffering), so no particles or stores are allocated during regular operation.
+     */
     private class ParticleSetResampler {
         private LocalizationRecorder localizationRecorder;
+        private final Resampler resampler;
+        private final KldSampler kldSampler;
+        private final Random random = new Random();
+        private int[] selection = new int[0];
+        private ParticleStore frontBuffer;
+        private ParticleStore backBuffer;
 
         /**
          * Constructor
          *
          * @param localizationRecorder  An instance of LocalizationRecorder to record the resampling-step.
+         * @param resampler             The strategy for selecting the particles.
+         * @param kldSampler            The KLD-sampler adapting the number of particles, or null for a fixed number.
          */
-        ParticleSetResampler(LocalizationRecorder localizationRecorder) {
+        ParticleSetResampler(LocalizationRecorder localizationRecorder, Resampler resampler, KldSampler kldSampler) {
             this.localizationRecorder = localizationRecorder;
+            this.resampler = resampler;
+            this.kldSampler = kldSampler;
         }
 
         /**
-         * Resampling of the particles. Implementation of the ResamplingWheel.
+         * Resampling of the particles, using the configured resampling-strategy. With KLD-sampling the maximum
+         * number of particles is drawn and the number of particles kept adapts to their spreading.
          */
         private void resample() {
-            normalizeParticleWeight();
-            Random r = new Random();
-            ArrayList<ParticleImplMCL> resampledParticles = new ArrayList<>();
-            int particleCount = mclModel.getNumberOfParticles();
-            int index = Math.abs(r.nextInt()) % particleCount;
-            double beta = 0.0;
-            double maxWeight = getHighestParticleWeight();
-            for (int i = 0  ;  i < particleCount  ;  i++) {
-                beta += r.nextDouble() * 2 * maxWeight;
-                while (beta > mclModel.getParticles().get(index).getWeight()) {
-                    beta -= mclModel.getParticles().get(index).getWeight();
-                    index = (index + 1) % particleCount;
-                }
-                ParticleImplMCL clone = mclModel.getParticles().get(index).getClone();
-                clone.setWeight(0);
-                resampledParticles.add(clone);
+            ParticleStore particles = mclModel.getParticleStore();
+            particles.normalizeWeights();
+            int particleCount = particles.size();
+            int sampleCount = (kldSampler != null) ? kldSampler.getMaxNumberOfParticles() : particleCount;
+            if (selection.length < sampleCount) {
+                selection = new int[sampleCount];
+            }
+            resampler.resample(particles.getWeights(), particleCount, selection, sampleCount, random);
+            if (kldSampler != null) {
+                sampleCount = kldSampler.getRequiredNumberOfParticles(particles, selection, sampleCount, random);
             }
-            mclModel.setParticles(resampledParticles);
-            localizationRecorder.logInstruction("Resample");
-            localizationRecorder.takeSnapShot();
-            checkLocalizationStatus();
-        }
 
+            boolean backBufferIsUsable = backBuffer != null  &&  backBuffer.getMap() == particles.getMap();
+            ParticleStore resampledParticles = backBufferIsUsable ? backBuffer : new ParticleStore(particles.getMap(), sampleCount);
+            resampledParticles.copySelectionOf(particles, selection, sampleCount);
+            for (int i = 0  ;  i < sampleCount  ;  i++) {
+                resampledParticles.setWeight(i, 0);
+            }
+            // A store not written by this resampler (e.g. restored from the history) may still be referenced.
+            backBuffer = (particles == frontBuffer) ? particles : null;
+            frontBuffer = resampledParticles;
 
-        /**
-         * Normalizes the weight of all particles.
-         */
-        private void normalizeParticleWeight() {
-            double sum = getSumOfParticleWeights();
-            for (ParticleImplMCL p : mclModel.getParticles()) {
-                p.setWeight((float)(p.getWeight() / sum));
+            mclModel.setParticleStore(resampledParticles);
+            for (LocalizationObserver observer : observers) {
+                observer.particlesResampled(mclModel.getCurrentWorldState());
             }
+            localizationRecorder.logInstruction("Resample");
+            localizationRecorder.takeSnapShot();
+            checkLocalizationStatus();
         }
 
 
@@ -495,11 +909,12 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
                 return;
             }
             double[] pose = getEstimatedPose();
-            Pose bPose = new Pose((float)pose[0], (float)pose[1], (float)pose[2]);
-            for (ParticleImplMCL p : mclModel.getParticles()) {
-                Pose pPose = p.getPose();
-                double dx = pPose.getX()- bPose.getX();
-                double dy = pPose.getY()-bPose.getY();
+            float bx = (float) pose[0];
+            float by = (float) pose[1];
+            ParticleStore particles = mclModel.getParticleStore();
+            for (int i = 0  ;  i < particles.size()  ;  i++) {
+                double dx = particles.getX(i) - bx;
+                double dy = particles.getY(i) - by;
                 double distance;
                 if (mclModel.getUserSettings().isOneDimensional()) {
                     if (Math.abs(dx) > mclModel.getAcceptableSpreading()) {
@@ -516,37 +931,6 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
             }
             mclModel.setLocalized(true);
         }
-
-
-
-        /**
-         * Finds the highest weight among all particles.
-         *
-         * @return  The highest weight in the particle-set.
-         */
-        private float getHighestParticleWeight() {
-            float weight = 0f;
-            for (ParticleImplMCL p : mclModel.getParticles()) {
-                float pWeight = p.getWeight();
-                weight = pWeight > weight ? pWeight : weight;
-            }
-            return weight;
-        }
-
-
-
-        /**
-         * Sums up the weights of all particles.
-         *
-         * @return  The sum of the weight of all particles.
-         */
-        private double getSumOfParticleWeights() {
-            double sum = 0;
-            for (ParticleImplMCL p : mclModel.getParticles()) {
-                sum += p.getWeight();
-            }
-            return sum;
-        }
     }
 
 
@@ -578,12 +962,13 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
         void translateParticles(double distance) {
             particleSetResampler.resample();
             Random r = new Random();
-            for (ParticleImplMCL p : mclModel.getParticles()) {
+            ParticleStore particles = mclModel.getParticleStore();
+            for (int i = 0  ;  i < particles.size()  ;  i++) {
                 float d = (float) r.nextGaussian();
                 while (d < -1  ||  d > 1) {
                     d = (float) r.nextGaussian();
                 }
-                p.move(distance * (1 +(d/10)));
+                particles.move(i, distance * (1 +(d/10)));
             }
             localizationRecorder.logInstruction("Move " + String.valueOf(distance));
             localizationRecorder.takeSnapShot();
@@ -598,10 +983,11 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
          */
         void turnParticles(double degrees){
             Random r = new Random();
-            for (ParticleImplMCL p : mclModel.getParticles()) {
+            ParticleStore particles = mclModel.getParticleStore();
+            for (int i = 0  ;  i < particles.size()  ;  i++) {
                 double d = r.nextGaussian();
                 degrees = mclModel.getUserSettings().isTwoDimensional() ? (int) Math.round(degrees * (1+(d/540))) : (int) Math.round(degrees);
-                p.turn((int)degrees);
+                particles.turn(i, (int)degrees);
             }
             localizationRecorder.logInstruction("Turn " + String.valueOf(degrees));
             localizationRecorder.takeSnapShot();
@@ -623,13 +1009,13 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
             double xSum = 0;
             double ySum = 0;
             double hSum = 0;
-            for (ParticleImplMCL p : mclModel.getParticles()) {
-                Pose pPose = p.getPose();
-                xSum += pPose.getX();
-                ySum += pPose.getY();
-                hSum += pPose.getHeading();
+            ParticleStore particles = mclModel.getParticleStore();
+            for (int i = 0  ;  i < particles.size()  ;  i++) {
+                xSum += particles.getX(i);
+                ySum += particles.getY(i);
+                hSum += particles.getHeading(i);
             }
-            int particleCount = mclModel.getNumberOfParticles();
+            int particleCount = particles.size();
             double estimatedX = xSum/particleCount;
             double estimatedY = ySum/particleCount;
             double estimatedHeading = hSum/particleCount;
@@ -645,11 +1031,12 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
         double getSpreadingAroundEstimatedBotPose() {
             double distance = 0;
             double[] pose = getEstimatedPose();
-            Pose bPose = new Pose((float)pose[0], (float)pose[1], (float)pose[2]);
-            for (ParticleImplMCL p : mclModel.getParticles()) {
-                Pose pPose = p.getPose();
-                double dx = pPose.getX()- bPose.getX();
-                double dy = pPose.getY()-bPose.getY();
+            float bx = (float) pose[0];
+            float by = (float) pose[1];
+            ParticleStore particles = mclModel.getParticleStore();
+            for (int i = 0  ;  i < particles.size()  ;  i++) {
+                double dx = particles.getX(i) - bx;
+                double dy = particles.getY(i) - by;
                 double pDistance = Math.sqrt((Math.pow(dx, 2)) + (Math.pow(dy, 2)));
                 distance = distance > pDistance ? distance : pDistance;
             }
@@ -662,18 +1049,49 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
 
 
     private class LocalizationRecorder {
+        private final boolean streaming = getConfiguredFlag(LOG_STREAMING_PROPERTY);
+        private final boolean compressed = getConfiguredFlag(LOG_COMPRESSION_PROPERTY);
+        private LocalizationLogWriter logWriter;
+        private int numberOfLoggedWorldStates;
+
+
         /**
-         * Saves the (serialized) localization-sequence to a file using the current date and time as filename.
+         * Saves the localization-sequence to a binary localization-log using the current date and time as
+         * filename. If the log is streamed, it already holds the localization-sequence and is just closed.
          */
         void saveLocalizationSequenceToFile() {
-            Calendar calendar = Calendar.getInstance();
-            SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
-            String filename = simpleDateFormat.format(calendar.getTime());
-            String path = ClientFactory.getProperties().getProperty("savedLocalizationsPath");
-            String file = path + String.valueOf(filename) + ".log";
-            try (FileOutputStream fileOS = new FileOutputStream(file)) {
-                ObjectOutputStream objectOS = new ObjectOutputStream(fileOS);
-                objectOS.writeObject(mclModel.getWorldStateSequence());
+            appendToLocalizationLog();
+            if (logWriter != null) {
+                try {
+                    logWriter.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                logWriter = null;
+            }
+        }
+
+
+        /**
+         * Appends the world-states of the localization-sequence which are not yet logged to the localization-log,
+         * which is created first if needed.
+         */
+        private void appendToLocalizationLog() {
+            ArrayList<WorldState<ParticleImplMCL>> worldStates = mclModel.getWorldStateSequence();
+            try {
+                if (logWriter == null) {
+                    Calendar calendar = Calendar.getInstance();
+                    SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
+                    String filename = simpleDateFormat.format(calendar.getTime());
+                    String path = ClientFactory.getProperties().getProperty("savedLocalizationsPath");
+                    File file = new File(path + filename + LocalizationLogFormat.FILE_EXTENSION);
+                    logWriter = new LocalizationLogWriter(file, compressed);
+                    numberOfLoggedWorldStates = 0;
+                }
+                while (numberOfLoggedWorldStates < worldStates.size()) {
+                    logWriter.append((WorldStateImplMCL) worldStates.get(numberOfLoggedWorldStates));
+                    numberOfLoggedWorldStates++;
+                }
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -720,6 +1138,9 @@ public class LocalizationProviderImplMCL implements LocalizationProvider {
          */
         void takeSnapShot() {
             mclModel.takeSnapShot();
+            if (streaming) {
+                appendToLocalizationLog();
+            }
         }
     }
 }
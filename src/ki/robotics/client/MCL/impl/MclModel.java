@@ -20,12 +20,11 @@ class MclModel {
     private final int acceptableSpreading;
     private boolean localized;
 
-    private ResamplingWheelView resamplingWheel;
-
-    private ArrayList<WorldState> worldStateSequence;
+    private ArrayList<WorldState<ParticleImplMCL>> worldStateSequence;
     private int worldStateSequencePointer;
     private WorldStateImplMCL currentWorldState;
     private WorldStateImplMCL worldStateTempBackUp;
+    private ParticleSnapshot lastParticleSnapshot;
 
 
     /**
@@ -38,7 +37,6 @@ class MclModel {
         this.worldStateSequence = new ArrayList<>();
         this.currentWorldState = worldState;
         this.userSettings = userSettings;
-        this.resamplingWheel = new ResamplingWheelView(RESAMPLING_WEIGHTS, currentWorldState.getParticles());
 
         if (userSettings.isWithCamera()) {
             this.acceptableSpreading = MCL_ACCEPTABLE_SPREADING_FOR_LOCAL_LOCALIZATION;
@@ -104,27 +102,35 @@ class MclModel {
 
 
     /**
-     * Sets the particles used for localization.
+     * Returns the particle-store holding the particles used for localization.
+     *
+     * @return  The particle-store holding the particles used for localization
+     */
+    ParticleStore getParticleStore() { return this.currentWorldState.getParticleStore(); }
+
+
+    /**
+     * Sets the particle-store holding the particles used for localization.
      *
-     * @param particles The particles used for localization.
+     * @param particles The particle-store holding the particles used for localization.
      */
-    void setParticles(ArrayList<ParticleImplMCL> particles) { this.currentWorldState.setParticles(particles); }
+    void setParticleStore(ParticleStore particles) { this.currentWorldState.setParticleStore(particles); }
 
 
     /**
-     * Returns the localization-sequence (world-state-sequence) as list (ArrayList<WorldState>).
+     * Returns the localization-sequence (world-state-sequence) as list (ArrayList<WorldState<ParticleImplMCL>>).
      *
      * @return  The localization-sequence (world-state-sequence) as list
      */
-    ArrayList<WorldState> getWorldStateSequence() { return this.worldStateSequence; }
+    ArrayList<WorldState<ParticleImplMCL>> getWorldStateSequence() { return this.worldStateSequence; }
 
 
     /**
-     * Returns a reference to the visualization of the resampling-wheel.
+     * Returns the current world-state of the localization.
      *
-     * @return  A reference to the visualization of the resampling-wheel
+     * @return  The current world-state of the localization
      */
-    ResamplingWheelView getResamplingWheel() { return resamplingWheel; }
+    WorldStateImplMCL getCurrentWorldState() { return currentWorldState; }
 
 
     /**
@@ -151,6 +157,7 @@ class MclModel {
     void resetToLatestWorldState() {
         worldStateSequencePointer = worldStateSequence.size();
         if (worldStateTempBackUp != null) {
+            currentWorldState.releaseDerivedParticles();
             currentWorldState = worldStateTempBackUp;
             worldStateTempBackUp = null;
         }
@@ -163,12 +170,14 @@ class MclModel {
     void navigateBackwardInHistory() {
         if (worldStateSequencePointer > 0) {
             if (worldStateTempBackUp == null) {
-                worldStateTempBackUp = (WorldStateImplMCL) currentWorldState.getClone();
+                worldStateTempBackUp = currentWorldState;
             }
             worldStateSequencePointer--;
             WorldStateImplMCL temp = (WorldStateImplMCL) worldStateSequence.get(worldStateSequencePointer);
-            if (temp != null)
+            if (temp != null) {
+                currentWorldState.releaseDerivedParticles();
                 currentWorldState = temp;
+            }
         }
     }
 
@@ -183,22 +192,27 @@ class MclModel {
         }
         if (worldStateSequencePointer < worldStateSequence.size() - 1) {
             if (worldStateTempBackUp == null) {
-                worldStateTempBackUp = (WorldStateImplMCL) currentWorldState.getClone();
+                worldStateTempBackUp = currentWorldState;
             }
             worldStateSequencePointer++;
             WorldStateImplMCL temp = (WorldStateImplMCL) worldStateSequence.get(worldStateSequencePointer);
-            if (temp != null)
+            if (temp != null) {
+                currentWorldState.releaseDerivedParticles();
                 currentWorldState = temp;
+            }
         }
     }
 
 
     /**
      * Makes a snap-shot of the current localization-state. Used preliminary for saving a world-state.
+     * Particle-attributes unchanged since the preceding snap-shot are shared with it.
      */
     void takeSnapShot() {
         currentWorldState.takeSnapShot();
-        worldStateSequence.add(currentWorldState.getClone());
+        WorldStateImplMCL snapShot = currentWorldState.getClone(lastParticleSnapshot);
+        lastParticleSnapshot = snapShot.getParticleSnapshot();
+        worldStateSequence.add(snapShot);
         currentWorldState.reset();
         worldStateSequencePointer = worldStateSequence.size();
     }
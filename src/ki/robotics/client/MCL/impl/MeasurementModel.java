@@ -0,0 +1,23 @@
+package ki.robotics.client.MCL.impl;
+
+
+/**
+ * Strategy for weighting particles by the distances measured by the robot (sensor-model of the
+ * monte-carlo-localization). Implementations must not keep state between invocations, since ranges of the
+ * same particle-store are weighted concurrently.
+ */
+interface MeasurementModel {
+    /**
+     * Calculates the weights of the particles within the given range from the distances measured by the robot.
+     * The weight of a particle is 0 if none of the measured distances could be used.
+     *
+     * @param particles             The particle-store holding the particles
+     * @param from                  The index of the first particle to weight (inclusive)
+     * @param to                    The index of the last particle to weight (exclusive)
+     * @param sensorHeadPositions   The sensor-head-positions of the measured distances
+     * @param botDistances          The distances measured by the robot
+     * @param weights               Array receiving the weights, the weight of particle i at index i - from
+     */
+    void weighParticles(ParticleStore particles, int from, int to, double[] sensorHeadPositions,
+                        double[] botDistances, double[] weights);
+}
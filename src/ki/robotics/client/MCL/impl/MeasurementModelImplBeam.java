@@ -0,0 +1,70 @@
+package ki.robotics.client.MCL.impl;
+
+
+/**
+ * Sensor-model comparing the measured distances with the distances simulated for the particles by ray-casting.
+ * The deviation of each direction is mapped to one of five deviation-categories, and the weight of a particle
+ * is the multiplicative inverse of the sum of its categories.
+ */
+class MeasurementModelImplBeam implements MeasurementModel {
+    private static final int PARTICLES_PER_BLOCK = 64;
+
+    private final int[] resamplingWeights;
+
+
+    /**
+     * Constructor.
+     *
+     * @param resamplingWeights The weights of the deviation-categories (five, from largest to smallest deviation)
+     */
+    MeasurementModelImplBeam(int[] resamplingWeights) {
+        this.resamplingWeights = resamplingWeights;
+    }
+
+
+    @Override
+    public void weighParticles(ParticleStore particles, int from, int to, double[] sensorHeadPositions,
+                               double[] botDistances, double[] weights) {
+        int directions = sensorHeadPositions.length;
+        double[] particleDistances = new double[Math.min(to - from, PARTICLES_PER_BLOCK) * directions];
+        for (int blockStart = from  ;  blockStart < to  ;  blockStart += PARTICLES_PER_BLOCK) {
+            int blockEnd = Math.min(to, blockStart + PARTICLES_PER_BLOCK);
+            particles.measureDistances(blockStart, blockEnd, sensorHeadPositions, particleDistances);
+            for (int i = blockStart  ;  i < blockEnd  ;  i++) {
+                int offset = (i - blockStart) * directions;
+                int deviation = 0;
+                for (int k = 0  ;  k < directions  ;  k++) {
+                    double particleDistance = particleDistances[offset + k];
+                    if (botDistances[k] > 0  &&  particleDistance > 0) {
+                        deviation += deviationToWeight(Math.abs(botDistances[k] - particleDistance), botDistances[k], resamplingWeights);
+                    }
+                }
+                weights[i - from] = (deviation > 0) ? 1.0 / deviation : 0;
+            }
+        }
+    }
+
+
+
+    /**
+     * Maps the deviation from a reference-value to a weight-category for the particles.
+     *
+     * @param deviation         Deviation between calculated distance and sensor-feedback
+     * @param referenceValue    Sensor-feedback
+     * @param resamplingWeights The weights of the deviation-categories (five, from largest to smallest deviation)
+     * @return                  The weight associated with the given deviation from the reference-value
+     */
+    static int deviationToWeight(double deviation, double referenceValue, int[] resamplingWeights) {
+        if (deviation > 0.9 * referenceValue) {
+            return resamplingWeights[0];
+        } else if (deviation > 0.75 * referenceValue) {
+            return resamplingWeights[1];
+        } else if (deviation > 0.5 * referenceValue) {
+            return resamplingWeights[2];
+        } else if (deviation > 0.25 * referenceValue) {
+            return resamplingWeights[3];
+        } else {
+            return resamplingWeights[4];
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.utility.map.DistanceField;
+
+
+/**
+ * Likelihood-field sensor-model: instead of simulating the measurements of a particle by ray-casting, the
+ * end-point of each measured distance is projected from the pose of the particle into the map, and the
+ * distance from the end-point to the nearest wall is looked up in a precomputed distance-field. The likelihood
+ * of a direction is a gaussian of that distance (plus a constant share for random measurements), and the
+ * weight of a particle is the product of the likelihoods of all directions.
+ * Distances which are not positive or reach the range of the sensor carry no information about walls and are
+ * skipped.
+ */
+class MeasurementModelImplLikelihoodField implements MeasurementModel {
+    static final double RESOLUTION = 1;
+    static final double SIGMA = 3;
+    static final double Z_HIT = 0.95;
+    static final double Z_RANDOM = 0.05;
+    static final double MAXIMUM_DISTANCE = 255;
+
+    private final DistanceField distanceField;
+
+
+    /**
+     * Constructor.
+     *
+     * @param distanceField The distance-field of the map used for localization
+     */
+    MeasurementModelImplLikelihoodField(DistanceField distanceField) {
+        this.distanceField = distanceField;
+    }
+
+
+    @Override
+    public void weighParticles(ParticleStore particles, int from, int to, double[] sensorHeadPositions,
+                               double[] botDistances, double[] weights) {
+        // end-points relative to the particle, rotated by the heading of the particle below
+        int directions = 0;
+        double[] forward = new double[sensorHeadPositions.length];
+        double[] sideward = new double[sensorHeadPositions.length];
+        for (int k = 0  ;  k < sensorHeadPositions.length  ;  k++) {
+            double distance = botDistances[k];
+            if (distance > 0  &&  distance < MAXIMUM_DISTANCE) {
+                double direction = Math.toRadians(sensorHeadPositions[k]);
+                forward[directions] = distance * Math.cos(direction);
+                sideward[directions] = distance * Math.sin(direction);
+                directions++;
+            }
+        }
+        double exponentFactor = -1.0 / (2 * SIGMA * SIGMA);
+
+        for (int i = from  ;  i < to  ;  i++) {
+            if (directions == 0) {
+                weights[i - from] = 0;
+                continue;
+            }
+            double x = particles.getX(i);
+            double y = particles.getY(i);
+            double heading = Math.toRadians(particles.getHeading(i));
+            double cos = Math.cos(heading);
+            double sin = Math.sin(heading);
+            double likelihood = 1;
+            for (int k = 0  ;  k < directions  ;  k++) {
+                // viewing-direction 360 - heading - sensorHeadPosition, the y-axis of the map points downwards
+                double endX = x + cos * forward[k] - sin * sideward[k];
+                double endY = y - (sin * forward[k] + cos * sideward[k]);
+                double distanceToWall = distanceField.getDistance(endX, endY);
+                likelihood *= Z_HIT * Math.exp(distanceToWall * distanceToWall * exponentFactor) + Z_RANDOM;
+            }
+            weights[i - from] = Math.max(likelihood, Float.MIN_NORMAL);
+        }
+    }
+}
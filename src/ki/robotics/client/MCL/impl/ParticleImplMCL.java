@@ -5,12 +5,13 @@ import ki.robotics.utility.map.Map;
 import lejos.robotics.navigation.Pose;
 
 import java.awt.*;
-import java.awt.geom.Point2D;
 import java.io.Serializable;
 
 
 /**
  * Implementation of a serializable particle for monte-carlo-localization.
+ * The localization itself operates on a ParticleStore; instances of this class serve as views on single
+ * particles for the GUI and for saved localization-sequences.
  */
 public class ParticleImplMCL implements Particle, Comparable<ParticleImplMCL>, Serializable {
     private transient Map map;
@@ -237,15 +238,11 @@ public class ParticleImplMCL implements Particle, Comparable<ParticleImplMCL>, S
      */
     @Override
     public double[] ultrasonicThreeWayScan() {
-        int temp = sensorHeadPosition;
-        sensorHeadPosition = 90;
-        double a = measureDistance();
-        sensorHeadPosition = 0;
-        double b = measureDistance();
-        sensorHeadPosition = -90;
-        double c = measureDistance();
-        sensorHeadPosition = temp;
-        return new double[]{a, b, c};
+        double[] distances = new double[ParticleStore.THREE_WAY_SCAN.length];
+        for (int i = 0  ;  i < distances.length  ;  i++) {
+            distances[i] = measureDistance(ParticleStore.THREE_WAY_SCAN[i]);
+        }
+        return distances;
     }
 
 
@@ -255,9 +252,19 @@ public class ParticleImplMCL implements Particle, Comparable<ParticleImplMCL>, S
      * @return  The measured distance towards the direction of the sensor-head.
      */
     private double measureDistance() {
-        Point2D currentLocation = new Point2D.Double(pose.getX(), pose.getY());
+        return measureDistance(sensorHeadPosition);
+    }
+
+
+    /**
+     * Simulates distance-measurement with the sensor-head turned to the given position (without turning it).
+     *
+     * @param sensorHeadPosition    The position of the sensor-head
+     * @return  The measured distance towards the given direction.
+     */
+    private double measureDistance(double sensorHeadPosition) {
         double viewingDirection = 360 - pose.getHeading() - sensorHeadPosition;
-        return map.getDistanceToNearestObstacle(currentLocation, viewingDirection);
+        return map.castRay(pose.getX(), pose.getY(), viewingDirection);
     }
 
 
@@ -291,12 +298,7 @@ public class ParticleImplMCL implements Particle, Comparable<ParticleImplMCL>, S
      */
     @Override
     public int[][] cameraAllSignaturesQuery() {
-        int numberOfAvailableSignatures = 7;
-        int[][] result = new int[numberOfAvailableSignatures][];
-        for (int i = 0   ;   i < numberOfAvailableSignatures   ;   i++) {
-            result[i] = map.getCameraSignatureQuery(pose.getX(), pose.getY(), 360 - pose.getHeading(), i);
-        }
-        return result;
+        return map.getCameraAllSignaturesQuery(pose.getX(), pose.getY(), 360 - pose.getHeading());
     }
 
 
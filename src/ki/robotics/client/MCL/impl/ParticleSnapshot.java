@@ -0,0 +1,164 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.utility.map.Map;
+import lejos.robotics.navigation.Pose;
+
+import java.awt.*;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Immutable copy of the particles of a particle-store, as recorded in the localization-history.
+ * Pose, weight and color are kept in primitive arrays (one per attribute). Arrays whose content did not change
+ * since the preceding snapshot are shared with it instead of being copied: a turn only records new headings,
+ * a translation only new coordinates. Unchanged attributes are recognized by the versions of the particle-store,
+ * without comparing their content. The arrays are never modified after construction.
+ */
+class ParticleSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int size;
+    private final float[] x;
+    private final float[] y;
+    private final float[] heading;
+    private final float[] weight;
+    private final int[] color;
+    private transient long xVersion, yVersion, headingVersion, weightVersion, colorVersion;
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param particles     The particle-store to take the snapshot of
+     * @param predecessor   The preceding snapshot to share unchanged arrays with, or null
+     */
+    ParticleSnapshot(ParticleStore particles, ParticleSnapshot predecessor) {
+        this.size = particles.size();
+        boolean sameSize = predecessor != null  &&  predecessor.size == size;
+        this.xVersion = particles.getXVersion();
+        this.yVersion = particles.getYVersion();
+        this.headingVersion = particles.getHeadingVersion();
+        this.weightVersion = particles.getWeightVersion();
+        this.colorVersion = particles.getColorVersion();
+        this.x = (sameSize  &&  xVersion == predecessor.xVersion)
+                ? predecessor.x : Arrays.copyOf(particles.getXCoordinates(), size);
+        this.y = (sameSize  &&  yVersion == predecessor.yVersion)
+                ? predecessor.y : Arrays.copyOf(particles.getYCoordinates(), size);
+        this.heading = (sameSize  &&  headingVersion == predecessor.headingVersion)
+                ? predecessor.heading : Arrays.copyOf(particles.getHeadings(), size);
+        this.weight = (sameSize  &&  weightVersion == predecessor.weightVersion)
+                ? predecessor.weight : Arrays.copyOf(particles.getWeights(), size);
+        this.color = (sameSize  &&  colorVersion == predecessor.colorVersion)
+                ? predecessor.color : Arrays.copyOf(particles.getColors(), size);
+    }
+
+
+
+    /**
+     * Constructor for a snapshot of the given (recorded) arrays, which are taken over without copying and must
+     * not be modified afterwards.
+     *
+     * @param x         The x-coordinates of the particles
+     * @param y         The y-coordinates of the particles
+     * @param heading   The headings of the particles
+     * @param weight    The weights of the particles
+     * @param color     The colors (as rgb-values) of the particles
+     */
+    ParticleSnapshot(float[] x, float[] y, float[] heading, float[] weight, int[] color) {
+        this.size = x.length;
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.weight = weight;
+        this.color = color;
+    }
+
+
+
+    /**
+     * Returns the number of particles in this snapshot.
+     *
+     * @return  The number of particles in this snapshot
+     */
+    int size() { return size; }
+
+
+
+    /**
+     * Returns the x-coordinates of the particles. The array must not be modified.
+     *
+     * @return  The x-coordinates of the particles
+     */
+    float[] getX() { return x; }
+
+
+
+    /**
+     * Returns the y-coordinates of the particles. The array must not be modified.
+     *
+     * @return  The y-coordinates of the particles
+     */
+    float[] getY() { return y; }
+
+
+
+    /**
+     * Returns the headings of the particles. The array must not be modified.
+     *
+     * @return  The headings of the particles
+     */
+    float[] getHeading() { return heading; }
+
+
+
+    /**
+     * Returns the weights of the particles. The array must not be modified.
+     *
+     * @return  The weights of the particles
+     */
+    float[] getWeight() { return weight; }
+
+
+
+    /**
+     * Returns the colors (as rgb-values) of the particles. The array must not be modified.
+     *
+     * @return  The colors of the particles
+     */
+    int[] getColor() { return color; }
+
+
+
+    /**
+     * Creates a new (modifiable) particle-store holding copies of the particles of this snapshot.
+     *
+     * @param map   The map in which the particles lie
+     * @return  A new particle-store holding the particles of this snapshot
+     */
+    ParticleStore createParticleStore(Map map) {
+        ParticleStore store = new ParticleStore(map, size);
+        for (int i = 0  ;  i < size  ;  i++) {
+            store.add(x[i], y[i], heading[i], weight[i], color[i]);
+        }
+        return store;
+    }
+
+
+
+    /**
+     * Creates a new list of ParticleImplMCL holding the particles of this snapshot.
+     *
+     * @param map   The map in which the particles lie
+     * @return  A new list of ParticleImplMCL holding the particles of this snapshot
+     */
+    ArrayList<ParticleImplMCL> createParticleViews(Map map) {
+        ArrayList<ParticleImplMCL> views = new ArrayList<>(size);
+        for (int i = 0  ;  i < size  ;  i++) {
+            views.add(new ParticleImplMCL(new Pose(x[i], y[i], heading[i]), map, weight[i], new Color(color[i])));
+        }
+        return views;
+    }
+}
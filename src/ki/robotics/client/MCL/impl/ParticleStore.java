@@ -0,0 +1,549 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.utility.map.Map;
+import lejos.robotics.navigation.Pose;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Structure-of-arrays storage for the particles used during monte-carlo-localization.
+ * Pose, weight and color of each particle are kept in primitive arrays, addressed by the particle-index.
+ * Instances of ParticleImplMCL are only created on demand as views for the GUI and for serialization.
+ * Each attribute carries a dirty-flag, set whenever the attribute is modified; a version identifying the content
+ * of the attribute is only drawn once asked for (see ParticleSnapshot), so modifications stay cheap.
+ */
+class ParticleStore {
+    static final double[] THREE_WAY_SCAN = {90, 0, -90};
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final Map map;
+
+    private float[] x;
+    private float[] y;
+    private float[] heading;
+    private float[] weight;
+    private int[] color;
+    private int size;
+
+    private boolean xDirty = true, yDirty = true, headingDirty = true, weightDirty = true, colorDirty = true;
+    private long xVersion, yVersion, headingVersion, weightVersion, colorVersion;
+
+    private ArrayList<ParticleImplMCL> particleViews;
+
+
+    /**
+     * Constructor.
+     *
+     * @param map       The map in which the particles lie
+     * @param capacity  The initial capacity of the store
+     */
+    ParticleStore(Map map, int capacity) {
+        this.map = map;
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.heading = new float[capacity];
+        this.weight = new float[capacity];
+        this.color = new int[capacity];
+        this.size = 0;
+    }
+
+
+    /**
+     * Creates a new store holding the pose, weight and color of the given particles.
+     *
+     * @param particles The particles to copy into the new store
+     * @param map       The map in which the particles lie
+     * @return          A new store holding the given particles
+     */
+    static ParticleStore fromParticles(ArrayList<ParticleImplMCL> particles, Map map) {
+        ParticleStore store = new ParticleStore(map, particles.size());
+        for (ParticleImplMCL p : particles) {
+            Pose pose = p.getPose();
+            store.add(pose.getX(), pose.getY(), pose.getHeading(), p.getWeight(), p.getColor().getRGB());
+        }
+        return store;
+    }
+
+
+    /**
+     * Returns the map in which the particles lie.
+     *
+     * @return  The map in which the particles lie
+     */
+    Map getMap() { return map; }
+
+
+    /**
+     * Returns the number of particles in this store.
+     *
+     * @return  The number of particles in this store
+     */
+    int size() { return size; }
+
+
+    /**
+     * Returns the x-coordinate of the particle at the given index.
+     *
+     * @param index The index of the particle
+     * @return  The x-coordinate of the particle
+     */
+    float getX(int index) { return x[index]; }
+
+
+    /**
+     * Returns the y-coordinate of the particle at the given index.
+     *
+     * @param index The index of the particle
+     * @return  The y-coordinate of the particle
+     */
+    float getY(int index) { return y[index]; }
+
+
+    /**
+     * Returns the heading of the particle at the given index.
+     *
+     * @param index The index of the particle
+     * @return  The heading of the particle
+     */
+    float getHeading(int index) { return heading[index]; }
+
+
+    /**
+     * Returns the weight of the particle at the given index.
+     *
+     * @param index The index of the particle
+     * @return  The weight of the particle
+     */
+    float getWeight(int index) { return weight[index]; }
+
+
+    /**
+     * Returns the color (as rgb-value) of the particle at the given index.
+     *
+     * @param index The index of the particle
+     * @return  The color of the particle as rgb-value
+     */
+    int getColor(int index) { return color[index]; }
+
+
+    /**
+     * Returns the array holding the weights of the particles. Only the first size() elements are valid;
+     * the array must not be modified by the caller.
+     *
+     * @return  The array holding the weights of the particles
+     */
+    float[] getWeights() { return weight; }
+
+
+    /**
+     * Returns the array holding the x-coordinates of the particles. Only the first size() elements are valid;
+     * the array must not be modified by the caller.
+     *
+     * @return  The array holding the x-coordinates of the particles
+     */
+    float[] getXCoordinates() { return x; }
+
+
+    /**
+     * Returns the array holding the y-coordinates of the particles. Only the first size() elements are valid;
+     * the array must not be modified by the caller.
+     *
+     * @return  The array holding the y-coordinates of the particles
+     */
+    float[] getYCoordinates() { return y; }
+
+
+    /**
+     * Returns the array holding the headings of the particles. Only the first size() elements are valid;
+     * the array must not be modified by the caller.
+     *
+     * @return  The array holding the headings of the particles
+     */
+    float[] getHeadings() { return heading; }
+
+
+    /**
+     * Returns the array holding the colors (as rgb-values) of the particles. Only the first size() elements are
+     * valid; the array must not be modified by the caller.
+     *
+     * @return  The array holding the colors of the particles
+     */
+    int[] getColors() { return color; }
+
+
+    /**
+     * Returns the version of the x-coordinates. Versions are unique among all stores and only change after the
+     * x-coordinates were modified, so equal versions imply equal x-coordinates. Not to be called while the
+     * store is being modified.
+     *
+     * @return  The version of the x-coordinates
+     */
+    long getXVersion() {
+        if (xDirty) {
+            xVersion = VERSIONS.incrementAndGet();
+            xDirty = false;
+        }
+        return xVersion;
+    }
+
+
+    /**
+     * Returns the version of the y-coordinates (see getXVersion).
+     *
+     * @return  The version of the y-coordinates
+     */
+    long getYVersion() {
+        if (yDirty) {
+            yVersion = VERSIONS.incrementAndGet();
+            yDirty = false;
+        }
+        return yVersion;
+    }
+
+
+    /**
+     * Returns the version of the headings (see getXVersion).
+     *
+     * @return  The version of the headings
+     */
+    long getHeadingVersion() {
+        if (headingDirty) {
+            headingVersion = VERSIONS.incrementAndGet();
+            headingDirty = false;
+        }
+        return headingVersion;
+    }
+
+
+    /**
+     * Returns the version of the weights (see getXVersion).
+     *
+     * @return  The version of the weights
+     */
+    long getWeightVersion() {
+        if (weightDirty) {
+            weightVersion = VERSIONS.incrementAndGet();
+            weightDirty = false;
+        }
+        return weightVersion;
+    }
+
+
+    /**
+     * Returns the version of the colors (see getXVersion).
+     *
+     * @return  The version of the colors
+     */
+    long getColorVersion() {
+        if (colorDirty) {
+            colorVersion = VERSIONS.incrementAndGet();
+            colorDirty = false;
+        }
+        return colorVersion;
+    }
+
+
+    /**
+     * Sets the weight of the particle at the given index.
+     *
+     * @param index     The index of the particle
+     * @param weight    The new weight of the particle
+     */
+    void setWeight(int index, float weight) {
+        if (this.weight[index] != weight) {
+            this.weight[index] = weight;
+            weightDirty = true;
+        }
+        particleViews = null;
+    }
+
+
+    /**
+     * Returns the sum of the weights of all particles.
+     *
+     * @return  The sum of the weights of all particles
+     */
+    double getSumOfWeights() {
+        double sum = 0;
+        for (int i = 0  ;  i < size  ;  i++) {
+            sum += weight[i];
+        }
+        return sum;
+    }
+
+
+    /**
+     * Normalizes the weights of all particles, so that they sum up to one.
+     */
+    void normalizeWeights() {
+        double sum = getSumOfWeights();
+        for (int i = 0  ;  i < size  ;  i++) {
+            weight[i] = (float) (weight[i] / sum);
+        }
+        weightDirty = true;
+        particleViews = null;
+    }
+
+
+    /**
+     * Sets the color (as rgb-value) of the particle at the given index.
+     *
+     * @param index The index of the particle
+     * @param rgb   The new color of the particle as rgb-value
+     */
+    void setColor(int index, int rgb) {
+        if (this.color[index] != rgb) {
+            this.color[index] = rgb;
+            colorDirty = true;
+        }
+        particleViews = null;
+    }
+
+
+    /**
+     * Appends a particle to the store, growing the arrays if necessary.
+     *
+     * @param x         The x-coordinate of the particle
+     * @param y         The y-coordinate of the particle
+     * @param heading   The heading of the particle
+     * @param weight    The weight of the particle
+     * @param rgb       The color of the particle as rgb-value
+     */
+    void add(float x, float y, float heading, float weight, int rgb) {
+        if (size == this.x.length) {
+            grow(Math.max(16, size * 2));
+        }
+        this.x[size] = x;
+        this.y[size] = y;
+        this.heading[size] = heading;
+        this.weight[size] = weight;
+        this.color[size] = rgb;
+        size++;
+        markAllDirty();
+        particleViews = null;
+    }
+
+
+    /**
+     * Appends a copy of the particle at the given index of the source-store to this store.
+     *
+     * @param source        The store holding the particle to copy
+     * @param sourceIndex   The index of the particle within the source-store
+     */
+    void addCopyOf(ParticleStore source, int sourceIndex) {
+        add(source.x[sourceIndex], source.y[sourceIndex], source.heading[sourceIndex],
+                source.weight[sourceIndex], source.color[sourceIndex]);
+    }
+
+
+    /**
+     * Replaces the content of this store by copies of the selected particles of the source-store. The arrays
+     * of this store are reused if large enough.
+     *
+     * @param source    The store holding the particles to copy
+     * @param selection The indices of the particles to copy within the source-store
+     * @param count     The number of selected particles
+     */
+    void copySelectionOf(ParticleStore source, int[] selection, int count) {
+        if (this.x.length < count) {
+            grow(count);
+        }
+        for (int i = 0  ;  i < count  ;  i++) {
+            int sourceIndex = selection[i];
+            this.x[i] = source.x[sourceIndex];
+            this.y[i] = source.y[sourceIndex];
+            this.heading[i] = source.heading[sourceIndex];
+            this.weight[i] = source.weight[sourceIndex];
+            this.color[i] = source.color[sourceIndex];
+        }
+        this.size = count;
+        markAllDirty();
+        particleViews = null;
+    }
+
+
+    /**
+     * Moves the particle at the given index over the given distance. The return value is the value the particle
+     * was moved, which will be less than the parameter-value if an obstacle prohibits further movement.
+     *
+     * @param index     The index of the particle
+     * @param distance  The distance to move the particle
+     * @return  The actual distance the particle was moved
+     */
+    double move(int index, double distance) {
+        float bumper = 5f;
+        if (distance > 0) {
+            double measured = measureDistance(index, 0);
+            distance = (measured >= distance + bumper) ? distance : measured - bumper;
+        } else {
+            double measured = measureDistance(index, 180);
+            distance = (measured >= Math.abs(distance) + bumper) ? distance : -(measured - bumper);
+        }
+
+        float dx = (float) (Math.cos(Math.toRadians(heading[index])) * distance);
+        float dy = (float) (Math.sin(Math.toRadians(heading[index])) * distance) * -1;
+
+        x[index] += dx;
+        y[index] += dy;
+        xDirty = true;
+        yDirty = true;
+        particleViews = null;
+        return distance;
+    }
+
+
+    /**
+     * Turns the particle at the given index.
+     *
+     * @param index     The index of the particle
+     * @param degrees   The degrees to turn the particle
+     */
+    void turn(int index, int degrees) {
+        float n = (heading[index] + degrees) % 360;
+        if (n < 0) {
+            n += 360;
+        }
+        heading[index] = Math.abs(n);
+        headingDirty = true;
+        particleViews = null;
+    }
+
+
+    /**
+     * Returns a boolean value indication whether the particle at the given index lies outside (true) or
+     * within (false) the operating-range given by the map.
+     *
+     * @param index The index of the particle
+     * @return  A boolean value indicating whether the particle lies outside the maps operating-range
+     */
+    boolean isOutOfMapOperatingRange(int index) {
+        Polygon boundaries = map.getOperatingRange();
+        return !boundaries.contains(x[index], y[index]);
+    }
+
+
+    /**
+     * Simulates the robot-action of measuring the distances to the left, ahead and to the right for the
+     * particle at the given index.
+     *
+     * @param index The index of the particle
+     * @return  A double[] holding distance to the left, ahead and to the right
+     */
+    double[] ultrasonicThreeWayScan(int index) {
+        double[] distances = new double[THREE_WAY_SCAN.length];
+        measureDistances(index, index + 1, THREE_WAY_SCAN, distances);
+        return distances;
+    }
+
+
+    /**
+     * Simulates distance-measurements with the sensor-head turned to each of the given positions, for all
+     * particles of the given range, in one batch.
+     *
+     * @param from                  The index of the first particle (inclusive)
+     * @param to                    The index of the last particle (exclusive)
+     * @param sensorHeadPositions   The positions of the sensor-head
+     * @param distances             Receives the distance for position k of particle i at
+     *                              (i - from) * sensorHeadPositions.length + k
+     */
+    void measureDistances(int from, int to, double[] sensorHeadPositions, double[] distances) {
+        map.castRays(x, y, heading, from, to, sensorHeadPositions, distances);
+    }
+
+
+    /**
+     * Simulates distance-measurement for the particle at the given index with the sensor-head turned to the
+     * given position.
+     *
+     * @param index                 The index of the particle
+     * @param sensorHeadPosition    The position of the sensor-head
+     * @return  The measured distance towards the direction of the sensor-head
+     */
+    double measureDistance(int index, int sensorHeadPosition) {
+        double viewingDirection = 360 - heading[index] - sensorHeadPosition;
+        return map.castRay(x[index], y[index], viewingDirection);
+    }
+
+
+    /**
+     * Returns a simulated camera general-query for the particle at the given index.
+     *
+     * @param index The index of the particle
+     * @return  A simulated camera general-query
+     */
+    int[] cameraGeneralQuery(int index) {
+        return map.getGeneralCameraQuery(x[index], y[index], 360 - heading[index]);
+    }
+
+
+    /**
+     * Returns a simulated camera-signature query for the particle at the given index.
+     *
+     * @param index     The index of the particle
+     * @param signature The signature to query for
+     * @return  A simulated camera-signature query for the given signature
+     */
+    int[] cameraSignatureQuery(int index, int signature) {
+        return map.getCameraSignatureQuery(x[index], y[index], 360 - heading[index], signature);
+    }
+
+
+    /**
+     * Returns the particles of this store as list of ParticleImplMCL. The list is cached until the store
+     * is modified and must not be modified by the caller.
+     *
+     * @return  The particles of this store as list of ParticleImplMCL
+     */
+    ArrayList<ParticleImplMCL> getParticleViews() {
+        ArrayList<ParticleImplMCL> views = particleViews;
+        if (views == null) {
+            views = createParticleViews();
+            particleViews = views;
+        }
+        return views;
+    }
+
+
+    /**
+     * Creates a new list of ParticleImplMCL holding a copy of the current state of each particle.
+     *
+     * @return  A new list of ParticleImplMCL reflecting the current state of this store
+     */
+    ArrayList<ParticleImplMCL> createParticleViews() {
+        ArrayList<ParticleImplMCL> views = new ArrayList<>(size);
+        for (int i = 0  ;  i < size  ;  i++) {
+            views.add(new ParticleImplMCL(new Pose(x[i], y[i], heading[i]), map, weight[i], new Color(color[i])));
+        }
+        return views;
+    }
+
+
+    /**
+     * Marks all attributes as modified.
+     */
+    private void markAllDirty() {
+        xDirty = true;
+        yDirty = true;
+        headingDirty = true;
+        weightDirty = true;
+        colorDirty = true;
+    }
+
+
+    /**
+     * Grows the arrays of this store to the given capacity.
+     *
+     * @param capacity  The new capacity
+     */
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        heading = Arrays.copyOf(heading, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+        color = Arrays.copyOf(color, capacity);
+    }
+}
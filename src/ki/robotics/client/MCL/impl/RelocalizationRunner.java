@@ -0,0 +1,587 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.client.ClientFactory;
+import ki.robotics.client.GUI.impl.GuiConfigurationImplHeadless;
+import ki.robotics.client.MCL.SensorModel;
+import ki.robotics.client.MCL.WorldState;
+import ki.robotics.utility.map.Map;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Headless command-line runner for re-running recorded localizations with different settings of the
+ * monte-carlo-localization (number of particles, resampling-weights, resampling-strategy, sensor-model), at CPU-speed
+ * instead of robot-speed. The recorded robot-feedback (instructions and distance-measurements of the world-states) is
+ * replayed to new localization-providers, many recordings and settings in parallel. For each run, the step and time of
+ * convergence, the replayed steps per second and the final pose-error are reported.
+ *
+ * Usage: RelocalizationRunner [options] (recording | directory of recordings)...
+ * <pre>
+ *   -particles n,n,...         numbers of particles (default: 1000)
+ *   -weights w:w:w:w:w,...     resampling-weights, from largest to smallest deviation (default: 81:27:9:3:1)
+ *   -resampler name,...        resampling-strategies: wheel, systematic, residual (default: wheel)
+ *   -sensor name,...           sensor-models: beam, likelihoodField (default: beam)
+ *   -repetitions n             runs per recording and setting (default: 1)
+ *   -threads n                 parallel runs (default: number of available processors)
+ *   -spreading n               acceptable spreading of a finished localization (default: 10)
+ *   -truth x:y:heading         true final robot-pose (default: the final estimated pose of each recording)
+ * </pre>
+ * Camera-data is not recorded, so only localizations based on distance-measurements can be re-run.
+ */
+public class RelocalizationRunner {
+    private static final String INSTRUCTION_RESAMPLE = "Resample";
+    private static final String INSTRUCTION_MOVE = "Move ";
+    private static final String INSTRUCTION_TURN = "Turn ";
+
+    private int[] numbersOfParticles = new int[]{1000};
+    private int[][] resamplingWeights = new int[][]{MclModel.RESAMPLING_WEIGHTS};
+    private String[] resamplers = new String[]{"wheel"};
+    private String[] sensorModels = new String[]{"beam"};
+    private int repetitions = 1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int acceptableSpreading = 10;
+    private double[] truePose;
+    private final ArrayList<File> recordingFiles = new ArrayList<>();
+
+
+
+    /**
+     * Parses the command-line-arguments, re-runs the given recordings and prints the results.
+     *
+     * @param args  The command-line-arguments (see class-documentation)
+     */
+    public static void main(String[] args) {
+        RelocalizationRunner runner = new RelocalizationRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: RelocalizationRunner [-particles n,...] [-weights w:w:w:w:w,...] "
+                    + "[-resampler wheel|systematic|residual,...] [-sensor beam|likelihoodField,...] "
+                    + "[-repetitions n] [-threads n] [-spreading n] [-truth x:y:heading] (recording | directory)...");
+            System.exit(1);
+        }
+        try {
+            runner.run();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+
+
+    /**
+     * Re-runs the recordings with all combinations of settings and prints one line per run, followed by a
+     * summary per setting.
+     *
+     * @throws IOException          If a recording could not be read
+     * @throws InterruptedException If interrupted while waiting for the runs
+     * @throws ExecutionException   If a run failed
+     */
+    void run() throws IOException, InterruptedException, ExecutionException {
+        ArrayList<Result> results = relocalize();
+        System.out.println("recording\tparticles\tweights\tresampler\tsensor-model\tconverged at step\t"
+                + "convergence [ms]\ttotal [ms]\tsteps/s\tposition-error\theading-error");
+        LinkedHashSet<Setting> settings = new LinkedHashSet<>();
+        for (Result result : results) {
+            System.out.println(result);
+            settings.add(result.setting);
+        }
+        System.out.println();
+        System.out.println("setting\truns\tconverged\tmean step\tmean convergence [ms]\tmean steps/s\t"
+                + "mean position-error\tmean heading-error");
+        for (Setting setting : settings) {
+            System.out.println(summarize(setting, results));
+        }
+    }
+
+
+
+    /**
+     * Loads the recordings and re-runs them with all combinations of settings in parallel.
+     *
+     * @return  The results of all runs, ordered by setting, recording and repetition
+     * @throws IOException          If a recording could not be read
+     * @throws InterruptedException If interrupted while waiting for the runs
+     * @throws ExecutionException   If a run failed
+     */
+    ArrayList<Result> relocalize() throws IOException, InterruptedException, ExecutionException {
+        ArrayList<Recording> recordings = new ArrayList<>();
+        for (File file : recordingFiles) {
+            recordings.add(Recording.load(file));
+        }
+
+        ArrayList<Setting> settings = new ArrayList<>();
+        for (int numberOfParticles : numbersOfParticles) {
+            for (int[] weights : resamplingWeights) {
+                for (String resampler : resamplers) {
+                    for (String sensorModel : sensorModels) {
+                        settings.add(new Setting(numberOfParticles, weights, resampler, sensorModel, acceptableSpreading));
+                    }
+                }
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Result>> futures = new ArrayList<>();
+        try {
+            for (Setting setting : settings) {
+                for (Recording recording : recordings) {
+                    for (int i = 0  ;  i < repetitions  ;  i++) {
+                        futures.add(executor.submit(new Run(recording, setting, truePose)));
+                    }
+                }
+            }
+
+            ArrayList<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+
+    /**
+     * Summarizes the results of all runs with the given setting.
+     *
+     * @param setting   The setting to summarize
+     * @param results   The results of all runs
+     * @return  The summary as tab-separated line
+     */
+    private static String summarize(Setting setting, List<Result> results) {
+        int runs = 0, converged = 0;
+        double steps = 0, millis = 0, stepsPerSecond = 0, positionError = 0, headingError = 0;
+        for (Result result : results) {
+            if (result.setting != setting) {
+                continue;
+            }
+            runs++;
+            stepsPerSecond += result.getStepsPerSecond();
+            positionError += result.positionError;
+            headingError += result.headingError;
+            if (result.convergenceStep >= 0) {
+                converged++;
+                steps += result.convergenceStep;
+                millis += result.convergenceMillis;
+            }
+        }
+        return String.format(Locale.ROOT, "%s\t%d\t%d\t%.1f\t%.1f\t%.1f\t%.2f\t%.2f", setting, runs, converged,
+                (converged > 0) ? steps / converged : Double.NaN, (converged > 0) ? millis / converged : Double.NaN,
+                stepsPerSecond / runs, positionError / runs, headingError / runs);
+    }
+
+
+
+    /**
+     * Parses the command-line-arguments.
+     *
+     * @param args  The command-line-arguments
+     * @throws IllegalArgumentException If an argument is malformed or no recording is given
+     */
+    void parseArguments(String[] args) {
+        for (int i = 0  ;  i < args.length  ;  i++) {
+            String arg = args[i];
+            if (!arg.startsWith("-")) {
+                addRecordingFiles(new File(arg));
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of option " + arg);
+            }
+            String[] values = args[++i].split(",");
+            try {
+                switch (arg) {
+                    case "-particles":
+                        numbersOfParticles = new int[values.length];
+                        for (int j = 0  ;  j < values.length  ;  j++) {
+                            numbersOfParticles[j] = Integer.parseInt(values[j].trim());
+                        }
+                        break;
+                    case "-weights":
+                        resamplingWeights = new int[values.length][];
+                        for (int j = 0  ;  j < values.length  ;  j++) {
+                            resamplingWeights[j] = parseIntegers(values[j], 5);
+                        }
+                        break;
+                    case "-resampler":
+                        resamplers = values;
+                        break;
+                    case "-sensor":
+                        sensorModels = values;
+                        break;
+                    case "-repetitions":
+                        repetitions = Integer.parseInt(values[0].trim());
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(values[0].trim());
+                        break;
+                    case "-spreading":
+                        acceptableSpreading = Integer.parseInt(values[0].trim());
+                        break;
+                    case "-truth":
+                        int[] pose = parseIntegers(values[0], 3);
+                        truePose = new double[]{pose[0], pose[1], pose[2]};
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed value of option " + arg + ": " + args[i]);
+            }
+        }
+        if (recordingFiles.isEmpty()) {
+            throw new IllegalArgumentException("No recordings given");
+        }
+    }
+
+
+
+    /**
+     * Adds the given recording, or all recordings in the given directory.
+     *
+     * @param file  A recording or a directory of recordings
+     */
+    private void addRecordingFiles(File file) {
+        File[] files = file.listFiles();
+        if (files == null) {
+            recordingFiles.add(file);
+            return;
+        }
+        Arrays.sort(files);
+        for (File f : files) {
+            String name = f.getName();
+            if (name.endsWith(LocalizationLogFormat.FILE_EXTENSION)  ||  name.endsWith(LocalizationLogFormat.LEGACY_FILE_EXTENSION)) {
+                recordingFiles.add(f);
+            }
+        }
+    }
+
+
+
+    /**
+     * Parses the given number of colon-separated integers.
+     *
+     * @param value     The colon-separated integers
+     * @param length    The expected number of integers
+     * @return  The integers
+     * @throws NumberFormatException    If the value is malformed
+     */
+    private static int[] parseIntegers(String value, int length) {
+        String[] parts = value.split(":");
+        if (parts.length != length) {
+            throw new NumberFormatException(value);
+        }
+        int[] integers = new int[length];
+        for (int i = 0  ;  i < length  ;  i++) {
+            integers[i] = Integer.parseInt(parts[i].trim());
+        }
+        return integers;
+    }
+
+
+
+
+
+    /**
+     * The robot-feedback of a recorded localization: the instruction and the sensor-model of each world-state.
+     */
+    private static class Recording {
+        private final String name;
+        private final String mapKey;
+        private final String[] instructions;
+        private final SensorModel[] sensorModels;
+        private final double[] finalEstimatedPose;
+
+
+        /**
+         * Constructor.
+         *
+         * @param name                  The name of the recording
+         * @param worldStates           The recorded world-states
+         */
+        private Recording(String name, List<WorldState<ParticleImplMCL>> worldStates) {
+            this.name = name;
+            this.mapKey = worldStates.get(0).getMapKey();
+            this.instructions = new String[worldStates.size()];
+            this.sensorModels = new SensorModel[worldStates.size()];
+            for (int i = 0  ;  i < worldStates.size()  ;  i++) {
+                WorldStateImplMCL worldState = (WorldStateImplMCL) worldStates.get(i);
+                instructions[i] = (worldState.getCausativeInstruction() != null) ? worldState.getCausativeInstruction() : "";
+                sensorModels[i] = worldState.getSensorModel();
+            }
+            this.finalEstimatedPose = worldStates.get(worldStates.size() - 1).getEstimatedBotPose();
+        }
+
+
+        /**
+         * Loads the robot-feedback from the given localization-log.
+         *
+         * @param file  The localization-log
+         * @return  The recording
+         * @throws IOException  If the localization-log could not be read or is empty
+         */
+        static Recording load(File file) throws IOException {
+            ArrayList<WorldState<ParticleImplMCL>> worldStates = LocalizationLogReader.readLocalizationSequence(file);
+            if (worldStates.isEmpty()) {
+                throw new IOException(file + " holds no world-states");
+            }
+            return new Recording(file.getName(), worldStates);
+        }
+
+
+        /**
+         * Checks whether the world-state with the given index holds distance-measurements, that is whether the
+         * particle-weights were recalculated before its instruction.
+         *
+         * @param index The index of the world-state
+         * @return  True, if the world-state holds distance-measurements
+         */
+        boolean hasMeasurement(int index) {
+            SensorModel sensorModel = sensorModels[index];
+            if (sensorModel == null) {
+                return false;
+            }
+            for (double distance : sensorModel.getAllDistances()) {
+                if (distance > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+
+
+
+
+    /**
+     * A combination of settings of the monte-carlo-localization.
+     */
+    private static class Setting {
+        private final int numberOfParticles;
+        private final int[] resamplingWeights;
+        private final String resampler;
+        private final String sensorModel;
+        private final int acceptableSpreading;
+
+
+        /**
+         * Constructor.
+         *
+         * @param numberOfParticles     The number of particles
+         * @param resamplingWeights     The resampling-weights
+         * @param resampler             The name of the resampling-strategy
+         * @param sensorModel           The name of the sensor-model
+         * @param acceptableSpreading   The acceptable spreading of a finished localization
+         */
+        private Setting(int numberOfParticles, int[] resamplingWeights, String resampler, String sensorModel,
+                        int acceptableSpreading) {
+            this.numberOfParticles = numberOfParticles;
+            this.resamplingWeights = resamplingWeights;
+            this.resampler = resampler;
+            this.sensorModel = sensorModel;
+            this.acceptableSpreading = acceptableSpreading;
+        }
+
+
+        @Override
+        public String toString() {
+            StringBuilder weights = new StringBuilder();
+            for (int w : resamplingWeights) {
+                weights.append(weights.length() > 0 ? ":" : "").append(w);
+            }
+            return numberOfParticles + "\t" + weights + "\t" + resampler + "\t" + sensorModel;
+        }
+    }
+
+
+
+
+
+    /**
+     * The outcome of re-running a recording with a setting.
+     */
+    static class Result {
+        private final Recording recording;
+        private final Setting setting;
+        private final int convergenceStep;
+        private final double convergenceMillis;
+        private final double totalMillis;
+        private final double positionError;
+        private final double headingError;
+
+
+        /**
+         * Constructor.
+         *
+         * @param recording         The re-run recording
+         * @param setting           The setting used
+         * @param convergenceStep   The index of the world-state after which the localization was finished, or -1
+         * @param convergenceMillis The time until the localization was finished (in milliseconds)
+         * @param totalMillis       The time for re-running the whole recording (in milliseconds)
+         * @param positionError     The distance between the final estimated and the true robot-position
+         * @param headingError      The difference between the final estimated and the true robot-heading (degrees)
+         */
+        private Result(Recording recording, Setting setting, int convergenceStep, double convergenceMillis,
+                       double totalMillis, double positionError, double headingError) {
+            this.recording = recording;
+            this.setting = setting;
+            this.convergenceStep = convergenceStep;
+            this.convergenceMillis = convergenceMillis;
+            this.totalMillis = totalMillis;
+            this.positionError = positionError;
+            this.headingError = headingError;
+        }
+
+
+        /**
+         * Returns the index of the world-state after which the localization was finished.
+         *
+         * @return  The step of convergence, or -1 if the localization never finished
+         */
+        int getConvergenceStep() { return convergenceStep; }
+
+
+        /**
+         * Returns the distance between the final estimated and the true robot-position.
+         *
+         * @return  The final position-error
+         */
+        double getPositionError() { return positionError; }
+
+
+        /**
+         * Returns the difference between the final estimated and the true robot-heading.
+         *
+         * @return  The final heading-error (in degrees)
+         */
+        double getHeadingError() { return headingError; }
+
+
+        /**
+         * Returns the number of replayed world-states per second of the whole run.
+         *
+         * @return  The replayed steps per second
+         */
+        double getStepsPerSecond() {
+            return (recording.instructions.length - 1) / (totalMillis / 1000);
+        }
+
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s\t%s\t%d\t%.1f\t%.1f\t%.1f\t%.2f\t%.2f", recording.name, setting,
+                    convergenceStep, convergenceMillis, totalMillis, getStepsPerSecond(), positionError, headingError);
+        }
+    }
+
+
+
+
+
+    /**
+     * Re-runs a recording with a setting on a new localization-provider.
+     */
+    private static class Run implements Callable<Result> {
+        private final Recording recording;
+        private final Setting setting;
+        private final double[] truePose;
+
+
+        /**
+         * Constructor.
+         *
+         * @param recording The recording to re-run
+         * @param setting   The setting to use
+         * @param truePose  The true final robot-pose, or null for the final estimated pose of the recording
+         */
+        private Run(Recording recording, Setting setting, double[] truePose) {
+            this.recording = recording;
+            this.setting = setting;
+            this.truePose = (truePose != null) ? truePose : recording.finalEstimatedPose;
+        }
+
+
+        /**
+         * Replays the recorded robot-feedback: the particle-weights are recalculated for each recorded
+         * distance-measurement, followed by the recorded instruction. A resampling followed by a move is the
+         * resampling done by the translation itself.
+         *
+         * @return  The result of the run
+         */
+        @Override
+        public Result call() {
+            Map map = ClientFactory.getMapProvider().getMap(recording.mapKey);
+            long start = System.nanoTime();
+            LocalizationProviderImplMCL localizationProvider = new LocalizationProviderImplMCL(map,
+                    setting.numberOfParticles, new int[]{-1, -1, -1},
+                    new GuiConfigurationImplHeadless(map, recording.mapKey, setting.numberOfParticles,
+                            setting.acceptableSpreading, false),
+                    1, LocalizationProviderImplMCL.createResampler(setting.resampler),
+                    LocalizationProviderImplMCL.createMeasurementModel(setting.sensorModel, map, setting.resamplingWeights),
+                    setting.resamplingWeights);
+
+            int convergenceStep = -1;
+            long convergence = 0;
+            String[] instructions = recording.instructions;
+            for (int i = 1  ;  i < instructions.length  ;  i++) {
+                if (recording.hasMeasurement(i)) {
+                    localizationProvider.recalculateParticleWeight(recording.sensorModels[i]);
+                }
+                String instruction = instructions[i];
+                if (INSTRUCTION_RESAMPLE.equals(instruction)) {
+                    if (i + 1 < instructions.length  &&  instructions[i + 1].startsWith(INSTRUCTION_MOVE)) {
+                        localizationProvider.translateParticles(parseParameter(instructions[++i]));
+                    } else {
+                        localizationProvider.badParticlesFinalKill();
+                    }
+                } else if (instruction.startsWith(INSTRUCTION_MOVE)) {
+                    localizationProvider.translateParticles(parseParameter(instruction));
+                } else if (instruction.startsWith(INSTRUCTION_TURN)) {
+                    localizationProvider.turnParticles(parseParameter(instruction));
+                }
+                if (convergenceStep < 0  &&  localizationProvider.isLocalizationDone()) {
+                    convergenceStep = i;
+                    convergence = System.nanoTime();
+                }
+            }
+            long end = System.nanoTime();
+
+            double[] pose = localizationProvider.getEstimatedPose();
+            double positionError = Math.hypot(pose[0] - truePose[0], pose[1] - truePose[1]);
+            double headingError = Math.abs(pose[2] - truePose[2]) % 360;
+            headingError = Math.min(headingError, 360 - headingError);
+            return new Result(recording, setting, convergenceStep,
+                    (convergenceStep >= 0) ? (convergence - start) / 1e6 : Double.NaN, (end - start) / 1e6,
+                    positionError, headingError);
+        }
+
+
+        /**
+         * Returns the numeric parameter of a recorded instruction (e.g. 'Move 10.0').
+         *
+         * @param instruction   The recorded instruction
+         * @return  The parameter of the instruction
+         */
+        private static double parseParameter(String instruction) {
+            return Double.parseDouble(instruction.substring(instruction.indexOf(' ') + 1).trim());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ki.robotics.client.MCL.impl;
+
+import java.util.Random;
+
+
+/**
+ * Strategy for the selection of particles during the resampling-step of the monte-carlo-localization.
+ * Implementations operate on primitive arrays only and may keep internal buffers between invocations, so
+ * instances must not be shared between concurrently running localizations.
+ */
+interface Resampler {
+    /**
+     * Draws sampleCount particles with a probability proportional to their weights and writes the indices
+     * of the drawn particles to selection. The weights need not be normalized; if they do not sum up to a
+     * positive value, the particles are drawn in turn.
+     *
+     * @param weights       The weights of the particles
+     * @param particleCount The number of particles
+     * @param selection     Array receiving the indices of the drawn particles
+     * @param sampleCount   The number of particles to draw
+     * @param random        The source of randomness
+     */
+    void resample(float[] weights, int particleCount, int[] selection, int sampleCount, Random random);
+}
@@ -0,0 +1,84 @@
+package ki.robotics.client.MCL.impl;
+
+import java.util.Random;
+
+
+/**
+ * Residual resampling: each particle is first copied floor(M * normalized weight) times for M particles to
+ * draw; the remaining draws are taken by systematic resampling over the fractional remainders. Runs in O(N + M).
+ */
+class ResamplerImplResidual implements Resampler {
+    private float[] residualWeights = new float[0];
+    private int[] residualSelection = new int[0];
+
+
+    @Override
+    public void resample(float[] weights, int particleCount, int[] selection, int sampleCount, Random random) {
+        double sum = 0;
+        for (int i = 0  ;  i < particleCount  ;  i++) {
+            sum += weights[i];
+        }
+        if (! (sum > 0)) {
+            for (int i = 0  ;  i < sampleCount  ;  i++) {
+                selection[i] = i % particleCount;
+            }
+            return;
+        }
+        if (residualWeights.length < particleCount) {
+            residualWeights = new float[particleCount];
+        }
+        if (residualSelection.length < sampleCount) {
+            residualSelection = new int[sampleCount];
+        }
+
+        int drawn = 0;
+        for (int i = 0  ;  i < particleCount  ;  i++) {
+            double expectedCopies = sampleCount * (weights[i] / sum);
+            int copies = Math.min((int) Math.floor(expectedCopies), sampleCount - drawn);
+            for (int c = 0  ;  c < copies  ;  c++) {
+                selection[drawn++] = i;
+            }
+            residualWeights[i] = (float) (expectedCopies - copies);
+        }
+
+        int remaining = sampleCount - drawn;
+        if (remaining > 0) {
+            drawResiduals(remaining, particleCount, random);
+            System.arraycopy(residualSelection, 0, selection, drawn, remaining);
+        }
+    }
+
+
+
+    /**
+     * Draws the specified number of particles by systematic resampling over the residual weights.
+     *
+     * @param count         The number of particles to draw
+     * @param particleCount The number of particles
+     * @param random        The source of randomness
+     */
+    private void drawResiduals(int count, int particleCount, Random random) {
+        double sum = 0;
+        for (int i = 0  ;  i < particleCount  ;  i++) {
+            sum += residualWeights[i];
+        }
+        if (! (sum > 0)) {
+            for (int i = 0  ;  i < count  ;  i++) {
+                residualSelection[i] = random.nextInt(particleCount);
+            }
+            return;
+        }
+        double step = sum / count;
+        double pointer = random.nextDouble() * step;
+        double cumulativeWeight = residualWeights[0];
+        int index = 0;
+        for (int i = 0  ;  i < count  ;  i++) {
+            while (pointer > cumulativeWeight  &&  index < particleCount - 1) {
+                index++;
+                cumulativeWeight += residualWeights[index];
+            }
+            residualSelection[i] = index;
+            pointer += step;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ki.robotics.client.MCL.impl;
+
+import java.util.Random;
+
+
+/**
+ * Low-variance (systematic) resampling: a single random offset determines M equally spaced pointers into the
+ * cumulative weights, which are walked in one pass. Runs in O(N + M) for M particles to draw.
+ */
+class ResamplerImplSystematic implements Resampler {
+    @Override
+    public void resample(float[] weights, int particleCount, int[] selection, int sampleCount, Random random) {
+        double sum = 0;
+        for (int i = 0  ;  i < particleCount  ;  i++) {
+            sum += weights[i];
+        }
+        if (! (sum > 0)) {
+            for (int i = 0  ;  i < sampleCount  ;  i++) {
+                selection[i] = i % particleCount;
+            }
+            return;
+        }
+
+        double step = sum / sampleCount;
+        double pointer = random.nextDouble() * step;
+        double cumulativeWeight = weights[0];
+        int index = 0;
+        for (int i = 0  ;  i < sampleCount  ;  i++) {
+            while (pointer > cumulativeWeight  &&  index < particleCount - 1) {
+                index++;
+                cumulativeWeight += weights[index];
+            }
+            selection[i] = index;
+            pointer += step;
+        }
+    }
+}
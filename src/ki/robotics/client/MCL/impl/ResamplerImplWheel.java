@@ -0,0 +1,35 @@
+package ki.robotics.client.MCL.impl;
+
+import java.util.Random;
+
+
+/**
+ * Resampling-wheel: starting at a random particle, the wheel is turned by a random amount between zero and
+ * twice the highest weight for each draw. The expected runtime is O(N * highest weight / mean weight).
+ */
+class ResamplerImplWheel implements Resampler {
+    @Override
+    public void resample(float[] weights, int particleCount, int[] selection, int sampleCount, Random random) {
+        float maxWeight = 0;
+        for (int i = 0  ;  i < particleCount  ;  i++) {
+            maxWeight = Math.max(maxWeight, weights[i]);
+        }
+        if (! (maxWeight > 0)) {
+            for (int i = 0  ;  i < sampleCount  ;  i++) {
+                selection[i] = i % particleCount;
+            }
+            return;
+        }
+
+        int index = random.nextInt(particleCount);
+        double beta = 0.0;
+        for (int i = 0  ;  i < sampleCount  ;  i++) {
+            beta += random.nextDouble() * 2 * maxWeight;
+            while (beta > weights[index]) {
+                beta -= weights[index];
+                index = (index + 1) % particleCount;
+            }
+            selection[i] = index;
+        }
+    }
+}
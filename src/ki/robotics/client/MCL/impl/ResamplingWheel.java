@@ -0,0 +1,133 @@
+package ki.robotics.client.MCL.impl;
+
+import java.awt.*;
+
+/**
+ * The categories of the resampling-wheel and their colors, independent of any visualization.
+ * A category is the combination of the resampling-weights for the three directions of distance-measurement.
+ */
+class ResamplingWheel {
+    private static final double EPSILON = 0.001;
+    private static final int NUMBER_OF_DIRECTIONS = 3;
+    static final int NO_CATEGORY = -1;
+
+    private final double[] fractions;
+    private final int[] colors;
+
+
+    /**
+     * Constructor.
+     *
+     * @param resamplingWeights int[] with weights marking the borders of the resampling-categories
+     */
+    ResamplingWheel(int[] resamplingWeights) {
+        this.fractions = createCategories(resamplingWeights);
+        this.colors = createColors(fractions.length);
+    }
+
+
+    /**
+     * Returns the number of resampling-categories.
+     *
+     * @return  The number of resampling-categories
+     */
+    int getNumberOfCategories() { return fractions.length; }
+
+
+    /**
+     * Returns the color (as rgb-value) associated with the given resampling-category.
+     *
+     * @param category  The resampling-category
+     * @return  The color of the resampling-category as rgb-value
+     */
+    int getColor(int category) { return colors[category]; }
+
+
+    /**
+     * Returns the resampling-category of the given particle-weight or NO_CATEGORY if the weight does not
+     * belong to any category.
+     *
+     * @param weight    The weight of a particle
+     * @return  The resampling-category of the weight
+     */
+    int getCategory(double weight) {
+        for (int i = 0  ;  i < fractions.length  ;  i++) {
+            if (Math.abs(weight - fractions[i]) < EPSILON) {
+                return i;
+            }
+        }
+        return NO_CATEGORY;
+    }
+
+
+    /**
+     * Makes the connection between a particles weight and the associated color.
+     *
+     * @param weight    The weight of a particle
+     * @return  The color (as rgb-value) corresponding to the weight
+     */
+    int weightToColor(double weight) {
+        int category = getCategory(weight);
+        return (category != NO_CATEGORY) ? colors[category] : Color.CYAN.getRGB();
+    }
+
+
+    /**
+     * Creates the resampling categories. That is the combination of the resampling-categories for three
+     * directions of distance-measurement.
+     *
+     * @param resamplingWeights int[] with weights marking the borders of the resampling-categories
+     * @return  double[] holding the resampling-categories
+     */
+    private static double[] createCategories(int[] resamplingWeights) {
+        int n = resamplingWeights.length;
+        double[] d = new double[binomial(n + NUMBER_OF_DIRECTIONS - 1, NUMBER_OF_DIRECTIONS)];
+        int x = 0;
+        for (int i = 0   ;   i < n   ;   i++) {
+            for (int j = i   ;   j < n   ;   j++) {
+                for (int k = j   ;   k < n   ;   k++) {
+                    int sum = resamplingWeights[i] + resamplingWeights[j] + resamplingWeights[k];
+                    d[x++] = 1/(double)sum;
+                }
+            }
+        }
+        return d;
+    }
+
+
+    /**
+     * Creates a distinct color for each resampling-category, fading from red to green.
+     *
+     * @param numberOfCategories    The number of resampling-categories
+     * @return  An int[] holding a color (as rgb-value) for each resampling-category
+     */
+    private static int[] createColors(int numberOfCategories) {
+        int[] c = new int[numberOfCategories];
+        double max = 255;
+        double min = 0;
+        for (int i = 1   ;   i < c.length - 1   ;   i++) {
+            int newRed = (int) Math.round(max - (max / numberOfCategories * i));
+            int newGreen = (int) Math.round(min + (max / numberOfCategories * i));
+            c[i] = new Color(newRed, newGreen, 0).getRGB();
+        }
+        c[0] = new Color(255,0,0).getRGB();
+        c[c.length - 1] = new Color(0,255,0).getRGB();
+        return c;
+    }
+
+
+    /**
+     * Returns the binomial coefficient n over k.
+     *
+     * @param n The size of the set
+     * @param k The size of the subsets
+     * @return  The number of subsets of size k
+     */
+    private static int binomial(int n, int k) {
+        long result = 1;
+        for (int i = 1  ;  i <= k  ;  i++) {
+            result = result * (n - k + i) / i;
+        }
+        return (int) result;
+    }
+}
@@ -1,118 +1,88 @@
 package ki.robotics.client.MCL.impl;
 
+import ki.robotics.client.MCL.LocalizationObserver;
+import ki.robotics.client.MCL.WorldState;
+
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
 
 /**
- * Visualization of the resampling-wheel used during monte-carlo-localization.
+ * Visualization of the resampling-wheel used during monte-carlo-localization, attached to the
+ * localization-provider as observer.
  */
-class ResamplingWheelView extends JFrame {
+public class ResamplingWheelView extends JFrame implements LocalizationObserver {
     private static final String WINDOW_TITLE = "Resampling Wheel";
     private static final int WINDOW_WIDTH = 600;
     private static final int WINDOW_HEIGHT = 600;
 
-    private int[] resamplingWeights;
-    private double[] resamplingWheelFractions;
-    private Color[] resamplingWheelColors;
-    private ArrayList<ParticleImplMCL> particles;
+    private final ResamplingWheel resamplingWheel;
+    private volatile int[] particlesPerCategory;
+    private volatile int numberOfParticles;
 
 
     /**
      * Constructor.
-     *
-     * @param resamplingWeights int[] with weights marking the borders of the resampling-categories
-     * @param particles     The particles used for localization
      */
-    ResamplingWheelView(int[] resamplingWeights, ArrayList<ParticleImplMCL> particles) {
+    public ResamplingWheelView() {
+        this.resamplingWheel = new ResamplingWheel(MclModel.RESAMPLING_WEIGHTS);
         createWindow();
-        this.resamplingWeights = resamplingWeights;
-        this.resamplingWheelFractions = createResamplingWheelCategoryArray();
-        this.resamplingWheelColors = createResamplingWheelColorArray();
-        this.particles = particles;
     }
 
 
     /**
-     * Creates the resampling categories. That is the combination of the resampling-categories for three
-     * directions of distance-measurement.
-     *
-     * @return  double[] holding the resampling-categories
+     * Creates and displays the resampling-wheel-window.
      */
-    private double[] createResamplingWheelCategoryArray() {
-        double d[] = new double[36];
-        int x=0;
-        for (int i = 0   ;   i < resamplingWeights.length   ;   i++) {
-            for (int j = i   ;   j < resamplingWeights.length   ;   j++) {
-                for (int k = j   ;   k < resamplingWeights.length   ;   k++) {
-                    int sum = resamplingWeights[i] + resamplingWeights[j] + resamplingWeights[k];
-                    d[x++] = 1/(double)sum;
-                }
-            }
-        }
-        return d;
+    private void createWindow() {
+        this.setTitle(WINDOW_TITLE);
+        this.setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
+        this.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+        DiagramPanel cake = new DiagramPanel();
+        this.add(cake, BorderLayout.CENTER);
+        this.setVisible(true);
     }
 
 
     /**
-     * Creates a Color[] holding a distinct color associated with each resampling-category.
+     * Updates the resampling-wheel with the newly weighted particles. The particles are counted per
+     * resampling-category right away, as the particle-store is reused for later localization-steps.
      *
-     * @return  A Color[] holding a color for each resampling-category.
+     * @param worldState    The current world-state of the localization
      */
-    private Color[] createResamplingWheelColorArray() {
-        Color c[] = new Color[35];
-        double max = 255;
-        double min = 0;
-        for (int i = 1   ;   i < c.length - 1   ;   i++) {
-            int newRed = (int) Math.round(max - (max / 35 * i));
-            int newGreen = (int) Math.round(min + (max / 35 * i));
-            c[i] = new Color(newRed, newGreen, 0);
-        }
-        c[0] = new Color(255,0,0);
-        c[34] = new Color(0,255,0);
-        return c;
+    @Override
+    public void particleWeightsRecalculated(WorldState<?> worldState) {
+        ParticleStore particles = ((WorldStateImplMCL) worldState).getParticleStore();
+        this.particlesPerCategory = numberOfParticlesInCategory(particles);
+        this.numberOfParticles = particles.size();
+        repaint();
     }
 
 
     /**
-     * Makes the connection between a particles weight and the associated color.
+     * Keeps showing the weights of the last recalculation, as resampled particles are not yet weighted.
      *
-     * @param weight    The weight of a particle
-     * @return  The Color corresponding to the weight
+     * @param worldState    The current world-state of the localization
      */
-    Color weightToColor(double weight) {
-        double epsilon = 0.001;
-
-        for (int i = 0; i < resamplingWheelFractions.length   ; i++) {
-            if (Math.abs(weight - resamplingWheelFractions[i]) < epsilon) {
-                return resamplingWheelColors[i];
-            }
-        }
-        return Color.CYAN;
-    }
+    @Override
+    public void particlesResampled(WorldState<?> worldState) { }
 
 
     /**
-     * Creates and displays the resampling-wheel-window.
-     */
-    private void createWindow() {
-        this.setTitle(WINDOW_TITLE);
-        this.setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
-        this.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-        setLayout(new BorderLayout());
-        DiagramPanel cake = new DiagramPanel();
-        this.add(cake, BorderLayout.CENTER);
-        this.setVisible(true);
-    }
-
-    /**
-     * Updates the resampling-wheel with a new (resampled) set of particles.
+     * Returns an int[] with one element for each resampling-category, holding the number of particles
+     * in that category.
      *
-     * @param particles The new set of particles.
+     * @param particles The particle-store holding the particles
+     * @return An int[] with the number of particles per resampling-category.
      */
-    void update(ArrayList<ParticleImplMCL> particles) {
-        this.particles = particles;
-        repaint();
+    private int[] numberOfParticlesInCategory(ParticleStore particles) {
+        int[] array = new int[resamplingWheel.getNumberOfCategories()];
+        for (int j = 0   ;   j < particles.size()   ;   j++) {
+            int category = resamplingWheel.getCategory(particles.getWeight(j));
+            if (category != ResamplingWheel.NO_CATEGORY) {
+                array[category]++;
+            }
+        }
+        return array;
     }
 
 
@@ -137,8 +107,11 @@ class ResamplingWheelView extends JFrame {
         public void paint(Graphics g) {
             Graphics2D g2d = (Graphics2D) g;
 
-            int[] particlesPerFraction = numberOfParticlesInCategory();
-            int numberOfParticles = particles.size();
+            int[] particlesPerFraction = particlesPerCategory;
+            int numberOfParticles = ResamplingWheelView.this.numberOfParticles;
+            if (particlesPerFraction == null  ||  numberOfParticles == 0) {
+                return;
+            }
 
             int width = this.getWidth() - 2 * PADDING;
             int height = this.getHeight() - 2 * PADDING;
@@ -146,31 +119,12 @@ class ResamplingWheelView extends JFrame {
             g2d.setColor(Color.GREEN);
             g2d.fillArc(PADDING, PADDING, width, height, 0, 360);
             for (int i = 0   ;   i < particlesPerFraction.length   ;   i++) {
-                g2d.setColor(resamplingWheelColors[i]);
+                g2d.setColor(new Color(resamplingWheel.getColor(i)));
                 double particleFraction = particlesPerFraction[i] / (double) numberOfParticles;
                 int arc = (int)Math.ceil(particleFraction * 360);
                 g2d.fillArc(PADDING, PADDING, width, height, startAngle, arc);
                 startAngle += arc;
             }
         }
-
-        /**
-         * Returns an int[] with one element for each resampling-category, holding the number of particles
-         * in that category.
-         *
-         * @return An int[] with the number of particles per resampling-category.
-         */
-        private int[] numberOfParticlesInCategory() {
-            double epsilon = 0.001;
-            int[] array = new int[35];
-            for (int i = 0   ;   i < array.length   ;   i++) {
-                for (ParticleImplMCL p : particles) {
-                    if (Math.abs(p.getWeight() - resamplingWheelFractions[i]) < epsilon) {
-                        array[i]++;
-                    }
-                }
-            }
-            return array;
-        }
     }
 }
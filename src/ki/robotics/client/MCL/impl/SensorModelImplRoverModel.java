@@ -6,17 +6,25 @@ import ki.robotics.utility.pixyCam.DTOColorCodeQuery;
 import ki.robotics.utility.pixyCam.DTOGeneralQuery;
 import ki.robotics.utility.pixyCam.DTOSignatureQuery;
 
+import java.util.Arrays;
+
 /**
  * A simple 'book-keeping'-class for the sensor-feedback from the robot.
+ * Besides the three distances of a three-way-scan, it keeps the measurements of the latest sweep of the
+ * sensor-head (any number of sensor-head-positions and distances).
  *
  */
 public class SensorModelImplRoverModel implements SensorModel {
+    private static final long serialVersionUID = -7235573852217750843L;
 
     private double distanceToLeft;
     private double distanceToCenter;
     private double distanceToRight;
     private int color;
     private double sensorHeadPosition;
+    private double[] sweepSensorHeadPositions;
+    private double[] sweepDistances;
+    private int numberOfSweepMeasurements;
 
     private transient DTOGeneralQuery generalQuery;
     private transient DTOAngleQuery angleQuery;
@@ -39,6 +47,11 @@ public class SensorModelImplRoverModel implements SensorModel {
         newModel.distanceToRight = this.distanceToRight;
         newModel.color = this.color;
         newModel.sensorHeadPosition = this.sensorHeadPosition;
+        if (this.numberOfSweepMeasurements > 0) {
+            newModel.sweepSensorHeadPositions = Arrays.copyOf(this.sweepSensorHeadPositions, numberOfSweepMeasurements);
+            newModel.sweepDistances = Arrays.copyOf(this.sweepDistances, numberOfSweepMeasurements);
+            newModel.numberOfSweepMeasurements = this.numberOfSweepMeasurements;
+        }
         return newModel;
     }
 
@@ -78,6 +91,46 @@ public class SensorModelImplRoverModel implements SensorModel {
         this.distanceToRight = distanceToRight;
     }
 
+    @Override
+    public void clearSweep() {
+        this.numberOfSweepMeasurements = 0;
+    }
+
+    @Override
+    public void addSweepMeasurement(double sensorHeadPosition, double distance) {
+        if (sweepDistances == null) {
+            sweepSensorHeadPositions = new double[16];
+            sweepDistances = new double[16];
+        } else if (numberOfSweepMeasurements == sweepDistances.length) {
+            sweepSensorHeadPositions = Arrays.copyOf(sweepSensorHeadPositions, 2 * numberOfSweepMeasurements);
+            sweepDistances = Arrays.copyOf(sweepDistances, 2 * numberOfSweepMeasurements);
+        }
+        sweepSensorHeadPositions[numberOfSweepMeasurements] = sensorHeadPosition;
+        sweepDistances[numberOfSweepMeasurements] = distance;
+        numberOfSweepMeasurements++;
+    }
+
+    @Override
+    public int getNumberOfSweepMeasurements() {
+        return numberOfSweepMeasurements;
+    }
+
+    @Override
+    public double getSweepSensorHeadPosition(int index) {
+        if (index >= numberOfSweepMeasurements) {
+            throw new IndexOutOfBoundsException("Sweep-measurement " + index + " of " + numberOfSweepMeasurements);
+        }
+        return sweepSensorHeadPositions[index];
+    }
+
+    @Override
+    public double getSweepDistance(int index) {
+        if (index >= numberOfSweepMeasurements) {
+            throw new IndexOutOfBoundsException("Sweep-measurement " + index + " of " + numberOfSweepMeasurements);
+        }
+        return sweepDistances[index];
+    }
+
     @Override
     public int getColor() {
         return color;
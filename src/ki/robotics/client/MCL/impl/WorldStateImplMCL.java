@@ -12,8 +12,13 @@ import java.util.ArrayList;
  * Representation of a world-state which is updated by the monte-carlo-localization using robot-sensor-data.
  */
 public class WorldStateImplMCL implements WorldState<ParticleImplMCL> {
+    private static final long serialVersionUID = -4131074098449711935L;
+
     private transient LocalizationProviderImplMCL localizationProvider;
     private ArrayList<ParticleImplMCL> particles;
+    private ParticleSnapshot particleSnapshot;
+    private transient ParticleStore particleStore;
+    private transient ArrayList<ParticleImplMCL> particleViews;
     private double[] estimatedBotPose;
     private double estimatedBotPoseDeviation;
     private String causativeInstruction;
@@ -39,6 +44,41 @@ public class WorldStateImplMCL implements WorldState<ParticleImplMCL> {
     }
 
 
+    /**
+     * Constructor for a world-state backed by a particle-store, as used for the ongoing localization.
+     *
+     * @param localizationProvider  The localization-provider in use
+     * @param map   The map used for localization
+     * @param particleStore The particle-store holding the particles used for localization
+     */
+    WorldStateImplMCL(LocalizationProviderImplMCL localizationProvider, Map map, ParticleStore particleStore) {
+        this(localizationProvider, map, new ArrayList<ParticleImplMCL>());
+        this.particleStore = particleStore;
+    }
+
+
+    /**
+     * Constructor for a recorded world-state, as read from a localization-log.
+     *
+     * @param mapKey                    The key of the map used for localization
+     * @param particleSnapshot          The recorded particles
+     * @param estimatedBotPose          The estimated robot-pose
+     * @param estimatedBotPoseDeviation The spreading of the particles around the estimated robot-pose
+     * @param causativeInstruction      The instruction which lead to the world-state
+     * @param sensorModel               The sensor-model (robot-feedback) of the world-state
+     */
+    WorldStateImplMCL(String mapKey, ParticleSnapshot particleSnapshot, double[] estimatedBotPose,
+                      double estimatedBotPoseDeviation, String causativeInstruction, SensorModel sensorModel) {
+        this.particles = new ArrayList<>();
+        this.particleSnapshot = particleSnapshot;
+        this.estimatedBotPose = estimatedBotPose;
+        this.estimatedBotPoseDeviation = estimatedBotPoseDeviation;
+        this.causativeInstruction = causativeInstruction;
+        this.sensorModel = sensorModel;
+        this.mapKey = mapKey;
+    }
+
+
     /**
      * Private constructor for making deep-copies.
      *
@@ -56,20 +96,27 @@ public class WorldStateImplMCL implements WorldState<ParticleImplMCL> {
     void takeSnapShot() {
         this.estimatedBotPose = localizationProvider.getEstimatedPose();
         this.estimatedBotPoseDeviation = localizationProvider.getSpreadingAroundEstimatedBotPose();
-        this.particles = localizationProvider.getParticles();
     }
 
 
     /**
-     * Returns a deep-copy of the this world-state.
+     * Returns a copy of the this world-state for the localization-history. The particles are recorded as
+     * immutable snapshot, sharing all unchanged particle-attributes with the given preceding snapshot.
      *
-     * @return  A deep-copy of the this world-state
+     * @param predecessor   The particle-snapshot of the preceding world-state in the history, or null
+     * @return  A copy of the this world-state
      */
-    WorldState getClone() {
+    WorldStateImplMCL getClone(ParticleSnapshot predecessor) {
         WorldStateImplMCL snapShot = new WorldStateImplMCL(this.localizationProvider, this.map);
-        for (ParticleImplMCL p : this.particles) {
-            ParticleImplMCL clone = p.getClone();
-            snapShot.particles.add(clone);
+        if (this.particleStore != null) {
+            snapShot.particleSnapshot = new ParticleSnapshot(this.particleStore, predecessor);
+        } else if (this.particleSnapshot != null) {
+            snapShot.particleSnapshot = this.particleSnapshot;
+        } else {
+            for (ParticleImplMCL p : this.particles) {
+                ParticleImplMCL clone = p.getClone();
+                snapShot.particles.add(clone);
+            }
         }
 
         double[] estimation = localizationProvider.getEstimatedPose();
@@ -84,6 +131,27 @@ public class WorldStateImplMCL implements WorldState<ParticleImplMCL> {
     }
 
 
+    /**
+     * Returns the particle-snapshot recorded in this world-state, or null if this world-state is not part of
+     * the localization-history.
+     *
+     * @return  The particle-snapshot recorded in this world-state or null
+     */
+    ParticleSnapshot getParticleSnapshot() { return this.particleSnapshot; }
+
+
+    /**
+     * Releases the particle-views and the particle-store created on demand from the particle-snapshot of this
+     * world-state, so only the compact snapshot is kept in the localization-history.
+     */
+    void releaseDerivedParticles() {
+        if (this.particleSnapshot != null) {
+            this.particleViews = null;
+            this.particleStore = null;
+        }
+    }
+
+
     /**
      * Returns the number of particles used in this world-state.
      *
@@ -91,6 +159,12 @@ public class WorldStateImplMCL implements WorldState<ParticleImplMCL> {
      */
     @Override
     public int getNumberOfParticles() {
+        if (this.particleStore != null) {
+            return this.particleStore.size();
+        }
+        if (this.particleSnapshot != null) {
+            return this.particleSnapshot.size();
+        }
         return this.particles.size();
     }
 
@@ -102,16 +176,42 @@ public class WorldStateImplMCL implements WorldState<ParticleImplMCL> {
      */
     @Override
     public ArrayList<ParticleImplMCL> getParticles() {
-            return this.particles;
+        if (this.particleStore != null) {
+            return this.particleStore.getParticleViews();
+        }
+        if (this.particleSnapshot != null) {
+            if (this.particleViews == null) {
+                this.particleViews = this.particleSnapshot.createParticleViews(getMap());
+            }
+            return this.particleViews;
+        }
+        return this.particles;
     }
 
 
     /**
-     * Sets the particles used in this world state.
+     * Returns the particle-store holding the particles used in this world-state. If this world-state is not
+     * backed by a particle-store (e.g. from the history or after deserialization), a new store is first created
+     * from the particle-snapshot or the particles.
      *
-     * @param particles     The particles used in this world state
+     * @return  The particle-store holding the particles used in this world-state
      */
-    void setParticles(ArrayList<ParticleImplMCL> particles) { this.particles = particles; }
+    ParticleStore getParticleStore() {
+        if (this.particleStore == null  &&  this.particleSnapshot != null) {
+            this.particleStore = this.particleSnapshot.createParticleStore(getMap());
+        } else if (this.particleStore == null) {
+            this.particleStore = ParticleStore.fromParticles(this.particles, getMap());
+        }
+        return this.particleStore;
+    }
+
+
+    /**
+     * Sets the particle-store holding the particles used in this world state.
+     *
+     * @param particleStore     The particle-store holding the particles used in this world state
+     */
+    void setParticleStore(ParticleStore particleStore) { this.particleStore = particleStore; }
 
 
     /**
@@ -183,6 +283,14 @@ public class WorldStateImplMCL implements WorldState<ParticleImplMCL> {
     void setInstruction(String instruction) { this.causativeInstruction = instruction; }
 
 
+    /**
+     * Returns the sensor-model (robot-feedback) of this world-state.
+     *
+     * @return  The sensor-model of this world-state
+     */
+    SensorModel getSensorModel() { return this.sensorModel; }
+
+
     /**
      * Sets the sensor-model for this world-state.
      *
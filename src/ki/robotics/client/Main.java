@@ -11,6 +11,7 @@ import java.net.InetAddress;
 public class Main {
     private static final String HOST;
     private static final int PORT = 9999;
+    private static final int DEFAULT_PIPELINE_DEPTH = 2;
 
     static {
         int twoSecondTimeout = 2000;
@@ -34,13 +35,29 @@ public class Main {
     /**
      * Program-Initialization and start of a Communicator.
      *
-     * @param args  String-argument to choose between graphical- and terminal-client
+     * @param args  String-argument to choose between graphical- and terminal-client; the graphical client accepts
+     *              'pipeline[=n]' to send up to n instruction-sequences ahead of their responses
      */
     public static void main(String[] args) {
         if (args.length >= 1 && args[0].equals("terminal")) {
             ClientFactory.createNewTerminalClient(HOST, PORT);
         } else {
-            ClientFactory.createNewGraphicalClient(HOST, PORT);
+            int pipelineDepth = 1;
+            for (String arg : args) {
+                if (arg.toLowerCase().startsWith("pipeline")) {
+                    pipelineDepth = DEFAULT_PIPELINE_DEPTH;
+                    if (arg.toLowerCase().startsWith("pipeline=")) {
+                        try {
+                            pipelineDepth = Integer.parseInt(arg.substring("pipeline=".length()));
+                        } catch (NumberFormatException e) {
+                            System.err.println("Ignoring invalid pipeline-depth: " + arg);
+                        }
+                    }
+                } else {
+                    System.err.println("Ignoring unknown argument: " + arg);
+                }
+            }
+            ClientFactory.createNewGraphicalClient(HOST, PORT, pipelineDepth);
         }
     }
 }
\ No newline at end of file
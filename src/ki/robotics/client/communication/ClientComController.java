@@ -1,5 +1,7 @@
 package ki.robotics.client.communication;
 
+import ki.robotics.utility.crisp.Message;
+
 public interface ClientComController {
     /**
      * Initiates communication with the server. Preferably using a new thread.
@@ -30,15 +32,42 @@ public interface ClientComController {
 
     /**
      * Returns the next request. Supposed to realize an unlimited send-receive-cycle with handleResponse(String).
+     * Blocks while no request is available (e.g. while paused), until resumed or stopped. In pipelined
+     * communication, the next request may be asked for while responses to previous requests are still handled.
      *
-     * @return  The next request.
+     * @return  The next request, or null if the communication was stopped.
      */
     String getNextRequest();
 
 
+    /**
+     * Tells whether the next request is decided on the responses to all previous requests (e.g. a movement based
+     * on the latest measurements). In pipelined communication, such a request is only asked for once no previous
+     * sequence is in flight anymore.
+     *
+     * @return  True, if the next request depends on the responses to all previous requests
+     */
+    boolean isNextRequestDependentOnResponses();
+
+
+    /**
+     * Resumes the communication after a pause, handing over the next request to a communication-thread waiting
+     * for it (see getNextRequest).
+     */
+    void resume();
+
+
     /**
      * Handles a response. Supposed to realize an unlimited send-receive-cycle with getNextRequest():String.
      *
      */
     void handleResponse(String response);
+
+
+    /**
+     * Handles a single (decoded) response, received in the binary variant of C.R.I.S.P..
+     *
+     * @param response  The response
+     */
+    void handleResponse(Message<?> response);
 }
@@ -7,13 +7,13 @@ import ki.robotics.client.MCL.LocalizationProvider;
 import ki.robotics.client.MCL.SensorModel;
 import ki.robotics.utility.crisp.InstructionSequence;
 import ki.robotics.utility.crisp.Message;
+import ki.robotics.utility.crisp.MessageImplReusable;
+import ki.robotics.utility.crisp.TextTransmissionParser;
 import ki.robotics.utility.pixyCam.DTOAngleQuery;
 import ki.robotics.utility.pixyCam.DTOColorCodeQuery;
 import ki.robotics.utility.pixyCam.DTOGeneralQuery;
 import ki.robotics.utility.pixyCam.DTOSignatureQuery;
 
-import java.util.ArrayList;
-
 import static ki.robotics.utility.crisp.CRISP.*;
 
 /**
@@ -31,7 +31,13 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
     private BotResponseHandler botResponseHandler;
 
     private Thread communicationThread;
-    private boolean isStopped;
+    private volatile boolean isStopped;
+    private final int pipelineDepth;
+    private final Object pauseMonitor = new Object();
+
+    private static final double SWEEP_START_POSITION = 90;
+    private static final double SWEEP_END_POSITION = -90;
+    private static final double SWEEP_STEP_SIZE = 15;
 
 
 
@@ -42,8 +48,22 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
      * @param port  Server-port
      */
     public ClientComControllerImplGUI(String host, int port) {
+        this(host, port, 1);
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param host  Server-host
+     * @param port  Server-port
+     * @param pipelineDepth The maximum number of instruction-sequences sent ahead of their responses (1 for
+     *                      lock-step communication)
+     */
+    public ClientComControllerImplGUI(String host, int port, int pipelineDepth) {
         super(host, port);
         this.isStopped = true;
+        this.pipelineDepth = pipelineDepth;
     }
 
 
@@ -76,7 +96,7 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
         this.isStopped = false;
         this.guiConfiguration = guiController.getUserSettings();
         this.localizationProvider = this.guiConfiguration.getLocalizationProvider();
-        communicationThread = new Thread(new ClientCommunicator(this.host, this.port, this));
+        communicationThread = new Thread(new ClientCommunicator(this.host, this.port, this, true, pipelineDepth));
         communicationThread.setDaemon(true);
         communicationThread.start();
     }
@@ -92,6 +112,7 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
             this.isStopped = true;
             communicationThread = null;
         }
+        resume();
     }
 
 
@@ -122,22 +143,59 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
 
 
     /**
-     * Asks the RequestGenerator for the next request to send to the robot, unless localization is
-     * currently paused.
+     * Asks the RequestGenerator for the next request to send to the robot, waiting while the localization is
+     * paused. The request is generated exclusively of the handling of responses, which may happen concurrently
+     * in pipelined communication.
      * Called from the server every time a previous instruction sequence was completed.
      *
-     * @return  Ongoing instructions-requests.
+     * @return  Ongoing instructions-requests, or null if stopped.
      */
     @Override
     public String getNextRequest() {
-        if (guiConfiguration.isPaused()) {
+        synchronized (pauseMonitor) {
+            while (guiConfiguration.isPaused()  &&  !isStopped) {
+                try {
+                    pauseMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+        if (isStopped) {
             return null;
-        } else {
+        }
+        synchronized (botResponseHandler) {
             return requestGenerator.getNextRequest();
         }
     }
 
 
+    /**
+     * Tells whether the next request is decided on the sensor-model and the localization, i.e. in two-dimensional
+     * maps, where the robot turns away from walls. The requests in one-dimensional maps do not depend on
+     * previous responses and may be pipelined.
+     *
+     * @return  True, if the next request depends on the responses to all previous requests
+     */
+    @Override
+    public boolean isNextRequestDependentOnResponses() {
+        return !guiConfiguration.isOneDimensional();
+    }
+
+
+    /**
+     * Wakes up the communication-thread waiting for the next request, after the localization was resumed
+     * (or stopped).
+     */
+    @Override
+    public void resume() {
+        synchronized (pauseMonitor) {
+            pauseMonitor.notifyAll();
+        }
+    }
+
+
 
 
 
@@ -148,7 +206,22 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
      */
     @Override
     public void handleResponse(String botResponse) {
-        botResponseHandler.handleResponse(botResponse);
+        synchronized (botResponseHandler) {
+            botResponseHandler.handleResponse(botResponse);
+        }
+    }
+
+
+    /**
+     * Forwards the (decoded) response from the robot to response-handler.
+     *
+     * @param botResponse  A single response from the robot.
+     */
+    @Override
+    public void handleResponse(Message<?> botResponse) {
+        synchronized (botResponseHandler) {
+            botResponseHandler.handleResponse(botResponse);
+        }
     }
 
 
@@ -349,6 +422,9 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
             private InstructionSequence provideSensingInstructionForTwoDim() {
                 InstructionSequence sequence = ClientFactory.createNewInstructionSequence();
 
+                if (guiConfiguration.isUseSensorSweep()) {
+                    return sequence.measureDistanceSweep(SWEEP_START_POSITION, SWEEP_END_POSITION, SWEEP_STEP_SIZE);
+                }
                 if (guiConfiguration.isUseLeftSensor()  &&  guiConfiguration.isUseFrontSensor()  &&  guiConfiguration.isUseRightSensor()) {
                     sequence.measureAllDistances();
                 } else {
@@ -395,6 +471,9 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
         private final LocalizationProvider localizationProvider;
         private final GuiController guiController;
         private final SensorModel sensorModel;
+        private final TextTransmissionParser responseParser = new TextTransmissionParser();
+        private final MessageImplReusable response = new MessageImplReusable();
+        private boolean isSweepInProgress;
 
 
         /**
@@ -417,31 +496,41 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
          * @param botResponse   The robot-response
          */
         private void handleResponse(String botResponse) {
-            ArrayList<Message> responses = ClientFactory.createMessageListFromTransmission(botResponse);
-            for (Message response : responses) {
-                switch (response.getMessageGroup()) {
-                    case BOT_INSTRUCTION:
-                        handleBotResponse(response);
-                        break;
-                    case SENSOR_INSTRUCTION:
-                        handleSensorResponse(response);
-                        break;
-                    case CAMERA_INSTRUCTION:
-                        handleCameraResponse(response);
-                        break;
-                    default:
-                        handleOtherResponse(response);
-                        break;
-                }
-                if (guiConfiguration.isStopWhenDone() && !guiConfiguration.isWithCamera() && localizationProvider.isLocalizationDone()) {
-                    localizationProvider.badParticlesFinalKill();
-                    localizationProvider.saveLocalizationSequenceToFile();
-                    guiController.updateWindowAfterLocalizationFinished();
-                    guiController.repaintWindow();
-                    stop();
-                }
+            responseParser.reset(botResponse);
+            while (responseParser.next(response)) {
+                handleResponse(response);
+            }
+        }
+
+
+        /**
+         * Conditional routing of a single (decoded) robot-response to specialized methods.
+         *
+         * @param response  The robot-response
+         */
+        private void handleResponse(Message<?> response) {
+            switch (response.getMessageGroup()) {
+                case BOT_INSTRUCTION:
+                    handleBotResponse(response);
+                    break;
+                case SENSOR_INSTRUCTION:
+                    handleSensorResponse(response);
+                    break;
+                case CAMERA_INSTRUCTION:
+                    handleCameraResponse(response);
+                    break;
+                default:
+                    handleOtherResponse(response);
+                    break;
+            }
+            if (guiConfiguration.isStopWhenDone() && !guiConfiguration.isWithCamera() && localizationProvider.isLocalizationDone()) {
+                localizationProvider.badParticlesFinalKill();
+                localizationProvider.saveLocalizationSequenceToFile();
+                guiController.updateWindowAfterLocalizationFinished();
                 guiController.repaintWindow();
+                stop();
             }
+            guiController.repaintWindow();
         }
 
 
@@ -463,16 +552,16 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
                     localizationProvider.turnParticles(180);
                     break;
                 case BOT_TRAVEL_FORWARD:
-                    localizationProvider.translateParticles((double)response.getParameter());
+                    localizationProvider.translateParticles(response.getDoubleParameter(0));
                     break;
                 case BOT_TRAVEL_BACKWARD:
-                    localizationProvider.translateParticles((double)response.getParameter() * -1);
+                    localizationProvider.translateParticles(response.getDoubleParameter(0) * -1);
                     break;
                 case BOT_TURN_LEFT:
-                    localizationProvider.turnParticles(Math.abs((double)response.getParameter()));
+                    localizationProvider.turnParticles(Math.abs(response.getDoubleParameter(0)));
                     break;
                 case BOT_TURN_RIGHT:
-                    localizationProvider.turnParticles(Math.abs((double)response.getParameter()) * -1);
+                    localizationProvider.turnParticles(Math.abs(response.getDoubleParameter(0)) * -1);
                     break;
             }
         }
@@ -486,27 +575,32 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
         private void handleSensorResponse(Message response) {
             switch (response.getMnemonic()) {
                 case SENSOR_TURN_LEFT:
-                    sensorModel.setSensorHeadPosition((double)response.getParameter());
+                    sensorModel.setSensorHeadPosition(response.getDoubleParameter(0));
                     break;
                 case SENSOR_TURN_RIGHT:
-                    sensorModel.setSensorHeadPosition((double)response.getParameter() * -1);
+                    sensorModel.setSensorHeadPosition(response.getDoubleParameter(0) * -1);
                     break;
                 case SENSOR_MEASURE_COLOR:
-                    sensorModel.setColor((int)response.getParameter());
+                    sensorModel.setColor(response.getIntParameter(0));
                     break;
                 case SENSOR_THREE_WAY_SCAN:
-                    sensorModel.setDistanceToLeft((double) response.getParameters()[0]);
-                    sensorModel.setDistanceToCenter((double) response.getParameters()[1]);
-                    sensorModel.setDistanceToRight((double) response.getParameters()[2]);
+                    sensorModel.clearSweep();
+                    sensorModel.setDistanceToLeft(response.getDoubleParameter(0));
+                    sensorModel.setDistanceToCenter(response.getDoubleParameter(1));
+                    sensorModel.setDistanceToRight(response.getDoubleParameter(2));
                     localizationProvider.recalculateParticleWeight(sensorModel);
                     break;
                 case SENSOR_RESET:
                     sensorModel.setSensorHeadPosition(0);
                     break;
                 case SENSOR_SINGLE_DISTANCE_SCAN:
+                    sensorModel.clearSweep();
                     evaluateSingleDistanceMeasurement(response);
                     localizationProvider.recalculateParticleWeight(sensorModel);
                     break;
+                case SENSOR_SWEEP:
+                    evaluateSweepMeasurement(response);
+                    break;
             }
         }
 
@@ -522,7 +616,7 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
                     sensorModel.setGeneralQuery(new DTOGeneralQuery(response.getParameters()));
                     break;
                 case CAMERA_ANGLE_QUERY:
-                    sensorModel.setAngleQuery(new DTOAngleQuery((int) response.getParameter()));
+                    sensorModel.setAngleQuery(new DTOAngleQuery(response.getIntParameter(0)));
                     break;
                 case CAMERA_COLOR_CODE_QUERY:
                     sensorModel.setColorCodeQuery(new DTOColorCodeQuery(response.getParameters()));
@@ -545,11 +639,41 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
         private void handleOtherResponse(Message response) {
             switch (response.getMnemonic()) {
                 case END_OF_INSTRUCTION_SEQUENCE:
+                    if (isSweepInProgress) {
+                        isSweepInProgress = false;
+                        localizationProvider.recalculateParticleWeight(sensorModel);
+                    }
                     break;
             }
         }
 
 
+        /**
+         * Adds a single streamed measurement of a sweep to the sensor-model. The first measurement of a sequence
+         * replaces the previous sweep; measurements to the left, ahead and to the right also update the
+         * corresponding distances. The particles are weighted when the sequence is complete.
+         *
+         * @param response   The instruction-response ("SSWP sensor-head-position distance").
+         */
+        private void evaluateSweepMeasurement(Message<?> response) {
+            if (!isSweepInProgress) {
+                sensorModel.clearSweep();
+                isSweepInProgress = true;
+            }
+            double sensorHeadPosition = response.getDoubleParameter(0);
+            double distance = response.getDoubleParameter(1);
+            sensorModel.addSweepMeasurement(sensorHeadPosition, distance);
+
+            if (sensorHeadPosition == 90) {
+                sensorModel.setDistanceToLeft(distance);
+            } else if (sensorHeadPosition == 0) {
+                sensorModel.setDistanceToCenter(distance);
+            } else if (sensorHeadPosition == -90) {
+                sensorModel.setDistanceToRight(distance);
+            }
+        }
+
+
         /**
          * Updates the sensor-model for left, front or right distance from a single distance measurement, depending
          * on the current orientation of the sensor-head.
@@ -561,7 +685,7 @@ public final class ClientComControllerImplGUI extends ClientComControllerImpl {
             boolean measurementLeft = angle > 45;
             boolean measurementRight = angle < -45;
 
-            double param = (double)response.getParameters()[0];
+            double param = response.getDoubleParameter(0);
 
             if (measurementLeft) {
                 sensorModel.setDistanceToLeft((float) param);
@@ -1,5 +1,7 @@
 package ki.robotics.client.communication;
 
+import ki.robotics.utility.crisp.Message;
+
 import static ki.robotics.utility.crisp.CRISP.*;
 
 import java.util.Scanner;
@@ -86,6 +88,25 @@ public final class ClientComControllerImplTerminal extends ClientComControllerIm
     }
 
 
+    /**
+     * Requests are typed by the user and do not depend on previous responses.
+     *
+     * @return  False
+     */
+    @Override
+    public boolean isNextRequestDependentOnResponses() {
+        return false;
+    }
+
+
+    /**
+     * Nothing to resume, as the terminal waits for user-input anyway.
+     */
+    @Override
+    public void resume() {
+    }
+
+
     /**
      * Prints the server-response to the terminal.
      *
@@ -95,4 +116,15 @@ public final class ClientComControllerImplTerminal extends ClientComControllerIm
     public void handleResponse(String response) {
         System.out.println(response);
     }
+
+
+    /**
+     * Prints the (decoded) server-response to the terminal.
+     *
+     * @param response  The server-response
+     */
+    @Override
+    public void handleResponse(Message<?> response) {
+        System.out.println(response);
+    }
 }
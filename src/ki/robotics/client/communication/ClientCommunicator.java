@@ -1,20 +1,38 @@
 package ki.robotics.client.communication;
 
 
+import ki.robotics.client.ClientFactory;
+import ki.robotics.utility.crisp.BinaryCRISP;
+import ki.robotics.utility.crisp.BinaryFrameReader;
+import ki.robotics.utility.crisp.BinaryFrameWriter;
+import ki.robotics.utility.crisp.Message;
+
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.concurrent.Semaphore;
 
 import static ki.robotics.utility.crisp.CRISP.DISCONNECT;
 import static ki.robotics.utility.crisp.CRISP.END_OF_INSTRUCTION_SEQUENCE;
+import static ki.robotics.utility.crisp.CRISP.SENSOR_RESET;
+import static ki.robotics.utility.crisp.CRISP.SEQUENCE_ID;
 
 
 /**
  * Communication-Instance for the client-side.
- *
+ * Offers the binary variant of C.R.I.S.P. with the initial sensor-reset (see BinaryCRISP) and switches to binary
+ * frames if the server accepts it.
+ * With a pipeline-depth above 1, instruction-sequences are identified (see CRISP.SEQUENCE_ID) and up to that many
+ * sequences are sent without waiting for their responses, which are handled by a reader-thread meanwhile. The
+ * pipeline is only used if the server answers the initial sequence with its id; otherwise the communication
+ * stays in lock-step (one sequence at a time). Requests the communication-controller decides on previous
+ * responses are never sent ahead of them.
  */
 final class ClientCommunicator implements Runnable{
     private static final int TRANSMISSION_TIMEOUT = 0;
@@ -24,6 +42,10 @@ final class ClientCommunicator implements Runnable{
     private final String host;
     private final int port;
     private final ClientComController clientComController;
+    private final boolean offerBinaryVariant;
+    private final int pipelineDepth;
+    private BinaryFrameReader frameReader;
+    private BinaryFrameWriter frameWriter;
 
 
 
@@ -34,9 +56,37 @@ final class ClientCommunicator implements Runnable{
      * @param port  The port to address
      */
     public ClientCommunicator(String host, int port, ClientComController ClientComController) {
+        this(host, port, ClientComController, true);
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param host  The host to which to connect
+     * @param port  The port to address
+     * @param offerBinaryVariant    True, if the binary variant of C.R.I.S.P. should be offered to the server
+     */
+    ClientCommunicator(String host, int port, ClientComController ClientComController, boolean offerBinaryVariant) {
+        this(host, port, ClientComController, offerBinaryVariant, 1);
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param host  The host to which to connect
+     * @param port  The port to address
+     * @param offerBinaryVariant    True, if the binary variant of C.R.I.S.P. should be offered to the server
+     * @param pipelineDepth The maximum number of instruction-sequences in flight (1 for lock-step)
+     */
+    ClientCommunicator(String host, int port, ClientComController ClientComController, boolean offerBinaryVariant,
+                       int pipelineDepth) {
         this.host = host;
         this.port = port;
         this.clientComController = ClientComController;
+        this.offerBinaryVariant = offerBinaryVariant;
+        this.pipelineDepth = Math.max(1, pipelineDepth);
     }
 
 
@@ -50,7 +100,7 @@ final class ClientCommunicator implements Runnable{
             Socket socket = createSocket(host, port);
             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-            handleOngoingCommunication(in, out);
+            handleOngoingCommunication(socket, in, out);
             tearDownConnection(socket, in, out);
         } catch (SocketTimeoutException ignored) {
 
@@ -83,33 +133,213 @@ final class ClientCommunicator implements Runnable{
      * until either this client or the server (robots) sends a 'EOSQ'- (End Of SeQuence) or
      * 'DCNT'- (DisCoNnecT) signal.
      *
+     * @param socket    The communication-socket
      * @param in    BufferedReader to read responses from
      * @param out   PrintWriter to write requests (instructions) to
      * @throws IOException
      */
-    private void handleOngoingCommunication(BufferedReader in, PrintWriter out) throws IOException {
+    private void handleOngoingCommunication(Socket socket, BufferedReader in, PrintWriter out) throws IOException {
         String request = clientComController.getInitialRequest();
+        if (offerBinaryVariant) {
+            request = offerBinaryVariant(request);
+        }
+        boolean pipelined = pipelineDepth > 1;
+        if (pipelined) {
+            request = identifySequence(request, 1);
+        }
+        int sequenceId = exchangeSequence(socket, in, out, request);
+        if (pipelined  &&  sequenceId == 1) {
+            communicatePipelined(socket, in, out);
+            return;
+        }
+
+        while (sequenceId >= 0  &&  running) {
+            request = clientComController.getNextRequest();
+            if (request == null  ||  clientComController.isStopped()  ||  request.equals(DISCONNECT)) {
+                break;
+            }
+            sequenceId = exchangeSequence(socket, in, out, request);
+        }
+    }
+
+
+    /**
+     * Sends a request and forwards the responses, until the end of the answering sequence (lock-step).
+     *
+     * @param socket    The communication-socket
+     * @param in    BufferedReader to read responses from
+     * @param out   PrintWriter to write requests (instructions) to
+     * @param request   The request (instruction-sequence)
+     * @return  The id of the answered sequence (0 if not identified), or -1 if the server closed the connection
+     * @throws IOException
+     */
+    private int exchangeSequence(Socket socket, BufferedReader in, PrintWriter out, String request) throws IOException {
+        if (frameReader != null) {
+            sendFrame(socket, request);
+            return readFrame();
+        }
+        out.println(request);
+        boolean binaryVariantAccepted = false;
         String response;
+        while ((response = in.readLine()) != null) {
+            binaryVariantAccepted |= offerBinaryVariant  &&  isBinaryVariantAccepted(response);
+            clientComController.handleResponse(response);
+            if (response.contains(END_OF_INSTRUCTION_SEQUENCE)) {
+                if (binaryVariantAccepted) {
+                    frameReader = new BinaryFrameReader(new BufferedInputStream(socket.getInputStream()));
+                    frameWriter = new BinaryFrameWriter();
+                }
+                return identifyAnsweredSequence(response);
+            }
+        }
+        return -1;
+    }
+
 
-        do {
-            out.println(request);
-            do {
-                response = in.readLine();
-                if (response == null) {
-                    continue;
+    /**
+     * Sends the requests of the ongoing communication without waiting for the responses of previous sequences,
+     * as long as no more than pipelineDepth sequences are in flight. The responses are forwarded by a
+     * reader-thread meanwhile. Requests are handed over by the communication-controller, blocking while no
+     * request is available. A request depending on previous responses (e.g. a movement decided on the latest
+     * measurements) is only asked for after all sequences in flight are completed and their responses handled.
+     *
+     * @param socket    The communication-socket
+     * @param in    BufferedReader to read responses from
+     * @param out   PrintWriter to write requests (instructions) to
+     * @throws IOException
+     */
+    private void communicatePipelined(Socket socket, BufferedReader in, PrintWriter out) throws IOException {
+        ResponseReader reader = new ResponseReader(in);
+        Thread readerThread = new Thread(reader, "client-response-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        try {
+            int sequenceId = 1;
+            while (running  &&  !reader.closed) {
+                if (clientComController.isNextRequestDependentOnResponses()) {
+                    reader.sequencesInFlight.acquire(pipelineDepth);
+                    reader.sequencesInFlight.release(pipelineDepth);
+                    if (reader.closed) {
+                        break;
+                    }
                 }
-                clientComController.handleResponse(response);
-                if (response.contains(END_OF_INSTRUCTION_SEQUENCE)) {
+                String request = clientComController.getNextRequest();
+                if (request == null  ||  clientComController.isStopped()  ||  request.equals(DISCONNECT)) {
+                    break;
+                }
+                reader.sequencesInFlight.acquire();
+                if (reader.closed) {
                     break;
                 }
-            } while (true);
-            while (!clientComController.isStopped()   &&   (request = clientComController.getNextRequest()) == null) {
-                Thread.yield();
+                request = identifySequence(request, ++sequenceId);
+                if (frameWriter != null) {
+                    sendFrame(socket, request);
+                } else {
+                    out.println(request);
+                }
             }
-            if (clientComController.isStopped()) {
-                break;
+            reader.sequencesInFlight.acquire(pipelineDepth);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            reader.finished = true;
+        }
+    }
+
+
+    /**
+     * Precedes a request by the id of its instruction-sequence.
+     *
+     * @param request   The request (instruction-sequence)
+     * @param sequenceId    The id of the sequence
+     * @return  The identified request
+     */
+    private static String identifySequence(String request, int sequenceId) {
+        return SEQUENCE_ID + " " + sequenceId + ", " + request;
+    }
+
+
+    /**
+     * Returns the id of the sequence answered by an end-of-sequence response ("EOSQ <id>").
+     *
+     * @param response  An end-of-sequence response
+     * @return  The id of the answered sequence (0 if not identified)
+     */
+    private static int identifyAnsweredSequence(String response) {
+        for (Message<?> message : ClientFactory.createMessageListFromTransmission(response)) {
+            if (message.getMnemonic().equals(END_OF_INSTRUCTION_SEQUENCE)  &&  message.getNumberOfParameters() == 1) {
+                return message.getIntParameter(0);
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Reads binary frames and forwards their responses, until the end of the answered sequence (responses may be
+     * streamed in several frames, e.g. the measurements of a sweep).
+     *
+     * @return  The id of the answered sequence (0 if not identified), or -1 if the server closed the connection
+     * @throws IOException
+     */
+    private int readFrame() throws IOException {
+        ArrayList<Message<?>> responses;
+        while ((responses = frameReader.readFrame()) != null) {
+            for (Message<?> response : responses) {
+                clientComController.handleResponse(response);
+                if (response.getMnemonic().equals(END_OF_INSTRUCTION_SEQUENCE)) {
+                    return (response.getNumberOfParameters() == 1) ? response.getIntParameter(0) : 0;
+                }
             }
-        } while ( running && !request.equals(DISCONNECT));
+        }
+        return -1;
+    }
+
+
+    /**
+     * Encodes a request (instruction-sequence) as binary frame and sends it.
+     *
+     * @param socket    The communication-socket
+     * @param request   The request (instruction-sequence)
+     * @throws IOException
+     */
+    private void sendFrame(Socket socket, String request) throws IOException {
+        for (Message<?> instruction : ClientFactory.createMessageListFromTransmission(request)) {
+            frameWriter.add(instruction);
+        }
+        frameWriter.writeTo(socket.getOutputStream());
+    }
+
+
+    /**
+     * Offers the binary variant of C.R.I.S.P. by adding it as parameter to a leading sensor-reset.
+     *
+     * @param request   The initial request
+     * @return  The initial request, offering the binary variant if it starts with a sensor-reset
+     */
+    private static String offerBinaryVariant(String request) {
+        boolean startsWithSensorReset = request.startsWith(SENSOR_RESET)
+                &&  (request.length() == SENSOR_RESET.length()  ||  request.charAt(SENSOR_RESET.length()) == ',');
+        if (startsWithSensorReset) {
+            return SENSOR_RESET + " " + BinaryCRISP.VARIANT + request.substring(SENSOR_RESET.length());
+        }
+        return request;
+    }
+
+
+    /**
+     * Checks whether a response accepts the offered binary variant of C.R.I.S.P. (a sensor-reset answered with
+     * the sensor-head-position and the accepted variant).
+     *
+     * @param response  A response of the server
+     * @return  True, if the binary variant is accepted
+     */
+    private static boolean isBinaryVariantAccepted(String response) {
+        if (!response.startsWith(SENSOR_RESET)) {
+            return false;
+        }
+        Object[] parameters = ClientFactory.createMessageListFromTransmission(response).get(0).getParameters();
+        return parameters.length == 2  &&  ((Number) parameters[1]).intValue() == BinaryCRISP.VARIANT;
     }
 
 
@@ -122,11 +352,77 @@ final class ClientCommunicator implements Runnable{
      * @throws IOException
      */
     private void tearDownConnection(Socket socket, BufferedReader in, PrintWriter out) throws IOException{
-        out.println(DISCONNECT);
+        if (frameWriter != null) {
+            sendFrame(socket, DISCONNECT);
+        } else {
+            out.println(DISCONNECT);
+        }
         out.close();
         in.close();
         socket.close();
         running = true;
     }
 
+
+
+
+
+    /**
+     * Forwards the responses of pipelined sequences to the communication-controller, in order of arrival, and
+     * frees a place in the pipeline for every completed sequence.
+     */
+    private class ResponseReader implements Runnable {
+        private final BufferedReader in;
+        private final Semaphore sequencesInFlight = new Semaphore(pipelineDepth);
+        private volatile boolean finished;
+        private volatile boolean closed;
+
+
+        /**
+         * Constructor.
+         *
+         * @param in    BufferedReader to read (text-)responses from
+         */
+        private ResponseReader(BufferedReader in) {
+            this.in = in;
+        }
+
+
+        /**
+         * Reads and forwards responses until all sent sequences are completed or the connection is closed.
+         */
+        @Override
+        public void run() {
+            try {
+                if (frameReader != null) {
+                    ArrayList<Message<?>> responses;
+                    while ((responses = frameReader.readFrame()) != null  &&  !finished) {
+                        for (Message<?> response : responses) {
+                            clientComController.handleResponse(response);
+                            if (response.getMnemonic().equals(END_OF_INSTRUCTION_SEQUENCE)) {
+                                sequencesInFlight.release();
+                            }
+                        }
+                    }
+                } else {
+                    String response;
+                    while ((response = in.readLine()) != null  &&  !finished) {
+                        clientComController.handleResponse(response);
+                        if (response.contains(END_OF_INSTRUCTION_SEQUENCE)) {
+                            sequencesInFlight.release();
+                        }
+                    }
+                }
+            } catch (SocketException ignored) {
+                // connection closed by teardown
+            } catch (IOException e) {
+                if (!finished) {
+                    e.printStackTrace();
+                }
+            } finally {
+                closed = true;
+                sequencesInFlight.release(pipelineDepth);
+            }
+        }
+    }
 }
@@ -2,6 +2,7 @@ package ki.robotics.server;
 
 
 import ki.robotics.server.communication.ServerCommunicator;
+import ki.robotics.server.robots.simulation.RobotImplSimulation;
 
 /**
  * Main class of the Server. Communication-Port is specified and an instance of the BotServer is acquired..
@@ -9,19 +10,71 @@ import ki.robotics.server.communication.ServerCommunicator;
  */
 public class Main {
     private static final int PORT = 9999;
+    private static final int DEFAULT_MAXIMUM_SESSIONS = 64;
 
 
     /**
      * Program-Initialization and start of the server.
-     * @param args  Command line argument; 'true' for simulation-mode.
+     * @param args  Command line arguments; 'true' for simulation-mode, optionally followed by the time-scale of
+     *              the simulation (a factor or 'max' for as fast as possible), 'headless' (no view) and
+     *              'multi[=n]' (up to n simulated robots at once, one per connection) or 'nio[=n]' (any number of
+     *              simulated robots served by a single event-loop and n worker-threads).
      */
     public static void main(String[] args) {
         boolean isSimulation = false;
         if (args.length >=1) {
             isSimulation = Boolean.parseBoolean(args[0].toLowerCase());
         }
+        double timeScale = RobotImplSimulation.TIME_SCALE_REAL_TIME;
+        boolean headless = false;
+        int maximumSessions = 0;
+        int workerThreads = 0;
+        for (int i = 1  ;  i < args.length  ;  i++) {
+            String arg = args[i].toLowerCase();
+            if (arg.equals("headless")) {
+                headless = true;
+            } else if (arg.startsWith("multi")) {
+                maximumSessions = DEFAULT_MAXIMUM_SESSIONS;
+                if (arg.startsWith("multi=")) {
+                    try {
+                        maximumSessions = Integer.parseInt(arg.substring("multi=".length()));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Ignoring invalid number of sessions: " + args[i]);
+                    }
+                }
+            } else if (arg.startsWith("nio")) {
+                workerThreads = Runtime.getRuntime().availableProcessors();
+                if (arg.startsWith("nio=")) {
+                    try {
+                        workerThreads = Integer.parseInt(arg.substring("nio=".length()));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Ignoring invalid number of worker-threads: " + args[i]);
+                    }
+                }
+            } else if (arg.equals("max")) {
+                timeScale = RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE;
+            } else {
+                try {
+                    double parsedTimeScale = Double.parseDouble(arg);
+                    if (parsedTimeScale > 0) {
+                        timeScale = parsedTimeScale;
+                    } else {
+                        System.err.println("Ignoring invalid time-scale: " + args[i]);
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring unknown argument: " + args[i]);
+                }
+            }
+        }
 
-        ServerCommunicator server = ServerFactory.createNewServerCommunicator(PORT, isSimulation);
+        ServerCommunicator server;
+        if (isSimulation  &&  workerThreads > 0) {
+            server = ServerFactory.createNewSelectorServerCommunicator(PORT, timeScale, headless, workerThreads);
+        } else if (isSimulation  &&  maximumSessions > 0) {
+            server = ServerFactory.createNewMultiSessionServerCommunicator(PORT, timeScale, headless, maximumSessions);
+        } else {
+            server = ServerFactory.createNewServerCommunicator(PORT, isSimulation, timeScale, headless);
+        }
         server.powerUp();
     }
 }
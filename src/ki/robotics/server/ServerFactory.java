@@ -3,6 +3,9 @@ package ki.robotics.server;
 import ki.robotics.server.communication.ServerComControllerImpl;
 import ki.robotics.server.communication.ServerCommunicator;
 import ki.robotics.server.communication.ServerCommunicatorImpl;
+import ki.robotics.server.communication.RobotFactory;
+import ki.robotics.server.communication.ServerCommunicatorImplMultiSession;
+import ki.robotics.server.communication.ServerCommunicatorImplSelector;
 import ki.robotics.server.robots.Robot;
 import ki.robotics.server.robots.simulation.RobotImplSimulation;
 import ki.robotics.server.robots.RobotImplSojourner;
@@ -21,11 +24,26 @@ public class ServerFactory extends UtilityFactory {
      * @return  An instance of ServerCommunicatorImpl as interface-type ServerCommunicator
      */
     static ServerCommunicator createNewServerCommunicator(int port, boolean isSimulation) {
-        ServerCommunicator communicator = new ServerCommunicatorImpl(port);
+        return createNewServerCommunicator(port, isSimulation, RobotImplSimulation.TIME_SCALE_REAL_TIME, false);
+    }
+
+
+    /**
+     * Returns an instance of ServerCommunicatorImpl satisfying the requirement of interface ServerCommunicator.
+     * Fully equipped with a robot-reference (a simulated or real robot) and a communication-controller.
+     *
+     * @param port          The server-port to open
+     * @param isSimulation  Boolean value indicating whether to use a real or a simulated robot
+     * @param timeScale     The factor by which the simulation is faster than real-time (simulation only)
+     * @param headless      True, if the simulation should run without view (simulation only)
+     * @return  An instance of ServerCommunicatorImpl as interface-type ServerCommunicator
+     */
+    static ServerCommunicator createNewServerCommunicator(int port, boolean isSimulation, double timeScale, boolean headless) {
+        ServerCommunicatorImpl communicator = new ServerCommunicatorImpl(port);
 
         Robot robot;
         if (isSimulation) {
-            robot = new RobotImplSimulation();
+            robot = new RobotImplSimulation(timeScale, headless);
         } else {
             robot = RobotImplSojourner.getInstance();
         }
@@ -36,4 +54,47 @@ public class ServerFactory extends UtilityFactory {
 
         return communicator;
     }
+
+
+    /**
+     * Returns an instance of ServerCommunicatorImplMultiSession serving many simulated robots over a single port.
+     * Every connection gets a simulated robot of its own (with its own pose and map), placed at the default pose.
+     *
+     * @param port              The server-port to open
+     * @param timeScale         The factor by which the simulations are faster than real-time
+     * @param headless          True, if the simulations should run without view
+     * @param maximumSessions   The maximum number of concurrently served sessions
+     * @return  An instance of ServerCommunicatorImplMultiSession
+     */
+    static ServerCommunicatorImplMultiSession createNewMultiSessionServerCommunicator(int port, final double timeScale,
+                                                                                       final boolean headless, int maximumSessions) {
+        return new ServerCommunicatorImplMultiSession(port, new RobotFactory() {
+            @Override
+            public Robot createRobot() {
+                return new RobotImplSimulation(timeScale, headless);
+            }
+        }, maximumSessions);
+    }
+
+
+    /**
+     * Returns an instance of ServerCommunicatorImplSelector serving many simulated robots over a single port on a
+     * single event-loop thread, performing the instructions on a pool of worker-threads.
+     * Every connection gets a simulated robot of its own (with its own pose and map), placed at the default pose.
+     *
+     * @param port          The server-port to open
+     * @param timeScale     The factor by which the simulations are faster than real-time
+     * @param headless      True, if the simulations should run without view
+     * @param workerThreads The number of threads performing the instructions of all sessions
+     * @return  An instance of ServerCommunicatorImplSelector
+     */
+    static ServerCommunicatorImplSelector createNewSelectorServerCommunicator(int port, final double timeScale,
+                                                                               final boolean headless, int workerThreads) {
+        return new ServerCommunicatorImplSelector(port, new RobotFactory() {
+            @Override
+            public Robot createRobot() {
+                return new RobotImplSimulation(timeScale, headless);
+            }
+        }, workerThreads);
+    }
 }
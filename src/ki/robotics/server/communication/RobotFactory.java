@@ -0,0 +1,16 @@
+package ki.robotics.server.communication;
+
+import ki.robotics.server.robots.Robot;
+
+
+/**
+ * Factory for the robots of servers serving many sessions at once, each with a robot of its own.
+ */
+public interface RobotFactory {
+    /**
+     * Creates the robot for a new session.
+     *
+     * @return  A new robot, not shared with any other session
+     */
+    Robot createRobot();
+}
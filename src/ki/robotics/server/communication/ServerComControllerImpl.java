@@ -2,8 +2,15 @@ package ki.robotics.server.communication;
 
 import ki.robotics.server.ServerFactory;
 import ki.robotics.server.robots.Robot;
+import ki.robotics.server.robots.SweepListener;
+import ki.robotics.utility.crisp.BinaryCRISP;
+import ki.robotics.utility.crisp.BinaryFrameWriter;
 import ki.robotics.utility.crisp.Message;
+import ki.robotics.utility.crisp.MessageImplReusable;
+import ki.robotics.utility.crisp.TextTransmissionParser;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 
@@ -14,10 +21,21 @@ import static ki.robotics.utility.crisp.CRISP.*;
  * Communication-controller for:
  * - forwarding instructions to the robot (or a simulation)
  * - sending back sensor-feedback
+ * Feedback is sent as text, or as frames of the binary variant of C.R.I.S.P. once negotiated (see BinaryCRISP).
  */
 public class ServerComControllerImpl implements ServerComController {
-    private ServerCommunicator communicator;
+    private static final int MAXIMUM_SWEEP_MEASUREMENTS = 721;
+    private static final int MAXIMUM_SENSOR_HEAD_POSITION = 90;
+
+    private SessionCommunicator communicator;
     private PrintWriter out;
+    private OutputStream binaryOut;
+    private final BinaryFrameWriter frameWriter = new BinaryFrameWriter();
+    private final TextTransmissionParser textParser = new TextTransmissionParser();
+    private final MessageImplReusable textRequest = new MessageImplReusable();
+    private boolean binaryVariantNegotiable;
+    private boolean binaryVariantNegotiated;
+    private int sequenceId;
     private Robot robot;
     private RequestHandler requestHandler;
 
@@ -25,10 +43,10 @@ public class ServerComControllerImpl implements ServerComController {
     /**
      * Constructor.
      *
-     * @param communicator  A server-side communicator
+     * @param communicator  A server-side communicator (of the whole server or of a single session)
      * @param robot A robot
      */
-    public ServerComControllerImpl(ServerCommunicator communicator, Robot robot) {
+    public ServerComControllerImpl(SessionCommunicator communicator, Robot robot) {
         this.communicator = communicator;
         this.out = null;
         this.robot = robot;
@@ -45,6 +63,37 @@ public class ServerComControllerImpl implements ServerComController {
     }
 
 
+    /**
+     * Allows the binary variant of C.R.I.S.P. to be negotiated by the client. Only to be enabled by communicators
+     * able to switch to binary frames (see isBinaryVariantNegotiated).
+     */
+    void enableBinaryVariant() {
+        this.binaryVariantNegotiable = true;
+    }
+
+
+    /**
+     * Checks whether the client and this controller agreed upon the binary variant of C.R.I.S.P.. Once agreed
+     * (and the current sequence is completed), the communicator is supposed to read binary frames and to
+     * register the binary output stream.
+     *
+     * @return  True, if the binary variant was negotiated
+     */
+    boolean isBinaryVariantNegotiated() {
+        return binaryVariantNegotiated;
+    }
+
+
+    /**
+     * Registers the output stream for sending responses as binary frames, replacing the text output stream.
+     *
+     * @param binaryOut The output stream for sending binary frames, or null to send text again
+     */
+    void registerBinaryOutputStream(OutputStream binaryOut) {
+        this.binaryOut = binaryOut;
+    }
+
+
     /**
      *  Allows the robot to terminate the connection.
      */
@@ -55,7 +104,7 @@ public class ServerComControllerImpl implements ServerComController {
 
 
     /**
-     * Allows the robot to shutdown the communication-server.
+     * Allows the robot to shutdown the communication-server (or its own session, if the server serves many).
      */
     @Override
     public void shutdown() {
@@ -65,16 +114,122 @@ public class ServerComControllerImpl implements ServerComController {
 
     /**
      * Lazy initialization of request-handler and forwarding of transmission to request-handler.
+     * The requests are decoded one by one into a reusable message (see TextTransmissionParser).
+     * Completes the responses by an end-of-sequence message.
      *
      * @param transmission  The transmission from a client
      */
     @Override
     public void handleRequest(String transmission) {
         if (this.requestHandler == null) {
-            this.requestHandler = new RequestHandler(out, robot);
+            this.requestHandler = new RequestHandler(robot);
+        }
+        sequenceId = 0;
+        textParser.reset(transmission);
+        while (textParser.next(textRequest)) {
+            requestHandler.processRequest(textRequest);
+        }
+        completeSequence();
+    }
+
+
+    /**
+     * Lazy initialization of request-handler and forwarding of the (decoded) requests to request-handler.
+     * Completes the responses by an end-of-sequence message.
+     *
+     * @param requests  The requests from a client
+     */
+    void handleRequest(ArrayList<Message<?>> requests) {
+        if (this.requestHandler == null) {
+            this.requestHandler = new RequestHandler(robot);
+        }
+        sequenceId = 0;
+        requestHandler.processRequests(requests);
+        completeSequence();
+    }
+
+
+    /**
+     * Completes the responses to a sequence by an end-of-sequence message, carrying the id of the sequence
+     * (or 0 if not identified), and sends the current frame (binary).
+     */
+    private void completeSequence() {
+        respond(END_OF_INSTRUCTION_SEQUENCE, sequenceId);
+        sendFrame();
+    }
+
+
+    /**
+     * Sends the responses added to the current frame (binary). Text-responses are sent immediately anyway.
+     */
+    private void sendFrame() {
+        if (binaryOut != null) {
+            try {
+                frameWriter.writeTo(binaryOut);
+            } catch (IOException e) {
+                e.printStackTrace();
+                frameWriter.clear();
+            }
+        }
+    }
+
+
+    /**
+     * Sends a response (text), or adds it to the current frame (binary).
+     *
+     * @param response  The response
+     */
+    private void respond(Message<?> response) {
+        if (binaryOut != null) {
+            frameWriter.add(response);
+        } else {
+            out.println(response);
+        }
+    }
+
+
+    /**
+     * Sends a response without parameters (text), or adds it to the current frame (binary).
+     *
+     * @param mnemonic  The mnemonic of the response
+     */
+    private void respond(String mnemonic) {
+        if (binaryOut != null) {
+            frameWriter.add(mnemonic);
+        } else {
+            out.println(mnemonic);
+        }
+    }
+
+
+    /**
+     * Sends a response with integer-parameters (text), or adds it to the current frame (binary) without boxing.
+     *
+     * @param mnemonic  The mnemonic of the response
+     * @param args      The parameters of the response
+     */
+    private void respond(String mnemonic, int ... args) {
+        if (binaryOut != null) {
+            frameWriter.add(mnemonic, args);
+        } else {
+            out.println(ServerFactory.createMessage(mnemonic, args));
+        }
+    }
+
+
+    /**
+     * Sends a response with floating-point-parameters (text), or adds it to the current frame (binary) without
+     * boxing.
+     *
+     * @param mnemonic  The mnemonic of the response
+     * @param args      The parameters of the response
+     */
+    private void respond(String mnemonic, double ... args) {
+        if (binaryOut != null) {
+            frameWriter.add(mnemonic, args);
+        } else {
+            out.println(ServerFactory.createMessage(mnemonic, args));
         }
-        requestHandler.processTransmission(transmission);
-        out.println(ServerFactory.createMeassage(END_OF_INSTRUCTION_SEQUENCE));
     }
 
 
@@ -82,31 +237,34 @@ public class ServerComControllerImpl implements ServerComController {
 
 
     private class RequestHandler {
-        private final PrintWriter out;
         private final Robot robot;
+        private final SweepListener sweepListener = new SweepListener() {
+            @Override
+            public void distanceMeasured(double sensorHeadPosition, double distance) {
+                respond(SENSOR_SWEEP, sensorHeadPosition, distance);
+                sendFrame();
+            }
+        };
 
 
         /**
          * Constructor
          *
-         * @param out       A PrintWriter for sending feedback
          * @param robot     A Robot to perform the instructions
          */
-        private RequestHandler(PrintWriter out, Robot robot) {
-            this.out = out;
+        private RequestHandler(Robot robot) {
             this.robot = robot;
         }
 
 
         /**
-         * Decodes the transmission (of type String) and routes the received instructions.
+         * Routes the received (decoded) instructions, in order.
          *
-         * @param transmission  The transmission from a client
+         * @param requests  The instructions from a client
          */
-        private void processTransmission(String transmission) {
-            ArrayList<Message> requests = ServerFactory.createMessageListFromTransmission(transmission);
-            while (! requests.isEmpty()) {
-                processRequest(requests.remove(0));
+        private void processRequests(ArrayList<Message<?>> requests) {
+            for (Message<?> request : requests) {
+                processRequest(request);
             }
         }
 
@@ -144,33 +302,33 @@ public class ServerComControllerImpl implements ServerComController {
             switch (instruction.getMnemonic()) {
                 case BOT_RETURN_POSE:
                     //TODO Implementation
-                    out.println(ServerFactory.createMessage(BOT_RETURN_POSE, 0,0,0));
+                    respond(BOT_RETURN_POSE, 0,0,0);
                     break;
                 case BOT_LINE_FOLLOWING_ENABLED:
                     robot.setStayOnWhiteLine(true);
-                    out.println(ServerFactory.createMeassage(BOT_LINE_FOLLOWING_ENABLED));
+                    respond(ServerFactory.createMeassage(BOT_LINE_FOLLOWING_ENABLED));
                     break;
                 case BOT_LINE_FOLLOWING_DISABLED:
                     robot.setStayOnWhiteLine(false);
-                    out.println(ServerFactory.createMeassage(BOT_LINE_FOLLOWING_DISABLED));
+                    respond(ServerFactory.createMeassage(BOT_LINE_FOLLOWING_DISABLED));
                     break;
                 case BOT_TRAVEL_FORWARD:
                     botTravelForwardWithCollisionAvoidance(instruction);
                     break;
                 case BOT_TRAVEL_BACKWARD:
-                    double travelledBackward = robot.botTravelBackward((double)instruction.getParameter());
-                    out.println(ServerFactory.createMessage(instruction.getMnemonic(), travelledBackward));
+                    double travelledBackward = robot.botTravelBackward(instruction.getDoubleParameter(0));
+                    respond(instruction.getMnemonic(), travelledBackward);
                     break;
                 case BOT_TURN_LEFT:
-                    robot.botTurnLeft((double)instruction.getParameter());
-                    out.println(instruction);
+                    robot.botTurnLeft(instruction.getDoubleParameter(0));
+                    respond(instruction);
                     break;
                 case BOT_TURN_RIGHT:
-                    robot.botTurnRight((double)instruction.getParameter());
-                    out.println(instruction);
+                    robot.botTurnRight(instruction.getDoubleParameter(0));
+                    respond(instruction);
                     break;
                 default:
-                    out.println(UNSUPPORTED_INSTRUCTION);
+                    respond(UNSUPPORTED_INSTRUCTION);
                     robot.handleUnsupportedInstruction(instruction);
                     break;
             }
@@ -184,58 +342,109 @@ public class ServerComControllerImpl implements ServerComController {
          * @param instruction   Forward-motion-instruction.
          */
         private void botTravelForwardWithCollisionAvoidance(Message instruction) {
-            double travelledForward = robot.botTravelForward((double)instruction.getParameter());
+            double travelledForward = robot.botTravelForward(instruction.getDoubleParameter(0));
             if (travelledForward < -8) { //bumper
-                out.println(ServerFactory.createMeassage(BOT_U_TURN));
-                out.println(ServerFactory.createMessage(instruction.getMnemonic(), -travelledForward ));
+                respond(ServerFactory.createMeassage(BOT_U_TURN));
+                respond(instruction.getMnemonic(), -travelledForward);
             }else if (travelledForward < 0 ) {
-                out.println(ServerFactory.createMessage(instruction.getMnemonic(), travelledForward));
+                respond(instruction.getMnemonic(), travelledForward);
             } else {
-                out.println(ServerFactory.createMessage(instruction.getMnemonic(), travelledForward));
+                respond(instruction.getMnemonic(), travelledForward);
             }
         }
 
 
         /**
          * Handles instructions regarding the sensors and the sensor-head.
-         * Sensor-readout is directly send over the output-stream.
+         * Sensor-readout is directly send over the output-stream; the measurements of a sweep are streamed one by
+         * one, as soon as they are taken.
          *
          * @param instruction   Instruction to be performed.
          */
         private void processSensorInstruction(Message instruction) {
             switch (instruction.getMnemonic()) {
                 case SENSOR_TURN_LEFT:
-                    robot.sensorHeadTurnLeft((double)instruction.getParameter());
-                    out.println(instruction);
+                    robot.sensorHeadTurnLeft(instruction.getDoubleParameter(0));
+                    respond(instruction);
                     break;
                 case SENSOR_TURN_RIGHT:
-                    robot.sensorHeadTurnRight((double)instruction.getParameter());
-                    out.println(instruction);
+                    robot.sensorHeadTurnRight(instruction.getDoubleParameter(0));
+                    respond(instruction);
                     break;
                 case SENSOR_RESET:
                     robot.sensorHeadReset();
-                    out.println(instruction);
+                    if (isBinaryVariantOffered(instruction)) {
+                        binaryVariantNegotiated = true;
+                        respond(SENSOR_RESET, 0, BinaryCRISP.VARIANT);
+                    } else {
+                        respond(instruction);
+                    }
                     break;
                 case SENSOR_MEASURE_COLOR:
                     int color = robot.measureColor();
-                    out.println(ServerFactory.createMessage(SENSOR_MEASURE_COLOR, color));
+                    respond(SENSOR_MEASURE_COLOR, color);
                     break;
                 case SENSOR_SINGLE_DISTANCE_SCAN:
                     double distance = robot.measureDistance();
-                    out.println(ServerFactory.createMessage(SENSOR_SINGLE_DISTANCE_SCAN, distance));
+                    respond(SENSOR_SINGLE_DISTANCE_SCAN, distance);
                     break;
                 case SENSOR_THREE_WAY_SCAN:
                     double[] tws = robot.ultrasonicThreeWayScan();
-                    out.println(ServerFactory.createMessage(SENSOR_THREE_WAY_SCAN, tws[0], tws[1], tws[2]));
+                    respond(SENSOR_THREE_WAY_SCAN, tws[0], tws[1], tws[2]);
+                    break;
+                case SENSOR_SWEEP:
+                    if (isValidSweep(instruction)) {
+                        robot.ultrasonicSweep(instruction.getDoubleParameter(0), instruction.getDoubleParameter(1),
+                                instruction.getDoubleParameter(2), sweepListener);
+                    } else {
+                        respond(UNSUPPORTED_INSTRUCTION);
+                    }
                     break;
                 default:
-                    out.println(UNSUPPORTED_INSTRUCTION);
+                    respond(UNSUPPORTED_INSTRUCTION);
                     robot.handleUnsupportedInstruction(instruction);
                     break;
             }
         }
 
 
+        /**
+         * Checks whether a sweep-instruction holds start-position and end-position within the reach of the
+         * sensor-head and a positive step-size, not exceeding the maximum number of measurements.
+         *
+         * @param instruction   A sweep-instruction
+         * @return  True, if the sweep can be performed
+         */
+        private boolean isValidSweep(Message<?> instruction) {
+            if (instruction.getNumberOfParameters() != 3) {
+                return false;
+            }
+            double startPosition = instruction.getDoubleParameter(0);
+            double endPosition = instruction.getDoubleParameter(1);
+            if (Math.abs(startPosition) > MAXIMUM_SENSOR_HEAD_POSITION
+                    ||  Math.abs(endPosition) > MAXIMUM_SENSOR_HEAD_POSITION) {
+                return false;
+            }
+            double range = Math.abs(endPosition - startPosition);
+            double stepSize = instruction.getDoubleParameter(2);
+            return stepSize > 0  &&  range / stepSize < MAXIMUM_SWEEP_MEASUREMENTS;
+        }
+
+
+        /**
+         * Checks whether the client offers the binary variant of C.R.I.S.P. (as parameter of a sensor-reset)
+         * and this controller is able to accept it.
+         *
+         * @param instruction   A sensor-reset-instruction
+         * @return  True, if the binary variant is offered and accepted
+         */
+        private boolean isBinaryVariantOffered(Message<?> instruction) {
+            return binaryVariantNegotiable  &&  !binaryVariantNegotiated
+                    &&  instruction.getNumberOfParameters() == 1
+                    &&  instruction.getIntParameter(0) == BinaryCRISP.VARIANT;
+        }
+
+
         /**
          * Handles instructions regarding the camera.
          * Readout is directly send over the output-stream.
@@ -245,32 +454,32 @@ public class ServerComControllerImpl implements ServerComController {
         private void processCameraInstruction(Message instruction) {
             switch (instruction.getMnemonic()) {
                 case CAMERA_GENERAL_QUERY:
-                    out.println(ServerFactory.createMessage(CAMERA_GENERAL_QUERY, robot.cameraGeneralQuery()));
+                    respond(CAMERA_GENERAL_QUERY, robot.cameraGeneralQuery());
                     break;
                 case CAMERA_SINGLE_SIGNATURE_QUERY:
-                    int[] singleSignatureResult = robot.cameraSignatureQuery((int)instruction.getParameter());
-                    out.println(ServerFactory.createMessage(CAMERA_SINGLE_SIGNATURE_QUERY, singleSignatureResult));
+                    int[] singleSignatureResult = robot.cameraSignatureQuery(instruction.getIntParameter(0));
+                    respond(CAMERA_SINGLE_SIGNATURE_QUERY, singleSignatureResult);
                     break;
                 case CAMERA_ALL_SIGNATURES_QUERY:
                     int[][] allSignatures = robot.cameraAllSignaturesQuery();
                     for (int[] signature : allSignatures) {
-                        out.println(ServerFactory.createMessage(CAMERA_SINGLE_SIGNATURE_QUERY, signature));
+                        respond(CAMERA_SINGLE_SIGNATURE_QUERY, signature);
                     }
                     break;
                 case CAMERA_COLOR_CODE_QUERY:
-                    int colorCode = (int)instruction.getParameter();
+                    int colorCode = instruction.getIntParameter(0);
                     int[] colorCodeResponse = robot.cameraColorCodeQuery(colorCode);
                     int[] colorCodeResult = new int[colorCodeResponse.length + 1];
                     colorCodeResult[0] = colorCode;
                     System.arraycopy(colorCodeResponse, 0, colorCodeResult, 1, colorCodeResponse.length);
-                    out.println(ServerFactory.createMessage(CAMERA_COLOR_CODE_QUERY, colorCodeResult));
+                    respond(CAMERA_COLOR_CODE_QUERY, colorCodeResult);
                     break;
                 case CAMERA_ANGLE_QUERY:
                     int angleResult = robot.cameraAngleQuery();
-                    out.println(ServerFactory.createMessage(CAMERA_ANGLE_QUERY, angleResult));
+                    respond(CAMERA_ANGLE_QUERY, angleResult);
                     break;
                 default:
-                    out.println(UNSUPPORTED_INSTRUCTION);
+                    respond(UNSUPPORTED_INSTRUCTION);
                     robot.handleUnsupportedInstruction(instruction);
                     break;
             }
@@ -279,22 +488,30 @@ public class ServerComControllerImpl implements ServerComController {
 
         /**
          * Handles all other instructions.
-         * Feedback is directly send over the output-stream.
+         * Feedback is directly send over the output-stream; a sequence-id is not acknowledged before the end of
+         * the sequence.
          *
          * @param instruction   Instruction to be performed.
          */
         private void processOtherInstruction(Message instruction) {
             switch(instruction.getMnemonic()) {
+                case SEQUENCE_ID:
+                    if (instruction.getNumberOfParameters() == 1) {
+                        sequenceId = instruction.getIntParameter(0);
+                    } else {
+                        respond(UNSUPPORTED_INSTRUCTION);
+                    }
+                    break;
                 case SHUTDOWN:
-                    out.println(DISCONNECT);
+                    respond(DISCONNECT);
                     communicator.disconnect();
                     robot.shutdown();
                 case DISCONNECT:
-                    out.println(DISCONNECT);
+                    respond(DISCONNECT);
                     communicator.disconnect();
                     robot.disconnect();
                 default:
-                    out.println(UNSUPPORTED_INSTRUCTION);
+                    respond(UNSUPPORTED_INSTRUCTION);
                     robot.handleUnsupportedInstruction(instruction);
                     break;
             }
@@ -1,14 +1,6 @@
 package ki.robotics.server.communication;
 
-public interface ServerCommunicator {
-    /**
-     * Registers a communication-controller as an intermediate between communicator and robot.
-     *
-     * @param comController A communication-controller
-     */
-    void registerComController(ServerComControllerImpl comController);
-
-
+public interface ServerCommunicator extends SessionCommunicator {
     /**
      * Starts the server.
      */
@@ -18,11 +10,13 @@ public interface ServerCommunicator {
     /**
      * Termination of current connection.
      */
+    @Override
     void disconnect();
 
 
     /**
      * Shutdown of the server.
      */
+    @Override
     void shutdown();
 }
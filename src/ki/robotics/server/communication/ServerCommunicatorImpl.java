@@ -1,5 +1,9 @@
 package ki.robotics.server.communication;
 
+import ki.robotics.utility.crisp.BinaryFrameReader;
+import ki.robotics.utility.crisp.Message;
+
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -7,6 +11,7 @@ import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 
 
 /**
@@ -41,9 +46,9 @@ public class ServerCommunicatorImpl implements ServerCommunicator {
      *
      * @param comController A communication-controller
      */
-    @Override
     public void registerComController(ServerComControllerImpl comController) {
         this.controller = comController;
+        comController.enableBinaryVariant();
     }
 
 
@@ -92,6 +97,7 @@ public class ServerCommunicatorImpl implements ServerCommunicator {
     /**
      * Handles ongoing communication by reading transmissions from the input-stream and forwarding them to
      * the communication-controller (instance of ServerComController).
+     * Switches to binary frames once the binary variant of C.R.I.S.P. is negotiated.
      *
      * @param in    The BufferedReader for the input-stream
      * @throws IOException
@@ -104,7 +110,29 @@ public class ServerCommunicatorImpl implements ServerCommunicator {
                 continue;
             }
             controller.handleRequest(request);
-        } while (stayConnected);
+        } while (stayConnected  &&  !controller.isBinaryVariantNegotiated());
+        if (stayConnected) {
+            handleOngoingBinaryCommunication();
+        }
+    }
+
+
+    /**
+     * Handles ongoing communication in the binary variant of C.R.I.S.P., by reading frames from the input-stream
+     * and forwarding the decoded requests to the communication-controller.
+     * (The client does not send frames before receiving the end of the negotiating sequence, so no text is
+     * buffered in the reader.)
+     *
+     * @throws IOException
+     */
+    private void handleOngoingBinaryCommunication() throws IOException {
+        controller.registerBinaryOutputStream(client.getOutputStream());
+        BinaryFrameReader frames = new BinaryFrameReader(new BufferedInputStream(client.getInputStream()));
+        ArrayList<Message<?>> requests;
+        while (stayConnected  &&  (requests = frames.readFrame()) != null) {
+            controller.handleRequest(requests);
+        }
+        controller.registerBinaryOutputStream(null);
     }
 
 
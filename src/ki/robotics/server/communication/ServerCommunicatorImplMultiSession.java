@@ -0,0 +1,258 @@
+package ki.robotics.server.communication;
+
+import ki.robotics.server.robots.Robot;
+import ki.robotics.utility.crisp.BinaryFrameReader;
+import ki.robotics.utility.crisp.Message;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Communication-Instance for the Server-Side, serving many clients at once over a single port (e.g. a fleet of
+ * simulated robots). Each connection is a session of its own, with its own robot and communication-controller,
+ * so no state is shared between the sessions. Sessions are served by a fixed pool of threads; connections
+ * exceeding the pool wait until a session ends.
+ */
+public class ServerCommunicatorImplMultiSession implements ServerCommunicator {
+    private static final int TIMEOUT = 0;
+
+    private final int port;
+    private final RobotFactory robotFactory;
+    private final ExecutorService sessionPool;
+    private final Set<Session> sessions = Collections.synchronizedSet(new HashSet<Session>());
+    private volatile ServerSocket server;
+    private volatile boolean stayOnline;
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param port              The port to open for incoming connection-requests
+     * @param robotFactory      The factory creating the robot of each session
+     * @param maximumSessions   The maximum number of concurrently served sessions
+     */
+    public ServerCommunicatorImplMultiSession(int port, RobotFactory robotFactory, int maximumSessions) {
+        this.port = port;
+        this.robotFactory = robotFactory;
+        final AtomicInteger sessionCounter = new AtomicInteger();
+        this.sessionPool = Executors.newFixedThreadPool(maximumSessions, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "server-session-" + sessionCounter.incrementAndGet());
+            }
+        });
+    }
+
+
+
+    /**
+     * Starts the server and accepts incoming connections until shutdown. Every connection is handed over to
+     * a new session with a robot of its own.
+     */
+    @Override
+    public void powerUp() {
+        stayOnline = true;
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            this.server = serverSocket;
+            while (stayOnline) {
+                Socket client;
+                try {
+                    client = serverSocket.accept();
+                } catch (SocketException e) {
+                    break;      // server-socket closed by shutdown
+                }
+                client.setKeepAlive(true);
+                client.setSoTimeout(TIMEOUT);
+                client.setTcpNoDelay(true);
+                sessionPool.execute(new Session(client));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            stayOnline = false;
+            sessionPool.shutdown();
+        }
+    }
+
+
+
+    /**
+     * Returns the local port the server accepts connections on (useful if started on port 0).
+     *
+     * @return  The local port of the server or -1, if the server is not (yet) accepting connections
+     */
+    public int getLocalPort() {
+        ServerSocket serverSocket = server;
+        return (serverSocket != null  &&  stayOnline) ? serverSocket.getLocalPort() : -1;
+    }
+
+
+
+    /**
+     * Returns the number of currently connected sessions.
+     *
+     * @return  The number of currently connected sessions
+     */
+    public int getNumberOfSessions() {
+        return sessions.size();
+    }
+
+
+
+    /**
+     * Terminates all current sessions, the server keeps accepting new connections.
+     */
+    @Override
+    public void disconnect() {
+        synchronized (sessions) {
+            for (Session session : sessions) {
+                session.close();
+            }
+        }
+    }
+
+
+
+    /**
+     * Shutdown of the server, including all current sessions.
+     */
+    @Override
+    public void shutdown() {
+        stayOnline = false;
+        ServerSocket serverSocket = server;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        disconnect();
+    }
+
+
+
+    /**
+     * Waits for all sessions to terminate after shutdown.
+     *
+     * @param millis    The maximum time to wait (in milliseconds)
+     * @return  True, if all sessions terminated
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean awaitTermination(long millis) throws InterruptedException {
+        return sessionPool.awaitTermination(millis, TimeUnit.MILLISECONDS);
+    }
+
+
+
+
+
+    /**
+     * A single connection with its own robot and communication-controller. The session acts as the
+     * communicator of its communication-controller, so a disconnect or shutdown of the robot only ends its own
+     * session.
+     */
+    private class Session implements SessionCommunicator, Runnable {
+        private final Socket client;
+        private ServerComControllerImpl controller;
+        private volatile boolean stayConnected;
+
+
+        /**
+         * Constructor.
+         *
+         * @param client    The socket of the connected client
+         */
+        private Session(Socket client) {
+            this.client = client;
+        }
+
+
+        /**
+         * Creates the robot of the session and handles the client-requests until the connection ends.
+         * Switches to binary frames once the binary variant of C.R.I.S.P. is negotiated.
+         */
+        @Override
+        public void run() {
+            stayConnected = true;
+            sessions.add(this);
+            try (PrintWriter out = new PrintWriter(client.getOutputStream(), true);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream()))) {
+                Robot robot = robotFactory.createRobot();
+                controller = new ServerComControllerImpl(this, robot);
+                robot.registerComController(controller);
+                controller.registerOutputStream(out);
+                controller.enableBinaryVariant();
+
+                String request;
+                while (stayConnected  &&  !controller.isBinaryVariantNegotiated()  &&  (request = in.readLine()) != null) {
+                    controller.handleRequest(request);
+                }
+                if (stayConnected  &&  controller.isBinaryVariantNegotiated()) {
+                    controller.registerBinaryOutputStream(client.getOutputStream());
+                    BinaryFrameReader frames = new BinaryFrameReader(new BufferedInputStream(client.getInputStream()));
+                    ArrayList<Message<?>> requests;
+                    while (stayConnected  &&  (requests = frames.readFrame()) != null) {
+                        controller.handleRequest(requests);
+                    }
+                }
+                controller.registerOutputStream(null);
+            } catch (SocketException ignored) {
+                // connection closed by client or by disconnect
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                sessions.remove(this);
+                close();
+            }
+        }
+
+
+        /**
+         * Ends the session after the current request.
+         */
+        @Override
+        public void disconnect() {
+            stayConnected = false;
+        }
+
+
+        /**
+         * Ends the session after the current request, the server keeps serving the other sessions.
+         */
+        @Override
+        public void shutdown() {
+            disconnect();
+        }
+
+
+        /**
+         * Ends the session immediately by closing its connection.
+         */
+        private void close() {
+            stayConnected = false;
+            try {
+                client.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
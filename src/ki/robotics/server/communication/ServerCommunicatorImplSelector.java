@@ -0,0 +1,474 @@
+package ki.robotics.server.communication;
+
+import ki.robotics.server.robots.Robot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Communication-Instance for the Server-Side, serving many clients at once on a single event-loop thread
+ * (non-blocking channels multiplexed by a selector). Incoming bytes are framed into CRISP-lines per session;
+ * the instructions are performed by a pool of worker-threads, so slow robot-actions (e.g. motor-commands) of one
+ * session do not block the other sessions. The instructions of a single session are performed one after the
+ * other, in the order of arrival, and the responses are written back by the event-loop.
+ */
+public class ServerCommunicatorImplSelector implements ServerCommunicator {
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    static final int MAXIMUM_LINE_LENGTH = 64 * 1024;
+
+    private final int port;
+    private final RobotFactory robotFactory;
+    private final ExecutorService workers;
+    private final ConcurrentLinkedQueue<Session> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private volatile Selector selector;
+    private volatile ServerSocketChannel serverChannel;
+    private volatile boolean stayOnline;
+    private volatile boolean disconnectSessions;
+    private final AtomicInteger numberOfSessions = new AtomicInteger();
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param port          The port to open for incoming connection-requests
+     * @param robotFactory  The factory creating the robot of each session
+     * @param workerThreads The number of threads performing the instructions of all sessions
+     */
+    public ServerCommunicatorImplSelector(int port, RobotFactory robotFactory, int workerThreads) {
+        this.port = port;
+        this.robotFactory = robotFactory;
+        final AtomicInteger workerCounter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "server-worker-" + workerCounter.incrementAndGet());
+            }
+        });
+    }
+
+
+
+    /**
+     * Starts the server and runs the event-loop (accepting connections, reading requests and writing
+     * responses) until shutdown.
+     */
+    @Override
+    public void powerUp() {
+        stayOnline = true;
+        try (Selector sel = Selector.open();
+             ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(sel, SelectionKey.OP_ACCEPT);
+            this.serverChannel = server;
+            this.selector = sel;
+
+            while (stayOnline) {
+                sel.select();
+                if (disconnectSessions) {
+                    disconnectSessions = false;
+                    closeSessions(sel);
+                }
+                registerPendingWrites();
+                Iterator<SelectionKey> it = sel.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(server, sel);
+                        continue;
+                    }
+                    Session session = (Session) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            session.read();
+                        }
+                        if (key.isValid()  &&  key.isWritable()) {
+                            session.write();
+                        }
+                    } catch (IOException e) {
+                        session.close();
+                    }
+                }
+            }
+            closeSessions(sel);
+        } catch (ClosedSelectorException ignored) {
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            stayOnline = false;
+            workers.shutdown();
+        }
+    }
+
+
+
+    /**
+     * Returns the local port the server accepts connections on (useful if started on port 0).
+     *
+     * @return  The local port of the server or -1, if the server is not (yet) accepting connections
+     */
+    public int getLocalPort() {
+        ServerSocketChannel server = serverChannel;
+        if (server == null  ||  !stayOnline) {
+            return -1;
+        }
+        return server.socket().getLocalPort();
+    }
+
+
+
+    /**
+     * Returns the number of currently connected sessions.
+     *
+     * @return  The number of currently connected sessions
+     */
+    public int getNumberOfSessions() {
+        return numberOfSessions.get();
+    }
+
+
+
+    /**
+     * Terminates all current sessions (after the current event-loop iteration), the server keeps accepting
+     * new connections.
+     */
+    @Override
+    public void disconnect() {
+        disconnectSessions = true;
+        Selector sel = selector;
+        if (sel != null) {
+            sel.wakeup();
+        }
+    }
+
+
+
+    /**
+     * Shutdown of the server, including all current sessions (after the current event-loop iteration).
+     */
+    @Override
+    public void shutdown() {
+        stayOnline = false;
+        Selector sel = selector;
+        if (sel != null) {
+            sel.wakeup();
+        }
+    }
+
+
+
+    /**
+     * Waits for the event-loop and all workers to terminate after shutdown.
+     *
+     * @param millis    The maximum time to wait (in milliseconds)
+     * @return  True, if the server terminated
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean awaitTermination(long millis) throws InterruptedException {
+        return workers.awaitTermination(millis, TimeUnit.MILLISECONDS);
+    }
+
+
+
+    /**
+     * Accepts a pending connection and registers it as a new session for reading.
+     *
+     * @param server    The server-channel
+     * @param sel       The selector of the event-loop
+     * @throws IOException  If the connection could not be accepted
+     */
+    private void accept(ServerSocketChannel server, Selector sel) throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+        Session session = new Session(channel);
+        session.key = channel.register(sel, SelectionKey.OP_READ, session);
+        numberOfSessions.incrementAndGet();
+    }
+
+
+
+    /**
+     * Closes the connections of all sessions registered with the given selector (on the event-loop thread).
+     *
+     * @param sel   The selector of the event-loop
+     */
+    private void closeSessions(Selector sel) {
+        for (SelectionKey key : sel.keys()) {
+            if (key.attachment() instanceof Session) {
+                ((Session) key.attachment()).close();
+            }
+        }
+    }
+
+
+
+    /**
+     * Adds the write-interest for all sessions with responses waiting to be written (on the event-loop thread).
+     */
+    private void registerPendingWrites() {
+        Session session;
+        while ((session = pendingWrites.poll()) != null) {
+            if (session.key.isValid()) {
+                session.key.interestOps(session.key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+
+
+
+
+    /**
+     * A single connection with its own robot and communication-controller. Bytes are read and written by the
+     * event-loop, the instructions are performed by the workers, one instruction-line at a time. The session acts
+     * as the communicator of its communication-controller, so a disconnect or shutdown of the robot only ends its
+     * own session.
+     */
+    private class Session implements SessionCommunicator, Runnable {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private final StringBuilder partialLine = new StringBuilder();
+        private final ArrayDeque<String> requests = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> responses = new ArrayDeque<>();
+        private final ByteArrayOutputStream responseBytes = new ByteArrayOutputStream();
+        private final PrintWriter out = new PrintWriter(responseBytes, true);
+        private ServerComControllerImpl controller;
+        private boolean busy;
+        private volatile boolean stayConnected = true;
+        private boolean closed;
+
+
+        /**
+         * Constructor.
+         *
+         * @param channel   The channel of the connected client
+         */
+        private Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+
+        /**
+         * Ends the session once the responses of the current instruction are written.
+         */
+        @Override
+        public void disconnect() {
+            stayConnected = false;
+        }
+
+
+        /**
+         * Ends the session once the responses of the current instruction are written, the server keeps serving
+         * the other sessions.
+         */
+        @Override
+        public void shutdown() {
+            disconnect();
+        }
+
+
+        /**
+         * Reads the available bytes (on the event-loop thread) and frames them into instruction-lines.
+         * Complete lines are queued for the workers. A line exceeding the maximum line-length closes the session,
+         * so a client never terminating its line cannot exhaust the memory of the server.
+         *
+         * @throws IOException  If the channel could not be read
+         */
+        private void read() throws IOException {
+            readBuffer.clear();
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            boolean received = false;
+            while (readBuffer.hasRemaining()) {
+                char c = (char) (readBuffer.get() & 0xFF);
+                if (c == '\n') {
+                    int length = partialLine.length();
+                    if (length > 0  &&  partialLine.charAt(length - 1) == '\r') {
+                        partialLine.setLength(length - 1);
+                    }
+                    synchronized (this) {
+                        requests.add(partialLine.toString());
+                    }
+                    partialLine.setLength(0);
+                    received = true;
+                } else if (partialLine.length() < MAXIMUM_LINE_LENGTH) {
+                    partialLine.append(c);
+                } else {
+                    close();
+                    return;
+                }
+            }
+            if (received) {
+                schedule();
+            }
+        }
+
+
+        /**
+         * Hands the session over to a worker, unless a worker is already performing its instructions.
+         */
+        private synchronized void schedule() {
+            if (!busy  &&  !requests.isEmpty()  &&  !closed) {
+                busy = true;
+                workers.execute(this);
+            }
+        }
+
+
+        /**
+         * Performs the queued instructions of the session (on a worker-thread) and queues their responses
+         * for the event-loop. If an instruction fails with an error (e.g. the robot could not be created), the
+         * session is released and closed, so the client is not left waiting for a response.
+         */
+        @Override
+        public void run() {
+            boolean completed = false;
+            try {
+                String request;
+                while ((request = nextRequest()) != null) {
+                    try {
+                        if (controller == null) {
+                            Robot robot = robotFactory.createRobot();
+                            controller = new ServerComControllerImpl(this, robot);
+                            robot.registerComController(controller);
+                            controller.registerOutputStream(out);
+                        }
+                        controller.handleRequest(request);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                        stayConnected = false;
+                    }
+                    out.flush();
+                    synchronized (this) {
+                        responses.add(ByteBuffer.wrap(responseBytes.toByteArray()));
+                        responseBytes.reset();
+                    }
+                    requestWrite();
+                }
+                completed = true;
+            } finally {
+                if (!completed) {
+                    stayConnected = false;
+                    release();
+                }
+                if (!stayConnected) {
+                    requestWrite();     // lets the event-loop close the session after the last response
+                }
+            }
+        }
+
+
+        /**
+         * Asks the event-loop to write the queued responses of the session.
+         */
+        private void requestWrite() {
+            pendingWrites.add(this);
+            Selector sel = selector;
+            if (sel != null) {
+                sel.wakeup();
+            }
+        }
+
+
+        /**
+         * Returns the next queued instruction-line, or releases the session if there is none (or it is closed).
+         *
+         * @return  The next instruction-line or null
+         */
+        private synchronized String nextRequest() {
+            if (requests.isEmpty()  ||  closed  ||  !stayConnected) {
+                busy = false;
+                return null;
+            }
+            return requests.poll();
+        }
+
+
+
+        /**
+         * Releases the session from its worker.
+         */
+        private synchronized void release() {
+            busy = false;
+        }
+
+
+        /**
+         * Writes the queued responses as far as the channel accepts them (on the event-loop thread). Removes the
+         * write-interest once all responses are written, and closes the session if it was disconnected.
+         *
+         * @throws IOException  If the channel could not be written
+         */
+        private void write() throws IOException {
+            synchronized (this) {
+                ByteBuffer response;
+                while ((response = responses.peek()) != null) {
+                    channel.write(response);
+                    if (response.hasRemaining()) {
+                        return;
+                    }
+                    responses.poll();
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                if (!stayConnected  &&  !busy) {
+                    close();
+                }
+            }
+        }
+
+
+        /**
+         * Closes the connection of the session, pending instructions are dropped.
+         */
+        private synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            requests.clear();
+            numberOfSessions.decrementAndGet();
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ki.robotics.server.communication;
+
+/**
+ * The communicator of a single connection, as seen by its communication-controller.
+ */
+public interface SessionCommunicator {
+    /**
+     * Termination of current connection.
+     */
+    void disconnect();
+
+
+    /**
+     * Shutdown of the communication with the robot: the whole server, if it serves a single connection only,
+     * otherwise the session of the robot.
+     */
+    void shutdown();
+}
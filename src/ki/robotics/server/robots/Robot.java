@@ -105,6 +105,21 @@ public interface Robot {
     double[] ultrasonicThreeWayScan();
 
 
+    /**
+     * Performs distance-measurements while sweeping the sensor-head in a single motion from the start- to the
+     * end-position, one measurement every stepSize degrees (positions as for sensorHeadTurnLeft, i.e. positive to
+     * the left). Each measurement is passed to the listener as soon as it is taken, together with the position it
+     * was commanded for. The sensor-head returns to its previous position afterwards.
+     *
+     * @param startPosition The position of the first measurement (in degrees)
+     * @param endPosition   The position beyond which no measurement is taken (in degrees)
+     * @param stepSize      The (positive) angle between two measurements (in degrees)
+     * @param listener      The receiver of the measurements
+     * @return  The number of measurements taken
+     */
+    int ultrasonicSweep(double startPosition, double endPosition, double stepSize, SweepListener listener);
+
+
     /**
      * Returns the pose of the robot (or what the robot thinks his pose is)
      *
@@ -51,6 +51,9 @@ public class RobotImplSojourner implements Robot {
     private final int stepSize = 10;
     private final int distanceOnWhiteLine = 2 * deltaUSSensorAxis + stepSize;
 
+    //Delay in ms between two checks of the sensor-head position during a sweep
+    private static final int SWEEP_POLLING_INTERVAL = 2;
+
     private ServerComController comController;
 
 
@@ -222,6 +225,44 @@ public class RobotImplSojourner implements Robot {
         return sonicValues;
     }
 
+    /**
+     * Rotates the sensor-head without stopping from start- to end-position and measures whenever the head passes
+     * the position of the next measurement (or stops short of it). Measurements are reported at their commanded
+     * positions, the measurement straight ahead corrected for the offset of the sensor like in the three-way-scan.
+     */
+    @Override
+    public int ultrasonicSweep(double startPosition, double endPosition, double stepSize, SweepListener listener) {
+        int direction = (endPosition >= startPosition) ? 1 : -1;
+        int numberOfMeasurements = (int) Math.floor(Math.abs(endPosition - startPosition) / stepSize + 1e-9) + 1;
+        sensorHead.rotateTo((int) Math.round(startPosition));
+        sensorHead.rotateTo((int) Math.round(endPosition), true);
+        int taken = 0;
+        while (taken < numberOfMeasurements) {
+            double nextPosition = startPosition + direction * taken * stepSize;
+            int position = sensorHead.getTachoCount();
+            boolean passed = direction * (position - nextPosition) >= -0.5;
+            if (passed  ||  !sensorHead.isMoving()) {
+                double distance = measureDistance();
+                if (nextPosition == 0) {
+                    distance += deltaUSSensorAxis;      //correcting particles for delta
+                }
+                listener.distanceMeasured(nextPosition, distance);
+                taken++;
+                if (!passed) {
+                    break;      //stalled before reaching the position
+                }
+            } else {
+                try {
+                    Thread.sleep(SWEEP_POLLING_INTERVAL);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        sensorHead.rotateTo(sensorCurrentPosition);
+        return taken;
+    }
+
     @Override
     public Pose getPose() {
         pose = poseProvider.getPose();
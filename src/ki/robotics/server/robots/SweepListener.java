@@ -0,0 +1,17 @@
+package ki.robotics.server.robots;
+
+
+/**
+ * Receiver of the distance-measurements of a sweep of the sensor-head (see Robot.ultrasonicSweep), notified as
+ * soon as each measurement is taken.
+ */
+public interface SweepListener {
+    /**
+     * Receives a single measurement of a sweep.
+     *
+     * @param sensorHeadPosition    The position of the sensor-head (in degrees, positive to the left) at the time
+     *                              of the measurement
+     * @param distance  The measured distance
+     */
+    void distanceMeasured(double sensorHeadPosition, double distance);
+}
@@ -1,26 +1,67 @@
 package ki.robotics.server.robots.simulation;
 
 import ki.robotics.server.robots.Robot;
+import ki.robotics.server.robots.SweepListener;
 import ki.robotics.server.communication.ServerComController;
 import ki.robotics.utility.crisp.Message;
 import lejos.robotics.navigation.Pose;
 
+import java.awt.*;
 import java.awt.geom.Point2D;
 
 /**
  * Implementation of the Robot-Interface for simulating a robot.
+ * The motion of the robot is animated in real-time, or accelerated by a time-scale. With an infinite time-scale
+ * the robot moves as fast as possible, without any delay. Without view (headless) the robot has to be placed
+ * programmatically.
  */
 public class RobotImplSimulation implements Robot {
     private static final int ANIMATION_INTER_FRAME_TIME = 50;
+    public static final double TIME_SCALE_REAL_TIME = 1;
+    public static final double TIME_SCALE_AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
 
     private final SimulationController simulationController;
+    private final double timeScale;
     private ServerComController comController;
 
     /**
-     * Constructor.
+     * Constructor. The robot is animated in real-time and shown in a view (unless the environment is headless).
      */
     public RobotImplSimulation() {
-        this.simulationController = new SimulationController();
+        this(TIME_SCALE_REAL_TIME, GraphicsEnvironment.isHeadless());
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param timeScale The factor by which the simulation is faster than real-time
+     *                  (TIME_SCALE_AS_FAST_AS_POSSIBLE for no delays at all)
+     * @param headless  True, if the simulation should run without view
+     */
+    public RobotImplSimulation(double timeScale, boolean headless) {
+        if (!(timeScale > 0)) {
+            throw new IllegalArgumentException("Time-scale must be positive: " + timeScale);
+        }
+        this.timeScale = timeScale;
+        this.simulationController = new SimulationController(headless  ||  GraphicsEnvironment.isHeadless());
+    }
+
+
+    /**
+     * Places the simulated robot on the given map at the given pose.
+     *
+     * @param mapKey    The key of the map to place the robot on
+     * @param x         The x-coordinate of the robot
+     * @param y         The y-coordinate of the robot
+     * @param heading   The heading of the robot
+     */
+    public void placeRobot(String mapKey, float x, float y, float heading) {
+        SimulationModel model = simulationController.getModel();
+        model.setMap(model.getMapProvider().getMap(mapKey));
+        model.getPose().setLocation(x, y);
+        model.getPose().setHeading(heading);
+        simulationController.repaintWindow();
     }
 
 
@@ -90,9 +131,8 @@ public class RobotImplSimulation implements Robot {
     @Override
     public double measureDistance() {
         Pose pose = simulationController.getModel().getPose();
-        Point2D currentLocation = new Point2D.Double(pose.getX(), pose.getY());
         double viewingDirection = 360 - pose.getHeading() - simulationController.getModel().getSensorHeadPosition();
-        return simulationController.getModel().getMap().getDistanceToNearestObstacle(currentLocation, viewingDirection);
+        return simulationController.getModel().getMap().castRay(pose.getX(), pose.getY(), viewingDirection);
     }
 
     @Override
@@ -108,6 +148,20 @@ public class RobotImplSimulation implements Robot {
         return new double[]{a, b, c};
     }
 
+    @Override
+    public int ultrasonicSweep(double startPosition, double endPosition, double stepSize, SweepListener listener) {
+        int temp = simulationController.getModel().getSensorHeadPosition();
+        double step = (endPosition >= startPosition) ? stepSize : -stepSize;
+        int numberOfMeasurements = (int) Math.floor(Math.abs(endPosition - startPosition) / stepSize + 1e-9) + 1;
+        for (int i = 0  ;  i < numberOfMeasurements  ;  i++) {
+            int position = (int) Math.round(startPosition + i * step);
+            turnSensorHead(position);
+            listener.distanceMeasured(position, measureDistance());
+        }
+        turnSensorHead(temp);
+        return numberOfMeasurements;
+    }
+
     @Override
     public Pose getPose() {
         return simulationController.getModel().getPose();
@@ -127,13 +181,8 @@ public class RobotImplSimulation implements Robot {
 
     @Override
     public int[][] cameraAllSignaturesQuery() {
-        int numberOfAvailableSignatures = 7;
-        int[][] result = new int[numberOfAvailableSignatures][];
-        for (int i = 0   ;   i < numberOfAvailableSignatures   ;   i++) {
-            double queryParameter[] = getCoordinatesAndAngleForCameraQuery();
-            result[i] = simulationController.getModel().getMap().getCameraSignatureQuery(queryParameter[0], queryParameter[1], queryParameter[2], i);
-        }
-        return result;
+        double queryParameter[] = getCoordinatesAndAngleForCameraQuery();
+        return simulationController.getModel().getMap().getCameraAllSignaturesQuery(queryParameter[0], queryParameter[1], queryParameter[2]);
     }
 
     @Override
@@ -292,13 +341,18 @@ public class RobotImplSimulation implements Robot {
 
     /**
      * Stops the current (gui-)thread to make the movement of the simulated robot observable.
+     * The delay is shortened by the time-scale, and skipped if running as fast as possible.
      *
-     * @param ms    Delay between two updates of the display.
+     * @param ms    Delay between two updates of the display (in real-time).
      */
     private void pause(int ms) {
         simulationController.repaintWindow();
+        if (Double.isInfinite(timeScale)) {
+            return;
+        }
+        long nanos = (long) (ms * 1000000L / timeScale);
         try {
-            Thread.sleep(ms);
+            Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
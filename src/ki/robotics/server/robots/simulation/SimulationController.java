@@ -16,10 +16,12 @@ class SimulationController {
 
     /**
      * Constructor.
+     *
+     * @param headless  True, if the simulation should run without view
      */
-    SimulationController() {
+    SimulationController(boolean headless) {
         this.model = new SimulationModel();
-        this.view = new SimulationView(this, model);
+        this.view = headless ? null : new SimulationView(this, model);
     }
 
 
@@ -37,7 +39,9 @@ class SimulationController {
      * Repaints the associated view.
      */
     void repaintWindow() {
-        view.repaint();
+        if (view != null) {
+            view.repaint();
+        }
     }
 
 
@@ -0,0 +1,55 @@
+package ki.robotics.utility.crisp;
+
+/**
+ * Binary variant of C.R.I.S.P., negotiated in the first SENSOR_RESET exchange of a connection:
+ * the client offers the variant as parameter ("SRST 1"), a server supporting it answers with the sensor-head
+ * position and the accepted variant ("SRST 0 1"). Servers without support echo the instruction, so both sides
+ * keep the text protocol. Otherwise both sides switch to the binary variant after the end of that sequence.
+ *
+ * A transmission is a frame: the length of the payload (int32), followed by the messages of the payload.
+ * A message is its opcode (uint8, the index of its mnemonic in MNEMONICS), the type of its parameters (uint8),
+ * the number of parameters (uint8) and the parameters themselves (int32 or float64). All values are big-endian.
+ */
+public interface BinaryCRISP {
+    int VARIANT = 1;
+
+    int FRAME_HEADER_LENGTH = 4;
+    int MESSAGE_HEADER_LENGTH = 3;
+    int MAXIMUM_FRAME_LENGTH = 1 << 20;
+    int MAXIMUM_NUMBER_OF_PARAMETERS = 255;
+
+    //Parameter-types.
+    byte TYPE_NONE =    0;
+    byte TYPE_INT =     1;
+    byte TYPE_DOUBLE =  2;
+
+    //Opcodes (index) of the mnemonics. Opcode 0 is reserved, new mnemonics have to be appended.
+    String[] MNEMONICS = {
+            null,
+            CRISP.BOT_TRAVEL_FORWARD,
+            CRISP.BOT_TRAVEL_BACKWARD,
+            CRISP.BOT_TURN_LEFT,
+            CRISP.BOT_TURN_RIGHT,
+            CRISP.BOT_RETURN_POSE,
+            CRISP.BOT_LINE_FOLLOWING_ENABLED,
+            CRISP.BOT_LINE_FOLLOWING_DISABLED,
+            CRISP.SENSOR_TURN_LEFT,
+            CRISP.SENSOR_TURN_RIGHT,
+            CRISP.SENSOR_RESET,
+            CRISP.SENSOR_MEASURE_COLOR,
+            CRISP.SENSOR_SINGLE_DISTANCE_SCAN,
+            CRISP.SENSOR_THREE_WAY_SCAN,
+            CRISP.CAMERA_GENERAL_QUERY,
+            CRISP.CAMERA_SINGLE_SIGNATURE_QUERY,
+            CRISP.CAMERA_ALL_SIGNATURES_QUERY,
+            CRISP.CAMERA_COLOR_CODE_QUERY,
+            CRISP.CAMERA_ANGLE_QUERY,
+            CRISP.SHUTDOWN,
+            CRISP.DISCONNECT,
+            CRISP.BOT_U_TURN,
+            CRISP.UNSUPPORTED_INSTRUCTION,
+            CRISP.END_OF_INSTRUCTION_SEQUENCE,
+            CRISP.SEQUENCE_ID,
+            CRISP.SENSOR_SWEEP
+    };
+}
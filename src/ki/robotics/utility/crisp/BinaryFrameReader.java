@@ -0,0 +1,74 @@
+package ki.robotics.utility.crisp;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+
+/**
+ * Reads frames of the binary variant of C.R.I.S.P. (see BinaryCRISP) from a stream and decodes their messages.
+ * Each frame is read into a reusable buffer and decoded in place, without intermediate strings.
+ */
+public class BinaryFrameReader {
+    private final DataInputStream in;
+    private byte[] frame = new byte[256];
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param in    The stream to read frames from
+     */
+    public BinaryFrameReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+
+
+    /**
+     * Reads the next frame and decodes its messages.
+     *
+     * @return  The messages of the frame, or null if the stream ended
+     * @throws IOException  If the frame could not be read or is malformed
+     */
+    public ArrayList<Message<?>> readFrame() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 0  ||  length > BinaryCRISP.MAXIMUM_FRAME_LENGTH) {
+            throw new IOException("Invalid frame-length: " + length);
+        }
+        if (frame.length < length) {
+            frame = new byte[Math.max(length, 2 * frame.length)];
+        }
+        in.readFully(frame, 0, length);
+        try {
+            return decodeFrame(ByteBuffer.wrap(frame, 0, length));
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed frame", e);
+        }
+    }
+
+
+
+    /**
+     * Decodes all messages of the payload of a frame.
+     *
+     * @param payload   The payload of a frame (position at its start, limit at its end)
+     * @return  The messages of the frame
+     */
+    public static ArrayList<Message<?>> decodeFrame(ByteBuffer payload) {
+        ArrayList<Message<?>> messages = new ArrayList<>();
+        while (payload.hasRemaining()) {
+            messages.add(new MessageImplBinary(payload));
+        }
+        return messages;
+    }
+}
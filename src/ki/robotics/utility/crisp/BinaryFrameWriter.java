@@ -0,0 +1,185 @@
+package ki.robotics.utility.crisp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+
+/**
+ * Encodes messages into a frame of the binary variant of C.R.I.S.P. (see BinaryCRISP). Parameters are written
+ * as primitives, without boxing. The writer is reusable: after writing a frame it is empty again.
+ */
+public class BinaryFrameWriter {
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final HashMap<String, Integer> OPCODES = new HashMap<>();
+    static {
+        for (int opcode = 1  ;  opcode < BinaryCRISP.MNEMONICS.length  ;  opcode++) {
+            OPCODES.put(BinaryCRISP.MNEMONICS[opcode], opcode);
+        }
+    }
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private int numberOfMessages;
+
+
+
+    /**
+     * Constructor.
+     */
+    public BinaryFrameWriter() {
+        clear();
+    }
+
+
+
+    /**
+     * Discards all messages added since the last frame was written.
+     */
+    public void clear() {
+        buffer.clear();
+        buffer.position(BinaryCRISP.FRAME_HEADER_LENGTH);
+        numberOfMessages = 0;
+    }
+
+
+
+    /**
+     * Returns the number of messages added since the last frame was written.
+     *
+     * @return  The number of messages of the current frame
+     */
+    public int size() {
+        return numberOfMessages;
+    }
+
+
+
+    /**
+     * Adds a message without parameters.
+     *
+     * @param mnemonic  The mnemonic of the message
+     * @return  This writer
+     */
+    public BinaryFrameWriter add(String mnemonic) {
+        putHeader(mnemonic, BinaryCRISP.TYPE_NONE, 0);
+        return this;
+    }
+
+
+
+    /**
+     * Adds a message with integer-parameters.
+     *
+     * @param mnemonic  The mnemonic of the message
+     * @param args      The parameters of the message
+     * @return  This writer
+     */
+    public BinaryFrameWriter add(String mnemonic, int ... args) {
+        putHeader(mnemonic, BinaryCRISP.TYPE_INT, args.length);
+        ensureCapacity(4 * args.length);
+        for (int arg : args) {
+            buffer.putInt(arg);
+        }
+        return this;
+    }
+
+
+
+    /**
+     * Adds a message with floating-point-parameters.
+     *
+     * @param mnemonic  The mnemonic of the message
+     * @param args      The parameters of the message
+     * @return  This writer
+     */
+    public BinaryFrameWriter add(String mnemonic, double ... args) {
+        putHeader(mnemonic, BinaryCRISP.TYPE_DOUBLE, args.length);
+        ensureCapacity(8 * args.length);
+        for (double arg : args) {
+            buffer.putDouble(arg);
+        }
+        return this;
+    }
+
+
+
+    /**
+     * Adds a message of the text protocol, with parameters of type Integer or Double.
+     *
+     * @param message   The message to add
+     * @return  This writer
+     */
+    public BinaryFrameWriter add(Message<?> message) {
+        Object[] parameters = message.getParameters();
+        if (parameters == null  ||  parameters.length == 0) {
+            return add(message.getMnemonic());
+        }
+        if (parameters[0] instanceof Integer) {
+            int[] args = new int[parameters.length];
+            for (int i = 0  ;  i < args.length  ;  i++) {
+                args[i] = (Integer) parameters[i];
+            }
+            return add(message.getMnemonic(), args);
+        }
+        double[] args = new double[parameters.length];
+        for (int i = 0  ;  i < args.length  ;  i++) {
+            args[i] = ((Number) parameters[i]).doubleValue();
+        }
+        return add(message.getMnemonic(), args);
+    }
+
+
+
+    /**
+     * Writes the messages added since the last frame as one frame (length-prefixed) and clears the writer.
+     *
+     * @param out   The stream to write the frame to
+     * @throws IOException  If the frame could not be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        int length = buffer.position();
+        buffer.putInt(0, length - BinaryCRISP.FRAME_HEADER_LENGTH);
+        out.write(buffer.array(), 0, length);
+        out.flush();
+        clear();
+    }
+
+
+
+    /**
+     * Writes the header of a message, unknown mnemonics are replaced by UNSUPPORTED_INSTRUCTION.
+     *
+     * @param mnemonic  The mnemonic of the message
+     * @param type      The type of the parameters
+     * @param count     The number of parameters
+     */
+    private void putHeader(String mnemonic, byte type, int count) {
+        if (count > BinaryCRISP.MAXIMUM_NUMBER_OF_PARAMETERS) {
+            throw new IllegalArgumentException("Too many parameters for " + mnemonic + ": " + count);
+        }
+        Integer opcode = OPCODES.get(mnemonic);
+        if (opcode == null) {
+            opcode = OPCODES.get(CRISP.UNSUPPORTED_INSTRUCTION);
+        }
+        ensureCapacity(BinaryCRISP.MESSAGE_HEADER_LENGTH);
+        buffer.put((byte) (int) opcode).put(type).put((byte) count);
+        numberOfMessages++;
+    }
+
+
+
+    /**
+     * Grows the buffer (keeping its content) if less than the given number of bytes remain.
+     *
+     * @param bytes The number of bytes to be written next
+     */
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
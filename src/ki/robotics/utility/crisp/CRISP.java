@@ -26,6 +26,7 @@ public interface CRISP {
     String SENSOR_MEASURE_COLOR =           "SCLR";
     String SENSOR_SINGLE_DISTANCE_SCAN =    "SDST";
     String SENSOR_THREE_WAY_SCAN =          "STWS";
+    String SENSOR_SWEEP =                   "SSWP";
 
     String CAMERA_GENERAL_QUERY =           "CGEN";
     String CAMERA_SINGLE_SIGNATURE_QUERY =  "CSSG";
@@ -36,6 +37,9 @@ public interface CRISP {
     String SHUTDOWN =                       "DOWN";
     String DISCONNECT =                     "DCNT";
 
+    //Identifies the instruction-sequence it leads, the end of the sequence is answered with "EOSQ <id>".
+    String SEQUENCE_ID =                    "RQID";
+
     //Supplementary status codes.
     String BOT_U_TURN =                     "BUTN";
 
@@ -39,6 +39,8 @@ public interface InstructionSequence {
 
     InstructionSequence measureAllDistances();
 
+    InstructionSequence measureDistanceSweep(double startPosition, double endPosition, double stepSize);
+
     InstructionSequence cameraGeneralQuery();
 
     InstructionSequence camAngleQuery();
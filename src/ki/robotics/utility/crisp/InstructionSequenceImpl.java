@@ -142,6 +142,15 @@ public class InstructionSequenceImpl implements InstructionSequence {
     }
 
 
+    @Override
+    public InstructionSequence measureDistanceSweep(double startPosition, double endPosition, double stepSize) {
+        if (sequence.length() != 0) { sequence.append(", "); }
+        sequence.append(SENSOR_SWEEP).append(" ").append(startPosition).append(" ").append(endPosition)
+                .append(" ").append(stepSize);
+        return this;
+    }
+
+
     @Override
     public InstructionSequence cameraGeneralQuery() {
         if (sequence.length() != 0) { sequence.append(", "); }
@@ -9,6 +9,12 @@ public interface Message<T> {
 
     T getParameter();
 
+    int getNumberOfParameters();
+
+    double getDoubleParameter(int index);
+
+    int getIntParameter(int index);
+
     @Override
     String toString();
 }
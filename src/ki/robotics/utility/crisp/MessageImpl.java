@@ -77,7 +77,22 @@ public class MessageImpl<T> implements Message<T> {
         return parameters[0];
     }
 
-    private char identifyMessageGroup(String mnemonic) {
+    @Override
+    public int getNumberOfParameters() {
+        return parameters.length;
+    }
+
+    @Override
+    public double getDoubleParameter(int index) {
+        return ((Number) parameters[index]).doubleValue();
+    }
+
+    @Override
+    public int getIntParameter(int index) {
+        return ((Number) parameters[index]).intValue();
+    }
+
+    static char identifyMessageGroup(String mnemonic) {
         char firstLetter = Character.toUpperCase(mnemonic.charAt(0));
         switch (firstLetter) {
             case CRISP.BOT_INSTRUCTION:
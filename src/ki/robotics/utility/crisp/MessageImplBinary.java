@@ -0,0 +1,145 @@
+package ki.robotics.utility.crisp;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Message decoded from the binary variant of C.R.I.S.P. (see BinaryCRISP). The parameters are read straight
+ * from the frame into a primitive array; they are only boxed if requested as objects.
+ */
+class MessageImplBinary implements Message<Object> {
+    private final String mnemonic;
+    private final char messageGroup;
+    private final int[] intParameters;
+    private final double[] doubleParameters;
+    private Object[] parameters;
+
+
+
+    /**
+     * Constructor. Decodes the message at the current position of the given frame and advances the position
+     * behind the message.
+     *
+     * @param frame The payload of a frame, positioned at the start of a message
+     */
+    MessageImplBinary(ByteBuffer frame) {
+        int opcode = frame.get() & 0xFF;
+        byte type = frame.get();
+        int count = frame.get() & 0xFF;
+        String mnemonic = (opcode < BinaryCRISP.MNEMONICS.length) ? BinaryCRISP.MNEMONICS[opcode] : null;
+        this.mnemonic = (mnemonic != null) ? mnemonic : CRISP.UNSUPPORTED_INSTRUCTION;
+        this.messageGroup = MessageImpl.identifyMessageGroup(this.mnemonic);
+        if (type == BinaryCRISP.TYPE_DOUBLE) {
+            this.intParameters = null;
+            this.doubleParameters = new double[count];
+            for (int i = 0  ;  i < count  ;  i++) {
+                doubleParameters[i] = frame.getDouble();
+            }
+        } else if (type == BinaryCRISP.TYPE_INT) {
+            this.intParameters = new int[count];
+            this.doubleParameters = null;
+            for (int i = 0  ;  i < count  ;  i++) {
+                intParameters[i] = frame.getInt();
+            }
+        } else if (type == BinaryCRISP.TYPE_NONE  &&  count == 0) {
+            this.intParameters = new int[0];
+            this.doubleParameters = null;
+        } else {
+            throw new IllegalArgumentException("Unknown parameter-type " + type + " of " + this.mnemonic);
+        }
+    }
+
+
+
+    @Override
+    public char getMessageGroup() {
+        return messageGroup;
+    }
+
+
+
+    @Override
+    public String getMnemonic() {
+        return mnemonic;
+    }
+
+
+
+    /**
+     * Returns the parameters as objects (Integer or Double), boxing them on the first request.
+     *
+     * @return  The boxed parameters
+     */
+    @Override
+    public Object[] getParameters() {
+        if (parameters == null) {
+            if (doubleParameters != null) {
+                Double[] boxed = new Double[doubleParameters.length];
+                for (int i = 0  ;  i < boxed.length  ;  i++) {
+                    boxed[i] = doubleParameters[i];
+                }
+                parameters = boxed;
+            } else {
+                Integer[] boxed = new Integer[intParameters.length];
+                for (int i = 0  ;  i < boxed.length  ;  i++) {
+                    boxed[i] = intParameters[i];
+                }
+                parameters = boxed;
+            }
+        }
+        return parameters;
+    }
+
+
+
+    /**
+     * Returns the first parameter as object (Integer or Double).
+     *
+     * @return  The first parameter
+     */
+    @Override
+    public Object getParameter() {
+        if (doubleParameters != null) {
+            return doubleParameters[0];
+        }
+        return intParameters[0];
+    }
+
+
+
+    @Override
+    public int getNumberOfParameters() {
+        return (doubleParameters != null) ? doubleParameters.length : intParameters.length;
+    }
+
+
+
+    @Override
+    public double getDoubleParameter(int index) {
+        return (doubleParameters != null) ? doubleParameters[index] : intParameters[index];
+    }
+
+
+
+    @Override
+    public int getIntParameter(int index) {
+        return (doubleParameters != null) ? (int) doubleParameters[index] : intParameters[index];
+    }
+
+
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(mnemonic);
+        if (doubleParameters != null) {
+            for (double d : doubleParameters) {
+                sb.append(" ").append(d);
+            }
+        } else {
+            for (int i : intParameters) {
+                sb.append(" ").append(i);
+            }
+        }
+        return sb.toString();
+    }
+}
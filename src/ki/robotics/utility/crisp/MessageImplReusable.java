@@ -0,0 +1,171 @@
+package ki.robotics.utility.crisp;
+
+
+/**
+ * Message filled in place by the TextTransmissionParser, to be reused for every message of a transmission.
+ * The parameters are kept as primitives; like in messages decoded by MessageImpl.decodeTransmission, they are
+ * integers if all of them are written as integers and floating-point-numbers otherwise. The content is only
+ * valid until the message is filled again, so it must not be kept (use getParameters for a copy).
+ */
+public class MessageImplReusable implements Message<Object> {
+    private String mnemonic = CRISP.UNSUPPORTED_INSTRUCTION;
+    private char messageGroup = CRISP.OTHER_INSTRUCTION;
+    private double[] parameters = new double[8];
+    private int numberOfParameters;
+    private boolean integerParameters = true;
+
+
+
+    /**
+     * Sets the mnemonic and removes all parameters.
+     *
+     * @param mnemonic  The mnemonic, replaced by UNSUPPORTED_INSTRUCTION if it is no valid mnemonic
+     */
+    void reset(String mnemonic) {
+        if (mnemonic.length() != 4) {
+            mnemonic = CRISP.UNSUPPORTED_INSTRUCTION;
+        }
+        this.mnemonic = mnemonic;
+        this.messageGroup = MessageImpl.identifyMessageGroup(mnemonic);
+        this.numberOfParameters = 0;
+        this.integerParameters = true;
+    }
+
+
+
+    /**
+     * Appends a parameter.
+     *
+     * @param parameter The parameter
+     */
+    void addParameter(double parameter) {
+        if (numberOfParameters == parameters.length) {
+            double[] grown = new double[2 * parameters.length];
+            System.arraycopy(parameters, 0, grown, 0, numberOfParameters);
+            parameters = grown;
+        }
+        parameters[numberOfParameters++] = parameter;
+    }
+
+
+
+    /**
+     * Removes all parameters (e.g. to parse them again with another type).
+     *
+     * @param integerParameters True, if the parameters to be added are integers
+     */
+    void clearParameters(boolean integerParameters) {
+        this.numberOfParameters = 0;
+        this.integerParameters = integerParameters;
+    }
+
+
+
+    @Override
+    public char getMessageGroup() {
+        return messageGroup;
+    }
+
+
+
+    @Override
+    public String getMnemonic() {
+        return mnemonic;
+    }
+
+
+
+    /**
+     * Checks whether the parameters are integers (otherwise they are floating-point-numbers).
+     *
+     * @return  True, if the parameters are integers
+     */
+    public boolean hasIntegerParameters() {
+        return integerParameters;
+    }
+
+
+
+    /**
+     * Returns a copy of the parameters as objects (Integer or Double).
+     *
+     * @return  The boxed parameters
+     */
+    @Override
+    public Object[] getParameters() {
+        if (integerParameters) {
+            Integer[] boxed = new Integer[numberOfParameters];
+            for (int i = 0  ;  i < numberOfParameters  ;  i++) {
+                boxed[i] = (int) parameters[i];
+            }
+            return boxed;
+        }
+        Double[] boxed = new Double[numberOfParameters];
+        for (int i = 0  ;  i < numberOfParameters  ;  i++) {
+            boxed[i] = parameters[i];
+        }
+        return boxed;
+    }
+
+
+
+    /**
+     * Returns the first parameter as object (Integer or Double).
+     *
+     * @return  The first parameter
+     */
+    @Override
+    public Object getParameter() {
+        checkIndex(0);
+        if (integerParameters) {
+            return (int) parameters[0];
+        }
+        return parameters[0];
+    }
+
+
+
+    @Override
+    public int getNumberOfParameters() {
+        return numberOfParameters;
+    }
+
+
+
+    @Override
+    public double getDoubleParameter(int index) {
+        checkIndex(index);
+        return parameters[index];
+    }
+
+
+
+    @Override
+    public int getIntParameter(int index) {
+        checkIndex(index);
+        return (int) parameters[index];
+    }
+
+
+
+    private void checkIndex(int index) {
+        if (index < 0  ||  index >= numberOfParameters) {
+            throw new IndexOutOfBoundsException("Parameter " + index + " of " + numberOfParameters);
+        }
+    }
+
+
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(mnemonic);
+        for (int i = 0  ;  i < numberOfParameters  ;  i++) {
+            if (integerParameters) {
+                sb.append(" ").append((int) parameters[i]);
+            } else {
+                sb.append(" ").append(parameters[i]);
+            }
+        }
+        return sb.toString();
+    }
+}
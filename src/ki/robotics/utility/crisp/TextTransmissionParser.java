@@ -0,0 +1,257 @@
+package ki.robotics.utility.crisp;
+
+
+/**
+ * Single-pass parser for transmissions of the text variant of C.R.I.S.P. ("MNEM p1 p2, MNEM p1, ...").
+ * The messages are decoded one after another into a reusable message, straight from the characters of the
+ * transmission, without splitting it into strings and without boxing the parameters. The decoded messages
+ * are identical to those of MessageImpl.decodeTransmission, including the handling of malformed messages.
+ */
+public class TextTransmissionParser {
+    private static final char MESSAGE_SEPARATOR = ',';
+    private static final char PARAMETER_SEPARATOR = ' ';
+
+    //Decimal numbers with up to 15 digits and 22 fractional digits are exact as doubles (see parseDecimal).
+    private static final long MAXIMUM_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1  ;  i < POWERS_OF_TEN.length  ;  i++) {
+            POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+        }
+    }
+
+    private CharSequence transmission;
+    private int position;
+    private int end;
+    private boolean hasNext;
+
+
+
+    /**
+     * Starts parsing the given transmission.
+     *
+     * @param transmission  The transmission (e.g. a received line)
+     */
+    public void reset(CharSequence transmission) {
+        this.transmission = transmission;
+        this.position = 0;
+        int length = transmission.length();
+        int end = length;
+        while (end > 0  &&  transmission.charAt(end - 1) == MESSAGE_SEPARATOR) {
+            end--;
+        }
+        this.end = end;
+        // trailing empty messages are dropped, but a transmission without separator is always one message
+        this.hasNext = end > 0  ||  (length == 0);
+    }
+
+
+
+    /**
+     * Decodes the next message of the transmission into the given message.
+     *
+     * @param message   The message to be filled
+     * @return  True, if a message was decoded; false, if the transmission is completely parsed
+     */
+    public boolean next(MessageImplReusable message) {
+        if (!hasNext) {
+            return false;
+        }
+        int separator = indexOf(transmission, MESSAGE_SEPARATOR, position, end);
+        if (separator < 0) {
+            parseMessage(transmission, position, end, message);
+            hasNext = false;
+        } else {
+            parseMessage(transmission, position, separator, message);
+            position = separator + 1;
+        }
+        return true;
+    }
+
+
+
+    /**
+     * Decodes a single message ("MNEM p1 p2 ...") of a transmission.
+     *
+     * @param transmission  The transmission
+     * @param start The index of the first character of the message
+     * @param end   The index behind the last character of the message
+     * @param message   The message to be filled
+     */
+    static void parseMessage(CharSequence transmission, int start, int end, MessageImplReusable message) {
+        while (start < end  &&  transmission.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start  &&  transmission.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int mnemonicEnd = indexOf(transmission, PARAMETER_SEPARATOR, start, end);
+        if (mnemonicEnd < 0) {
+            mnemonicEnd = end;
+        }
+        message.reset(identifyMnemonic(transmission, start, mnemonicEnd));
+
+        if (!parseIntegers(transmission, mnemonicEnd, end, message)
+                &&  !parseDoubles(transmission, mnemonicEnd, end, message)) {
+            System.err.println("number-parsing error for: " + transmission.subSequence(start, mnemonicEnd));
+            message.reset(CRISP.UNSUPPORTED_INSTRUCTION);
+            message.addParameter(0);
+        }
+    }
+
+
+
+    /**
+     * Returns the mnemonic at the given position, preferably as one of the known (interned) mnemonics.
+     */
+    private static String identifyMnemonic(CharSequence transmission, int start, int end) {
+        if (end - start != 4) {
+            return CRISP.UNSUPPORTED_INSTRUCTION;
+        }
+        for (String mnemonic : BinaryCRISP.MNEMONICS) {
+            if (mnemonic != null  &&  regionMatches(transmission, start, mnemonic)) {
+                return mnemonic;
+            }
+        }
+        return transmission.subSequence(start, end).toString();
+    }
+
+
+
+    /**
+     * Parses all parameters as integers (as Integer.parseInt would).
+     *
+     * @return  False, if a parameter is no integer
+     */
+    private static boolean parseIntegers(CharSequence transmission, int separator, int end, MessageImplReusable message) {
+        message.clearParameters(true);
+        while (separator < end) {
+            int tokenStart = separator + 1;
+            int tokenEnd = indexOf(transmission, PARAMETER_SEPARATOR, tokenStart, end);
+            if (tokenEnd < 0) {
+                tokenEnd = end;
+            }
+            if (tokenStart == tokenEnd) {
+                return false;
+            }
+            int i = tokenStart;
+            boolean negative = false;
+            char first = transmission.charAt(i);
+            if (first == '-'  ||  first == '+') {
+                negative = first == '-';
+                if (++i == tokenEnd) {
+                    return false;
+                }
+            }
+            long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+            long value = 0;
+            for (  ;  i < tokenEnd  ;  i++) {
+                int digit = Character.digit(transmission.charAt(i), 10);
+                if (digit < 0) {
+                    return false;
+                }
+                value = 10 * value + digit;
+                if (value > limit) {
+                    return false;
+                }
+            }
+            message.addParameter(negative ? -value : value);
+            separator = tokenEnd;
+        }
+        return true;
+    }
+
+
+
+    /**
+     * Parses all parameters as floating-point-numbers (as Double.parseDouble would).
+     *
+     * @return  False, if a parameter is no number
+     */
+    private static boolean parseDoubles(CharSequence transmission, int separator, int end, MessageImplReusable message) {
+        message.clearParameters(false);
+        while (separator < end) {
+            int tokenStart = separator + 1;
+            int tokenEnd = indexOf(transmission, PARAMETER_SEPARATOR, tokenStart, end);
+            if (tokenEnd < 0) {
+                tokenEnd = end;
+            }
+            double value = parseDecimal(transmission, tokenStart, tokenEnd);
+            if (Double.isNaN(value)) {
+                try {
+                    value = Double.parseDouble(transmission.subSequence(tokenStart, tokenEnd).toString());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            message.addParameter(value);
+            separator = tokenEnd;
+        }
+        return true;
+    }
+
+
+
+    /**
+     * Parses plain decimal numbers ([+-]digits[.digits]) whose digits and scale are exactly representable as
+     * doubles. The single division is then correctly rounded, i.e. identical to Double.parseDouble.
+     *
+     * @return  The number, or NaN if the number has to be parsed by Double.parseDouble
+     */
+    private static double parseDecimal(CharSequence transmission, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end  &&  (transmission.charAt(i) == '-'  ||  transmission.charAt(i) == '+')) {
+            negative = transmission.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (  ;  i < end  ;  i++) {
+            char c = transmission.charAt(i);
+            if (c >= '0'  &&  c <= '9') {
+                mantissa = 10 * mantissa + (c - '0');
+                if (mantissa >= MAXIMUM_EXACT_MANTISSA) {
+                    return Double.NaN;
+                }
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.'  &&  fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0  ||  fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.NaN;
+        }
+        double value = (fractionDigits > 0) ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+
+
+    private static int indexOf(CharSequence transmission, char c, int start, int end) {
+        for (int i = start  ;  i < end  ;  i++) {
+            if (transmission.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+
+    private static boolean regionMatches(CharSequence transmission, int start, String mnemonic) {
+        for (int i = 0  ;  i < mnemonic.length()  ;  i++) {
+            if (transmission.charAt(start + i) != mnemonic.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
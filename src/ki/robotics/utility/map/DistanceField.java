@@ -0,0 +1,180 @@
+package ki.robotics.utility.map;
+
+import ki.robotics.utility.map.mapElements.Line;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Grid holding the distance to the nearest wall for each cell of a map (Euclidean distance transform), used by
+ * likelihood-field sensor-models: the plausibility of a measured distance follows from the distance between the
+ * end-point of the measurement and the nearest wall, which is a single lookup instead of a ray-cast.
+ * The walls are rasterized into the grid, followed by the exact distance transform of Felzenszwalb and
+ * Huttenlocher (one pass along the rows and one along the columns), so the distances are accurate up to the
+ * resolution of the grid. The grid extends beyond the map by a margin, so that end-points of measurements slightly
+ * behind the outer walls are still found close to them.
+ */
+public class DistanceField {
+    private static final double NO_WALL = 1e20;
+    private static final double MARGIN = 20;
+
+    private final double resolution;
+    private final double origin;
+    private final int columns;
+    private final int rows;
+    private final float[] distances;
+
+
+
+    /**
+     * Constructs the distance-field of the specified walls.
+     *
+     * @param walls the walls of the map
+     * @param width the width of the map (in map-units)
+     * @param height the height of the map (in map-units)
+     * @param resolution the edge-length of a cell (in map-units)
+     */
+    DistanceField(ArrayList<Line> walls, double width, double height, double resolution) {
+        this.resolution = resolution;
+        this.origin = -Math.ceil(MARGIN / resolution) * resolution;
+        this.columns = (int) Math.ceil((width - 2 * origin) / resolution) + 1;
+        this.rows = (int) Math.ceil((height - 2 * origin) / resolution) + 1;
+        this.distances = new float[columns * rows];
+
+        double[] squaredDistances = new double[columns * rows];
+        Arrays.fill(squaredDistances, NO_WALL);
+        for (Line wall : walls) {
+            rasterize(wall, squaredDistances);
+        }
+        transform(squaredDistances);
+        for (int i = 0  ;  i < distances.length  ;  i++) {
+            distances[i] = (float) (Math.sqrt(squaredDistances[i]) * resolution);
+        }
+    }
+
+
+
+    /**
+     * Returns the distance from the specified position to the nearest wall, or Double.POSITIVE_INFINITY if the
+     * position lies outside the grid.
+     *
+     * @param x the x-coordinate of the position
+     * @param y the y-coordinate of the position
+     * @return the distance to the nearest wall
+     */
+    public double getDistance(double x, double y) {
+        int column = (int) Math.floor((x - origin) / resolution);
+        int row = (int) Math.floor((y - origin) / resolution);
+        if (column < 0  ||  column >= columns  ||  row < 0  ||  row >= rows) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return distances[row * columns + column];
+    }
+
+
+
+    /**
+     * Returns the edge-length of a cell (in map-units).
+     *
+     * @return the resolution of the grid
+     */
+    public double getResolution() { return resolution; }
+
+
+
+    /**
+     * Marks all cells passed by the specified wall (distance 0).
+     *
+     * @param wall the wall
+     * @param squaredDistances the (squared) distances of the cells
+     */
+    private void rasterize(Line wall, double[] squaredDistances) {
+        int steps = Math.max(1, (int) Math.ceil(2 * wall.getLength() / resolution));
+        for (int i = 0  ;  i <= steps  ;  i++) {
+            double x = wall.getX1() + (wall.getX2() - wall.getX1()) * i / steps;
+            double y = wall.getY1() + (wall.getY2() - wall.getY1()) * i / steps;
+            int column = (int) Math.floor((x - origin) / resolution);
+            int row = (int) Math.floor((y - origin) / resolution);
+            if (column >= 0  &&  column < columns  &&  row >= 0  &&  row < rows) {
+                squaredDistances[row * columns + column] = 0;
+            }
+        }
+    }
+
+
+
+    /**
+     * Replaces the markings of the walls by the squared distance (in cells) to the nearest marked cell, by a
+     * one-dimensional distance transform along each column, followed by one along each row.
+     *
+     * @param grid the markings (0 for walls, NO_WALL otherwise), indexed by row * columns + column
+     */
+    private void transform(double[] grid) {
+        int length = Math.max(columns, rows);
+        double[] f = new double[length];
+        double[] d = new double[length];
+        int[] v = new int[length];
+        double[] z = new double[length + 1];
+
+        for (int column = 0  ;  column < columns  ;  column++) {
+            for (int row = 0  ;  row < rows  ;  row++) {
+                f[row] = grid[row * columns + column];
+            }
+            transform(f, rows, d, v, z);
+            for (int row = 0  ;  row < rows  ;  row++) {
+                grid[row * columns + column] = d[row];
+            }
+        }
+        for (int row = 0  ;  row < rows  ;  row++) {
+            System.arraycopy(grid, row * columns, f, 0, columns);
+            transform(f, columns, d, v, z);
+            System.arraycopy(d, 0, grid, row * columns, columns);
+        }
+    }
+
+
+
+    /**
+     * One-dimensional squared distance transform (lower envelope of the parabolas rooted at each sample).
+     *
+     * @param f the sampled function (0 for marked cells)
+     * @param n the number of samples
+     * @param d receives the transformed samples
+     * @param v the positions of the parabolas of the lower envelope (work-array of length n)
+     * @param z the boundaries between the parabolas of the lower envelope (work-array of length n + 1)
+     */
+    private static void transform(double[] f, int n, double[] d, int[] v, double[] z) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = Double.NEGATIVE_INFINITY;
+        z[1] = Double.POSITIVE_INFINITY;
+        for (int q = 1  ;  q < n  ;  q++) {
+            double s = intersection(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = Double.POSITIVE_INFINITY;
+        }
+        k = 0;
+        for (int q = 0  ;  q < n  ;  q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            d[q] = (double) (q - v[k]) * (q - v[k]) + f[v[k]];
+        }
+    }
+
+
+
+    /**
+     * Returns the position where the parabolas rooted at q and p intersect.
+     */
+    private static double intersection(double[] f, int q, int p) {
+        return ((f[q] + (double) q * q) - (f[p] + (double) p * p)) / (2.0 * q - 2.0 * p);
+    }
+}
@@ -0,0 +1,247 @@
+package ki.robotics.utility.map;
+
+import ki.robotics.utility.map.mapElements.Circle;
+import ki.robotics.utility.map.mapElements.Line;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+
+
+/**
+ * Uniform grid holding the line-of-sight between the cells of a map and its landmarks, used to accelerate
+ * camera-queries. For each cell, only the landmarks which are visible from at least a part of the cell are
+ * registered, each with the walls that may occlude it from somewhere within the cell (the walls crossing the
+ * convex hull of the cell and the center of the landmark). A query then only touches those landmarks, and the
+ * occlusion-test (a wall crossing the line from the position to the center of the landmark) only runs against
+ * their walls, which yields the same result as testing all walls.
+ * Positions outside the grid fall back to all landmarks and all walls.
+ */
+class LandmarkVisibilityGrid {
+    private static final double EPSILON = 0.00001;
+    private static final double CELL_SIZE = 5;
+
+    private final double[] landmarkX;
+    private final double[] landmarkY;
+    private final double minX;
+    private final double minY;
+    private final int columns;
+    private final int rows;
+    private final int[][] cellLandmarks;
+    private final double[][][] cellOccluders;
+
+
+
+    /**
+     * Constructs and initializes the grid over the specified walls, holding the visibility of the specified
+     * landmarks.
+     *
+     * @param walls the walls of the map
+     * @param landmarks the landmarks of the map
+     */
+    LandmarkVisibilityGrid(ArrayList<Line> walls, ArrayList<Circle> landmarks) {
+        this.landmarkX = new double[landmarks.size()];
+        this.landmarkY = new double[landmarks.size()];
+        for (int i = 0  ;  i < landmarks.size()  ;  i++) {
+            landmarkX[i] = landmarks.get(i).getCenterX();
+            landmarkY[i] = landmarks.get(i).getCenterY();
+        }
+
+        double left = Double.MAX_VALUE, top = Double.MAX_VALUE;
+        double right = -Double.MAX_VALUE, bottom = -Double.MAX_VALUE;
+        for (Line wall : walls) {
+            left = Math.min(left, Math.min(wall.getX1(), wall.getX2()));
+            top = Math.min(top, Math.min(wall.getY1(), wall.getY2()));
+            right = Math.max(right, Math.max(wall.getX1(), wall.getX2()));
+            bottom = Math.max(bottom, Math.max(wall.getY1(), wall.getY2()));
+        }
+        boolean gridRequired = ! walls.isEmpty()  &&  ! landmarks.isEmpty();
+        this.minX = gridRequired ? left : 0;
+        this.minY = gridRequired ? top : 0;
+        this.columns = gridRequired ? (int) Math.ceil((right - left) / CELL_SIZE) + 1 : 0;
+        this.rows = gridRequired ? (int) Math.ceil((bottom - top) / CELL_SIZE) + 1 : 0;
+
+        // the additional last cell holds all landmarks and walls, for positions outside the grid
+        int numberOfCells = columns * rows;
+        this.cellLandmarks = new int[numberOfCells + 1][];
+        this.cellOccluders = new double[numberOfCells + 1][][];
+        for (int row = 0  ;  row < rows  ;  row++) {
+            for (int column = 0  ;  column < columns  ;  column++) {
+                Rectangle2D cell = new Rectangle2D.Double(minX + column * CELL_SIZE - EPSILON,
+                        minY + row * CELL_SIZE - EPSILON, CELL_SIZE + 2 * EPSILON, CELL_SIZE + 2 * EPSILON);
+                registerLandmarks(row * columns + column, cell, walls);
+            }
+        }
+        registerLandmarks(numberOfCells, null, walls);
+    }
+
+
+
+    /**
+     * Returns the cell holding the specified position.
+     *
+     * @param x the x-coordinate of the position
+     * @param y the y-coordinate of the position
+     * @return the index of the cell, to be passed to getLandmarks and isVisible
+     */
+    int getCell(double x, double y) {
+        int column = (int) Math.floor((x - minX) / CELL_SIZE);
+        int row = (int) Math.floor((y - minY) / CELL_SIZE);
+        if (column < 0  ||  column >= columns  ||  row < 0  ||  row >= rows) {
+            return columns * rows;
+        }
+        return row * columns + column;
+    }
+
+
+
+    /**
+     * Returns the indices of the landmarks visible from at least a part of the specified cell, in ascending order.
+     *
+     * @param cell the index of the cell
+     * @return the indices of the landmarks (within the landmarks of the map)
+     */
+    int[] getLandmarks(int cell) {
+        return cellLandmarks[cell];
+    }
+
+
+
+    /**
+     * Checks whether the center of a landmark is visible from the specified position, that is whether none of
+     * the walls crosses the line between the position and the center of the landmark.
+     *
+     * @param cell the index of the cell holding the position
+     * @param entry the index of the landmark within getLandmarks(cell)
+     * @param x the x-coordinate of the position
+     * @param y the y-coordinate of the position
+     * @return true, if the landmark is visible from the position
+     */
+    boolean isVisible(int cell, int entry, double x, double y) {
+        int landmark = cellLandmarks[cell][entry];
+        double[] occluders = cellOccluders[cell][entry];
+        for (int i = 0  ;  i < occluders.length  ;  i += 4) {
+            if (Line2D.linesIntersect(x, y, landmarkX[landmark], landmarkY[landmark],
+                    occluders[i], occluders[i + 1], occluders[i + 2], occluders[i + 3])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+
+    /**
+     * Registers the landmarks visible from at least a part of the specified cell, together with the walls which
+     * may occlude them.
+     *
+     * @param index the index of the cell
+     * @param cell the (slightly enlarged) area of the cell, or null for all positions
+     * @param walls the walls of the map
+     */
+    private void registerLandmarks(int index, Rectangle2D cell, ArrayList<Line> walls) {
+        ArrayList<Integer> visibleLandmarks = new ArrayList<>();
+        ArrayList<double[]> occludersOfLandmarks = new ArrayList<>();
+        ArrayList<Line> occluders = new ArrayList<>();
+
+        landmark_loop:
+        for (int landmark = 0  ;  landmark < landmarkX.length  ;  landmark++) {
+            occluders.clear();
+            for (Line wall : walls) {
+                if (cell == null) {
+                    occluders.add(wall);
+                } else if (occludesEntireCell(wall, cell, landmark)) {
+                    continue landmark_loop;
+                } else if (mayOcclude(wall, cell, landmark)) {
+                    occluders.add(wall);
+                }
+            }
+            double[] coordinates = new double[4 * occluders.size()];
+            for (int i = 0  ;  i < occluders.size()  ;  i++) {
+                Line wall = occluders.get(i);
+                coordinates[4 * i] = wall.getX1();
+                coordinates[4 * i + 1] = wall.getY1();
+                coordinates[4 * i + 2] = wall.getX2();
+                coordinates[4 * i + 3] = wall.getY2();
+            }
+            visibleLandmarks.add(landmark);
+            occludersOfLandmarks.add(coordinates);
+        }
+
+        cellLandmarks[index] = new int[visibleLandmarks.size()];
+        for (int i = 0  ;  i < visibleLandmarks.size()  ;  i++) {
+            cellLandmarks[index][i] = visibleLandmarks.get(i);
+        }
+        cellOccluders[index] = occludersOfLandmarks.toArray(new double[occludersOfLandmarks.size()][]);
+    }
+
+
+
+    /**
+     * Checks whether the specified wall crosses the convex hull of the cell and the center of the landmark, which
+     * holds all lines from a position within the cell to the center of the landmark.
+     *
+     * @param wall the wall
+     * @param cell the (slightly enlarged) area of the cell
+     * @param landmark the index of the landmark
+     * @return true, if the wall may occlude the landmark from a position within the cell
+     */
+    private boolean mayOcclude(Line wall, Rectangle2D cell, int landmark) {
+        if (cell.intersectsLine(wall)) {
+            return true;
+        }
+        double[] cornersX = {cell.getMinX(), cell.getMaxX(), cell.getMaxX(), cell.getMinX()};
+        double[] cornersY = {cell.getMinY(), cell.getMinY(), cell.getMaxY(), cell.getMaxY()};
+        for (int i = 0  ;  i < 4  ;  i++) {
+            if (wall.intersectsLine(cornersX[i], cornersY[i], landmarkX[landmark], landmarkY[landmark])) {
+                return true;
+            }
+        }
+        // otherwise the wall could only lie entirely within one of the triangles between the landmark and the cell
+        for (int i = 0  ;  i < 4  ;  i++) {
+            int j = (i + 1) % 4;
+            if (isWithinTriangle(wall.getX1(), wall.getY1(), landmarkX[landmark], landmarkY[landmark],
+                    cornersX[i], cornersY[i], cornersX[j], cornersY[j])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+    /**
+     * Checks whether the specified wall crosses the lines from all positions within the cell to the center of
+     * the landmark. This is the case if the wall crosses the lines from all corners of the cell without touching
+     * the cell or the center of the landmark.
+     *
+     * @param wall the wall
+     * @param cell the (slightly enlarged) area of the cell
+     * @param landmark the index of the landmark
+     * @return true, if the landmark is occluded from all positions within the cell
+     */
+    private boolean occludesEntireCell(Line wall, Rectangle2D cell, int landmark) {
+        if (cell.intersectsLine(wall)  ||  wall.ptSegDist(landmarkX[landmark], landmarkY[landmark]) < EPSILON) {
+            return false;
+        }
+        return wall.intersectsLine(cell.getMinX(), cell.getMinY(), landmarkX[landmark], landmarkY[landmark])
+                &&  wall.intersectsLine(cell.getMaxX(), cell.getMinY(), landmarkX[landmark], landmarkY[landmark])
+                &&  wall.intersectsLine(cell.getMaxX(), cell.getMaxY(), landmarkX[landmark], landmarkY[landmark])
+                &&  wall.intersectsLine(cell.getMinX(), cell.getMaxY(), landmarkX[landmark], landmarkY[landmark]);
+    }
+
+
+
+    /**
+     * Checks whether the point (px, py) lies within (or on the border of) the triangle (ax, ay), (bx, by), (cx, cy).
+     */
+    private static boolean isWithinTriangle(double px, double py, double ax, double ay, double bx, double by,
+                                            double cx, double cy) {
+        double ab = (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+        double bc = (cx - bx) * (py - by) - (cy - by) * (px - bx);
+        double ca = (ax - cx) * (py - cy) - (ay - cy) * (px - cx);
+        boolean hasNegative = ab < 0  ||  bc < 0  ||  ca < 0;
+        boolean hasPositive = ab > 0  ||  bc > 0  ||  ca > 0;
+        return ! (hasNegative  &&  hasPositive);
+    }
+}
@@ -18,6 +18,35 @@ public interface Map {
 
     double getDistanceToNearestObstacle(Point2D position, double viewingDirection);
 
+    double castRay(double x, double y, double viewingDirection);
+
+    /**
+     * Casts a ray like castRay(x, y, viewingDirection), but stores the nearest wall hit by the ray, with its
+     * distance and the intersection-point, in the specified (reusable) RayHit, overwriting all of its fields.
+     *
+     * @param x the x-coordinate of the origin of the ray
+     * @param y the y-coordinate of the origin of the ray
+     * @param viewingDirection the direction of the ray (in degrees)
+     * @param hit receives the result of the ray-cast
+     * @return true, if the ray hit a wall
+     */
+    boolean castRay(double x, double y, double viewingDirection, RayHit hit);
+
+    /**
+     * Casts all beams of a sensor-model for a range of poses in one call. Poses and beams use the convention of
+     * the robot (headings and sensor-head-positions counter-clockwise), i.e. the distance of beam k for pose i is
+     * castRay(x[i], y[i], 360.0 - heading[i] - sensorHeadPositions[k]), apart from rounding.
+     *
+     * @param x the x-coordinates of the poses
+     * @param y the y-coordinates of the poses
+     * @param heading the headings of the poses (in degrees)
+     * @param from the index of the first pose (inclusive)
+     * @param to the index of the last pose (exclusive)
+     * @param sensorHeadPositions the sensor-head-positions of the beams (in degrees)
+     * @param distances receives the distance of beam k for pose i at (i - from) * sensorHeadPositions.length + k
+     */
+    void castRays(float[] x, float[] y, float[] heading, int from, int to, double[] sensorHeadPositions, double[] distances);
+
     int[] getGeneralCameraQuery(double x, double y, double angle);
 
     int getCameraAngleQuery(double x, double y, double angle);
@@ -25,4 +54,15 @@ public interface Map {
     int[] getCameraColorCodeQuery(double x, double y, double angle, int coloCode);
 
     int[] getCameraSignatureQuery(double x, double y, double angle, int signature);
+
+    /**
+     * Returns the simulated signature-queries of the camera for all signatures (1 to 7) in a single pass; the
+     * query for signature s is at index s - 1 and equals getCameraSignatureQuery(x, y, angle, s).
+     *
+     * @param x the x-coordinate of the camera
+     * @param y the y-coordinate of the camera
+     * @param angle the viewing-direction of the camera
+     * @return the signature-queries of all signatures
+     */
+    int[][] getCameraAllSignaturesQuery(double x, double y, double angle);
 }
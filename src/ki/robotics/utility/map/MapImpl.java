@@ -8,6 +8,9 @@ import ki.robotics.utility.pixyCam.PixyCam;
 import java.awt.*;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 
 
@@ -16,6 +19,8 @@ import java.util.ArrayList;
  */
 public class MapImpl implements Map {
     private static final double EPSILON = 0.00001;
+    private static final int NUMBER_OF_SIGNATURES = 7;
+    private static final int NO_SIGNATURE = Integer.MIN_VALUE;
 
     private double width;
     private double height;
@@ -26,6 +31,10 @@ public class MapImpl implements Map {
     private ArrayList<Rectangle> floorTiles;
     private ArrayList<Circle> landmarks;
 
+    private WallGrid wallGrid;
+    private LandmarkVisibilityGrid landmarkVisibility;
+    private int[] landmarkSignatures;
+
     private String mapKey;
 
 
@@ -43,6 +52,9 @@ public class MapImpl implements Map {
         this.walls = walls;
         this.floorTiles = floorTiles;
         this.landmarks = landmarks;
+        this.wallGrid = new WallGrid(walls);
+        this.landmarkVisibility = new LandmarkVisibilityGrid(walls, landmarks);
+        this.landmarkSignatures = identifySignatures(landmarks);
         updateLandmarkWallAreaOccupancy();
     }
 
@@ -172,6 +184,61 @@ public class MapImpl implements Map {
 
 
 
+    /**
+     * Returns a SHA-256-digest of the geometry relevant for distance-measurements (dimensions and walls) of
+     * this Map. Maps with equal digests yield equal results for castRay.
+     *
+     * @return the digest of the geometry of this Map
+     */
+    byte[] getGeometryDigest() {
+        ByteBuffer geometry = ByteBuffer.allocate((2 + 4 * walls.size()) * 8);
+        geometry.putDouble(width).putDouble(height);
+        for (Line wall : walls) {
+            geometry.putDouble(wall.getX1()).putDouble(wall.getY1()).putDouble(wall.getX2()).putDouble(wall.getY2());
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(geometry.array());
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnsupportedOperationException("SHA-256 not available", e);
+        }
+    }
+
+
+
+    /**
+     * Computes the distance-field (distance to the nearest wall) of this Map with the specified resolution.
+     *
+     * @param resolution the edge-length of a cell of the field (in map-units)
+     * @return the distance-field of this Map
+     */
+    DistanceField createDistanceField(double resolution) {
+        return new DistanceField(walls, width, height, resolution);
+    }
+
+
+
+    /**
+     * Returns the walls of this Map.
+     *
+     * @return the walls of this Map
+     */
+    ArrayList<Line> getWalls() {
+        return walls;
+    }
+
+
+
+    /**
+     * Returns the landmarks of this Map.
+     *
+     * @return the landmarks of this Map
+     */
+    ArrayList<Circle> getLandmarks() {
+        return landmarks;
+    }
+
+
+
     /**
      * Returns the color of the floor-tile at the specified observation-spot or -1 in case there is no
      * floor-tile at the specified spot.
@@ -193,7 +260,8 @@ public class MapImpl implements Map {
 
 
     /**
-     * Returns the distance to the nearest obstacle from a specified position in a specified direction.
+     * Returns the distance to the nearest obstacle from a specified position in a specified direction, or
+     * Double.MAX_VALUE if there is no obstacle in that direction.
      *
      * @param position the specified origin of the distance-measurement
      * @param viewingDirection the specified direction of measurement
@@ -201,24 +269,40 @@ public class MapImpl implements Map {
      */
     @Override
     public double getDistanceToNearestObstacle(Point2D position, double viewingDirection) {
-        Line sensorBeam = getLongestPossibleLineInMap(position, viewingDirection);
-        double distanceToNearestObstacle = Double.MAX_VALUE;
-        for (Line wall : walls) {
-            try {
-                Point2D intersectionPoint = wall.getIntersectionPointWith(sensorBeam);
-                boolean intersectionPointIsWithinWallBoundaries = wall.ptSegDist(intersectionPoint) < EPSILON;
-                if (intersectionPointIsWithinWallBoundaries) {
-                    double distance = position.distance(intersectionPoint);
-                    boolean currentObstacleIsCloserThanAnyOtherYet = distance < distanceToNearestObstacle;
-                    if (currentObstacleIsCloserThanAnyOtherYet) {
-                        distanceToNearestObstacle = distance;
-                    }
-                }
-            } catch (UnsupportedOperationException e) {
-                // Exception is thrown if lines do not intersect. This is an implicit 'continue' for the loop.
-            }
-        }
-        return distanceToNearestObstacle;
+        double distance = castRay(position.getX(), position.getY(), viewingDirection);
+        return Double.isInfinite(distance) ? Double.MAX_VALUE : distance;
+    }
+
+
+
+    /**
+     * Returns the distance to the nearest obstacle from the specified coordinates in the specified direction, or
+     * Double.POSITIVE_INFINITY if there is no obstacle in that direction. Only the walls within the grid-cells
+     * passed by the ray are tested; the computation neither allocates objects nor throws exceptions.
+     *
+     * @param x the x-coordinate of the origin of the distance-measurement
+     * @param y the y-coordinate of the origin of the distance-measurement
+     * @param viewingDirection the direction of measurement in degrees
+     * @return the distance to the nearest obstacle
+     */
+    @Override
+    public double castRay(double x, double y, double viewingDirection) {
+        return wallGrid.castRay(x, y, viewingDirection);
+    }
+
+
+
+    @Override
+    public boolean castRay(double x, double y, double viewingDirection, RayHit hit) {
+        wallGrid.castRay(x, y, viewingDirection, hit);
+        return hit.isHit();
+    }
+
+
+
+    @Override
+    public void castRays(float[] x, float[] y, float[] heading, int from, int to, double[] sensorHeadPositions, double[] distances) {
+        wallGrid.castRays(x, y, heading, from, to, sensorHeadPositions, distances);
     }
 
 
@@ -226,16 +310,23 @@ public class MapImpl implements Map {
 
 
 
-    //TODO Refactor.
+    /**
+     * Returns the simulated general-query of the camera: the signature and block of the largest visible landmark,
+     * or zeros if no landmark is visible. All signatures are evaluated in a single pass over the landmarks.
+     *
+     * @param x the x-coordinate of the camera
+     * @param y the y-coordinate of the camera
+     * @param angle the viewing-direction of the camera
+     * @return the general-query (signature, x-center, 0, width, 0)
+     */
     @Override
     public int[] getGeneralCameraQuery(double x, double y, double angle) {
-        int numberOfAvailableSignatures = 7;
         int byteHoldingSignatureSizeInformation = 3;
+        int[][] signatureQueries = getCameraAllSignaturesQuery(x, y, angle);
         int signature = 1;
-        int[] signatureA, signatureB;
-        signatureA = getCameraSignatureQuery(x, y, angle, signature);
-        for (int i = 2  ;  i <= numberOfAvailableSignatures  ;  i++) {
-            signatureB = getCameraSignatureQuery(x, y, angle, i);
+        int[] signatureA = signatureQueries[0];
+        for (int i = 2  ;  i <= NUMBER_OF_SIGNATURES  ;  i++) {
+            int[] signatureB = signatureQueries[i - 1];
             if (signatureA[byteHoldingSignatureSizeInformation] < signatureB [byteHoldingSignatureSizeInformation]) {
                 signatureA = signatureB;
                 signature = i;
@@ -264,58 +355,55 @@ public class MapImpl implements Map {
     }
 
 
-    //TODO REFACTOR!!!
+    /**
+     * Returns the simulated signature-query of the camera for the specified signature: the block of the first
+     * visible landmark with that signature, or zeros if there is none.
+     *
+     * @param x the x-coordinate of the camera
+     * @param y the y-coordinate of the camera
+     * @param angle the viewing-direction of the camera
+     * @param signature the signature to query for
+     * @return the signature-query (found, x-center, 0, width, 0)
+     */
     @Override
     public int[] getCameraSignatureQuery(double x, double y, double angle, int signature) {
-        double imageFullAngle = 75;
-        double imageHalfAngle = imageFullAngle / 2;
-        int pixelInFullAngle = 255;
-        String signatureString = "M" + signature;
-        Point2D.Double origin = new Point2D.Double(x, y);
-        Line cameraCenterOfFocus = getLongestPossibleLineInMap(origin, angle);
-
-        landmark_loop:
-        for (Circle landmark : landmarks) {
-            if (! landmark.getId().equals(signatureString)) {
-                continue;
-            }
-            Line landmarkVector = new Line (new Point2D.Double(x, y), new Point2D.Double(landmark.getCenterX(), landmark.getCenterY()));
-            double angleToCameraCenterOfFocus = landmarkVector.getAngleTo(cameraCenterOfFocus);
-            if (angleToCameraCenterOfFocus >= imageHalfAngle) {
-                continue;
-            }
+        return new CameraView(x, y, angle).querySignatures(signature, signature)[0];
+    }
 
-            for (Line wall : walls) {
-                if (wall.intersectsLine(landmarkVector)) {
-                    continue landmark_loop;
-                }
-            }
 
-            Line cameraLeftOuterRim = getLongestPossibleLineInMap(origin, angle - imageHalfAngle);
-            Line cameraRightOuterRim = getLongestPossibleLineInMap(origin, angle + imageHalfAngle);
-            double angleToLeftOuterRim = landmarkVector.getAngleTo(cameraLeftOuterRim);
-            double angleToRightOuterRim = landmarkVector.getAngleTo(cameraRightOuterRim);
 
-            angleToCameraCenterOfFocus = (angleToLeftOuterRim < angleToRightOuterRim) ? angleToCameraCenterOfFocus : -angleToCameraCenterOfFocus;
-            int xCoordinateOfLandmarkCenter = PixyCam.angleDegreeToPixel(angleToCameraCenterOfFocus);
+    /**
+     * Returns the simulated signature-queries of the camera for all signatures (1 to 7), computed in a single
+     * pass over the landmarks. The query for signature s is at index s - 1 and equals
+     * getCameraSignatureQuery(x, y, angle, s).
+     *
+     * @param x the x-coordinate of the camera
+     * @param y the y-coordinate of the camera
+     * @param angle the viewing-direction of the camera
+     * @return the signature-queries (found, x-center, 0, width, 0) of all signatures
+     */
+    @Override
+    public int[][] getCameraAllSignaturesQuery(double x, double y, double angle) {
+        return new CameraView(x, y, angle).querySignatures(1, NUMBER_OF_SIGNATURES);
+    }
 
-            Line toWallP1 = new Line(origin, landmark.getOccupiedWallArea().getP1());
-            Line toWallP2 = new Line(origin, landmark.getOccupiedWallArea().getP2());
-            double perceivedAngle = toWallP1.getAngleTo(toWallP2);
-            double angleBetweenCameraCenterOfFocusAndP1 = cameraCenterOfFocus.getAngleTo(toWallP1);
-            double angleBetweenCameraCenterOfFocusAndP2 = cameraCenterOfFocus.getAngleTo(toWallP2);
-            if (angleBetweenCameraCenterOfFocusAndP1 > imageHalfAngle) {
-                perceivedAngle -= (angleBetweenCameraCenterOfFocusAndP1 - imageHalfAngle);
-            }
-            if (angleBetweenCameraCenterOfFocusAndP2 > imageHalfAngle) {
-                perceivedAngle -= (angleBetweenCameraCenterOfFocusAndP2 - imageHalfAngle);
-            }
 
-            int absoluteWidth = (int) Math.round(perceivedAngle / imageFullAngle * pixelInFullAngle);
 
-            return new int[]{1,xCoordinateOfLandmarkCenter,0,absoluteWidth,0};
+    /**
+     * Returns the signatures of the specified landmarks, identified by their ids ('M' followed by the signature,
+     * e.g. 'M1'), or NO_SIGNATURE for landmarks without signature.
+     *
+     * @param landmarks the landmarks
+     * @return the signatures of the landmarks
+     */
+    private static int[] identifySignatures(ArrayList<Circle> landmarks) {
+        int[] signatures = new int[landmarks.size()];
+        for (int i = 0  ;  i < landmarks.size()  ;  i++) {
+            String id = landmarks.get(i).getId();
+            boolean hasSignature = id != null  &&  id.matches("M(0|-?[1-9][0-9]{0,8})");
+            signatures[i] = hasSignature ? Integer.parseInt(id.substring(1)) : NO_SIGNATURE;
         }
-        return new int[]{0,0,0,0,0};
+        return signatures;
     }
 
 
@@ -411,4 +499,119 @@ public class MapImpl implements Map {
             landmark.setOccupiedWallArea(leftRim, rightRim);
         }
     }
+
+
+
+
+
+
+    /**
+     * The view of the camera from a pose, answering the signature-queries of a range of signatures in a single
+     * pass over the landmarks visible from the pose. For each signature the first landmark (in the order of the
+     * map) within the image is reported. The lines to the center of focus and to the outer rims of the image are
+     * shared by all landmarks.
+     */
+    private class CameraView {
+        private static final double IMAGE_FULL_ANGLE = 75;
+        private static final double IMAGE_HALF_ANGLE = IMAGE_FULL_ANGLE / 2;
+        private static final int PIXEL_IN_FULL_ANGLE = 255;
+
+        private final double x;
+        private final double y;
+        private final double angle;
+        private final Point2D.Double origin;
+        private final Line cameraCenterOfFocus;
+        private Line cameraLeftOuterRim;
+        private Line cameraRightOuterRim;
+
+
+        /**
+         * Constructor.
+         *
+         * @param x the x-coordinate of the camera
+         * @param y the y-coordinate of the camera
+         * @param angle the viewing-direction of the camera
+         */
+        CameraView(double x, double y, double angle) {
+            this.x = x;
+            this.y = y;
+            this.angle = angle;
+            this.origin = new Point2D.Double(x, y);
+            this.cameraCenterOfFocus = getLongestPossibleLineInMap(origin, angle);
+        }
+
+
+        /**
+         * Returns the signature-queries of the signatures firstSignature to lastSignature.
+         *
+         * @param firstSignature the first signature to query
+         * @param lastSignature the last signature to query (inclusive)
+         * @return the signature-queries, the one of signature s at index s - firstSignature
+         */
+        int[][] querySignatures(int firstSignature, int lastSignature) {
+            int[][] queries = new int[lastSignature - firstSignature + 1][];
+            int cell = landmarkVisibility.getCell(x, y);
+            int[] visibleLandmarks = landmarkVisibility.getLandmarks(cell);
+            for (int entry = 0  ;  entry < visibleLandmarks.length  ;  entry++) {
+                int signature = landmarkSignatures[visibleLandmarks[entry]];
+                if (signature < firstSignature  ||  signature > lastSignature  ||  queries[signature - firstSignature] != null) {
+                    continue;
+                }
+                Circle landmark = landmarks.get(visibleLandmarks[entry]);
+                Line landmarkVector = new Line (new Point2D.Double(x, y), new Point2D.Double(landmark.getCenterX(), landmark.getCenterY()));
+                double angleToCameraCenterOfFocus = landmarkVector.getAngleTo(cameraCenterOfFocus);
+                if (angleToCameraCenterOfFocus >= IMAGE_HALF_ANGLE) {
+                    continue;
+                }
+                if (! landmarkVisibility.isVisible(cell, entry, x, y)) {
+                    continue;
+                }
+                queries[signature - firstSignature] = createSignatureQuery(landmark, landmarkVector, angleToCameraCenterOfFocus);
+            }
+            for (int i = 0  ;  i < queries.length  ;  i++) {
+                if (queries[i] == null) {
+                    queries[i] = new int[]{0,0,0,0,0};
+                }
+            }
+            return queries;
+        }
+
+
+        /**
+         * Creates the signature-query of a landmark within the image: the position of its center and its width
+         * (in pixels), reduced by the parts outside the image.
+         *
+         * @param landmark the landmark
+         * @param landmarkVector the line from the camera to the center of the landmark
+         * @param angleToCameraCenterOfFocus the angle between the center of focus and the landmark
+         * @return the signature-query (1, x-center, 0, width, 0)
+         */
+        private int[] createSignatureQuery(Circle landmark, Line landmarkVector, double angleToCameraCenterOfFocus) {
+            if (cameraLeftOuterRim == null) {
+                cameraLeftOuterRim = getLongestPossibleLineInMap(origin, angle - IMAGE_HALF_ANGLE);
+                cameraRightOuterRim = getLongestPossibleLineInMap(origin, angle + IMAGE_HALF_ANGLE);
+            }
+            double angleToLeftOuterRim = landmarkVector.getAngleTo(cameraLeftOuterRim);
+            double angleToRightOuterRim = landmarkVector.getAngleTo(cameraRightOuterRim);
+
+            angleToCameraCenterOfFocus = (angleToLeftOuterRim < angleToRightOuterRim) ? angleToCameraCenterOfFocus : -angleToCameraCenterOfFocus;
+            int xCoordinateOfLandmarkCenter = PixyCam.angleDegreeToPixel(angleToCameraCenterOfFocus);
+
+            Line toWallP1 = new Line(origin, landmark.getOccupiedWallArea().getP1());
+            Line toWallP2 = new Line(origin, landmark.getOccupiedWallArea().getP2());
+            double perceivedAngle = toWallP1.getAngleTo(toWallP2);
+            double angleBetweenCameraCenterOfFocusAndP1 = cameraCenterOfFocus.getAngleTo(toWallP1);
+            double angleBetweenCameraCenterOfFocusAndP2 = cameraCenterOfFocus.getAngleTo(toWallP2);
+            if (angleBetweenCameraCenterOfFocusAndP1 > IMAGE_HALF_ANGLE) {
+                perceivedAngle -= (angleBetweenCameraCenterOfFocusAndP1 - IMAGE_HALF_ANGLE);
+            }
+            if (angleBetweenCameraCenterOfFocusAndP2 > IMAGE_HALF_ANGLE) {
+                perceivedAngle -= (angleBetweenCameraCenterOfFocusAndP2 - IMAGE_HALF_ANGLE);
+            }
+
+            int absoluteWidth = (int) Math.round(perceivedAngle / IMAGE_FULL_ANGLE * PIXEL_IN_FULL_ANGLE);
+
+            return new int[]{1,xCoordinateOfLandmarkCenter,0,absoluteWidth,0};
+        }
+    }
 }
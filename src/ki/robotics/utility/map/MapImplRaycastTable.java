@@ -0,0 +1,449 @@
+package ki.robotics.utility.map;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Map answering distance-measurements (castRay) from a precomputed lookup-table instead of geometric
+ * intersection. The table holds the exact distance for sample-positions on a regular grid with the configured
+ * spatial resolution and for headings quantized to the configured angular resolution; a lookup returns the
+ * value of the nearest sample. All other requests are delegated to the underlying (exact) map.
+ * The table is built lazily per heading, or ahead of time by calling precompute(). Alternatively the table
+ * can be backed by a (memory-mapped) buffer, as read from a raycast-table-file.
+ */
+public class MapImplRaycastTable implements Map {
+    static final int BYTES_PER_ENTRY = 4;
+
+    private final Map map;
+    private final double spatialResolution;
+    private final double angularResolution;
+    private final int columns;
+    private final int rows;
+    private final int headings;
+    private final AtomicReferenceArray<float[]> tablesPerHeading;
+    private final ByteBuffer mappedTable;
+
+
+
+    /**
+     * Constructs a raycast-table for the specified map with the specified resolutions.
+     *
+     * @param map the map to tabulate
+     * @param spatialResolution the distance between two sample-positions (in map-units)
+     * @param angularResolution the distance between two sample-headings (in degrees)
+     */
+    MapImplRaycastTable(Map map, double spatialResolution, double angularResolution) {
+        this(map, spatialResolution, angularResolution, null);
+    }
+
+
+
+    /**
+     * Constructs a raycast-table for the specified map, backed by the specified buffer. The buffer holds the
+     * distances as little-endian floats, ordered by heading, row and column. Without a buffer, the table is
+     * built lazily per heading.
+     *
+     * @param map the tabulated map
+     * @param spatialResolution the distance between two sample-positions (in map-units)
+     * @param angularResolution the distance between two sample-headings (in degrees)
+     * @param table the buffer holding the distances, or null
+     * @exception IllegalArgumentException in case the size of the buffer does not match map and resolutions
+     */
+    MapImplRaycastTable(Map map, double spatialResolution, double angularResolution, ByteBuffer table) {
+        this.map = map;
+        this.spatialResolution = spatialResolution;
+        this.headings = Math.max(1, (int) Math.round(360 / angularResolution));
+        this.angularResolution = 360.0 / headings;
+        this.columns = (int) Math.floor(map.getMinWidthForMapDisplay() / spatialResolution) + 1;
+        this.rows = (int) Math.floor(map.getMinHeightForMapDisplay() / spatialResolution) + 1;
+        if (table == null) {
+            this.tablesPerHeading = new AtomicReferenceArray<>(headings);
+            this.mappedTable = null;
+            return;
+        }
+        this.tablesPerHeading = null;
+        this.mappedTable = table.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (mappedTable.capacity() != getRequiredMemory(map, spatialResolution, angularResolution)) {
+            throw new IllegalArgumentException("Size of raycast-table does not match map and resolutions");
+        }
+    }
+
+
+
+    /**
+     * Returns the number of bytes required by a raycast-table for the specified map and resolutions.
+     *
+     * @param map the map to tabulate
+     * @param spatialResolution the distance between two sample-positions (in map-units)
+     * @param angularResolution the distance between two sample-headings (in degrees)
+     * @return the required memory in bytes
+     */
+    static long getRequiredMemory(Map map, double spatialResolution, double angularResolution) {
+        long columns = (long) Math.floor(map.getMinWidthForMapDisplay() / spatialResolution) + 1;
+        long rows = (long) Math.floor(map.getMinHeightForMapDisplay() / spatialResolution) + 1;
+        long headings = Math.max(1, Math.round(360 / angularResolution));
+        return columns * rows * headings * BYTES_PER_ENTRY;
+    }
+
+
+
+    /**
+     * Computes the complete table ahead of time.
+     */
+    public void precompute() {
+        if (mappedTable != null) {
+            return;
+        }
+        for (int heading = 0  ;  heading < headings  ;  heading++) {
+            getTableForHeading(heading);
+        }
+    }
+
+
+
+    /**
+     * Returns the tabulated distance to the nearest obstacle for the sample nearest to the specified coordinates
+     * and direction. Coordinates outside the tabulated area are answered by the exact map.
+     *
+     * @param x the x-coordinate of the origin of the distance-measurement
+     * @param y the y-coordinate of the origin of the distance-measurement
+     * @param viewingDirection the direction of measurement in degrees
+     * @return the (approximated) distance to the nearest obstacle
+     */
+    @Override
+    public double castRay(double x, double y, double viewingDirection) {
+        int column = (int) Math.round(x / spatialResolution);
+        int row = (int) Math.round(y / spatialResolution);
+        if (column < 0  ||  column >= columns  ||  row < 0  ||  row >= rows) {
+            return map.castRay(x, y, viewingDirection);
+        }
+        int heading = toHeadingIndex(viewingDirection);
+        if (mappedTable != null) {
+            return mappedTable.getFloat(((heading * rows + row) * columns + column) * BYTES_PER_ENTRY);
+        }
+        return getTableForHeading(heading)[row * columns + column];
+    }
+
+
+
+    /**
+     * Casts a ray against the exact map, as the table holds neither the walls nor the intersection-points.
+     *
+     * @param x the x-coordinate of the origin of the ray
+     * @param y the y-coordinate of the origin of the ray
+     * @param viewingDirection the direction of the ray in degrees
+     * @param hit receives the result of the ray-cast
+     * @return true, if the ray hit a wall
+     */
+    @Override
+    public boolean castRay(double x, double y, double viewingDirection, RayHit hit) {
+        return map.castRay(x, y, viewingDirection, hit);
+    }
+
+
+
+    /**
+     * Looks up the tabulated distances of all beams for a range of poses. The heading-indices of the beams are
+     * computed in a flat loop per pose (from the beam-offsets in units of the angular resolution, without the
+     * floating-point-remainder of toHeadingIndex), followed by the table-lookups. Poses outside the tabulated
+     * area are answered by the exact map.
+     */
+    @Override
+    public void castRays(float[] x, float[] y, float[] heading, int from, int to, double[] sensorHeadPositions, double[] distances) {
+        int beams = sensorHeadPositions.length;
+        int[] headingIndices = new int[beams];
+        double[] beamOffsets = new double[beams];
+        for (int k = 0  ;  k < beams  ;  k++) {
+            beamOffsets[k] = sensorHeadPositions[k] / angularResolution;
+        }
+        for (int i = from  ;  i < to  ;  i++) {
+            int offset = (i - from) * beams;
+            int column = (int) Math.round(x[i] / spatialResolution);
+            int row = (int) Math.round(y[i] / spatialResolution);
+            if (column < 0  ||  column >= columns  ||  row < 0  ||  row >= rows) {
+                for (int k = 0  ;  k < beams  ;  k++) {
+                    distances[offset + k] = map.castRay(x[i], y[i], 360.0 - heading[i] - sensorHeadPositions[k]);
+                }
+                continue;
+            }
+            double particleOffset = (360.0 - heading[i]) / angularResolution;
+            for (int k = 0  ;  k < beams  ;  k++) {
+                headingIndices[k] = (int) Math.floor(particleOffset - beamOffsets[k] + 0.5) % headings;
+            }
+            for (int k = 0  ;  k < beams  ;  k++) {
+                if (headingIndices[k] < 0) {
+                    headingIndices[k] += headings;
+                }
+            }
+            int cell = row * columns + column;
+            if (mappedTable != null) {
+                for (int k = 0  ;  k < beams  ;  k++) {
+                    distances[offset + k] = mappedTable.getFloat((headingIndices[k] * rows * columns + cell) * BYTES_PER_ENTRY);
+                }
+            } else {
+                for (int k = 0  ;  k < beams  ;  k++) {
+                    distances[offset + k] = getTableForHeading(headingIndices[k])[cell];
+                }
+            }
+        }
+    }
+
+
+
+    /**
+     * Writes the complete table to the specified channel as little-endian floats, ordered by heading, row and
+     * column. Missing parts of the table are computed beforehand.
+     *
+     * @param channel the channel to write to
+     * @throws IOException in case of an I/O-error
+     */
+    void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(columns * rows * BYTES_PER_ENTRY).order(ByteOrder.LITTLE_ENDIAN);
+        for (int heading = 0  ;  heading < headings  ;  heading++) {
+            buffer.clear();
+            if (mappedTable != null) {
+                ByteBuffer source = mappedTable.duplicate();
+                source.position(heading * buffer.capacity());
+                source.limit(source.position() + buffer.capacity());
+                buffer.put(source);
+            } else {
+                buffer.asFloatBuffer().put(getTableForHeading(heading));
+            }
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+
+
+    /**
+     * Returns the distance between two sample-positions (in map-units).
+     *
+     * @return the spatial resolution
+     */
+    double getSpatialResolution() { return spatialResolution; }
+
+
+
+    /**
+     * Returns the distance between two sample-headings (in degrees).
+     *
+     * @return the angular resolution
+     */
+    double getAngularResolution() { return angularResolution; }
+
+
+
+    /**
+     * Returns a boolean value indicating whether this table is backed by a (memory-mapped) buffer.
+     *
+     * @return true if this table is backed by a buffer, false if it is computed in memory
+     */
+    boolean isMapped() { return mappedTable != null; }
+
+
+
+    /**
+     * Compares the tabulated distances with the exact ray-caster at the specified number of random positions
+     * within the operating-range of the map and random directions.
+     *
+     * @param numberOfSamples the number of measurements to compare
+     * @param seed the seed for the random positions and directions
+     * @return the deviations between tabulated and exact distances
+     */
+    public Accuracy compareWithExactRaycaster(int numberOfSamples, long seed) {
+        Random random = new Random(seed);
+        Rectangle bounds = getOperatingRange().getBounds();
+        Accuracy accuracy = new Accuracy();
+        while (accuracy.numberOfSamples < numberOfSamples) {
+            double x = bounds.getX() + random.nextDouble() * bounds.getWidth();
+            double y = bounds.getY() + random.nextDouble() * bounds.getHeight();
+            if (getOperatingRange().contains(x, y)) {
+                double viewingDirection = random.nextDouble() * 360;
+                accuracy.add(map.castRay(x, y, viewingDirection), castRay(x, y, viewingDirection));
+            }
+        }
+        return accuracy;
+    }
+
+
+
+    /**
+     * Returns the table of distances for the specified heading, computing it if necessary. Concurrent first
+     * accesses may compute the same table more than once, which is harmless as the results are identical.
+     *
+     * @param heading the index of the heading
+     * @return the distances for all sample-positions, indexed by row * columns + column
+     */
+    private float[] getTableForHeading(int heading) {
+        float[] table = tablesPerHeading.get(heading);
+        if (table == null) {
+            table = new float[columns * rows];
+            double viewingDirection = heading * angularResolution;
+            for (int row = 0  ;  row < rows  ;  row++) {
+                for (int column = 0  ;  column < columns  ;  column++) {
+                    double distance = map.castRay(column * spatialResolution, row * spatialResolution, viewingDirection);
+                    table[row * columns + column] = (float) distance;
+                }
+            }
+            tablesPerHeading.compareAndSet(heading, null, table);
+            table = tablesPerHeading.get(heading);
+        }
+        return table;
+    }
+
+
+
+    /**
+     * Returns the index of the sample-heading nearest to the specified direction.
+     *
+     * @param viewingDirection the direction in degrees
+     * @return the index of the nearest sample-heading
+     */
+    private int toHeadingIndex(double viewingDirection) {
+        double direction = viewingDirection % 360;
+        if (direction < 0) {
+            direction += 360;
+        }
+        return (int) Math.round(direction / angularResolution) % headings;
+    }
+
+
+
+    @Override
+    public String getMapKey() { return map.getMapKey(); }
+
+    @Override
+    public Polygon getOperatingRange() { return map.getOperatingRange(); }
+
+    @Override
+    public void paint(Graphics g, int scaleFactor, int xOffset, int yOffset) { map.paint(g, scaleFactor, xOffset, yOffset); }
+
+    @Override
+    public int getMinWidthForMapDisplay() { return map.getMinWidthForMapDisplay(); }
+
+    @Override
+    public int getMinHeightForMapDisplay() { return map.getMinHeightForMapDisplay(); }
+
+    @Override
+    public int getFloorColorAt(Point2D observationSpot) { return map.getFloorColorAt(observationSpot); }
+
+    @Override
+    public double getDistanceToNearestObstacle(Point2D position, double viewingDirection) {
+        return map.getDistanceToNearestObstacle(position, viewingDirection);
+    }
+
+    @Override
+    public int[] getGeneralCameraQuery(double x, double y, double angle) {
+        return map.getGeneralCameraQuery(x, y, angle);
+    }
+
+    @Override
+    public int getCameraAngleQuery(double x, double y, double angle) {
+        return map.getCameraAngleQuery(x, y, angle);
+    }
+
+    @Override
+    public int[] getCameraColorCodeQuery(double x, double y, double angle, int colorCode) {
+        return map.getCameraColorCodeQuery(x, y, angle, colorCode);
+    }
+
+    @Override
+    public int[] getCameraSignatureQuery(double x, double y, double angle, int signature) {
+        return map.getCameraSignatureQuery(x, y, angle, signature);
+    }
+
+    @Override
+    public int[][] getCameraAllSignaturesQuery(double x, double y, double angle) {
+        return map.getCameraAllSignaturesQuery(x, y, angle);
+    }
+
+
+
+
+
+    /**
+     * Deviations between tabulated and exact distances.
+     */
+    public static class Accuracy {
+        private int numberOfSamples;
+        private int numberOfFiniteSamples;
+        private int numberOfMismatchedMisses;
+        private double sumOfAbsoluteErrors;
+        private double maximumAbsoluteError;
+
+
+        /**
+         * Adds a pair of exact and tabulated distance.
+         *
+         * @param exact the exact distance
+         * @param tabulated the tabulated distance
+         */
+        void add(double exact, double tabulated) {
+            numberOfSamples++;
+            if (Double.isInfinite(exact)  ||  Double.isInfinite(tabulated)) {
+                if (exact != tabulated) {
+                    numberOfMismatchedMisses++;
+                }
+                return;
+            }
+            double error = Math.abs(exact - tabulated);
+            numberOfFiniteSamples++;
+            sumOfAbsoluteErrors += error;
+            maximumAbsoluteError = Math.max(maximumAbsoluteError, error);
+        }
+
+
+        /**
+         * Returns the number of compared measurements.
+         *
+         * @return the number of compared measurements
+         */
+        public int getNumberOfSamples() { return numberOfSamples; }
+
+
+        /**
+         * Returns the number of measurements where only one of both ray-casters hit an obstacle.
+         *
+         * @return the number of measurements with mismatching misses
+         */
+        public int getNumberOfMismatchedMisses() { return numberOfMismatchedMisses; }
+
+
+        /**
+         * Returns the mean absolute deviation of the tabulated distances, over the measurements where both
+         * ray-casters hit an obstacle.
+         *
+         * @return the mean absolute deviation
+         */
+        public double getMeanAbsoluteError() {
+            return (numberOfFiniteSamples > 0) ? sumOfAbsoluteErrors / numberOfFiniteSamples : 0;
+        }
+
+
+        /**
+         * Returns the maximum absolute deviation of the tabulated distances.
+         *
+         * @return the maximum absolute deviation
+         */
+        public double getMaximumAbsoluteError() { return maximumAbsoluteError; }
+
+
+        @Override
+        public String toString() {
+            return "samples: " + numberOfSamples
+                    + ", mean abs. error: " + getMeanAbsoluteError()
+                    + ", max. abs. error: " + maximumAbsoluteError
+                    + ", mismatched misses: " + numberOfMismatchedMisses;
+        }
+    }
+}
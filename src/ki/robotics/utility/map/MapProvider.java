@@ -9,5 +9,9 @@ public interface MapProvider {
 
     Map getMap(String key);
 
+    Map getTabulatedMap(String key, double spatialResolution, double angularResolution, long memoryBudget);
+
+    DistanceField getDistanceField(String key, double resolution);
+
     int[] getMapLimitations(String key);
 }
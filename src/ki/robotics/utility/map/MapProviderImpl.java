@@ -11,6 +11,10 @@ public class MapProviderImpl implements MapProvider {
 
     private final HashMap<String, Map> maps = new HashMap<>();
     private final ArrayList<String> mapKeys = new ArrayList<>();
+    private final HashMap<String, File> mapFiles = new HashMap<>();
+    private final HashMap<String, Map> tabulatedMaps = new HashMap<>();
+    private final HashMap<String, DistanceField> distanceFields = new HashMap<>();
+    private File raycastTableDirectory;
 
 
     /**
@@ -83,6 +87,81 @@ public class MapProviderImpl implements MapProvider {
 
 
 
+    /**
+     * Returns the map associated with the specified key, answering distance-measurements from a precomputed
+     * raycast-table with the specified resolutions. Tables are shared between all callers requesting the same
+     * map and resolutions, and persisted for subsequent starts (next to the SVG-file of the map, unless another
+     * directory is set by setRaycastTableDirectory).
+     * If the table would exceed the specified memory-budget, the exact map is returned.
+     *
+     * @param key the specified key to a map
+     * @param spatialResolution the distance between two sample-positions of the table (in map-units)
+     * @param angularResolution the distance between two sample-headings of the table (in degrees)
+     * @param memoryBudget the maximum size of the table in bytes
+     * @return the tabulated map associated with the specified key, or the exact map if exceeding the budget
+     */
+    @Override
+    public synchronized Map getTabulatedMap(String key, double spatialResolution, double angularResolution, long memoryBudget) {
+        Map map = maps.get(key);
+        if (map == null  ||  spatialResolution <= 0  ||  angularResolution <= 0) {
+            return map;
+        }
+        long requiredMemory = MapImplRaycastTable.getRequiredMemory(map, spatialResolution, angularResolution);
+        if (requiredMemory > memoryBudget) {
+            System.err.println("raycast-table for " + key + " exceeds memory-budget (" + requiredMemory + " bytes)");
+            return map;
+        }
+        String tableKey = key + "@" + spatialResolution + "/" + angularResolution;
+        Map tabulatedMap = tabulatedMaps.get(tableKey);
+        if (tabulatedMap == null) {
+            MapImpl exactMap = (MapImpl) map;
+            File mapFile = mapFiles.get(key);
+            File tableLocation = (raycastTableDirectory != null) ? new File(raycastTableDirectory, mapFile.getName()) : mapFile;
+            RaycastTableFile tableFile = new RaycastTableFile(tableLocation, exactMap.getGeometryDigest(), spatialResolution, angularResolution);
+            tabulatedMap = tableFile.loadOrCreate(map, spatialResolution, angularResolution);
+            tabulatedMaps.put(tableKey, tabulatedMap);
+        }
+        return tabulatedMap;
+    }
+
+
+
+    /**
+     * Sets the directory the raycast-tables are persisted in. Tables created before are not affected.
+     *
+     * @param directory the directory for raycast-tables, or null to persist them next to the SVG-files of the maps
+     */
+    synchronized void setRaycastTableDirectory(File directory) {
+        this.raycastTableDirectory = directory;
+    }
+
+
+
+    /**
+     * Returns the distance-field (distance to the nearest wall) of the map associated with the specified key.
+     * Fields are computed once and shared between all callers requesting the same map and resolution.
+     *
+     * @param key the specified key to a map
+     * @param resolution the edge-length of a cell of the field (in map-units)
+     * @return the distance-field of the map, or null if there is no map associated with the specified key
+     */
+    @Override
+    public synchronized DistanceField getDistanceField(String key, double resolution) {
+        Map map = maps.get(key);
+        if (map == null  ||  resolution <= 0) {
+            return null;
+        }
+        String fieldKey = key + "@" + resolution;
+        DistanceField distanceField = distanceFields.get(fieldKey);
+        if (distanceField == null) {
+            distanceField = ((MapImpl) map).createDistanceField(resolution);
+            distanceFields.put(fieldKey, distanceField);
+        }
+        return distanceField;
+    }
+
+
+
     /**
      * Constructs a map identified by the specified key, from a specified file with a specified operating-range.
      *
@@ -91,11 +170,13 @@ public class MapProviderImpl implements MapProvider {
      * @param boundaries the operating-range within the map
      */
     private void createMap(String key, String filename, Polygon boundaries) {
-        SVGParser parser = new SVGParser(new File(getClass().getClassLoader().getResource(filename).getFile()));
+        File file = new File(getClass().getClassLoader().getResource(filename).getFile());
+        SVGParser parser = new SVGParser(file);
         MapImpl map = parser.getMap();
         map.setMapKey(key);
         map.setOperatingRange(boundaries);
         maps.put(key, map);
+        mapFiles.put(key, file);
         mapKeys.add(key);
     }
 
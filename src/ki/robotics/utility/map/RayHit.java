@@ -0,0 +1,89 @@
+package ki.robotics.utility.map;
+
+import ki.robotics.utility.map.mapElements.Line;
+
+
+/**
+ * Mutable result of a ray-cast (see Map.castRay(double, double, double, RayHit)): the distance to the nearest
+ * wall, the intersection-point and the wall itself. A single instance is meant to be reused for many ray-casts,
+ * so that ray-casting stays free of allocations; each ray-cast overwrites all fields.
+ * After a miss, the distance is Double.POSITIVE_INFINITY, the coordinates are Double.NaN and the wall is null.
+ */
+public class RayHit {
+    private double distance;
+    private double x;
+    private double y;
+    private Line wall;
+
+
+
+    /**
+     * Constructor. The newly constructed RayHit holds a miss.
+     */
+    public RayHit() {
+        setMiss();
+    }
+
+
+
+    /**
+     * Stores a hit of the specified wall.
+     *
+     * @param distance the distance from the origin of the ray to the intersection-point
+     * @param x the x-coordinate of the intersection-point
+     * @param y the y-coordinate of the intersection-point
+     * @param wall the wall hit by the ray
+     */
+    void set(double distance, double x, double y, Line wall) {
+        this.distance = distance;
+        this.x = x;
+        this.y = y;
+        this.wall = wall;
+    }
+
+
+
+    /**
+     * Stores a miss (no wall in the direction of the ray).
+     */
+    void setMiss() {
+        set(Double.POSITIVE_INFINITY, Double.NaN, Double.NaN, null);
+    }
+
+
+
+    /**
+     * Checks whether the ray hit a wall.
+     *
+     * @return true, if the ray hit a wall
+     */
+    public boolean isHit() { return wall != null; }
+
+    /**
+     * Returns the distance to the wall hit by the ray, or Double.POSITIVE_INFINITY after a miss.
+     *
+     * @return the distance to the wall
+     */
+    public double getDistance() { return distance; }
+
+    /**
+     * Returns the x-coordinate of the intersection-point, or Double.NaN after a miss.
+     *
+     * @return the x-coordinate of the intersection-point
+     */
+    public double getX() { return x; }
+
+    /**
+     * Returns the y-coordinate of the intersection-point, or Double.NaN after a miss.
+     *
+     * @return the y-coordinate of the intersection-point
+     */
+    public double getY() { return y; }
+
+    /**
+     * Returns the wall hit by the ray, or null after a miss.
+     *
+     * @return the wall hit by the ray
+     */
+    public Line getWall() { return wall; }
+}
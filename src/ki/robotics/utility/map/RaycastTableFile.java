@@ -0,0 +1,169 @@
+package ki.robotics.utility.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+
+/**
+ * Persistent storage of raycast-tables next to the SVG-file of the tabulated map.
+ *
+ * The file-format (version 1, little-endian) consists of a header of 68 bytes followed by the distances:
+ * <pre>
+ *   int      magic number ("RCTB")
+ *   int      format-version
+ *   byte[32] SHA-256-digest of the map-geometry
+ *   double   spatial resolution
+ *   double   angular resolution
+ *   int      columns, rows, headings
+ *   float[]  distances, ordered by heading, row and column
+ * </pre>
+ * Files whose version, geometry-digest or resolutions do not match the requested table are rebuilt, so
+ * modifications of the SVG-file invalidate the stored tables automatically. Tables are read via memory-mapped
+ * I/O, so loading is immediate and concurrent client-processes share the same pages.
+ */
+class RaycastTableFile {
+    private static final int MAGIC_NUMBER = 0x52435442;
+    private static final int FORMAT_VERSION = 1;
+    private static final int DIGEST_LENGTH = 32;
+    private static final int HEADER_LENGTH = 4 + 4 + DIGEST_LENGTH + 8 + 8 + 4 + 4 + 4;
+    private static final String FILE_EXTENSION = ".raycast";
+
+    private final File file;
+    private final byte[] geometryDigest;
+
+
+
+    /**
+     * Constructs the raycast-table-file for the specified SVG-file, map-geometry and resolutions.
+     *
+     * @param svgFile the SVG-file of the tabulated map
+     * @param geometryDigest the digest of the map-geometry
+     * @param spatialResolution the distance between two sample-positions (in map-units)
+     * @param angularResolution the distance between two sample-headings (in degrees)
+     */
+    RaycastTableFile(File svgFile, byte[] geometryDigest, double spatialResolution, double angularResolution) {
+        String name = svgFile.getName() + "-" + spatialResolution + "-" + angularResolution + FILE_EXTENSION;
+        this.file = new File(svgFile.getParentFile(), name);
+        this.geometryDigest = geometryDigest;
+    }
+
+
+
+    /**
+     * Returns the raycast-table for the specified map, either memory-mapped from the file or, if the file is
+     * missing or outdated, computed and then written to the file. If the file can not be written, the computed
+     * table is returned.
+     *
+     * @param map the map to tabulate
+     * @param spatialResolution the distance between two sample-positions (in map-units)
+     * @param angularResolution the distance between two sample-headings (in degrees)
+     * @return the raycast-table for the specified map
+     */
+    MapImplRaycastTable loadOrCreate(Map map, double spatialResolution, double angularResolution) {
+        MapImplRaycastTable table = load(map, spatialResolution, angularResolution);
+        if (table != null) {
+            return table;
+        }
+
+        table = new MapImplRaycastTable(map, spatialResolution, angularResolution);
+        try {
+            save(table, map);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return table;
+        }
+        MapImplRaycastTable mappedTable = load(map, spatialResolution, angularResolution);
+        return (mappedTable != null) ? mappedTable : table;
+    }
+
+
+
+    /**
+     * Returns the memory-mapped raycast-table from the file, or null if the file is missing, unreadable or
+     * does not match the map-geometry and resolutions.
+     *
+     * @param map the tabulated map
+     * @param spatialResolution the distance between two sample-positions (in map-units)
+     * @param angularResolution the distance between two sample-headings (in degrees)
+     * @return the memory-mapped raycast-table or null
+     */
+    private MapImplRaycastTable load(Map map, double spatialResolution, double angularResolution) {
+        if (! file.isFile()) {
+            return null;
+        }
+        MapImplRaycastTable expected = new MapImplRaycastTable(map, spatialResolution, angularResolution);
+        long tableLength = MapImplRaycastTable.getRequiredMemory(map, spatialResolution, angularResolution);
+
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            if (channel.size() != HEADER_LENGTH + tableLength) {
+                return null;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] digest = new byte[DIGEST_LENGTH];
+            if (header.getInt() != MAGIC_NUMBER  ||  header.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            header.get(digest);
+            boolean matchesRequest = Arrays.equals(digest, geometryDigest)
+                    && header.getDouble() == expected.getSpatialResolution()
+                    && header.getDouble() == expected.getAngularResolution();
+            if (! matchesRequest) {
+                return null;
+            }
+
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, tableLength);
+            return new MapImplRaycastTable(map, spatialResolution, angularResolution, table);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+
+
+    /**
+     * Writes the specified raycast-table to the file. The table is written to a temporary file first, which
+     * then replaces the file, so concurrent readers never observe a partially written table.
+     *
+     * @param table the raycast-table to write
+     * @param map the tabulated map
+     * @throws IOException in case of an I/O-error
+     */
+    private void save(MapImplRaycastTable table, Map map) throws IOException {
+        File temporaryFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            try (RandomAccessFile out = new RandomAccessFile(temporaryFile, "rw")) {
+                FileChannel channel = out.getChannel();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC_NUMBER).putInt(FORMAT_VERSION).put(geometryDigest);
+                header.putDouble(table.getSpatialResolution()).putDouble(table.getAngularResolution());
+                int columns = (int) Math.floor(map.getMinWidthForMapDisplay() / table.getSpatialResolution()) + 1;
+                int rows = (int) Math.floor(map.getMinHeightForMapDisplay() / table.getSpatialResolution()) + 1;
+                int headings = (int) Math.round(360 / table.getAngularResolution());
+                header.putInt(columns).putInt(rows).putInt(headings);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                table.writeTo(channel);
+                channel.force(true);
+            }
+            if (! temporaryFile.renameTo(file)) {
+                if (! file.delete()  ||  ! temporaryFile.renameTo(file)) {
+                    throw new IOException("Unable to replace raycast-table-file " + file);
+                }
+            }
+        } finally {
+            if (temporaryFile.exists()) {
+                temporaryFile.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package ki.robotics.utility.map;
+
+import ki.robotics.utility.map.mapElements.Line;
+
+import java.util.ArrayList;
+
+
+/**
+ * Uniform grid over the walls of a map, used to accelerate distance-measurements (ray-casting).
+ * Each wall is registered in every cell its (slightly enlarged) bounding-box overlaps. A ray only has to be
+ * tested against the walls of the cells it passes through, visited in order of increasing distance from its
+ * origin, and the traversal stops as soon as an intersection within the current cell is found.
+ * The walls are held in primitive arrays, so ray-casting works without allocations.
+ * Batches of rays (several beams for many poses) share the trigonometry: the directions of all beams of a pose
+ * follow from the sine and cosine of the pose-heading and of the beams by the angle-sum-identities, in a flat loop
+ * over the beams, before each ray is traversed.
+ */
+class WallGrid {
+    private static final double EPSILON = 0.00001;
+    private static final double CELL_PADDING = 0.5;
+    private static final double MIN_CELL_SIZE = 1;
+    private static final int CELLS_PER_WALL_AND_AXIS = 2;
+    private static final double PARALLEL_EPSILON = 1e-12;
+    private static final int NO_WALL = -1;
+
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final Line[] walls;
+    private final double[] wallStartX;
+    private final double[] wallStartY;
+    private final double[] wallDeltaX;
+    private final double[] wallDeltaY;
+    private final double[] wallTolerance;
+    private final int[][] cells;
+
+
+
+    /**
+     * Constructs and initializes a grid over the specified walls.
+     *
+     * @param walls the walls to register in the grid
+     */
+    WallGrid(ArrayList<Line> walls) {
+        double left = Double.MAX_VALUE, top = Double.MAX_VALUE;
+        double right = -Double.MAX_VALUE, bottom = -Double.MAX_VALUE;
+        for (Line wall : walls) {
+            left = Math.min(left, Math.min(wall.getX1(), wall.getX2()));
+            top = Math.min(top, Math.min(wall.getY1(), wall.getY2()));
+            right = Math.max(right, Math.max(wall.getX1(), wall.getX2()));
+            bottom = Math.max(bottom, Math.max(wall.getY1(), wall.getY2()));
+        }
+        if (walls.isEmpty()) {
+            left = top = right = bottom = 0;
+        }
+
+        this.minX = left - CELL_PADDING;
+        this.minY = top - CELL_PADDING;
+        double extent = Math.max(right - left, bottom - top) + 2 * CELL_PADDING;
+        int cellsAlongLongerAxis = (int) Math.ceil(Math.sqrt(walls.size())) * CELLS_PER_WALL_AND_AXIS;
+        this.cellSize = Math.max(MIN_CELL_SIZE, extent / Math.max(1, cellsAlongLongerAxis));
+        this.columns = Math.max(1, (int) Math.ceil((right - left + 2 * CELL_PADDING) / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil((bottom - top + 2 * CELL_PADDING) / cellSize));
+
+        int numberOfWalls = walls.size();
+        this.walls = walls.toArray(new Line[numberOfWalls]);
+        this.wallStartX = new double[numberOfWalls];
+        this.wallStartY = new double[numberOfWalls];
+        this.wallDeltaX = new double[numberOfWalls];
+        this.wallDeltaY = new double[numberOfWalls];
+        this.wallTolerance = new double[numberOfWalls];
+        for (int i = 0  ;  i < numberOfWalls  ;  i++) {
+            Line wall = walls.get(i);
+            wallStartX[i] = wall.getX1();
+            wallStartY[i] = wall.getY1();
+            wallDeltaX[i] = wall.getX2() - wall.getX1();
+            wallDeltaY[i] = wall.getY2() - wall.getY1();
+            wallTolerance[i] = EPSILON / Math.max(EPSILON, wall.getLength());
+        }
+        this.cells = createCells(walls);
+    }
+
+
+
+    /**
+     * Returns the x-coordinate of the left border of the grid.
+     *
+     * @return the x-coordinate of the left border of the first column
+     */
+    double getMinX() { return minX; }
+
+
+
+    /**
+     * Returns the y-coordinate of the upper border of the grid.
+     *
+     * @return the y-coordinate of the upper border of the first row
+     */
+    double getMinY() { return minY; }
+
+
+
+    /**
+     * Returns the edge-length of a (square) cell.
+     *
+     * @return the edge-length of a cell
+     */
+    double getCellSize() { return cellSize; }
+
+
+
+    /**
+     * Returns the distance from the specified position to the nearest wall in the specified direction, or
+     * Double.POSITIVE_INFINITY if the ray does not hit any wall. No objects are allocated and no exceptions are
+     * thrown, so this method may be called concurrently and at high rates.
+     *
+     * @param x the x-coordinate of the origin of the ray
+     * @param y the y-coordinate of the origin of the ray
+     * @param viewingDirection the direction of the ray in degrees
+     * @return the distance to the nearest wall hit by the ray
+     */
+    double castRay(double x, double y, double viewingDirection) {
+        double radians = Math.toRadians(viewingDirection);
+        return castRay(x, y, Math.cos(radians), Math.sin(radians));
+    }
+
+
+
+    /**
+     * Casts a ray from the specified position in the specified direction and stores the nearest wall hit by the
+     * ray, with its distance and the intersection-point, in the specified RayHit (or a miss, if the ray does not
+     * hit any wall). No objects are allocated and no exceptions are thrown.
+     *
+     * @param x the x-coordinate of the origin of the ray
+     * @param y the y-coordinate of the origin of the ray
+     * @param viewingDirection the direction of the ray in degrees
+     * @param hit receives the result of the ray-cast
+     */
+    void castRay(double x, double y, double viewingDirection, RayHit hit) {
+        double radians = Math.toRadians(viewingDirection);
+        double directionX = Math.cos(radians);
+        double directionY = Math.sin(radians);
+        int wall = findNearestWall(x, y, directionX, directionY);
+        if (wall == NO_WALL) {
+            hit.setMiss();
+            return;
+        }
+        double distance = intersect(wall, x, y, directionX, directionY);
+        hit.set(distance, x + distance * directionX, y + distance * directionY, walls[wall]);
+    }
+
+
+
+    /**
+     * Casts the beams of a sensor-model for a range of poses (see Map.castRays).
+     *
+     * @param x the x-coordinates of the poses
+     * @param y the y-coordinates of the poses
+     * @param heading the headings of the poses in degrees (counter-clockwise)
+     * @param from the index of the first pose (inclusive)
+     * @param to the index of the last pose (exclusive)
+     * @param sensorHeadPositions the sensor-head-positions of the beams in degrees (counter-clockwise)
+     * @param distances receives the distance of beam k for pose i at (i - from) * sensorHeadPositions.length + k
+     */
+    void castRays(float[] x, float[] y, float[] heading, int from, int to, double[] sensorHeadPositions, double[] distances) {
+        int beams = sensorHeadPositions.length;
+        double[] beamCos = new double[beams];
+        double[] beamSin = new double[beams];
+        for (int k = 0  ;  k < beams  ;  k++) {
+            double radians = Math.toRadians(sensorHeadPositions[k]);
+            beamCos[k] = Math.cos(radians);
+            beamSin[k] = Math.sin(radians);
+        }
+        double[] directionX = new double[beams];
+        double[] directionY = new double[beams];
+
+        for (int i = from  ;  i < to  ;  i++) {
+            double radians = Math.toRadians(heading[i]);
+            double headingCos = Math.cos(radians);
+            double headingSin = Math.sin(radians);
+            // viewing-direction -(heading + sensor-head-position): cos(-a) = cos(a), sin(-a) = -sin(a)
+            for (int k = 0  ;  k < beams  ;  k++) {
+                directionX[k] = headingCos * beamCos[k] - headingSin * beamSin[k];
+                directionY[k] = -(headingSin * beamCos[k] + headingCos * beamSin[k]);
+            }
+            int offset = (i - from) * beams;
+            for (int k = 0  ;  k < beams  ;  k++) {
+                distances[offset + k] = castRay(x[i], y[i], directionX[k], directionY[k]);
+            }
+        }
+    }
+
+
+
+    /**
+     * Returns the distance from the specified position to the nearest wall in the specified direction, or
+     * Double.POSITIVE_INFINITY if the ray does not hit any wall.
+     *
+     * @param x the x-coordinate of the origin of the ray
+     * @param y the y-coordinate of the origin of the ray
+     * @param directionX the x-component of the (unit-length) direction of the ray
+     * @param directionY the y-component of the (unit-length) direction of the ray
+     * @return the distance to the nearest wall hit by the ray
+     */
+    private double castRay(double x, double y, double directionX, double directionY) {
+        int wall = findNearestWall(x, y, directionX, directionY);
+        return (wall == NO_WALL) ? Double.POSITIVE_INFINITY : intersect(wall, x, y, directionX, directionY);
+    }
+
+
+
+    /**
+     * Returns the index of the nearest wall hit by the specified ray, or NO_WALL if the ray does not hit any wall.
+     *
+     * @param x the x-coordinate of the origin of the ray
+     * @param y the y-coordinate of the origin of the ray
+     * @param directionX the x-component of the (unit-length) direction of the ray
+     * @param directionY the y-component of the (unit-length) direction of the ray
+     * @return the index of the nearest wall hit by the ray
+     */
+    private int findNearestWall(double x, double y, double directionX, double directionY) {
+        // Clipping of the ray (parameterized by its length t >= 0) against the bounds of the grid.
+        double maxX = minX + columns * cellSize;
+        double maxY = minY + rows * cellSize;
+        double tEnter = 0, tExit = Double.POSITIVE_INFINITY;
+        if (Math.abs(directionX) < EPSILON) {
+            if (x < minX  ||  x >= maxX) return NO_WALL;
+        } else {
+            double t1 = (minX - x) / directionX;
+            double t2 = (maxX - x) / directionX;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (Math.abs(directionY) < EPSILON) {
+            if (y < minY  ||  y >= maxY) return NO_WALL;
+        } else {
+            double t1 = (minY - y) / directionY;
+            double t2 = (maxY - y) / directionY;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (tEnter > tExit) {
+            return NO_WALL;
+        }
+
+        // Cell-traversal along the ray (Amanatides & Woo).
+        int column = clamp((int) Math.floor((x + tEnter * directionX - minX) / cellSize), columns);
+        int row = clamp((int) Math.floor((y + tEnter * directionY - minY) / cellSize), rows);
+        int stepX = (directionX > 0) ? 1 : -1;
+        int stepY = (directionY > 0) ? 1 : -1;
+        double tDeltaX = (Math.abs(directionX) < EPSILON) ? Double.POSITIVE_INFINITY : cellSize / Math.abs(directionX);
+        double tDeltaY = (Math.abs(directionY) < EPSILON) ? Double.POSITIVE_INFINITY : cellSize / Math.abs(directionY);
+        double tMaxX = (Math.abs(directionX) < EPSILON) ? Double.POSITIVE_INFINITY
+                : (minX + (column + (stepX > 0 ? 1 : 0)) * cellSize - x) / directionX;
+        double tMaxY = (Math.abs(directionY) < EPSILON) ? Double.POSITIVE_INFINITY
+                : (minY + (row + (stepY > 0 ? 1 : 0)) * cellSize - y) / directionY;
+
+        int nearestWall = NO_WALL;
+        double distanceToNearestWall = Double.POSITIVE_INFINITY;
+        while (true) {
+            for (int wall : cells[row * columns + column]) {
+                double distance = intersect(wall, x, y, directionX, directionY);
+                if (distance < distanceToNearestWall) {
+                    distanceToNearestWall = distance;
+                    nearestWall = wall;
+                }
+            }
+
+            double tLeavingCell = Math.min(tMaxX, tMaxY);
+            boolean hitWithinCurrentCell = distanceToNearestWall <= tLeavingCell;
+            if (hitWithinCurrentCell  ||  tLeavingCell >= tExit) {
+                return nearestWall;
+            }
+
+            if (tMaxX < tMaxY) {
+                column += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                row += stepY;
+                tMaxY += tDeltaY;
+            }
+            if (column < 0  ||  column >= columns  ||  row < 0  ||  row >= rows) {
+                return nearestWall;
+            }
+        }
+    }
+
+
+
+    /**
+     * Returns the distance along the specified ray to its intersection with the specified wall, or
+     * Double.POSITIVE_INFINITY if they do not intersect. Rays parallel to the wall are treated as misses.
+     *
+     * @param wall the index of the wall
+     * @param x the x-coordinate of the origin of the ray
+     * @param y the y-coordinate of the origin of the ray
+     * @param directionX the x-component of the (unit-length) direction of the ray
+     * @param directionY the y-component of the (unit-length) direction of the ray
+     * @return the distance to the intersection-point
+     */
+    private double intersect(int wall, double x, double y, double directionX, double directionY) {
+        double wallDirectionX = wallDeltaX[wall];
+        double wallDirectionY = wallDeltaY[wall];
+        double denominator = directionX * wallDirectionY - directionY * wallDirectionX;
+        if (Math.abs(denominator) < PARALLEL_EPSILON) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double toWallX = wallStartX[wall] - x;
+        double toWallY = wallStartY[wall] - y;
+        double t = (toWallX * wallDirectionY - toWallY * wallDirectionX) / denominator;
+        double u = (toWallX * directionY - toWallY * directionX) / denominator;
+        double tolerance = wallTolerance[wall];
+        if (t < 0  ||  u < -tolerance  ||  u > 1 + tolerance) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return t;
+    }
+
+
+
+    /**
+     * Registers each of the specified walls in all cells overlapped by its padded bounding-box.
+     *
+     * @param walls the walls to register
+     * @return the indices of the walls per cell, indexed by row * columns + column
+     */
+    private int[][] createCells(ArrayList<Line> walls) {
+        ArrayList<ArrayList<Integer>> wallsPerCell = new ArrayList<>(columns * rows);
+        for (int i = 0  ;  i < columns * rows  ;  i++) {
+            wallsPerCell.add(new ArrayList<Integer>());
+        }
+
+        for (int i = 0  ;  i < walls.size()  ;  i++) {
+            Line wall = walls.get(i);
+            int firstColumn = clamp(toCell(Math.min(wall.getX1(), wall.getX2()) - CELL_PADDING, minX), columns);
+            int lastColumn = clamp(toCell(Math.max(wall.getX1(), wall.getX2()) + CELL_PADDING, minX), columns);
+            int firstRow = clamp(toCell(Math.min(wall.getY1(), wall.getY2()) - CELL_PADDING, minY), rows);
+            int lastRow = clamp(toCell(Math.max(wall.getY1(), wall.getY2()) + CELL_PADDING, minY), rows);
+            for (int row = firstRow  ;  row <= lastRow  ;  row++) {
+                for (int column = firstColumn  ;  column <= lastColumn  ;  column++) {
+                    wallsPerCell.get(row * columns + column).add(i);
+                }
+            }
+        }
+
+        int[][] result = new int[columns * rows][];
+        for (int i = 0  ;  i < result.length  ;  i++) {
+            ArrayList<Integer> cell = wallsPerCell.get(i);
+            result[i] = new int[cell.size()];
+            for (int j = 0  ;  j < cell.size()  ;  j++) {
+                result[i][j] = cell.get(j);
+            }
+        }
+        return result;
+    }
+
+
+
+    /**
+     * Returns the (unclamped) index of the cell containing the specified coordinate.
+     *
+     * @param coordinate the coordinate
+     * @param origin the coordinate of the grid-origin along the same axis
+     * @return the index of the cell containing the coordinate
+     */
+    private int toCell(double coordinate, double origin) {
+        return (int) Math.floor((coordinate - origin) / cellSize);
+    }
+
+
+
+    /**
+     * Clamps the specified cell-index to the range [0, count - 1].
+     *
+     * @param index the cell-index
+     * @param count the number of cells along the axis
+     * @return the clamped cell-index
+     */
+    private static int clamp(int index, int count) {
+        return Math.max(0, Math.min(count - 1, index));
+    }
+}
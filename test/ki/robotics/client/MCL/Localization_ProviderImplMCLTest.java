@@ -1,17 +1,23 @@
 package ki.robotics.client.MCL;
 
+import ki.robotics.client.GUI.GuiConfiguration;
 import ki.robotics.client.GUI.impl.GuiConfigurationImplClientModel;
 import ki.robotics.client.ClientFactory;
+import ki.robotics.client.MCL.impl.LocalizationProviderImplMCL;
 import ki.robotics.client.MCL.impl.ParticleImplMCL;
 import ki.robotics.server.ServerFactory;
 import ki.robotics.utility.map.Map;
+import ki.robotics.utility.pixyCam.DTOGeneralQuery;
+import ki.robotics.utility.pixyCam.DTOSignatureQuery;
 import lejos.robotics.navigation.Pose;
+import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.awt.*;
+import java.util.ArrayList;
 
 public class Localization_ProviderImplMCLTest {
 
@@ -33,6 +39,134 @@ public class Localization_ProviderImplMCLTest {
     public void testBadParticlesFinalKill() {
     }
 
+    @Test
+    public void testParticlesAreNotColoredWithoutObserver() {
+        LocalizationProvider<ParticleImplMCL> mclProvider = createLocalizationProvider();
+        mclProvider.recalculateParticleWeight(createBot());
+
+        for (ParticleImplMCL particle : mclProvider.getParticles()) {
+            Assert.assertEquals(particle.getColor(), Color.GRAY);
+        }
+    }
+
+    @Test
+    public void testObserverIsNotifiedAndParticlesAreColored() {
+        LocalizationProvider<ParticleImplMCL> mclProvider = createLocalizationProvider();
+        final int[] notifications = new int[2];
+        LocalizationObserver observer = new LocalizationObserver() {
+            @Override
+            public void particleWeightsRecalculated(WorldState<?> worldState) { notifications[0]++; }
+
+            @Override
+            public void particlesResampled(WorldState<?> worldState) { notifications[1]++; }
+        };
+        mclProvider.addLocalizationObserver(observer);
+
+        mclProvider.recalculateParticleWeight(createBot());
+        Assert.assertEquals(notifications[0], 1);
+        for (ParticleImplMCL particle : mclProvider.getParticles()) {
+            Assert.assertNotEquals(particle.getColor(), Color.GRAY);
+        }
+
+        mclProvider.badParticlesFinalKill();
+        Assert.assertEquals(notifications[1], 1);
+
+        mclProvider.removeLocalizationObserver(observer);
+        mclProvider.recalculateParticleWeight(createBot());
+        Assert.assertEquals(notifications[0], 1);
+    }
+
+    @Test
+    public void testParallelEvaluationYieldsSameWeightsAsSequentialEvaluation() {
+        Map map = ServerFactory.getMapProvider().getMap("Room");
+        LocalizationProvider<ParticleImplMCL> sequential = new LocalizationProviderImplMCL(map, 5000,
+                new int[] {-1, -1, -1}, new GuiConfigurationImplClientModel(), 1, 17);
+        LocalizationProvider<ParticleImplMCL> parallel = new LocalizationProviderImplMCL(map, 5000,
+                new int[] {-1, -1, -1}, new GuiConfigurationImplClientModel(), 4, 17);
+
+        sequential.recalculateParticleWeight(createBot());
+        parallel.recalculateParticleWeight(createBot());
+
+        ArrayList<ParticleImplMCL> sequentialParticles = sequential.getParticles();
+        ArrayList<ParticleImplMCL> parallelParticles = parallel.getParticles();
+        Assert.assertEquals(parallelParticles.size(), sequentialParticles.size());
+        float[] sequentialWeights = new float[sequentialParticles.size()];
+        float[] parallelWeights = new float[parallelParticles.size()];
+        for (int i = 0  ;  i < sequentialParticles.size()  ;  i++) {
+            Assert.assertEquals(parallelParticles.get(i).getPose().getX(), sequentialParticles.get(i).getPose().getX());
+            Assert.assertEquals(parallelParticles.get(i).getPose().getY(), sequentialParticles.get(i).getPose().getY());
+            Assert.assertEquals(parallelParticles.get(i).getPose().getHeading(), sequentialParticles.get(i).getPose().getHeading());
+            sequentialWeights[i] = sequentialParticles.get(i).getWeight();
+            parallelWeights[i] = parallelParticles.get(i).getWeight();
+        }
+        for (int i = 0  ;  i < sequentialWeights.length  ;  i++) {
+            Assert.assertEquals(Float.floatToIntBits(parallelWeights[i]), Float.floatToIntBits(sequentialWeights[i]), "particle " + i);
+        }
+        boolean weightsDiffer = false;
+        for (int i = 1  ;  i < sequentialWeights.length  ;  i++) {
+            weightsDiffer |= sequentialWeights[i] != sequentialWeights[0];
+        }
+        Assert.assertTrue(weightsDiffer);
+    }
+
+    @Test
+    public void testCameraSupportedWeightingFavorsParticleSeeingTheLandmarkOfTheBot() {
+        Map map = ServerFactory.getMapProvider().getMap("MarkedRoom");
+        GuiConfiguration cameraSettings = new GuiConfigurationImplClientModel() {
+            @Override
+            public boolean isWithCamera() { return true; }
+        };
+        LocalizationProvider<ParticleImplMCL> cameraSupported = new LocalizationProviderImplMCL(map, 1000,
+                new int[] {-1, -1, -1}, cameraSettings, 1, 17);
+        LocalizationProvider<ParticleImplMCL> distancesOnly = new LocalizationProviderImplMCL(map, 1000,
+                new int[] {-1, -1, -1}, new GuiConfigurationImplClientModel(), 1, 17);
+
+        ArrayList<ParticleImplMCL> particles = cameraSupported.getParticles();
+        int index = 0;
+        while (particles.get(index).isOutOfMapOperatingRange()  ||  particles.get(index).cameraGeneralQuery()[0] == 0) {
+            index++;
+        }
+        SensorModel bot = createBotAt(particles.get(index));
+        cameraSupported.recalculateParticleWeight(bot);
+        distancesOnly.recalculateParticleWeight(bot);
+
+        ParticleImplMCL withCamera = cameraSupported.getParticles().get(index);
+        ParticleImplMCL withoutCamera = distancesOnly.getParticles().get(index);
+        Assert.assertEquals(withCamera.getPose().getX(), withoutCamera.getPose().getX());
+        Assert.assertEquals(withCamera.getPose().getY(), withoutCamera.getPose().getY());
+        Assert.assertTrue(withCamera.getWeight() > withoutCamera.getWeight());
+    }
+
+    private SensorModel createBotAt(ParticleImplMCL particle) {
+        SensorModel bot = ClientFactory.createNewSensorModel();
+        double[] distances = particle.ultrasonicThreeWayScan();
+        bot.setDistanceToLeft(distances[0]);
+        bot.setDistanceToCenter(distances[1]);
+        bot.setDistanceToRight(distances[2]);
+        bot.setGeneralQuery(new DTOGeneralQuery(particle.cameraGeneralQuery()));
+        for (int signature = 1  ;  signature <= 7  ;  signature++) {
+            int[] readout = particle.cameraSignatureQuery(signature);
+            int[] transmission = new int[readout.length + 1];
+            transmission[0] = signature;
+            System.arraycopy(readout, 0, transmission, 1, readout.length);
+            bot.setSignatureQuery(new DTOSignatureQuery(transmission));
+        }
+        return bot;
+    }
+
+    private LocalizationProvider<ParticleImplMCL> createLocalizationProvider() {
+        Map map = ServerFactory.getMapProvider().getMap("Room");
+        return new LocalizationProviderImplMCL(map, 1000, new int[] {-1, -1, -1}, new GuiConfigurationImplClientModel(), 1);
+    }
+
+    private SensorModel createBot() {
+        SensorModel bot = ClientFactory.createNewSensorModel();
+        bot.setDistanceToLeft(10.0);
+        bot.setDistanceToCenter(40.0);
+        bot.setDistanceToRight(90.0);
+        return bot;
+    }
+
     @DataProvider(name = "getDeviationTestDataProvider")
     public Object[][] getParticleTestData() {
         int numOfParticles = 1000; //via GUI
@@ -0,0 +1,63 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.utility.map.Map;
+import ki.robotics.utility.map.MapProvider;
+import ki.robotics.utility.map.MapProviderImpl;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class KldSamplerTest {
+    private static final int MIN = 100;
+    private static final int MAX = 5000;
+
+    private Map map;
+    private KldSampler kldSampler;
+
+    @BeforeMethod
+    public void setUp() {
+        map = MapProviderImpl.getInstance().getMap(MapProvider.MAP_KEY_ROOM);
+        kldSampler = new KldSampler(map, MIN, MAX);
+    }
+
+
+
+    @Test
+    public void testSpreadParticlesKeepUpperBound() {
+        Random random = new Random(1);
+        ParticleStore particles = new ParticleStore(map, MAX);
+        for (int i = 0  ;  i < MAX  ;  i++) {
+            particles.add(random.nextFloat() * 150, random.nextFloat() * 200, random.nextInt(4) * 90, 1, 0);
+        }
+        assertEquals(kldSampler.getRequiredNumberOfParticles(particles, identity(MAX), MAX, random), MAX);
+    }
+
+    @Test
+    public void testConvergedParticlesKeepLowerBound() {
+        Random random = new Random(1);
+        ParticleStore particles = new ParticleStore(map, MAX);
+        for (int i = 0  ;  i < MAX  ;  i++) {
+            particles.add(50 + random.nextFloat() * 5, 60 + random.nextFloat() * 5, 90, 1, 0);
+        }
+        assertEquals(kldSampler.getRequiredNumberOfParticles(particles, identity(MAX), MAX, random), MIN);
+    }
+
+    @Test
+    public void testRequiredNumberOfParticlesGrowsWithOccupiedBins() {
+        assertEquals(KldSampler.getRequiredNumberOfParticles(1), 1);
+        assertTrue(KldSampler.getRequiredNumberOfParticles(10) < KldSampler.getRequiredNumberOfParticles(100));
+    }
+
+
+
+    private static int[] identity(int count) {
+        int[] selection = new int[count];
+        for (int i = 0  ;  i < count  ;  i++) {
+            selection[i] = i;
+        }
+        return selection;
+    }
+}
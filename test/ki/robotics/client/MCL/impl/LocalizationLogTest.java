@@ -0,0 +1,160 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.client.ClientFactory;
+import ki.robotics.client.MCL.SensorModel;
+import ki.robotics.client.MCL.WorldState;
+import ki.robotics.server.ServerFactory;
+import ki.robotics.utility.map.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LocalizationLogTest {
+
+    @Test
+    public void testLogRoundTrip() throws IOException {
+        testLogRoundTrip(false);
+        testLogRoundTrip(true);
+    }
+
+    @Test
+    public void testLogWithoutFooterIsReadable() throws IOException {
+        ArrayList<WorldStateImplMCL> worldStates = createWorldStates();
+        File file = File.createTempFile("localization", LocalizationLogFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+        writeLog(file, worldStates, false);
+
+        long lengthWithoutFooter;
+        try (LocalizationLogReader reader = new LocalizationLogReader(file)) {
+            lengthWithoutFooter = file.length() - LocalizationLogFormat.TRAILER_LENGTH - 8 - 8 * reader.size();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(lengthWithoutFooter - 3);
+        }
+
+        ArrayList<WorldState<ParticleImplMCL>> restored = LocalizationLogReader.readLocalizationSequence(file);
+        Assert.assertEquals(restored.size(), worldStates.size() - 1);
+        for (int i = 0  ;  i < restored.size()  ;  i++) {
+            assertEqualWorldStates(restored.get(i), worldStates.get(i));
+        }
+    }
+
+    @Test
+    public void testLegacyLogIsReadable() throws IOException {
+        ArrayList<WorldState> worldStates = new ArrayList<>();
+        worldStates.addAll(createWorldStates());
+        File file = File.createTempFile("localization", LocalizationLogFormat.LEGACY_FILE_EXTENSION);
+        file.deleteOnExit();
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+            out.writeObject(worldStates);
+        }
+
+        ArrayList<WorldState> restored = ClientFactory.loadLocalizationSequence(file);
+        Assert.assertEquals(restored.size(), worldStates.size());
+        for (int i = 0  ;  i < restored.size()  ;  i++) {
+            assertEqualWorldStates(restored.get(i), (WorldStateImplMCL) worldStates.get(i));
+        }
+    }
+
+    @Test
+    public void testReplayDecodesWorldStatesOnDemand() throws IOException {
+        ArrayList<WorldStateImplMCL> worldStates = createWorldStates();
+        File file = File.createTempFile("localization", LocalizationLogFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+        writeLog(file, worldStates, true);
+
+        List<WorldState> replay = ClientFactory.openLocalizationReplay(file);
+        try {
+            Assert.assertEquals(replay.size(), worldStates.size());
+            for (int i : new int[]{3, 0, 2, 1, 3}) {
+                assertEqualWorldStates(replay.get(i), worldStates.get(i));
+            }
+        } finally {
+            ((Closeable) replay).close();
+        }
+    }
+
+    private static void testLogRoundTrip(boolean compressed) throws IOException {
+        ArrayList<WorldStateImplMCL> worldStates = createWorldStates();
+        File file = File.createTempFile("localization", LocalizationLogFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+        writeLog(file, worldStates, compressed);
+
+        try (LocalizationLogReader reader = new LocalizationLogReader(file)) {
+            Assert.assertEquals(reader.size(), worldStates.size());
+            assertEqualWorldStates(reader.read(2), worldStates.get(2));
+            for (int i = 0  ;  i < reader.size()  ;  i++) {
+                assertEqualWorldStates(reader.read(i), worldStates.get(i));
+            }
+        }
+
+        ArrayList<WorldState<ParticleImplMCL>> restored = LocalizationLogReader.readLocalizationSequence(file);
+        ParticleSnapshot first = ((WorldStateImplMCL) restored.get(0)).getParticleSnapshot();
+        ParticleSnapshot second = ((WorldStateImplMCL) restored.get(1)).getParticleSnapshot();
+        Assert.assertSame(second.getX(), first.getX());
+        Assert.assertNotSame(second.getHeading(), first.getHeading());
+    }
+
+    private static void writeLog(File file, ArrayList<WorldStateImplMCL> worldStates, boolean compressed) throws IOException {
+        try (LocalizationLogWriter writer = new LocalizationLogWriter(file, compressed)) {
+            for (WorldStateImplMCL worldState : worldStates) {
+                writer.append(worldState);
+            }
+        }
+    }
+
+    private static ArrayList<WorldStateImplMCL> createWorldStates() {
+        Map map = ServerFactory.getMapProvider().getMap("Room");
+        ParticleStore particles = new ParticleStore(map, 10);
+        for (int i = 0  ;  i < 10  ;  i++) {
+            particles.add(20 + 10 * i, 50, 0, 1, i);
+        }
+        ArrayList<WorldStateImplMCL> worldStates = new ArrayList<>();
+        ParticleSnapshot snapshot = null;
+        for (int step = 0  ;  step < 4  ;  step++) {
+            snapshot = new ParticleSnapshot(particles, snapshot);
+            SensorModel sensorModel = ClientFactory.createNewSensorModel();
+            sensorModel.setDistanceToCenter(10 * step);
+            for (int i = 0  ;  i < step  ;  i++) {
+                sensorModel.addSweepMeasurement(90 - 45 * i, step + i);
+            }
+            worldStates.add(new WorldStateImplMCL("Room", snapshot, new double[]{step, 50, 0}, 45, "TURN " + step, sensorModel));
+            for (int i = 0  ;  i < particles.size()  ;  i++) {
+                particles.turn(i, 30);
+            }
+        }
+        return worldStates;
+    }
+
+    private static void assertEqualWorldStates(WorldState actual, WorldStateImplMCL expected) {
+        Assert.assertEquals(actual.getMapKey(), expected.getMapKey());
+        Assert.assertEquals(actual.getCausativeInstruction(), expected.getCausativeInstruction());
+        Assert.assertTrue(Arrays.equals(actual.getEstimatedBotPose(), expected.getEstimatedBotPose()));
+        Assert.assertEquals(actual.getEstimatedBotPoseSpreading(), expected.getEstimatedBotPoseSpreading(), 0);
+        Assert.assertEquals(((WorldStateImplMCL) actual).getSensorModel().getDistanceToCenter(),
+                expected.getSensorModel().getDistanceToCenter(), 0);
+        SensorModel actualSensorModel = ((WorldStateImplMCL) actual).getSensorModel();
+        Assert.assertEquals(actualSensorModel.getNumberOfSweepMeasurements(),
+                expected.getSensorModel().getNumberOfSweepMeasurements());
+        for (int i = 0  ;  i < actualSensorModel.getNumberOfSweepMeasurements()  ;  i++) {
+            Assert.assertEquals(actualSensorModel.getSweepSensorHeadPosition(i),
+                    expected.getSensorModel().getSweepSensorHeadPosition(i), 0);
+            Assert.assertEquals(actualSensorModel.getSweepDistance(i), expected.getSensorModel().getSweepDistance(i), 0);
+        }
+        Assert.assertEquals(actual.getNumberOfParticles(), expected.getNumberOfParticles());
+        ParticleSnapshot actualParticles = ((WorldStateImplMCL) actual).getParticleSnapshot();
+        ParticleSnapshot expectedParticles = expected.getParticleSnapshot();
+        Assert.assertTrue(Arrays.equals(actualParticles.getX(), expectedParticles.getX()));
+        Assert.assertTrue(Arrays.equals(actualParticles.getHeading(), expectedParticles.getHeading()));
+        Assert.assertTrue(Arrays.equals(actualParticles.getColor(), expectedParticles.getColor()));
+    }
+}
@@ -0,0 +1,98 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.client.ClientFactory;
+import ki.robotics.client.GUI.impl.GuiConfigurationImplClientModel;
+import ki.robotics.client.MCL.SensorModel;
+import ki.robotics.utility.map.Map;
+import ki.robotics.utility.map.MapProvider;
+import ki.robotics.utility.map.MapProviderImpl;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+
+public class MeasurementModelImplLikelihoodFieldTest {
+    private static final float X = 60;
+    private static final float Y = 80;
+    private static final float HEADING = 30;
+
+    private Map map;
+    private MeasurementModel measurementModel;
+
+    @BeforeMethod
+    public void setUp() {
+        MapProvider mapProvider = MapProviderImpl.getInstance();
+        map = mapProvider.getMap(MapProvider.MAP_KEY_ROOM);
+        measurementModel = new MeasurementModelImplLikelihoodField(
+                mapProvider.getDistanceField(MapProvider.MAP_KEY_ROOM, MeasurementModelImplLikelihoodField.RESOLUTION));
+    }
+
+
+
+    @Test
+    public void testParticleAtTruePoseOutweighsOffsetAndRotatedPoses() {
+        ParticleStore particles = new ParticleStore(map, 5);
+        particles.add(X, Y, HEADING, 0, 0);
+        particles.add(X + 10, Y, HEADING, 0, 0);
+        particles.add(X, Y - 10, HEADING, 0, 0);
+        particles.add(X, Y, HEADING + 20, 0, 0);
+        particles.add(X, Y, HEADING + 90, 0, 0);
+        double[] sensorHeadPositions = ParticleStore.THREE_WAY_SCAN;
+        double[] botDistances = new double[sensorHeadPositions.length];
+        for (int k = 0  ;  k < sensorHeadPositions.length  ;  k++) {
+            botDistances[k] = map.castRay(X, Y, 360 - HEADING - sensorHeadPositions[k]);
+        }
+
+        double[] weights = new double[particles.size()];
+        measurementModel.weighParticles(particles, 0, particles.size(), sensorHeadPositions, botDistances, weights);
+
+        for (int i = 1  ;  i < weights.length  ;  i++) {
+            Assert.assertTrue(weights[0] > weights[i], "pose " + i);
+        }
+    }
+
+    @Test
+    public void testAllInvalidMeasurementsGiveUniformWeights() {
+        ParticleStore particles = new ParticleStore(map, 3);
+        particles.add(X, Y, HEADING, 0, 0);
+        particles.add(X + 10, Y, HEADING, 0, 0);
+        particles.add(X, Y, HEADING + 90, 0, 0);
+        double[] botDistances = {0, MeasurementModelImplLikelihoodField.MAXIMUM_DISTANCE, -1};
+
+        double[] weights = new double[particles.size()];
+        measurementModel.weighParticles(particles, 0, particles.size(), ParticleStore.THREE_WAY_SCAN, botDistances, weights);
+        for (double weight : weights) {
+            Assert.assertEquals(weight, weights[0]);
+        }
+
+        LocalizationProviderImplMCL localizationProvider = new LocalizationProviderImplMCL(map, 1000,
+                new int[] {-1, -1, -1}, new GuiConfigurationImplClientModel(), 1, new ResamplerImplSystematic(),
+                measurementModel, MclModel.RESAMPLING_WEIGHTS);
+        SensorModel bot = ClientFactory.createNewSensorModel();
+        bot.setDistanceToLeft(botDistances[0]);
+        bot.setDistanceToCenter(botDistances[1]);
+        bot.setDistanceToRight(botDistances[2]);
+        localizationProvider.recalculateParticleWeight(bot);
+
+        float weightInOperatingRange = Float.NaN;
+        for (ParticleImplMCL particle : localizationProvider.getParticles()) {
+            Assert.assertFalse(Float.isNaN(particle.getWeight()));
+            if (! particle.isOutOfMapOperatingRange()) {
+                if (Float.isNaN(weightInOperatingRange)) {
+                    weightInOperatingRange = particle.getWeight();
+                }
+                Assert.assertEquals(particle.getWeight(), weightInOperatingRange);
+            }
+        }
+        Assert.assertTrue(weightInOperatingRange > 0);
+
+        localizationProvider.badParticlesFinalKill();
+        ArrayList<ParticleImplMCL> resampledParticles = localizationProvider.getParticles();
+        Assert.assertFalse(resampledParticles.isEmpty());
+        for (ParticleImplMCL particle : resampledParticles) {
+            Assert.assertFalse(Float.isNaN(particle.getPose().getX()));
+            Assert.assertFalse(Float.isNaN(particle.getWeight()));
+        }
+    }
+}
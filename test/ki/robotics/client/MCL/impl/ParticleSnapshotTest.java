@@ -0,0 +1,93 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.server.ServerFactory;
+import ki.robotics.utility.map.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+
+public class ParticleSnapshotTest {
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterModifications() {
+        ParticleStore particles = createParticleStore();
+        ParticleSnapshot first = new ParticleSnapshot(particles, null);
+        for (int i = 0  ;  i < particles.size()  ;  i++) {
+            particles.turn(i, 90);
+        }
+        ParticleSnapshot second = new ParticleSnapshot(particles, first);
+        particles.turn(0, 90);
+
+        ArrayList<ParticleImplMCL> before = first.createParticleViews(particles.getMap());
+        ArrayList<ParticleImplMCL> after = second.createParticleViews(particles.getMap());
+        for (int i = 0  ;  i < particles.size()  ;  i++) {
+            Assert.assertEquals(after.get(i).getPose().getX(), before.get(i).getPose().getX(), 0);
+            Assert.assertEquals(after.get(i).getPose().getY(), before.get(i).getPose().getY(), 0);
+            Assert.assertEquals(after.get(i).getPose().getHeading(), (before.get(i).getPose().getHeading() + 90) % 360, 0.001);
+        }
+        Assert.assertNotEquals(particles.getHeading(0), after.get(0).getPose().getHeading());
+    }
+
+    @Test
+    public void testTurnOnlyRecordsNewHeadings() {
+        ParticleStore particles = createParticleStore();
+        ParticleSnapshot first = new ParticleSnapshot(particles, null);
+        for (int i = 0  ;  i < particles.size()  ;  i++) {
+            particles.turn(i, 90);
+            particles.setWeight(i, particles.getWeight(i));
+            particles.setColor(i, particles.getColor(i));
+        }
+        ParticleSnapshot second = new ParticleSnapshot(particles, first);
+
+        Assert.assertSame(second.getX(), first.getX());
+        Assert.assertSame(second.getY(), first.getY());
+        Assert.assertSame(second.getWeight(), first.getWeight());
+        Assert.assertSame(second.getColor(), first.getColor());
+        Assert.assertNotSame(second.getHeading(), first.getHeading());
+
+        particles.move(0, 1);
+        ParticleSnapshot third = new ParticleSnapshot(particles, second);
+        Assert.assertNotSame(third.getX(), second.getX());
+        Assert.assertSame(third.getHeading(), second.getHeading());
+    }
+
+    @Test
+    public void testSnapshotSurvivesSerialization() throws IOException, ClassNotFoundException {
+        ParticleStore particles = createParticleStore();
+        ParticleSnapshot first = new ParticleSnapshot(particles, null);
+        particles.turn(3, 45);
+        ParticleSnapshot second = new ParticleSnapshot(particles, first);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new ParticleSnapshot[]{first, second});
+        }
+        ParticleSnapshot[] restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (ParticleSnapshot[]) in.readObject();
+        }
+
+        ParticleStore store = restored[1].createParticleStore(particles.getMap());
+        Assert.assertEquals(store.size(), particles.size());
+        for (int i = 0  ;  i < particles.size()  ;  i++) {
+            Assert.assertEquals(store.getX(i), particles.getX(i), 0);
+            Assert.assertEquals(store.getHeading(i), particles.getHeading(i), 0);
+            Assert.assertEquals(store.getColor(i), particles.getColor(i));
+        }
+    }
+
+    private static ParticleStore createParticleStore() {
+        Map map = ServerFactory.getMapProvider().getMap("Room");
+        ParticleStore particles = new ParticleStore(map, 10);
+        for (int i = 0  ;  i < 10  ;  i++) {
+            particles.add(20 + 10 * i, 50, 0, 1, i);
+        }
+        return particles;
+    }
+}
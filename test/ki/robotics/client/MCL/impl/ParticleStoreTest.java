@@ -0,0 +1,131 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.utility.map.Map;
+import ki.robotics.utility.map.MapProvider;
+import ki.robotics.utility.map.MapProviderImpl;
+import lejos.robotics.navigation.Pose;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.awt.*;
+
+public class ParticleStoreTest {
+
+    @Test(dataProvider = "getTurnProvider")
+    public void testTurn(int heading, int angleToTurn, int expectedResult) {
+        Map map = MapProviderImpl.getInstance().getMap(MapProvider.MAP_KEY_ROOM);
+        ParticleStore particles = new ParticleStore(map, 1);
+        particles.add(75, 100, heading, 1, 0);
+        particles.turn(0, angleToTurn);
+        Assert.assertEquals((int) particles.getHeading(0), expectedResult);
+
+        ParticleImplMCL particle = new ParticleImplMCL(new Pose(75, 100, heading), map, 1, Color.BLACK);
+        particle.turn(angleToTurn);
+        Assert.assertEquals(particles.getHeading(0), particle.getPose().getHeading());
+    }
+
+    @Test(dataProvider = "getMoveProvider")
+    public void testMove(float x, float y, int heading, double distance, double expectedDistance, float expectedX, float expectedY) {
+        Map map = MapProviderImpl.getInstance().getMap(MapProvider.MAP_KEY_ROOM);
+        ParticleStore particles = new ParticleStore(map, 1);
+        particles.add(x, y, heading, 1, 0);
+        Assert.assertEquals(particles.move(0, distance), expectedDistance, 0.0001);
+        Assert.assertEquals(particles.getX(0), expectedX, 0.0001);
+        Assert.assertEquals(particles.getY(0), expectedY, 0.0001);
+        Assert.assertEquals(particles.getHeading(0), (float) heading);
+    }
+
+    @Test
+    public void testCopySelectionOfWithRepeatedIndices() {
+        Map map = MapProviderImpl.getInstance().getMap(MapProvider.MAP_KEY_ROOM);
+        ParticleStore source = new ParticleStore(map, 3);
+        source.add(10, 20, 0, 0.1F, 1);
+        source.add(30, 40, 90, 0.2F, 2);
+        source.add(50, 60, 180, 0.3F, 3);
+        ParticleStore target = new ParticleStore(map, 1);
+        target.add(1, 2, 270, 0.9F, 9);
+
+        int[] selection = new int[] {2, 0, 2, 2, 1, 0, 0};
+        target.copySelectionOf(source, selection, 5);
+
+        Assert.assertEquals(target.size(), 5);
+        for (int i = 0  ;  i < 5  ;  i++) {
+            int s = selection[i];
+            Assert.assertEquals(target.getX(i), source.getX(s));
+            Assert.assertEquals(target.getY(i), source.getY(s));
+            Assert.assertEquals(target.getHeading(i), source.getHeading(s));
+            Assert.assertEquals(target.getWeight(i), source.getWeight(s));
+            Assert.assertEquals(target.getColor(i), source.getColor(s));
+        }
+
+        // the copies are independent of each other and of the source
+        target.turn(0, 90);
+        target.setWeight(2, 0.5F);
+        Assert.assertEquals(target.getHeading(2), 180F);
+        Assert.assertEquals(target.getHeading(3), 180F);
+        Assert.assertEquals(target.getWeight(3), 0.3F);
+        Assert.assertEquals(source.getHeading(2), 180F);
+        Assert.assertEquals(source.getWeight(2), 0.3F);
+
+        target.copySelectionOf(source, new int[] {1, 1}, 2);
+        Assert.assertEquals(target.size(), 2);
+        Assert.assertEquals(target.getParticleViews().size(), 2);
+        Assert.assertEquals(target.getX(0), 30F);
+        Assert.assertEquals(target.getX(1), 30F);
+    }
+
+    @Test
+    public void testNormalizeWeights() {
+        Map map = MapProviderImpl.getInstance().getMap(MapProvider.MAP_KEY_ROOM);
+        ParticleStore particles = new ParticleStore(map, 4);
+        particles.add(10, 20, 0, 1, 0);
+        particles.add(30, 40, 90, 3, 0);
+        particles.add(50, 60, 180, 4, 0);
+        particles.add(70, 80, 270, 0, 0);
+        Assert.assertEquals(particles.getSumOfWeights(), 8.0);
+        Assert.assertEquals(particles.getParticleViews().get(1).getWeight(), 3F);
+
+        particles.normalizeWeights();
+
+        Assert.assertEquals(particles.getWeight(0), 0.125F);
+        Assert.assertEquals(particles.getWeight(1), 0.375F);
+        Assert.assertEquals(particles.getWeight(2), 0.5F);
+        Assert.assertEquals(particles.getWeight(3), 0F);
+        Assert.assertEquals(particles.getSumOfWeights(), 1.0, 0.000001);
+        Assert.assertEquals(particles.getParticleViews().get(1).getWeight(), 0.375F);
+    }
+
+    @DataProvider(name = "getTurnProvider")
+    public Object[][] getTurnProvider() {
+        return new Object[][] {
+                {0, -360, 0},
+                {0, -90, 270},
+                {0, 90, 90},
+                {0, 360, 0},
+                {90, -180, 270},
+                {110, -90, 20},
+                {202, 180, 22},
+                {270, 90, 0},
+                {270, 450, 0},
+                {300, -720, 300},
+                {359, 2, 1},
+                {1, -2, 359},
+        };
+    }
+
+    @DataProvider(name = "getMoveProvider")
+    public Object[][] getMoveProvider() {
+        return new Object[][] {
+                // free movement (heading counter-clockwise, y-axis pointing down)
+                {75F, 100F, 0, 20.0, 20.0, 95F, 100F},
+                {75F, 100F, 90, 20.0, 20.0, 75F, 80F},
+                {75F, 100F, 180, 20.0, 20.0, 55F, 100F},
+                {75F, 100F, 270, 20.0, 20.0, 75F, 120F},
+                {75F, 100F, 0, -20.0, -20.0, 55F, 100F},
+                // stopped by the wall at x = 150, keeping a distance of 5
+                {140F, 100F, 0, 20.0, 5.0, 145F, 100F},
+                {10F, 100F, 0, -20.0, -5.0, 5F, 100F},
+        };
+    }
+}
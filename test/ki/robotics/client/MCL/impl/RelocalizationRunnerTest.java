@@ -0,0 +1,40 @@
+package ki.robotics.client.MCL.impl;
+
+import ki.robotics.client.ClientFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+
+public class RelocalizationRunnerTest {
+    private static final String RECORDING = "2018-06-11_14-21-20.log";
+    private static final int RUNS = 20;
+    private static final int MINIMUM_ACCURATE_RUNS = RUNS / 4;
+    private static final double MAXIMUM_POSITION_ERROR = 15;
+    private static final double MAXIMUM_HEADING_ERROR = 10;
+
+    @Test
+    public void testReplayOfBundledRecordingEndsAtRecordedPose() throws Exception {
+        File recording = new File(ClientFactory.getProperties().getProperty("savedLocalizationsPath"), RECORDING);
+        RelocalizationRunner runner = new RelocalizationRunner();
+        runner.parseArguments(new String[]{"-particles", "1000", "-repetitions", String.valueOf(RUNS),
+                recording.getPath()});
+
+        ArrayList<RelocalizationRunner.Result> results = runner.relocalize();
+
+        Assert.assertEquals(results.size(), RUNS);
+        int converged = 0, accurate = 0;
+        for (RelocalizationRunner.Result result : results) {
+            if (result.getConvergenceStep() >= 0) {
+                converged++;
+            }
+            if (result.getPositionError() <= MAXIMUM_POSITION_ERROR  &&  result.getHeadingError() <= MAXIMUM_HEADING_ERROR) {
+                accurate++;
+            }
+        }
+        // the room is symmetric, so single runs may settle on the mirrored pose
+        Assert.assertTrue(converged > 0, "no run converged");
+        Assert.assertTrue(accurate >= MINIMUM_ACCURATE_RUNS, accurate + " of " + RUNS + " runs within bounds");
+    }
+}
@@ -0,0 +1,69 @@
+package ki.robotics.client.MCL.impl;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class ResamplerTest {
+
+    @DataProvider(name = "getResamplerProvider")
+    public Object[][] getResamplerProvider() {
+        return new Object[][] {
+                {new ResamplerImplWheel()},
+                {new ResamplerImplSystematic()},
+                {new ResamplerImplResidual()},
+        };
+    }
+
+
+
+    @Test(dataProvider = "getResamplerProvider")
+    public void testResampleNeverDrawsParticlesWithoutWeight(Resampler resampler) {
+        float[] weights = {0, 0.5f, 0, 0.25f, 0.25f, 0};
+        int[] selection = new int[weights.length];
+        resampler.resample(weights, weights.length, selection, weights.length, new Random(1));
+        for (int index : selection) {
+            assertTrue(weights[index] > 0, "drawn particle without weight: " + index);
+        }
+    }
+
+    @Test(dataProvider = "getResamplerProvider")
+    public void testResampleWithoutWeightsDrawsEachParticleOnce(Resampler resampler) {
+        float[] weights = new float[4];
+        int[] selection = new int[weights.length];
+        resampler.resample(weights, weights.length, selection, weights.length, new Random(1));
+        assertEquals(selection, new int[]{0, 1, 2, 3});
+    }
+
+    @Test(dataProvider = "getResamplerProvider")
+    public void testResampleIsReproducibleWhenSeeded(Resampler resampler) {
+        float[] weights = new float[100];
+        Random random = new Random(7);
+        for (int i = 0  ;  i < weights.length  ;  i++) {
+            weights[i] = random.nextFloat();
+        }
+        int[] first = new int[weights.length];
+        int[] second = new int[weights.length];
+        resampler.resample(weights, weights.length, first, weights.length, new Random(3));
+        resampler.resample(weights, weights.length, second, weights.length, new Random(3));
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testSystematicAndResidualDrawProportionalCopies() {
+        float[] weights = {0.5f, 0.25f, 0.125f, 0.125f, 0, 0, 0, 0};
+        Resampler[] resamplers = {new ResamplerImplSystematic(), new ResamplerImplResidual()};
+        for (Resampler resampler : resamplers) {
+            int[] selection = new int[weights.length];
+            resampler.resample(weights, weights.length, selection, weights.length, new Random(5));
+            int[] copies = new int[weights.length];
+            for (int index : selection) {
+                copies[index]++;
+            }
+            assertEquals(copies, new int[]{4, 2, 1, 1, 0, 0, 0, 0});
+        }
+    }
+}
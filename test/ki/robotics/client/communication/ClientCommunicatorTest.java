@@ -0,0 +1,298 @@
+package ki.robotics.client.communication;
+
+import ki.robotics.server.communication.RobotFactory;
+import ki.robotics.server.communication.ServerCommunicator;
+import ki.robotics.server.communication.ServerCommunicatorImplMultiSession;
+import ki.robotics.server.communication.ServerCommunicatorImplSelector;
+import ki.robotics.server.robots.Robot;
+import ki.robotics.server.robots.simulation.RobotImplSimulation;
+import ki.robotics.utility.crisp.Message;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static ki.robotics.utility.crisp.CRISP.*;
+
+public class ClientCommunicatorTest {
+    private static final RobotFactory ROBOT_FACTORY = new RobotFactory() {
+        @Override
+        public Robot createRobot() {
+            RobotImplSimulation robot = new RobotImplSimulation(RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE, true);
+            robot.placeRobot("Room", 10, 10, 0);
+            return robot;
+        }
+    };
+
+    @Test
+    public void testBinaryVariantIsNegotiated() throws Exception {
+        final ServerCommunicatorImplMultiSession server = new ServerCommunicatorImplMultiSession(0, ROBOT_FACTORY, 1);
+        Thread serverThread = start(server);
+        while (server.getLocalPort() < 0) {
+            Thread.sleep(5);
+        }
+        RecordingComController controller = new RecordingComController(SENSOR_RESET + ", " + SENSOR_THREE_WAY_SCAN,
+                BOT_TRAVEL_FORWARD + " 5.0, " + SENSOR_SINGLE_DISTANCE_SCAN, BOT_TURN_LEFT + " 90.0");
+        try {
+            new ClientCommunicator("localhost", server.getLocalPort(), controller).run();
+        } finally {
+            server.shutdown();
+            serverThread.join(5000);
+        }
+
+        Assert.assertEquals(controller.textResponses.get(0), SENSOR_RESET + " 0 1");
+        Assert.assertTrue(controller.textResponses.get(1).startsWith(SENSOR_THREE_WAY_SCAN));
+        Assert.assertEquals(controller.textResponses.size(), 3);
+        List<String> binaryResponses = new ArrayList<>();
+        for (Message<?> response : controller.binaryResponses) {
+            binaryResponses.add(response.toString());
+        }
+        Assert.assertEquals(binaryResponses, Arrays.asList(BOT_TRAVEL_FORWARD + " 5.0", SENSOR_SINGLE_DISTANCE_SCAN + " 35.0",
+                END_OF_INSTRUCTION_SEQUENCE + " 0", BOT_TURN_LEFT + " 90.0", END_OF_INSTRUCTION_SEQUENCE + " 0"));
+    }
+
+    @Test
+    public void testTextProtocolIsKeptWithoutBinarySupport() throws Exception {
+        final ServerCommunicatorImplSelector server = new ServerCommunicatorImplSelector(0, ROBOT_FACTORY, 1);
+        Thread serverThread = start(server);
+        while (server.getLocalPort() < 0) {
+            Thread.sleep(5);
+        }
+        RecordingComController controller = new RecordingComController(SENSOR_RESET, BOT_TRAVEL_FORWARD + " 5.0");
+        try {
+            new ClientCommunicator("localhost", server.getLocalPort(), controller).run();
+        } finally {
+            server.shutdown();
+            serverThread.join(5000);
+        }
+
+        Assert.assertEquals(controller.textResponses, Arrays.asList(SENSOR_RESET + " 1", END_OF_INSTRUCTION_SEQUENCE + " 0",
+                BOT_TRAVEL_FORWARD + " 5.0", END_OF_INSTRUCTION_SEQUENCE + " 0"));
+        Assert.assertTrue(controller.binaryResponses.isEmpty());
+    }
+
+    @Test
+    public void testPipelinedSequencesOverlap() throws Exception {
+        final ServerCommunicatorImplMultiSession server = new ServerCommunicatorImplMultiSession(0, ROBOT_FACTORY, 1);
+        Thread serverThread = start(server);
+        while (server.getLocalPort() < 0) {
+            Thread.sleep(5);
+        }
+        final CountDownLatch requestsAhead = new CountDownLatch(3);
+        final boolean[] overlapped = new boolean[1];
+        RecordingComController controller = new RecordingComController(SENSOR_RESET, BOT_TRAVEL_FORWARD + " 1.0",
+                BOT_TRAVEL_FORWARD + " 2.0", BOT_TRAVEL_FORWARD + " 3.0", SENSOR_SINGLE_DISTANCE_SCAN) {
+            @Override
+            public String getNextRequest() {
+                requestsAhead.countDown();
+                return super.getNextRequest();
+            }
+
+            @Override
+            public void handleResponse(String response) {
+                super.handleResponse(response);
+                if (response.equals(END_OF_INSTRUCTION_SEQUENCE + " 2")) {
+                    try {
+                        overlapped[0] = requestsAhead.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        try {
+            new ClientCommunicator("localhost", server.getLocalPort(), controller, false, 3).run();
+        } finally {
+            server.shutdown();
+            serverThread.join(5000);
+        }
+
+        Assert.assertTrue(overlapped[0]);
+        Assert.assertEquals(controller.textResponses, Arrays.asList(SENSOR_RESET, END_OF_INSTRUCTION_SEQUENCE + " 1",
+                BOT_TRAVEL_FORWARD + " 1.0", END_OF_INSTRUCTION_SEQUENCE + " 2",
+                BOT_TRAVEL_FORWARD + " 2.0", END_OF_INSTRUCTION_SEQUENCE + " 3",
+                BOT_TRAVEL_FORWARD + " 3.0", END_OF_INSTRUCTION_SEQUENCE + " 4",
+                SENSOR_SINGLE_DISTANCE_SCAN + " 34.0", END_OF_INSTRUCTION_SEQUENCE + " 5"));
+    }
+
+    @Test
+    public void testPipelinedDecisionsWaitForTheLatestMeasurement() throws Exception {
+        final ServerCommunicatorImplMultiSession server = new ServerCommunicatorImplMultiSession(0, ROBOT_FACTORY, 1);
+        Thread serverThread = start(server);
+        while (server.getLocalPort() < 0) {
+            Thread.sleep(5);
+        }
+        final List<Double> distances = new ArrayList<>();
+        final boolean[] decidedOnStaleDistance = new boolean[1];
+        RecordingComController controller = new RecordingComController(SENSOR_RESET + ", " + SENSOR_SINGLE_DISTANCE_SCAN) {
+            private int requested = 1;
+            private int answered;
+
+            @Override
+            public String getNextRequest() {
+                synchronized (distances) {
+                    decidedOnStaleDistance[0] |= answered < requested;
+                    if (requested++ > 8) {
+                        return DISCONNECT;
+                    }
+                    double distance = distances.get(distances.size() - 1);
+                    return (distance > 15 ? BOT_TRAVEL_FORWARD + " 10.0" : BOT_TURN_LEFT + " 90.0")
+                            + ", " + SENSOR_SINGLE_DISTANCE_SCAN;
+                }
+            }
+
+            @Override
+            public boolean isNextRequestDependentOnResponses() {
+                return true;
+            }
+
+            @Override
+            public void handleResponse(String response) {
+                super.handleResponse(response);
+                synchronized (distances) {
+                    if (response.startsWith(SENSOR_SINGLE_DISTANCE_SCAN)) {
+                        distances.add(Double.parseDouble(response.substring(SENSOR_SINGLE_DISTANCE_SCAN.length())));
+                    } else if (response.startsWith(END_OF_INSTRUCTION_SEQUENCE)) {
+                        answered++;
+                    }
+                }
+            }
+        };
+        try {
+            new ClientCommunicator("localhost", server.getLocalPort(), controller, false, 3).run();
+        } finally {
+            server.shutdown();
+            serverThread.join(5000);
+        }
+
+        Assert.assertFalse(decidedOnStaleDistance[0]);
+        Assert.assertEquals(distances.size(), 9);
+        for (double distance : distances) {
+            Assert.assertTrue(distance > 5, "distance " + distance);
+        }
+    }
+
+    @Test
+    public void testPipelinedBinaryFrames() throws Exception {
+        final ServerCommunicatorImplMultiSession server = new ServerCommunicatorImplMultiSession(0, ROBOT_FACTORY, 1);
+        Thread serverThread = start(server);
+        while (server.getLocalPort() < 0) {
+            Thread.sleep(5);
+        }
+        RecordingComController controller = new RecordingComController(SENSOR_RESET, BOT_TURN_LEFT + " 90.0",
+                BOT_TURN_RIGHT + " 90.0");
+        try {
+            new ClientCommunicator("localhost", server.getLocalPort(), controller, true, 2).run();
+        } finally {
+            server.shutdown();
+            serverThread.join(5000);
+        }
+
+        Assert.assertEquals(controller.textResponses, Arrays.asList(SENSOR_RESET + " 0 1", END_OF_INSTRUCTION_SEQUENCE + " 1"));
+        List<String> binaryResponses = new ArrayList<>();
+        for (Message<?> response : controller.binaryResponses) {
+            binaryResponses.add(response.toString());
+        }
+        Assert.assertEquals(binaryResponses, Arrays.asList(BOT_TURN_LEFT + " 90.0", END_OF_INSTRUCTION_SEQUENCE + " 2",
+                BOT_TURN_RIGHT + " 90.0", END_OF_INSTRUCTION_SEQUENCE + " 3"));
+    }
+
+    @Test
+    public void testSensorSweepIsStreamed() throws Exception {
+        final ServerCommunicatorImplMultiSession server = new ServerCommunicatorImplMultiSession(0, ROBOT_FACTORY, 1);
+        Thread serverThread = start(server);
+        while (server.getLocalPort() < 0) {
+            Thread.sleep(5);
+        }
+        RecordingComController controller = new RecordingComController(SENSOR_RESET,
+                SENSOR_SWEEP + " 90.0 -90.0 45.0", SENSOR_SWEEP + " 0.0 90.0 0.0", SENSOR_SWEEP + " 120.0 -90.0 30.0");
+        try {
+            new ClientCommunicator("localhost", server.getLocalPort(), controller).run();
+        } finally {
+            server.shutdown();
+            serverThread.join(5000);
+        }
+
+        double[] sensorHeadPositions = {90, 45, 0, -45, -90};
+        Assert.assertEquals(controller.binaryResponses.size(), sensorHeadPositions.length + 5);
+        for (int i = 0  ;  i < sensorHeadPositions.length  ;  i++) {
+            Message<?> response = controller.binaryResponses.get(i);
+            Assert.assertEquals(response.getMnemonic(), SENSOR_SWEEP);
+            Assert.assertEquals(response.getDoubleParameter(0), sensorHeadPositions[i], 0);
+        }
+        Assert.assertEquals(controller.binaryResponses.get(2).getDoubleParameter(1), 40.0, 0);
+        Assert.assertEquals(controller.binaryResponses.get(5).toString(), END_OF_INSTRUCTION_SEQUENCE + " 0");
+        Assert.assertEquals(controller.binaryResponses.get(6).getMnemonic(), UNSUPPORTED_INSTRUCTION);
+        Assert.assertEquals(controller.binaryResponses.get(8).getMnemonic(), UNSUPPORTED_INSTRUCTION);
+    }
+
+    private static Thread start(final ServerCommunicator server) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.powerUp();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static class RecordingComController implements ClientComController {
+        private final String initialRequest;
+        private final ArrayDeque<String> requests = new ArrayDeque<>();
+        private final List<String> textResponses = new ArrayList<>();
+        private final List<Message<?>> binaryResponses = new ArrayList<>();
+
+        private RecordingComController(String initialRequest, String ... requests) {
+            this.initialRequest = initialRequest;
+            this.requests.addAll(Arrays.asList(requests));
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public boolean isStopped() {
+            return false;
+        }
+
+        @Override
+        public String getInitialRequest() {
+            return initialRequest;
+        }
+
+        @Override
+        public String getNextRequest() {
+            return requests.isEmpty() ? DISCONNECT : requests.poll();
+        }
+
+        @Override
+        public boolean isNextRequestDependentOnResponses() {
+            return false;
+        }
+
+        @Override
+        public void resume() {
+        }
+
+        @Override
+        public void handleResponse(String response) {
+            textResponses.add(response);
+        }
+
+        @Override
+        public void handleResponse(Message<?> response) {
+            binaryResponses.add(response);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ki.robotics.server.communication;
+
+import ki.robotics.server.robots.Robot;
+import ki.robotics.server.robots.simulation.RobotImplSimulation;
+import ki.robotics.utility.crisp.CRISP;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ServerCommunicatorImplMultiSessionTest {
+    private static final int NUMBER_OF_CLIENTS = 8;
+
+    @Test
+    public void testConcurrentSessionsHaveSeparateRobots() throws Exception {
+        final List<Robot> robots = Collections.synchronizedList(new ArrayList<Robot>());
+        final ServerCommunicatorImplMultiSession server = new ServerCommunicatorImplMultiSession(0,
+                new RobotFactory() {
+                    @Override
+                    public Robot createRobot() {
+                        RobotImplSimulation robot = new RobotImplSimulation(RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE, true);
+                        robot.placeRobot("Room", 10, 10, 0);
+                        robots.add(robot);
+                        return robot;
+                    }
+                }, NUMBER_OF_CLIENTS);
+        Thread serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.powerUp();
+            }
+        });
+        serverThread.start();
+        while (server.getLocalPort() < 0) {
+            Thread.sleep(5);
+        }
+        final int port = server.getLocalPort();
+
+        try {
+            ExecutorService clients = Executors.newFixedThreadPool(NUMBER_OF_CLIENTS);
+            List<Future<List<String>>> responses = new ArrayList<>();
+            for (int i = 0  ;  i < NUMBER_OF_CLIENTS  ;  i++) {
+                final double distance = i + 1;
+                responses.add(clients.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        try (Socket socket = new Socket("localhost", port);
+                             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+                            List<String> lines = new ArrayList<>();
+                            for (int j = 0  ;  j < 2  ;  j++) {
+                                out.println(CRISP.BOT_TRAVEL_FORWARD + " " + distance);
+                                String line;
+                                while (!(line = in.readLine()).startsWith(CRISP.END_OF_INSTRUCTION_SEQUENCE)) {
+                                    lines.add(line);
+                                }
+                            }
+                            return lines;
+                        }
+                    }
+                }));
+            }
+            for (int i = 0  ;  i < NUMBER_OF_CLIENTS  ;  i++) {
+                List<String> lines = responses.get(i).get();
+                Assert.assertEquals(lines.size(), 2);
+                for (String line : lines) {
+                    Assert.assertEquals(Double.parseDouble(line.split(" ")[1]), i + 1, 0);
+                }
+            }
+            clients.shutdown();
+        } finally {
+            server.shutdown();
+        }
+        serverThread.join(5000);
+        Assert.assertTrue(server.awaitTermination(5000));
+        Assert.assertEquals(server.getNumberOfSessions(), 0);
+
+        Assert.assertEquals(robots.size(), NUMBER_OF_CLIENTS);
+        TreeSet<Integer> positions = new TreeSet<>();
+        for (Robot robot : robots) {
+            positions.add(Math.round(robot.getPose().getX()));
+        }
+        for (int i = 0  ;  i < NUMBER_OF_CLIENTS  ;  i++) {
+            Assert.assertTrue(positions.contains(10 + 2 * (i + 1)), "positions " + positions);
+        }
+    }
+
+    @Test
+    public void testShutdownOfRobotEndsOnlyItsSession() throws Exception {
+        final ServerCommunicatorImplMultiSession server = new ServerCommunicatorImplMultiSession(0,
+                new RobotFactory() {
+                    @Override
+                    public Robot createRobot() {
+                        return createRobotShuttingDownItsCommunication();
+                    }
+                }, 2);
+        Thread serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.powerUp();
+            }
+        });
+        serverThread.start();
+        while (server.getLocalPort() < 0) {
+            Thread.sleep(5);
+        }
+        int port = server.getLocalPort();
+
+        try (Socket leaving = new Socket("localhost", port);
+             PrintWriter leavingOut = new PrintWriter(leaving.getOutputStream(), true);
+             BufferedReader leavingIn = new BufferedReader(new InputStreamReader(leaving.getInputStream()));
+             Socket staying = new Socket("localhost", port);
+             PrintWriter stayingOut = new PrintWriter(staying.getOutputStream(), true);
+             BufferedReader stayingIn = new BufferedReader(new InputStreamReader(staying.getInputStream()))) {
+            leaving.setSoTimeout(5000);
+            staying.setSoTimeout(5000);
+            stayingOut.println(CRISP.SENSOR_SINGLE_DISTANCE_SCAN);
+            Assert.assertTrue(stayingIn.readLine().startsWith(CRISP.SENSOR_SINGLE_DISTANCE_SCAN));
+            Assert.assertTrue(stayingIn.readLine().startsWith(CRISP.END_OF_INSTRUCTION_SEQUENCE));
+
+            leavingOut.println(CRISP.SHUTDOWN);
+            String line;
+            while ((line = leavingIn.readLine()) != null) {
+                Assert.assertFalse(line.isEmpty());
+            }
+
+            stayingOut.println(CRISP.SENSOR_SINGLE_DISTANCE_SCAN);
+            Assert.assertTrue(stayingIn.readLine().startsWith(CRISP.SENSOR_SINGLE_DISTANCE_SCAN));
+            Assert.assertTrue(server.getLocalPort() > 0);
+            Assert.assertEquals(server.getNumberOfSessions(), 1);
+        } finally {
+            server.shutdown();
+        }
+        serverThread.join(5000);
+        Assert.assertTrue(server.awaitTermination(5000));
+    }
+
+    private static Robot createRobotShuttingDownItsCommunication() {
+        RobotImplSimulation robot = new RobotImplSimulation(RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE, true) {
+            private ServerComController comController;
+
+            @Override
+            public void registerComController(ServerComController comController) {
+                super.registerComController(comController);
+                this.comController = comController;
+            }
+
+            @Override
+            public boolean shutdown() {
+                comController.shutdown();
+                return true;
+            }
+        };
+        robot.placeRobot("Room", 10, 10, 0);
+        return robot;
+    }
+}
@@ -0,0 +1,271 @@
+package ki.robotics.server.communication;
+
+import ki.robotics.server.robots.Robot;
+import ki.robotics.server.robots.simulation.RobotImplSimulation;
+import ki.robotics.utility.crisp.CRISP;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ServerCommunicatorImplSelectorTest {
+    private static final int NUMBER_OF_CLIENTS = 16;
+
+    private ServerCommunicatorImplSelector server;
+    private Thread serverThread;
+
+    @AfterMethod
+    public void shutdownServer() throws InterruptedException {
+        if (server != null) {
+            server.shutdown();
+            serverThread.join(5000);
+            Assert.assertTrue(server.awaitTermination(5000));
+            server = null;
+        }
+    }
+
+    @Test
+    public void testConcurrentSessionsOnSingleEventLoop() throws Exception {
+        final int port = startServer(new RobotFactory() {
+            @Override
+            public Robot createRobot() {
+                return createSimulation(RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE);
+            }
+        }, 4);
+
+        ExecutorService clients = Executors.newFixedThreadPool(NUMBER_OF_CLIENTS);
+        try {
+            List<Future<List<String>>> responses = new ArrayList<>();
+            for (int i = 0  ;  i < NUMBER_OF_CLIENTS  ;  i++) {
+                final double distance = 1 + 0.5 * i;
+                responses.add(clients.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        try (Client client = new Client(port)) {
+                            List<String> lines = new ArrayList<>();
+                            for (int j = 0  ;  j < 3  ;  j++) {
+                                lines.addAll(client.request(CRISP.BOT_TRAVEL_FORWARD + " " + distance));
+                            }
+                            return lines;
+                        }
+                    }
+                }));
+            }
+            for (int i = 0  ;  i < NUMBER_OF_CLIENTS  ;  i++) {
+                List<String> lines = responses.get(i).get();
+                Assert.assertEquals(lines.size(), 3);
+                for (String line : lines) {
+                    Assert.assertEquals(line, CRISP.BOT_TRAVEL_FORWARD + " " + (1 + 0.5 * i));
+                }
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    public void testSlowSessionDoesNotBlockOtherSessions() throws Exception {
+        final AtomicInteger robotCounter = new AtomicInteger();
+        int port = startServer(new RobotFactory() {
+            @Override
+            public Robot createRobot() {
+                boolean first = robotCounter.getAndIncrement() == 0;
+                return createSimulation(first ? 2 : RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE);
+            }
+        }, 2);
+
+        try (Client slow = new Client(port)  ;  Client fast = new Client(port)) {
+            long start = System.nanoTime();
+            slow.send(CRISP.BOT_TRAVEL_FORWARD + " 20.0");
+            Thread.sleep(50);
+            List<String> fastResponse = fast.request(CRISP.SENSOR_THREE_WAY_SCAN);
+            long fastMillis = (System.nanoTime() - start) / 1000000;
+            List<String> slowResponse = slow.receive();
+            long slowMillis = (System.nanoTime() - start) / 1000000;
+
+            Assert.assertEquals(fastResponse.size(), 1);
+            Assert.assertTrue(fastResponse.get(0).startsWith(CRISP.SENSOR_THREE_WAY_SCAN));
+            Assert.assertEquals(slowResponse.get(0), CRISP.BOT_TRAVEL_FORWARD + " 20.0");
+            Assert.assertTrue(fastMillis < slowMillis / 2, "fast " + fastMillis + " ms, slow " + slowMillis + " ms");
+        }
+    }
+
+    @Test
+    public void testDisconnectClosesOnlyItsSession() throws Exception {
+        int port = startServer(new RobotFactory() {
+            @Override
+            public Robot createRobot() {
+                return createSimulation(RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE);
+            }
+        }, 2);
+
+        try (Client leaving = new Client(port)  ;  Client staying = new Client(port)) {
+            staying.request(CRISP.SENSOR_SINGLE_DISTANCE_SCAN);
+            Assert.assertTrue(leaving.request(CRISP.DISCONNECT).contains(CRISP.DISCONNECT));
+            Assert.assertNull(leaving.in.readLine());
+            Assert.assertEquals(staying.request(CRISP.SENSOR_SINGLE_DISTANCE_SCAN).size(), 1);
+            Assert.assertEquals(server.getNumberOfSessions(), 1);
+        }
+    }
+
+    @Test
+    public void testShutdownOfRobotEndsOnlyItsSession() throws Exception {
+        int port = startServer(new RobotFactory() {
+            @Override
+            public Robot createRobot() {
+                RobotImplSimulation robot = new RobotImplSimulation(RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE, true) {
+                    private ServerComController comController;
+
+                    @Override
+                    public void registerComController(ServerComController comController) {
+                        super.registerComController(comController);
+                        this.comController = comController;
+                    }
+
+                    @Override
+                    public boolean shutdown() {
+                        comController.shutdown();
+                        return true;
+                    }
+                };
+                robot.placeRobot("Room", 10, 10, 0);
+                return robot;
+            }
+        }, 2);
+
+        try (Client leaving = new Client(port)  ;  Client staying = new Client(port)) {
+            leaving.socket.setSoTimeout(5000);
+            staying.socket.setSoTimeout(5000);
+            staying.request(CRISP.SENSOR_SINGLE_DISTANCE_SCAN);
+            Assert.assertTrue(leaving.request(CRISP.SHUTDOWN).contains(CRISP.DISCONNECT));
+            Assert.assertNull(leaving.in.readLine());
+            Assert.assertEquals(staying.request(CRISP.SENSOR_SINGLE_DISTANCE_SCAN).size(), 1);
+            Assert.assertTrue(server.getLocalPort() > 0);
+            Assert.assertEquals(server.getNumberOfSessions(), 1);
+        }
+    }
+
+    @Test
+    public void testLineExceedingMaximumLengthClosesSession() throws Exception {
+        int port = startServer(new RobotFactory() {
+            @Override
+            public Robot createRobot() {
+                return createSimulation(RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE);
+            }
+        }, 2);
+
+        try (Client flooding = new Client(port)  ;  Client staying = new Client(port)) {
+            flooding.socket.setSoTimeout(5000);
+            staying.socket.setSoTimeout(5000);
+            staying.request(CRISP.SENSOR_SINGLE_DISTANCE_SCAN);
+            char[] chunk = new char[1024];
+            Arrays.fill(chunk, 'x');
+            try {
+                for (int i = 0  ;  i <= ServerCommunicatorImplSelector.MAXIMUM_LINE_LENGTH / chunk.length  ;  i++) {
+                    flooding.out.print(chunk);
+                }
+                flooding.out.flush();
+                Assert.assertNull(flooding.in.readLine());
+            } catch (SocketException ignored) {
+                // connection reset by the server
+            }
+            Assert.assertEquals(staying.request(CRISP.SENSOR_SINGLE_DISTANCE_SCAN).size(), 1);
+            Assert.assertEquals(server.getNumberOfSessions(), 1);
+        }
+    }
+
+    @Test
+    public void testErrorWhileCreatingRobotClosesSession() throws Exception {
+        final AtomicInteger robotCounter = new AtomicInteger();
+        int port = startServer(new RobotFactory() {
+            @Override
+            public Robot createRobot() {
+                if (robotCounter.getAndIncrement() == 0) {
+                    throw new ExceptionInInitializerError("map could not be loaded");
+                }
+                return createSimulation(RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE);
+            }
+        }, 1);
+
+        try (Client failing = new Client(port)) {
+            failing.socket.setSoTimeout(5000);
+            failing.send(CRISP.SENSOR_SINGLE_DISTANCE_SCAN);
+            Assert.assertNull(failing.in.readLine());
+        }
+        try (Client next = new Client(port)) {
+            next.socket.setSoTimeout(5000);
+            Assert.assertEquals(next.request(CRISP.SENSOR_SINGLE_DISTANCE_SCAN).size(), 1);
+            Assert.assertEquals(server.getNumberOfSessions(), 1);
+        }
+    }
+
+    private int startServer(RobotFactory robotFactory, int workerThreads) throws InterruptedException {
+        server = new ServerCommunicatorImplSelector(0, robotFactory, workerThreads);
+        serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.powerUp();
+            }
+        });
+        serverThread.start();
+        while (server.getLocalPort() < 0) {
+            Thread.sleep(5);
+        }
+        return server.getLocalPort();
+    }
+
+    private static Robot createSimulation(double timeScale) {
+        RobotImplSimulation robot = new RobotImplSimulation(timeScale, true);
+        robot.placeRobot("Room", 10, 10, 0);
+        return robot;
+    }
+
+    private static class Client implements AutoCloseable {
+        private final Socket socket;
+        private final PrintWriter out;
+        private final BufferedReader in;
+
+        private Client(int port) throws IOException {
+            socket = new Socket("localhost", port);
+            out = new PrintWriter(socket.getOutputStream(), true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        }
+
+        private void send(String request) {
+            out.println(request);
+        }
+
+        private List<String> receive() throws IOException {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while (!(line = in.readLine()).startsWith(CRISP.END_OF_INSTRUCTION_SEQUENCE)) {
+                lines.add(line);
+            }
+            return lines;
+        }
+
+        private List<String> request(String request) throws IOException {
+            send(request);
+            return receive();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
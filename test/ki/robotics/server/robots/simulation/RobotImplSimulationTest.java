@@ -0,0 +1,42 @@
+package ki.robotics.server.robots.simulation;
+
+import ki.robotics.utility.map.MapProvider;
+import lejos.robotics.navigation.Pose;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RobotImplSimulationTest {
+
+    @Test
+    public void testHeadlessSimulationRunsWithoutDelay() {
+        RobotImplSimulation robot = new RobotImplSimulation(RobotImplSimulation.TIME_SCALE_AS_FAST_AS_POSSIBLE, true);
+        robot.placeRobot(MapProvider.MAP_KEY_ROOM, 20, 100, 0);
+
+        long start = System.nanoTime();
+        double distance = robot.botTravelForward(50);
+        robot.botTurnLeft(90);
+        double[] distances = robot.ultrasonicThreeWayScan();
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        Pose pose = robot.getPose();
+        Assert.assertEquals(distance, 50, 0);
+        Assert.assertEquals(pose.getX(), 70, 0.5);
+        Assert.assertEquals(pose.getY(), 100, 0.5);
+        Assert.assertEquals(pose.getHeading(), 90, 0);
+        Assert.assertEquals(distances.length, 3);
+        Assert.assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void testTimeScaleShortensAnimation() {
+        RobotImplSimulation robot = new RobotImplSimulation(100, true);
+        robot.placeRobot(MapProvider.MAP_KEY_ROOM, 20, 100, 0);
+
+        long start = System.nanoTime();
+        robot.botTravelForward(20);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        Assert.assertEquals(robot.getPose().getX(), 40, 0.5);
+        Assert.assertTrue(elapsedMillis >= 5  &&  elapsedMillis < 1000 / 2, "took " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,51 @@
+package ki.robotics.utility.crisp;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+public class BinaryFrameTest {
+
+    @Test
+    public void testFrameRoundTrip() throws IOException {
+        BinaryFrameWriter writer = new BinaryFrameWriter();
+        writer.add(CRISP.SENSOR_RESET)
+                .add(CRISP.SENSOR_THREE_WAY_SCAN, 12.5, 40.0, 99.25)
+                .add(CRISP.CAMERA_GENERAL_QUERY, 1, 2, 3, 4, 5, 6)
+                .add(new MessageImpl<>(CRISP.BOT_TRAVEL_FORWARD, 20.0))
+                .add(new MessageImpl<>("XXXX", 1));
+        Assert.assertEquals(writer.size(), 5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        writer.add(CRISP.END_OF_INSTRUCTION_SEQUENCE);
+        writer.writeTo(out);
+        Assert.assertEquals(writer.size(), 0);
+
+        BinaryFrameReader reader = new BinaryFrameReader(new ByteArrayInputStream(out.toByteArray()));
+        ArrayList<Message<?>> messages = reader.readFrame();
+        Assert.assertEquals(messages.size(), 5);
+        Assert.assertEquals(messages.get(0).getMnemonic(), CRISP.SENSOR_RESET);
+        Assert.assertEquals(messages.get(0).getParameters().length, 0);
+        Assert.assertEquals(messages.get(1).getMessageGroup(), CRISP.SENSOR_INSTRUCTION);
+        Assert.assertEquals((double) messages.get(1).getParameters()[2], 99.25, 0);
+        Assert.assertEquals(messages.get(1).toString(), "STWS 12.5 40.0 99.25");
+        Assert.assertEquals((int) messages.get(2).getParameters()[5], 6);
+        Assert.assertEquals((double) messages.get(3).getParameter(), 20.0, 0);
+        Assert.assertEquals(messages.get(4).getMnemonic(), CRISP.UNSUPPORTED_INSTRUCTION);
+
+        ArrayList<Message<?>> end = reader.readFrame();
+        Assert.assertEquals(end.size(), 1);
+        Assert.assertEquals(end.get(0).getMnemonic(), CRISP.END_OF_INSTRUCTION_SEQUENCE);
+        Assert.assertNull(reader.readFrame());
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testMalformedFrameIsRejected() throws IOException {
+        byte[] frame = {0, 0, 0, 4, 13, 2, 3, 0};
+        new BinaryFrameReader(new ByteArrayInputStream(frame)).readFrame();
+    }
+}
@@ -0,0 +1,77 @@
+package ki.robotics.utility.crisp;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TextTransmissionParserTest {
+    private static final String[] PARAMETERS = {
+            "", " 0", " -0", " +7", " 5 -3 2147483647", " -2147483648", " 2147483648", " 12.5", " -0.0",
+            " 3 4.25 -1", " .5 5.", " 1e3", " 0.1 0.2 0.30000000000000004", " 123456789.123456789",
+            " 9007199254740993", " NaN", " -Infinity", " 7d", " 0x1p3", " 1.0000000000000000000000001",
+            " abc", " 5 x", "  5", " 5  6", " -", " +", " .", " 1,5", " ٣", " ٣.5"
+    };
+
+    @Test
+    public void testIdenticalToDecodeTransmissionForAllMnemonics() {
+        for (String mnemonic : BinaryCRISP.MNEMONICS) {
+            if (mnemonic == null) {
+                continue;
+            }
+            for (String parameters : PARAMETERS) {
+                assertIdenticalDecoding(mnemonic + parameters);
+                assertIdenticalDecoding(" " + mnemonic.toLowerCase() + parameters + "\t");
+            }
+        }
+    }
+
+    @Test
+    public void testIdenticalToDecodeTransmissionForMalformedTransmissions() {
+        String[] transmissions = {
+                "", ",", ",,", " ", "BTRF 5,", "BTRF 5,,", ",BTRF 5", "BTRF 5,,SDST", "BTRF 5, ,SDST",
+                "BTRF 5.0, BTNL 90, STWS 1 2 3, CGEN", "XXXX 1", "BTRFX 5", "BTR 5", "BTRF\t5", "EOSQ 0",
+                "B 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16 17 18 19 20"
+        };
+        for (String transmission : transmissions) {
+            assertIdenticalDecoding(transmission);
+        }
+    }
+
+    @Test
+    public void testPrimitiveParameters() {
+        TextTransmissionParser parser = new TextTransmissionParser();
+        MessageImplReusable message = new MessageImplReusable();
+        parser.reset("BTRF 20, STWS 1.5 2 -3");
+
+        Assert.assertTrue(parser.next(message));
+        Assert.assertSame(message.getMnemonic(), CRISP.BOT_TRAVEL_FORWARD);
+        Assert.assertTrue(message.hasIntegerParameters());
+        Assert.assertEquals(message.getDoubleParameter(0), 20.0, 0);
+
+        Assert.assertTrue(parser.next(message));
+        Assert.assertFalse(message.hasIntegerParameters());
+        Assert.assertEquals(message.getNumberOfParameters(), 3);
+        Assert.assertEquals(message.getDoubleParameter(2), -3.0, 0);
+        Assert.assertEquals(message.getIntParameter(0), 1);
+        Assert.assertFalse(parser.next(message));
+    }
+
+    private static void assertIdenticalDecoding(String transmission) {
+        TextTransmissionParser parser = new TextTransmissionParser();
+        MessageImplReusable actual = new MessageImplReusable();
+        parser.reset(new StringBuilder(transmission));
+        for (Message<?> message : MessageImpl.decodeTransmission(transmission)) {
+            Assert.assertTrue(parser.next(actual), transmission);
+            Assert.assertEquals(actual.getMnemonic(), message.getMnemonic(), transmission);
+            Assert.assertEquals(actual.getMessageGroup(), message.getMessageGroup(), transmission);
+            Assert.assertEquals(actual.toString(), message.toString(), transmission);
+            Object[] actualParameters = actual.getParameters();
+            Object[] expectedParameters = message.getParameters();
+            Assert.assertEquals(actualParameters.getClass(), expectedParameters.getClass(), transmission);
+            Assert.assertTrue(Arrays.equals(actualParameters, expectedParameters), transmission);
+        }
+        Assert.assertFalse(parser.next(actual), transmission);
+    }
+}
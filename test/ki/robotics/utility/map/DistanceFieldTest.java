@@ -0,0 +1,45 @@
+package ki.robotics.utility.map;
+
+import ki.robotics.utility.map.mapElements.Line;
+import org.testng.annotations.Test;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class DistanceFieldTest {
+
+    @Test
+    public void testDistancesMatchNearestWall() {
+        ArrayList<Line> walls = new ArrayList<>();
+        walls.add(new Line(new Point2D.Double(0, 0), new Point2D.Double(150, 0)));
+        walls.add(new Line(new Point2D.Double(150, 0), new Point2D.Double(150, 200)));
+        walls.add(new Line(new Point2D.Double(150, 200), new Point2D.Double(0, 200)));
+        walls.add(new Line(new Point2D.Double(0, 200), new Point2D.Double(0, 0)));
+        walls.add(new Line(new Point2D.Double(40, 60), new Point2D.Double(90, 130)));
+        DistanceField distanceField = new DistanceField(walls, 150, 200, 1);
+
+        Random random = new Random(3);
+        for (int i = 0  ;  i < 1000  ;  i++) {
+            double x = -10 + random.nextDouble() * 170;
+            double y = -10 + random.nextDouble() * 220;
+            double expected = Double.POSITIVE_INFINITY;
+            for (Line wall : walls) {
+                expected = Math.min(expected, wall.ptSegDist(x, y));
+            }
+            assertEquals(distanceField.getDistance(x, y), expected, 1.5, x + "/" + y);
+        }
+        assertEquals(distanceField.getDistance(500, 500), Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void testDistanceFieldIsShared() {
+        MapProvider mapProvider = MapProviderImpl.getInstance();
+        DistanceField distanceField = mapProvider.getDistanceField(MapProvider.MAP_KEY_ROOM, 1);
+        assertSame(mapProvider.getDistanceField(MapProvider.MAP_KEY_ROOM, 1), distanceField);
+        assertEquals(distanceField.getDistance(75, 0.5), 0, 1);
+        assertNull(mapProvider.getDistanceField("unknown", 1));
+    }
+}
@@ -0,0 +1,56 @@
+package ki.robotics.utility.map;
+
+import ki.robotics.utility.map.mapElements.Circle;
+import ki.robotics.utility.map.mapElements.Line;
+import org.testng.annotations.Test;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class LandmarkVisibilityGridTest {
+
+    @Test
+    public void testVisibilityMatchesTestAgainstAllWalls() {
+        ArrayList<Line> walls = new ArrayList<>();
+        walls.add(new Line(new Point2D.Double(0, 0), new Point2D.Double(150, 0)));
+        walls.add(new Line(new Point2D.Double(150, 0), new Point2D.Double(150, 150)));
+        walls.add(new Line(new Point2D.Double(150, 150), new Point2D.Double(100, 150)));
+        walls.add(new Line(new Point2D.Double(100, 150), new Point2D.Double(100, 200)));
+        walls.add(new Line(new Point2D.Double(100, 200), new Point2D.Double(0, 200)));
+        walls.add(new Line(new Point2D.Double(0, 200), new Point2D.Double(0, 0)));
+        walls.add(new Line(new Point2D.Double(40, 60), new Point2D.Double(90, 60)));
+        walls.add(new Line(new Point2D.Double(90, 60), new Point2D.Double(90, 110)));
+        walls.add(new Line(new Point2D.Double(20, 140), new Point2D.Double(60, 170)));
+        ArrayList<Circle> landmarks = new ArrayList<>();
+        landmarks.add(new Circle(new Point2D.Double(75, 0), 3));
+        landmarks.add(new Circle(new Point2D.Double(150, 100), 3));
+        landmarks.add(new Circle(new Point2D.Double(0, 130), 3));
+        landmarks.add(new Circle(new Point2D.Double(65, 62), 3));
+        landmarks.add(new Circle(new Point2D.Double(120, 30), 3));
+        LandmarkVisibilityGrid grid = new LandmarkVisibilityGrid(walls, landmarks);
+
+        Random random = new Random(5);
+        for (int i = 0  ;  i < 20000  ;  i++) {
+            double x = -20 + random.nextDouble() * 190;
+            double y = -20 + random.nextDouble() * 240;
+            boolean[] visible = new boolean[landmarks.size()];
+            int cell = grid.getCell(x, y);
+            int[] candidates = grid.getLandmarks(cell);
+            for (int entry = 0  ;  entry < candidates.length  ;  entry++) {
+                visible[candidates[entry]] = grid.isVisible(cell, entry, x, y);
+            }
+            for (int landmark = 0  ;  landmark < landmarks.size()  ;  landmark++) {
+                Line sight = new Line(new Point2D.Double(x, y),
+                        new Point2D.Double(landmarks.get(landmark).getCenterX(), landmarks.get(landmark).getCenterY()));
+                boolean expected = true;
+                for (Line wall : walls) {
+                    expected &= ! wall.intersectsLine(sight);
+                }
+                assertEquals(visible[landmark], expected, x + "/" + y + " landmark " + landmark);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package ki.robotics.utility.map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class MapImplRaycastTableTest {
+    private Map map;
+
+    @BeforeMethod
+    public void setUp() {
+        map = MapProviderImpl.getInstance().getMap(MapProvider.MAP_KEY_ROOM);
+    }
+
+
+
+    @Test
+    public void testCastRayOnSamplesMatchesExactRaycaster() {
+        MapImplRaycastTable table = new MapImplRaycastTable(map, 1, 90);
+        for (int x = 0  ;  x <= map.getMinWidthForMapDisplay()  ;  x += 7) {
+            for (int y = 0  ;  y <= map.getMinHeightForMapDisplay()  ;  y += 7) {
+                for (int direction = -90  ;  direction <= 450  ;  direction += 90) {
+                    assertEquals(table.castRay(x, y, direction), (double) (float) map.castRay(x, y, direction), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCastRaysMatchesCastRay() {
+        Random random = new Random(7);
+        int numberOfPoses = 200;
+        float[] x = new float[numberOfPoses];
+        float[] y = new float[numberOfPoses];
+        float[] heading = new float[numberOfPoses];
+        for (int i = 0  ;  i < numberOfPoses  ;  i++) {
+            x[i] = -10 + random.nextFloat() * (map.getMinWidthForMapDisplay() + 20);
+            y[i] = random.nextFloat() * map.getMinHeightForMapDisplay();
+            heading[i] = random.nextFloat() * 360;
+        }
+        double[] sensorHeadPositions = {90, 67.5, 45, 22.5, 0, -22.5, -45, -67.5, -90, 180};
+        MapImplRaycastTable table = new MapImplRaycastTable(map, 2, 5);
+
+        for (Map tested : new Map[]{map, table}) {
+            double tolerance = (tested == map) ? 1e-6 : 0;
+            double[] distances = new double[(numberOfPoses - 10) * sensorHeadPositions.length];
+            tested.castRays(x, y, heading, 10, numberOfPoses, sensorHeadPositions, distances);
+            for (int i = 10  ;  i < numberOfPoses  ;  i++) {
+                for (int k = 0  ;  k < sensorHeadPositions.length  ;  k++) {
+                    double expected = tested.castRay(x[i], y[i], 360.0 - heading[i] - sensorHeadPositions[k]);
+                    double actual = distances[(i - 10) * sensorHeadPositions.length + k];
+                    if (Double.isInfinite(expected)) {
+                        assertEquals(actual, expected);
+                    } else {
+                        assertEquals(actual, expected, tolerance);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCompareWithExactRaycaster() {
+        MapImplRaycastTable table = new MapImplRaycastTable(map, 2, 5);
+        MapImplRaycastTable.Accuracy accuracy = table.compareWithExactRaycaster(5000, 42);
+        assertEquals(accuracy.getNumberOfSamples(), 5000);
+        assertEquals(accuracy.getNumberOfMismatchedMisses(), 0);
+        assertTrue(accuracy.getMeanAbsoluteError() < 5, accuracy.toString());
+    }
+
+    @Test
+    public void testMeanAbsoluteErrorIgnoresMissesOfBothRaycasters() {
+        MapImplRaycastTable.Accuracy accuracy = new MapImplRaycastTable.Accuracy();
+        accuracy.add(10, 12);
+        accuracy.add(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        accuracy.add(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        accuracy.add(20, 16);
+        accuracy.add(5, Double.POSITIVE_INFINITY);
+        assertEquals(accuracy.getNumberOfSamples(), 5);
+        assertEquals(accuracy.getNumberOfMismatchedMisses(), 1);
+        assertEquals(accuracy.getMeanAbsoluteError(), 3, 0);
+        assertEquals(accuracy.getMaximumAbsoluteError(), 4, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMappedTableOfWrongSizeIsRejected() {
+        long requiredMemory = MapImplRaycastTable.getRequiredMemory(map, 2, 10);
+        new MapImplRaycastTable(map, 2, 10, ByteBuffer.allocate((int) requiredMemory - MapImplRaycastTable.BYTES_PER_ENTRY));
+    }
+
+    @Test
+    public void testGetTabulatedMapRespectsMemoryBudget() throws IOException {
+        MapProviderImpl provider = (MapProviderImpl) MapProviderImpl.getInstance();
+        File directory = Files.createTempDirectory("raycast").toFile();
+        provider.setRaycastTableDirectory(directory);
+        try {
+            assertSame(provider.getTabulatedMap(MapProvider.MAP_KEY_ROOM, 1, 1, 1024), map);
+            Map tabulated = provider.getTabulatedMap(MapProvider.MAP_KEY_ROOM, 1, 90, 1024 * 1024);
+            assertTrue(tabulated instanceof MapImplRaycastTable);
+            assertSame(provider.getTabulatedMap(MapProvider.MAP_KEY_ROOM, 1, 90, 1024 * 1024), tabulated);
+        } finally {
+            provider.setRaycastTableDirectory(null);
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testRaycastTableFileIsReusedAndInvalidated() throws IOException {
+        File directory = Files.createTempDirectory("raycast").toFile();
+        File svgFile = new File(directory, "room.svg");
+        byte[] digest = ((MapImpl) map).getGeometryDigest();
+
+        MapImplRaycastTable created = new RaycastTableFile(svgFile, digest, 2, 10).loadOrCreate(map, 2, 10);
+        MapImplRaycastTable loaded = new RaycastTableFile(svgFile, digest, 2, 10).loadOrCreate(map, 2, 10);
+        assertTrue(loaded.isMapped());
+        assertEquals(loaded.castRay(50, 60, 123), created.castRay(50, 60, 123), 0);
+
+        File[] files = directory.listFiles();
+        assertEquals(files.length, 1);
+        digest[0]++;
+        new RaycastTableFile(svgFile, digest, 2, 10).loadOrCreate(map, 2, 10);
+        assertEquals(directory.listFiles().length, 1);
+        byte[] storedDigest = Arrays.copyOfRange(Files.readAllBytes(files[0].toPath()), 8, 8 + digest.length);
+        assertEquals(storedDigest, digest);
+
+        files[0].delete();
+        directory.delete();
+    }
+}
@@ -1,9 +1,16 @@
 package ki.robotics.utility.map;
 
+import ki.robotics.utility.map.mapElements.Circle;
+import ki.robotics.utility.map.mapElements.Line;
+import ki.robotics.utility.pixyCam.PixyCam;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Random;
+
 import static org.testng.Assert.*;
 
 public class MapTest {
@@ -46,6 +53,209 @@ public class MapTest {
 
     @Test
     public void testGetDistanceToNearestObstacle() {
+        Random random = new Random(3);
+        for (String key : MapProviderImpl.getInstance().getMapKeys()) {
+            MapImpl map = (MapImpl) MapProviderImpl.getInstance().getMap(key);
+            ArrayList<Line> walls = map.getWalls();
+            double left = Double.MAX_VALUE, top = Double.MAX_VALUE;
+            double right = -Double.MAX_VALUE, bottom = -Double.MAX_VALUE;
+            for (Line wall : walls) {
+                left = Math.min(left, Math.min(wall.getX1(), wall.getX2()));
+                top = Math.min(top, Math.min(wall.getY1(), wall.getY2()));
+                right = Math.max(right, Math.max(wall.getX1(), wall.getX2()));
+                bottom = Math.max(bottom, Math.max(wall.getY1(), wall.getY2()));
+            }
+
+            // random rays from within and around the map
+            for (int i = 0  ;  i < 20000  ;  i++) {
+                double x = left - 20 + random.nextDouble() * (right - left + 40);
+                double y = top - 20 + random.nextDouble() * (bottom - top + 40);
+                assertSameDistanceAsAllWalls(map, walls, x, y, random.nextDouble() * 360);
+            }
+
+            // rays grazing the corners of the grid-cells: from each corner along the borders and diagonals of the
+            // cells, and from random positions through the corner
+            WallGrid grid = new WallGrid(walls);
+            double cellSize = grid.getCellSize();
+            int columns = (int) Math.ceil((right - left + 1) / cellSize);
+            int rows = (int) Math.ceil((bottom - top + 1) / cellSize);
+            for (int row = 0  ;  row <= rows  ;  row++) {
+                for (int column = 0  ;  column <= columns  ;  column++) {
+                    double cornerX = grid.getMinX() + column * cellSize;
+                    double cornerY = grid.getMinY() + row * cellSize;
+                    for (int angle = 0  ;  angle < 360  ;  angle += 45) {
+                        assertSameDistanceAsAllWalls(map, walls, cornerX, cornerY, angle);
+                    }
+                    for (int i = 0  ;  i < 10  ;  i++) {
+                        double x = left - 20 + random.nextDouble() * (right - left + 40);
+                        double y = top - 20 + random.nextDouble() * (bottom - top + 40);
+                        double angle = Math.toDegrees(Math.atan2(cornerY - y, cornerX - x));
+                        assertSameDistanceAsAllWalls(map, walls, x, y, angle);
+                    }
+                }
+            }
+
+            // rays from outside the map, pointing away from it
+            for (int i = 0  ;  i < 1000  ;  i++) {
+                double y = top - 100 + random.nextDouble() * (bottom - top + 200);
+                double angle = 100 + random.nextDouble() * 160;
+                assertMiss(map, walls, left - 1 - random.nextDouble() * 100, y, angle);
+                assertMiss(map, walls, right + 1 + random.nextDouble() * 100, y, angle + 180);
+            }
+        }
+    }
+
+
+
+    @Test
+    public void testCastRayWithHitAgreesWithGetDistanceToNearestObstacle() {
+        Random random = new Random(4);
+        RayHit hit = new RayHit();
+        for (String key : MapProviderImpl.getInstance().getMapKeys()) {
+            MapImpl map = (MapImpl) MapProviderImpl.getInstance().getMap(key);
+            ArrayList<Line> walls = map.getWalls();
+            int hits = 0, misses = 0;
+            for (int i = 0  ;  i < 5000  ;  i++) {
+                double x = -50 + random.nextDouble() * (map.getMinWidthForMapDisplay() + 100);
+                double y = -50 + random.nextDouble() * (map.getMinHeightForMapDisplay() + 100);
+                double angle = random.nextDouble() * 360;
+                double expected = map.getDistanceToNearestObstacle(new Point2D.Double(x, y), angle);
+                boolean isHit = map.castRay(x, y, angle, hit);
+                String ray = x + "/" + y + " at " + angle;
+                if (expected == Double.MAX_VALUE) {
+                    assertFalse(isHit, ray);
+                    assertMiss(hit);
+                    misses++;
+                    continue;
+                }
+                assertTrue(isHit, ray);
+                assertTrue(hit.isHit(), ray);
+                assertEquals(hit.getDistance(), expected, 0, ray);
+                assertEquals(hit.getX(), x + expected * Math.cos(Math.toRadians(angle)), 1e-9, ray);
+                assertEquals(hit.getY(), y + expected * Math.sin(Math.toRadians(angle)), 1e-9, ray);
+                assertTrue(containsIdentical(walls, hit.getWall()), ray);
+                assertTrue(hit.getWall().ptSegDist(hit.getX(), hit.getY()) < 0.00001, ray);
+                ArrayList<Line> wallHit = new ArrayList<>();
+                wallHit.add(hit.getWall());
+                assertEquals(castRayAgainstAllWalls(wallHit, x, y, angle), expected, 1e-6, ray);
+                hits++;
+            }
+            assertTrue(hits > 0  &&  misses > 0, key + ": " + hits + " hits, " + misses + " misses");
+        }
+    }
+
+
+
+    @Test
+    public void testCastRayWithHitOverwritesPreviousResult() {
+        Map map = MapProviderImpl.getInstance().getMap(MapProvider.MAP_KEY_ROOM);
+        RayHit hit = new RayHit();
+        assertMiss(hit);
+
+        assertTrue(map.castRay(50, 100, 0, hit));
+        Line firstWall = hit.getWall();
+        assertEquals(hit.getDistance(), map.castRay(50, 100, 0), 0);
+        assertEquals(hit.getY(), 100, 1e-9);
+
+        assertFalse(map.castRay(-10, 100, 180, hit));
+        assertMiss(hit);
+
+        assertTrue(map.castRay(50, 100, 180, hit));
+        assertNotSame(hit.getWall(), firstWall);
+        assertEquals(hit.getDistance(), map.castRay(50, 100, 180), 0);
+        assertEquals(hit.getX(), 50 - hit.getDistance(), 1e-9);
+        assertEquals(hit.getY(), 100, 1e-9);
+
+        assertTrue(map.castRay(50, 100, 0, hit));
+        assertSame(hit.getWall(), firstWall);
+    }
+
+
+
+    @Test
+    public void testCastRayWithHitMissesOutsideOfMap() {
+        Map map = MapProviderImpl.getInstance().getMap(MapProvider.MAP_KEY_MARKED_ROOM);
+        RayHit hit = new RayHit();
+        assertTrue(map.castRay(50, 100, 90, hit));
+        assertFalse(map.castRay(50, -10, 270, hit));
+        assertMiss(hit);
+        assertEquals(map.castRay(50, -10, 270), Double.POSITIVE_INFINITY);
+        assertEquals(map.getDistanceToNearestObstacle(new Point2D.Double(50, -10), 270), Double.MAX_VALUE);
+
+        Map table = new MapImplRaycastTable(map, 1, 1);
+        assertTrue(table.castRay(50, 100, 90, hit));
+        assertFalse(table.castRay(50, -10, 270, hit));
+        assertMiss(hit);
+    }
+
+
+
+    private static void assertMiss(RayHit hit) {
+        assertFalse(hit.isHit());
+        assertEquals(hit.getDistance(), Double.POSITIVE_INFINITY);
+        assertTrue(Double.isNaN(hit.getX()));
+        assertTrue(Double.isNaN(hit.getY()));
+        assertNull(hit.getWall());
+    }
+
+
+
+    private static boolean containsIdentical(ArrayList<Line> walls, Line wall) {
+        for (Line w : walls) {
+            if (w == wall) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+    private static void assertSameDistanceAsAllWalls(Map map, ArrayList<Line> walls, double x, double y,
+                                                     double viewingDirection) {
+        double expected = castRayAgainstAllWalls(walls, x, y, viewingDirection);
+        double actual = map.castRay(x, y, viewingDirection);
+        String ray = x + "/" + y + " at " + viewingDirection;
+        if (Double.isInfinite(expected)) {
+            assertTrue(Double.isInfinite(actual), ray + ": " + actual);
+            assertEquals(map.getDistanceToNearestObstacle(new Point2D.Double(x, y), viewingDirection), Double.MAX_VALUE);
+        } else {
+            assertEquals(actual, expected, 1e-6, ray);
+            assertEquals(map.getDistanceToNearestObstacle(new Point2D.Double(x, y), viewingDirection), expected, 1e-6, ray);
+        }
+    }
+
+
+
+    private static void assertMiss(Map map, ArrayList<Line> walls, double x, double y, double viewingDirection) {
+        assertTrue(Double.isInfinite(castRayAgainstAllWalls(walls, x, y, viewingDirection)));
+        assertSameDistanceAsAllWalls(map, walls, x, y, viewingDirection);
+    }
+
+
+
+    /**
+     * Reference-implementation of the ray-cast: the nearest intersection with any of the walls (within a
+     * tolerance of 0.00001 beyond their end-points), ignoring walls parallel to the ray.
+     */
+    private static double castRayAgainstAllWalls(ArrayList<Line> walls, double x, double y, double viewingDirection) {
+        double directionX = Math.cos(Math.toRadians(viewingDirection));
+        double directionY = Math.sin(Math.toRadians(viewingDirection));
+        double distanceToNearestWall = Double.POSITIVE_INFINITY;
+        for (Line wall : walls) {
+            double wallDirectionX = wall.getX2() - wall.getX1();
+            double wallDirectionY = wall.getY2() - wall.getY1();
+            double denominator = directionX * wallDirectionY - directionY * wallDirectionX;
+            if (Math.abs(denominator) < 1e-12) {
+                continue;
+            }
+            double distance = ((wall.getX1() - x) * wallDirectionY - (wall.getY1() - y) * wallDirectionX) / denominator;
+            Point2D intersectionPoint = new Point2D.Double(x + distance * directionX, y + distance * directionY);
+            if (distance >= 0  &&  wall.ptSegDist(intersectionPoint) < 0.00001) {
+                distanceToNearestWall = Math.min(distanceToNearestWall, distance);
+            }
+        }
+        return distanceToNearestWall;
     }
 
     @Test
@@ -87,4 +297,79 @@ public class MapTest {
     @Test
     public void testGetCameraSignatureQuery() {
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetCameraSignatureQueriesMatchScanOfAllLandmarks() {
+        MapImpl map = (MapImpl) MapProviderImpl.getInstance().getMap(MapProvider.MAP_KEY_MARKED_ROOM);
+        Random random = new Random(13);
+        int posesWithLandmark = 0;
+        for (int i = 0  ;  i < 2000  ;  i++) {
+            double x = random.nextDouble() * 150;
+            double y = random.nextDouble() * 200;
+            double angle = random.nextDouble() * 360;
+            int[][] allSignatures = map.getCameraAllSignaturesQuery(x, y, angle);
+            assertEquals(allSignatures.length, 7);
+            boolean landmarkVisible = false;
+            for (int signature = 1  ;  signature <= 7  ;  signature++) {
+                int[] expected = getCameraSignatureQueryOfAllLandmarks(map, x, y, angle, signature);
+                assertEquals(allSignatures[signature - 1], expected);
+                assertEquals(map.getCameraSignatureQuery(x, y, angle, signature), expected);
+                landmarkVisible |= expected[0] != 0;
+            }
+            if (landmarkVisible) {
+                posesWithLandmark++;
+            }
+        }
+        assertTrue(posesWithLandmark > 0);
+    }
+
+    /**
+     * Reference-implementation of the signature-query: the first landmark with the signature within the image
+     * which is not hidden by any of the walls (no visibility-grid, no sharing between signatures).
+     */
+    private static int[] getCameraSignatureQueryOfAllLandmarks(MapImpl map, double x, double y, double angle, int signature) {
+        double imageFullAngle = 75;
+        double imageHalfAngle = imageFullAngle / 2;
+        int pixelInFullAngle = 255;
+        double maxPossibleDistanceInMap = Math.sqrt(Math.pow(map.getMinHeightForMapDisplay(), 2) + Math.pow(map.getMinWidthForMapDisplay(), 2));
+        Point2D.Double origin = new Point2D.Double(x, y);
+        Line cameraCenterOfFocus = new Line(origin, angle, maxPossibleDistanceInMap);
+
+        landmark_loop:
+        for (Circle landmark : map.getLandmarks()) {
+            if (! landmark.getId().equals("M" + signature)) {
+                continue;
+            }
+            Line landmarkVector = new Line(origin, new Point2D.Double(landmark.getCenterX(), landmark.getCenterY()));
+            double angleToCameraCenterOfFocus = landmarkVector.getAngleTo(cameraCenterOfFocus);
+            if (angleToCameraCenterOfFocus >= imageHalfAngle) {
+                continue;
+            }
+            for (Line wall : map.getWalls()) {
+                if (wall.intersectsLine(landmarkVector)) {
+                    continue landmark_loop;
+                }
+            }
+
+            double angleToLeftOuterRim = landmarkVector.getAngleTo(new Line(origin, angle - imageHalfAngle, maxPossibleDistanceInMap));
+            double angleToRightOuterRim = landmarkVector.getAngleTo(new Line(origin, angle + imageHalfAngle, maxPossibleDistanceInMap));
+            angleToCameraCenterOfFocus = (angleToLeftOuterRim < angleToRightOuterRim) ? angleToCameraCenterOfFocus : -angleToCameraCenterOfFocus;
+            int xCoordinateOfLandmarkCenter = PixyCam.angleDegreeToPixel(angleToCameraCenterOfFocus);
+
+            Line toWallP1 = new Line(origin, landmark.getOccupiedWallArea().getP1());
+            Line toWallP2 = new Line(origin, landmark.getOccupiedWallArea().getP2());
+            double perceivedAngle = toWallP1.getAngleTo(toWallP2);
+            double angleBetweenCameraCenterOfFocusAndP1 = cameraCenterOfFocus.getAngleTo(toWallP1);
+            double angleBetweenCameraCenterOfFocusAndP2 = cameraCenterOfFocus.getAngleTo(toWallP2);
+            if (angleBetweenCameraCenterOfFocusAndP1 > imageHalfAngle) {
+                perceivedAngle -= (angleBetweenCameraCenterOfFocusAndP1 - imageHalfAngle);
+            }
+            if (angleBetweenCameraCenterOfFocusAndP2 > imageHalfAngle) {
+                perceivedAngle -= (angleBetweenCameraCenterOfFocusAndP2 - imageHalfAngle);
+            }
+            int absoluteWidth = (int) Math.round(perceivedAngle / imageFullAngle * pixelInFullAngle);
+            return new int[]{1, xCoordinateOfLandmarkCenter, 0, absoluteWidth, 0};
+        }
+        return new int[]{0, 0, 0, 0, 0};
+    }
+}